@@ -0,0 +1,66 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+/*
+ * JMH benchmarks for backend hot paths.
+ *
+ *   ./gradlew :backend-jmh:jmh                              run all benchmarks (-Pjmh.includes=<regex> to filter)
+ *   ./gradlew :backend-jmh:jmhReport                        compare the results with baseline/jmh-baseline.json
+ *   ./gradlew :backend-jmh:jmhUpdateBaseline                make the latest results the new baseline
+ *
+ * jmhReport fails the build on a regression when run with -Pjmh.failOnRegression.
+ */
+
+plugins {
+    id("buildlogic.java-common-conventions")
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+dependencies {
+    jmh(project(":backend"))
+
+    // The backend is an application: its implementation dependencies are not on our compile classpath
+    jmh(Deps.transcode.codegenJavaRuntime)
+    jmh(Deps.transcode.protoJava)
+    jmh(Deps.transcode.protoJson)
+    jmh(Deps.grpc.protobuf)
+    jmh(Deps.springBoot.web)
+    jmh(Deps.springBoot.actuator)
+    jmh("org.springframework.boot:spring-boot-starter-data-redis:${Deps.springBoot.version}")
+}
+
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+val jmhBaseline = layout.projectDirectory.file("baseline/jmh-baseline.json")
+
+jmh {
+    warmupIterations = 3
+    warmup = "2s"
+    iterations = 5
+    timeOnIteration = "2s"
+    fork = 2
+    resultFormat = "JSON"
+    resultsFile = jmhResults
+    (project.findProperty("jmh.includes") as String?)?.let { includes = listOf(it) }
+}
+
+tasks.register<JavaExec>("jmhReport") {
+    group = "benchmark"
+    description = "Compare the latest JMH results with the committed baseline."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "com.digitalasset.quickstart.bench.BaselineReport"
+    args(
+        jmhResults.get().asFile.absolutePath,
+        jmhBaseline.asFile.absolutePath,
+        layout.buildDirectory.file("reports/jmh/comparison.md").get().asFile.absolutePath,
+        project.findProperty("jmh.threshold") ?: "10",
+        project.hasProperty("jmh.failOnRegression").toString()
+    )
+}
+
+tasks.register<Copy>("jmhUpdateBaseline") {
+    group = "benchmark"
+    description = "Replace the committed baseline with the latest JMH results."
+    from(jmhResults)
+    into(jmhBaseline.asFile.parentFile)
+    rename { jmhBaseline.asFile.name }
+}
@@ -0,0 +1,68 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.bench;
+
+import com.digitalasset.quickstart.constants.SwapConstants;
+import com.digitalasset.quickstart.util.AmmMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AmmMath - pricing used on every quote and swap: single swap output (as computed by the TI
+ * processor), LP mint estimate and batch clearing price.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AmmMathBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+
+    private BigDecimal[] amountsIn;
+    private BigDecimal[] reservesA;
+    private BigDecimal[] reservesB;
+    private BigDecimal lpSupply;
+    private int i;
+
+    @Setup
+    public void setUp() {
+        amountsIn = Fixtures.amounts(SIZE, 1_000);
+        reservesA = Fixtures.amounts(SIZE, 1_000_000);
+        BigDecimal[] b = Fixtures.amounts(SIZE * 2, 1_000_000);
+        reservesB = new BigDecimal[SIZE];
+        System.arraycopy(b, SIZE, reservesB, 0, SIZE);
+        lpSupply = new BigDecimal("250000.0000000000");
+    }
+
+    private int next() {
+        return i++ & MASK;
+    }
+
+    @Benchmark
+    public BigDecimal swapOutput() {
+        int k = next();
+        return AmmMath.swapOutput(amountsIn[k], reservesA[k], reservesB[k], SwapConstants.FEE_RATE);
+    }
+
+    @Benchmark
+    public BigDecimal estimateLpMint() {
+        int k = next();
+        return AmmMath.estimateLpMint(amountsIn[k], amountsIn[MASK - k], reservesA[k], reservesB[k], lpSupply);
+    }
+
+    @Benchmark
+    public BigDecimal batchClearingPrice() {
+        int k = next();
+        return AmmMath.batchClearingPrice(amountsIn[k], amountsIn[MASK - k], reservesA[k], reservesB[k]);
+    }
+}
@@ -0,0 +1,157 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * BaselineReport - Compares a JMH JSON result file with the committed baseline
+ *
+ * A benchmark counts as regressed (or improved) only when the score moved by more than the
+ * threshold percentage AND by more than the two runs' combined error margins, so noisy benchmarks
+ * do not flap. Writes a Markdown table and prints it; exits 1 on a regression when asked to.
+ *
+ * Usage: BaselineReport results.json baseline.json report.md thresholdPercent failOnRegression
+ */
+public final class BaselineReport {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    record Score(String mode, double score, double error, String unit) {
+        /**
+         * @return Relative change in percent, positive when the current score is worse
+         */
+        double worsePercent(Score current) {
+            double change = (current.score - score) / score * 100.0;
+            return "thrpt".equals(mode) ? -change : change;
+        }
+
+        boolean beyondNoise(Score current) {
+            double error = (Double.isNaN(this.error) ? 0 : this.error) + (Double.isNaN(current.error) ? 0 : current.error);
+            return Math.abs(current.score - score) > error;
+        }
+    }
+
+    private BaselineReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.err.println("Usage: BaselineReport <results.json> <baseline.json> <report.md> <thresholdPercent> <failOnRegression>");
+            System.exit(2);
+        }
+        Path resultsFile = Path.of(args[0]);
+        Path baselineFile = Path.of(args[1]);
+        Path reportFile = Path.of(args[2]);
+        double threshold = Double.parseDouble(args[3]);
+        boolean failOnRegression = Boolean.parseBoolean(args[4]);
+
+        if (!Files.isRegularFile(resultsFile)) {
+            System.err.println("No JMH results at " + resultsFile + " - run :backend-jmh:jmh first");
+            System.exit(2);
+        }
+        Map<String, Score> current = load(resultsFile);
+        Map<String, Score> baseline = Files.isRegularFile(baselineFile) ? load(baselineFile) : Map.of();
+
+        StringBuilder report = new StringBuilder();
+        int regressions = render(report, baseline, current, threshold);
+        if (baseline.isEmpty()) {
+            report.append("\nNo baseline at ").append(baselineFile).append(" - run :backend-jmh:jmhUpdateBaseline to record one.\n");
+        }
+
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        Files.writeString(reportFile, report);
+        System.out.print(report);
+
+        if (regressions > 0 && failOnRegression) {
+            System.err.println(regressions + " benchmark(s) regressed by more than " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    static int render(StringBuilder out, Map<String, Score> baseline, Map<String, Score> current, double threshold) {
+        out.append("| Benchmark | Baseline | Current | Change | |\n");
+        out.append("|---|---:|---:|---:|---|\n");
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            String verdict;
+            String change;
+            if (before == null || before.score == 0 || !before.mode.equals(now.mode)) {
+                verdict = "new";
+                change = "";
+            } else {
+                double worse = before.worsePercent(now);
+                change = String.format("%+.1f%%", worse);
+                if (worse > threshold && before.beyondNoise(now)) {
+                    verdict = "REGRESSION";
+                    regressions++;
+                } else if (worse < -threshold && before.beyondNoise(now)) {
+                    verdict = "improved";
+                } else {
+                    verdict = "";
+                }
+            }
+            out.append("| ").append(entry.getKey())
+                .append(" | ").append(before == null ? "-" : format(before))
+                .append(" | ").append(format(now))
+                .append(" | ").append(change)
+                .append(" | ").append(verdict)
+                .append(" |\n");
+        }
+        for (String removed : baseline.keySet()) {
+            if (!current.containsKey(removed)) {
+                out.append("| ").append(removed).append(" | ").append(format(baseline.get(removed))).append(" | - | | removed |\n");
+            }
+        }
+        out.append("\nChange is positive when slower. Threshold ").append(threshold).append("%, ")
+            .append(regressions).append(" regression(s).\n");
+        return regressions;
+    }
+
+    /**
+     * @return Scores keyed by "Class.method" plus its params, e.g. "JwtAuthBenchmark.authenticate [cacheSize=0]"
+     */
+    static Map<String, Score> load(Path file) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        for (JsonNode run : MAPPER.readTree(file.toFile())) {
+            String benchmark = run.path("benchmark").asText();
+            int method = benchmark.lastIndexOf('.');
+            int clazz = benchmark.lastIndexOf('.', method - 1);
+            StringBuilder key = new StringBuilder(benchmark.substring(clazz + 1));
+
+            Map<String, String> params = new LinkedHashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> param = fields.next();
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            if (!params.isEmpty()) {
+                key.append(' ').append(params.toString().replace('{', '[').replace('}', ']'));
+            }
+
+            JsonNode metric = run.path("primaryMetric");
+            scores.put(key.toString(), new Score(
+                run.path("mode").asText(),
+                metric.path("score").asDouble(),
+                metric.path("scoreError").asDouble(Double.NaN),
+                metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+
+    private static String format(Score score) {
+        return String.format("%.2f +/- %.2f %s", score.score, Double.isNaN(score.error) ? 0 : score.error, score.unit);
+    }
+}
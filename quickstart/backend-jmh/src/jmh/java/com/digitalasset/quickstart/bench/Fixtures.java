@@ -0,0 +1,95 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.bench;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.SplittableRandom;
+
+/**
+ * Fixtures - Deterministic benchmark inputs
+ *
+ * Every generator takes its data from a {@link SplittableRandom} seeded with {@link #SEED}, so two
+ * runs (and a run and the baseline) measure exactly the same inputs. Sizes are powers of two so
+ * benchmarks can cycle through them with a mask.
+ */
+final class Fixtures {
+
+    static final long SEED = 0x5EED_C1EA_2902L;
+    static final String JWT_SECRET = "bench-secret";
+    static final String JWT_ISSUER = "clearportx-backend";
+
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+
+    private Fixtures() {
+    }
+
+    static SplittableRandom random() {
+        return new SplittableRandom(SEED);
+    }
+
+    /**
+     * Party ids shaped like Canton's: "hint-hash::fingerprint".
+     */
+    static String[] parties(int count) {
+        SplittableRandom random = random();
+        String[] parties = new String[count];
+        for (int i = 0; i < count; i++) {
+            parties[i] = String.format("Trader%d-%08x::1220%016x%016x", i, random.nextInt(), random.nextLong(), random.nextLong());
+        }
+        return parties;
+    }
+
+    /**
+     * Amounts between 0.0001 and {@code max}, at the ledger's 10 decimal places.
+     */
+    static BigDecimal[] amounts(int count, long max) {
+        SplittableRandom random = random();
+        BigDecimal[] amounts = new BigDecimal[count];
+        for (int i = 0; i < count; i++) {
+            long units = random.nextLong(1_000_000L, max * 10_000_000_000L);
+            amounts[i] = BigDecimal.valueOf(units, 10);
+        }
+        return amounts;
+    }
+
+    /**
+     * Idempotency keys in the format clients send (UUID-like, [a-zA-Z0-9-]).
+     */
+    static String[] idempotencyKeys(int count, long salt) {
+        SplittableRandom random = new SplittableRandom(SEED ^ salt);
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = String.format("%016x-%016x", random.nextLong(), random.nextLong());
+        }
+        return keys;
+    }
+
+    /**
+     * Signed HS256 bearer headers for the given parties, valid for a day.
+     */
+    static String[] bearerTokens(String[] parties) {
+        long exp = System.currentTimeMillis() / 1000 + 86_400;
+        String header = B64.encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        String[] tokens = new String[parties.length];
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(JWT_SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            for (int i = 0; i < parties.length; i++) {
+                String payload = B64.encodeToString(("{\"sub\":\"" + parties[i] + "\",\"iss\":\"" + JWT_ISSUER
+                        + "\",\"wallet\":\"loop\",\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8));
+                String signingInput = header + "." + payload;
+                String signature = B64.encodeToString(mac.doFinal(signingInput.getBytes(StandardCharsets.UTF_8)));
+                tokens[i] = "Bearer " + signingInput + "." + signature;
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        return tokens;
+    }
+}
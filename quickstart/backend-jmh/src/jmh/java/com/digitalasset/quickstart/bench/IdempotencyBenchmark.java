@@ -0,0 +1,67 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.bench;
+
+import com.digitalasset.quickstart.service.IdempotencyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IdempotencyService - the lookup every swap and liquidity request does before touching the ledger,
+ * against a local store holding {@code entries} registrations (no Redis).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class IdempotencyBenchmark {
+
+    private static final int PROBES = 4096;
+    private static final int MASK = PROBES - 1;
+
+    @Param({"1000", "100000"})
+    public int entries;
+
+    private IdempotencyService service;
+    private String[] hits;
+    private String[] misses;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+    }
+
+    @Setup
+    public void setUp() {
+        service = new IdempotencyService(entries, null);
+        String[] registered = Fixtures.idempotencyKeys(entries, 1);
+        for (int k = 0; k < registered.length; k++) {
+            service.registerSuccess(registered[k], "cmd-" + k, "tx-" + k, "response-" + k);
+        }
+        hits = new String[PROBES];
+        for (int k = 0; k < PROBES; k++) {
+            hits[k] = registered[(int) ((long) k * 7919 % entries)];
+        }
+        misses = Fixtures.idempotencyKeys(PROBES, 2);
+    }
+
+    @Benchmark
+    public Object lookupHit(Cursor cursor) {
+        return service.checkIdempotency(hits[cursor.i++ & MASK]);
+    }
+
+    @Benchmark
+    public Object lookupMiss(Cursor cursor) {
+        return service.checkIdempotency(misses[cursor.i++ & MASK]);
+    }
+}
@@ -0,0 +1,63 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.bench;
+
+import com.digitalasset.quickstart.common.DomainError;
+import com.digitalasset.quickstart.common.Result;
+import com.digitalasset.quickstart.security.JwtAuthService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtAuthService.authenticate - runs on every authenticated request.
+ *
+ * cacheSize=0 measures full verification (HMAC, Base64, Jackson); the default cache size measures
+ * the steady state where the same wallets keep calling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class JwtAuthBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private JwtAuthService service;
+    private String[] bearerTokens;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+    }
+
+    @Setup
+    public void setUp() {
+        service = new JwtAuthService(Fixtures.JWT_SECRET, Fixtures.JWT_ISSUER, new ObjectMapper(), cacheSize, 300);
+        bearerTokens = Fixtures.bearerTokens(Fixtures.parties(SIZE));
+        for (String token : bearerTokens) {
+            if (!service.authenticate(token).isOk()) {
+                throw new IllegalStateException("Fixture token rejected");
+            }
+        }
+    }
+
+    @Benchmark
+    public Result<JwtAuthService.AuthenticatedUser, DomainError> authenticate(Cursor cursor) {
+        return service.authenticate(bearerTokens[cursor.i++ & MASK]);
+    }
+}
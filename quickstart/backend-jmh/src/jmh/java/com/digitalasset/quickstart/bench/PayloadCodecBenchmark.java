@@ -0,0 +1,91 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.bench;
+
+import clearportx_amm_drain_credit.token.token.Token;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import com.digitalasset.transcode.Converter;
+import com.digitalasset.transcode.codec.json.JsonStringCodec;
+import com.digitalasset.transcode.codec.proto.ProtobufCodec;
+import com.digitalasset.transcode.java.Party;
+import com.digitalasset.transcode.java.Utils;
+import com.digitalasset.transcode.schema.Dictionary;
+import com.digitalasset.transcode.schema.Identifier;
+import daml.Daml;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payload conversion - the dto2Proto/proto2Dto converters LedgerApi runs on every command and
+ * every ACS or transaction event, and the JSON decoding Pqs runs on every row.
+ *
+ * Converters are built exactly as LedgerApi and Pqs build them; the payloads are Token contracts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PayloadCodecBenchmark {
+
+    private static final int SIZE = 256;
+    private static final int MASK = SIZE - 1;
+
+    private Dictionary<Converter<Object, ValueOuterClass.Value>> dto2Proto;
+    private Dictionary<Converter<ValueOuterClass.Value, Object>> proto2Dto;
+    private Dictionary<Converter<String, Object>> json2Dto;
+    private Identifier templateId;
+
+    private Token[] tokens;
+    private ValueOuterClass.Value[] protoPayloads;
+    private String[] jsonPayloads;
+    private int i;
+
+    @Setup
+    public void setUp() {
+        ProtobufCodec protoCodec = new ProtobufCodec();
+        dto2Proto = Utils.getConverters(Daml.ENTITIES, protoCodec);
+        proto2Dto = Utils.getConverters(protoCodec, Daml.ENTITIES);
+        JsonStringCodec jsonCodec = new JsonStringCodec(true, true, false);
+        json2Dto = Utils.getConverters(jsonCodec, Daml.ENTITIES);
+        Dictionary<Converter<Object, String>> dto2Json = Utils.getConverters(Daml.ENTITIES, jsonCodec);
+        templateId = Utils.getTemplateIdByClass(Token.class);
+
+        String[] parties = Fixtures.parties(SIZE);
+        BigDecimal[] amounts = Fixtures.amounts(SIZE, 1_000_000);
+        tokens = new Token[SIZE];
+        protoPayloads = new ValueOuterClass.Value[SIZE];
+        jsonPayloads = new String[SIZE];
+        for (int k = 0; k < SIZE; k++) {
+            tokens[k] = new Token(new Party(parties[MASK - k]), new Party(parties[k]), k % 2 == 0 ? "ETH" : "USDC", amounts[k]);
+            protoPayloads[k] = dto2Proto.template(templateId).convert(tokens[k]);
+            jsonPayloads[k] = dto2Json.template(templateId).convert(tokens[k]);
+        }
+    }
+
+    private int next() {
+        return i++ & MASK;
+    }
+
+    @Benchmark
+    public ValueOuterClass.Value dto2Proto() {
+        return dto2Proto.template(templateId).convert(tokens[next()]);
+    }
+
+    @Benchmark
+    public Object proto2Dto() {
+        return proto2Dto.template(templateId).convert(protoPayloads[next()]);
+    }
+
+    @Benchmark
+    public Object pqsJson2Dto() {
+        return json2Dto.template(templateId).convert(jsonPayloads[next()]);
+    }
+}
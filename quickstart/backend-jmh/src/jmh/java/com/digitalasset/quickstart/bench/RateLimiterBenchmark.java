@@ -0,0 +1,98 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.bench;
+
+import com.digitalasset.quickstart.config.DistributedRateLimiter;
+import com.digitalasset.quickstart.config.LocalRateLimiter;
+import com.digitalasset.quickstart.config.RateLimiterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limiters - the check in front of every write route.
+ *
+ * The local limiter runs with limits high enough that requests are admitted, so every tier is
+ * consumed. The distributed limiter talks to a Redis stub that always grants: the numbers are the
+ * limiter's own overhead (key and argument building, token leasing, metrics), not the round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class RateLimiterBenchmark {
+
+    private static final int SIZE = 4096;
+    private static final int MASK = SIZE - 1;
+    private static final long T0 = 1_735_732_800_000L;
+    private static final String[] PATHS = {"/api/swap/atomic", "/api/liquidity/add", "/api/pools", "/api/swap/quote"};
+
+    @Param({"1", "8"})
+    public int prefetch;
+
+    private LocalRateLimiter local;
+    private DistributedRateLimiter distributed;
+    private String[] parties;
+    private final AtomicLong clock = new AtomicLong(T0);
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+    }
+
+    @Setup
+    public void setUp() {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setGlobalTps(1_000_000);
+        properties.setGlobalBurst(1_000);
+        properties.setPerPartyRpm(60_000_000);
+        properties.setPartyBurst(100);
+        local = new LocalRateLimiter(properties, new SimpleMeterRegistry());
+        distributed = new DistributedRateLimiter(new GrantingRedis(), new SimpleMeterRegistry(), 1_000_000, 1_000_000, prefetch);
+        parties = Fixtures.parties(SIZE);
+    }
+
+    @Benchmark
+    public LocalRateLimiter.Decision localAcquire(Cursor cursor) {
+        int k = cursor.i++;
+        return local.acquire(PATHS[k & 3], parties[k & MASK], clock.incrementAndGet());
+    }
+
+    @Benchmark
+    public DistributedRateLimiter.Decision distributedAcquireAnonymous() {
+        return distributed.acquire(null, Instant.ofEpochMilli(clock.incrementAndGet()));
+    }
+
+    @Benchmark
+    public DistributedRateLimiter.Decision distributedAcquireParty(Cursor cursor) {
+        return distributed.acquire(parties[cursor.i++ & MASK], Instant.ofEpochMilli(clock.incrementAndGet()));
+    }
+
+    /**
+     * Grants every request and as many global tokens as asked for.
+     */
+    static final class GrantingRedis extends StringRedisTemplate {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            boolean global = !keys.isEmpty() && !keys.get(0).startsWith("rl:{gcra}:party:");
+            long granted = global ? Long.parseLong((String) args[4]) : 0;
+            return (T) List.of(1L, 0L, granted);
+        }
+    }
+}
@@ -59,6 +59,7 @@ dependencies {
     runtimeOnly(Deps.grpc.netty)
 
     testImplementation(Deps.springBoot.test)
+    testImplementation("io.grpc:grpc-inprocess:${Deps.grpc.version}")
 }
 
 application {
@@ -74,6 +75,26 @@ tasks.withType<Jar> {
     }
 }
 
+tasks.named<Test>("test") {
+    useJUnitPlatform {
+        excludeTags("load")
+    }
+}
+
+// Throughput run against the in-process fake ledger: ./gradlew :backend:loadTest -Pload.rate=500
+tasks.register<Test>("loadTest") {
+    description = "Runs the load-tagged tests against the in-process fake Ledger API"
+    group = "verification"
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    useJUnitPlatform {
+        includeTags("load")
+    }
+    systemProperties(project.properties.filterKeys { it.startsWith("load.") })
+    testLogging.showStandardStreams = true
+    outputs.upToDateWhen { false }
+}
+
 tasks.register<Copy>("copyOtelAgentJar") {
     from(configurations.runtimeClasspath)
     into("$projectDir/build/otel-agent")
@@ -0,0 +1,215 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BlockingExecutor - Runs request work that blocks on ledger futures
+ *
+ * Several flows (showcase pool reset, wallet drain, token minting, holding pool bootstrap) are
+ * straight-line code that joins one ledger future after another. On a servlet thread they hold it
+ * for the whole sequence, so concurrency is capped by the Tomcat pool size.
+ *
+ * With {@code spring.threads.virtual.enabled} on a Java 21+ runtime, Spring Boot moves Tomcat
+ * requests and {@code @Scheduled} jobs to virtual threads and this executor starts one virtual
+ * thread per task, so a blocked join only parks a virtual thread. Otherwise (flag off, or a Java 17
+ * runtime) tasks run on a bounded platform pool, which at least keeps them off the servlet pool.
+ * Its queue is bounded too: once a stalled ledger has filled it, the submitting thread runs the
+ * task itself, which slows submitters down instead of queueing without limit and never fails the
+ * submission (async continuations handed to this executor would otherwise complete exceptionally).
+ * After shutdown, submissions are rejected with RejectedExecutionException and {@link #supply}
+ * returns a failed future. Chain retries through supply rather than thenComposeAsync(fn, this): on
+ * Java 17 a rejected async continuation of a still-pending future is never completed.
+ *
+ * Metrics, tagged executor and mode (virtual / platform): clearportx.executor.active,
+ * clearportx.executor.queued, clearportx.executor.queue.time, clearportx.executor.task.time,
+ * clearportx.executor.caller.runs.
+ */
+@Component
+public class BlockingExecutor implements Executor {
+    private static final Logger logger = LoggerFactory.getLogger(BlockingExecutor.class);
+
+    private final String name;
+    private final boolean virtual;
+    private final ExecutorService delegate;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer queueTime;
+    private final Timer taskTime;
+    private final Counter callerRuns;
+
+    @Autowired
+    public BlockingExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualRequested,
+            @Value("${clearportx.threads.blocking.platform-threads:64}") int platformThreads,
+            @Value("${clearportx.threads.blocking.queue-capacity:1024}") int queueCapacity
+    ) {
+        this("blocking", meterRegistry, virtualRequested && virtualThreadsSupported(), platformThreads, queueCapacity);
+        if (virtualRequested && !virtual) {
+            logger.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; blocking calls use a {}-thread platform pool",
+                    Runtime.version().feature(), platformThreads);
+        }
+    }
+
+    BlockingExecutor(String name, MeterRegistry meterRegistry, boolean virtual, int platformThreads, int queueCapacity) {
+        this.name = name;
+        this.virtual = virtual;
+
+        Tags tags = Tags.of("executor", name, "mode", virtual ? "virtual" : "platform");
+        this.callerRuns = Counter.builder("clearportx.executor.caller.runs")
+                .description("Tasks run on the submitting thread because the queue was full")
+                .tags(tags)
+                .register(meterRegistry);
+        this.delegate = virtual ? newVirtualThreadPerTaskExecutor(name) : newPlatformPool(name, platformThreads, queueCapacity, callerRuns);
+
+        Gauge.builder("clearportx.executor.active", active, AtomicInteger::get)
+                .description("Tasks currently running")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("clearportx.executor.queued", queued, AtomicInteger::get)
+                .description("Tasks submitted but not started yet")
+                .tags(tags)
+                .register(meterRegistry);
+        this.queueTime = Timer.builder("clearportx.executor.queue.time")
+                .description("Time from submission to start")
+                .tags(tags)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.taskTime = Timer.builder("clearportx.executor.task.time")
+                .description("Task run time, including time blocked on ledger futures")
+                .tags(tags)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        logger.info("Blocking executor '{}' uses {}", name,
+                virtual ? "virtual threads" : platformThreads + " platform threads, queue capacity " + queueCapacity);
+    }
+
+    /**
+     * @return Whether the JVM has virtual threads (Java 21+)
+     */
+    public static boolean virtualThreadsSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Run a blocking body off the calling thread. After shutdown the returned future fails with
+     * RejectedExecutionException rather than the call throwing.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> body) {
+        try {
+            return CompletableFuture.supplyAsync(body, this);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long submittedAt = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                long startedAt = System.nanoTime();
+                queued.decrementAndGet();
+                queueTime.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                    taskTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Blocking executor '{}' still had {} running tasks at shutdown", name, active.get());
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService newPlatformPool(String name, int threads, int queueCapacity, Counter callerRuns) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "clearportx-" + name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        RejectedExecutionHandler runOnCaller = (task, executor) -> {
+            if (executor.isShutdown()) {
+                // Fail the submission so supplyAsync / thenComposeAsync futures complete instead of hanging
+                throw new RejectedExecutionException("Blocking executor '" + name + "' is shut down");
+            }
+            callerRuns.increment();
+            task.run();
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, queueCapacity)), factory, runOnCaller);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory()), reached
+     * reflectively because the build still targets Java 17.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = Class.forName("java.lang.Thread$Builder$OfVirtual")
+                    .getMethod("name", String.class, long.class)
+                    .invoke(builder, "clearportx-" + name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                    .getMethod("factory")
+                    .invoke(builder);
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available on Java " + Runtime.version(), e);
+        }
+    }
+}
@@ -3,31 +3,47 @@
 
 package com.digitalasset.quickstart.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
-import java.time.Clock;
-import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Distributed rate limiter using Redis sliding window algorithm.
+ * Distributed rate limiter using a Redis GCRA (generic cell rate algorithm) script.
  *
  * CLUSTER-SAFE: Works across multiple pods/replicas.
  *
  * Algorithm:
- * - Global: 2 requests per 5 seconds (0.4 TPS) - sliding window across 5 buckets
- * - Per-party: 10 requests per minute (0.167 TPS) - sliding window across 60 buckets
+ * - Global: 2 requests per 5 seconds (0.4 TPS), bursts of up to 2
+ * - Per-party: 10 requests per minute (0.167 TPS), bursts of up to 10
  *
- * Redis keys:
- * - rl:global:{epoch_second} → counter, TTL 5s
- * - rl:party:{party}:{epoch_second} → counter, TTL 60s
+ * Both limits are checked and consumed atomically by one Lua script (one EVALSHA round trip):
+ * a request is only counted against the global limit if the party limit admits it too, and
+ * concurrent pods cannot both pass a check before either increments.
+ *
+ * Redis keys (hash-tagged so both land in one Redis Cluster slot):
+ * - rl:{gcra}:global → theoretical arrival time (epoch ms), PX = time until the bucket drains
+ * - rl:{gcra}:party:{party} → theoretical arrival time (epoch ms)
  *
  * Retry-After calculation:
- * - Time until next available bucket (max of global/party)
+ * - Returned by the same script call: time until both limits admit one more request
+ *
+ * Token prefetch (rate-limiter.prefetch &gt; 1):
+ * - Each script call asks for up to N global tokens and keeps the surplus locally for one window,
+ *   so bursts of requests without a party do not touch Redis. Off by default: leased tokens are
+ *   unavailable to other pods until used or expired.
  *
  * Configuration:
  * - rate-limiter.distributed=true (use Redis)
@@ -42,137 +58,235 @@ public class DistributedRateLimiter {
 
     private static final Logger logger = LoggerFactory.getLogger(DistributedRateLimiter.class);
 
+    static final String GLOBAL_KEY = "rl:{gcra}:global";
+    static final String PARTY_KEY_PREFIX = "rl:{gcra}:party:";
+
+    private static final long GLOBAL_PERIOD_MS = 5_000;
+    private static final long PARTY_PERIOD_MS = 60_000;
+
+    /**
+     * KEYS: one TAT key per limit. ARGV[1] = now (ms), ARGV[2] = 1 to consume / 0 to only check,
+     * then per key i: ARGV[3i] = emission interval (ms), ARGV[3i+1] = period (ms), ARGV[3i+2] = tokens wanted.
+     * Returns {allowed, retryAfterMs, tokens granted on the first key}.
+     */
+    private static final RedisScript<List> GCRA_SCRIPT = new DefaultRedisScript<>("""
+            local now = tonumber(ARGV[1])
+            local commit = ARGV[2] == '1'
+            local retry = 0
+            local granted = {}
+            local tats = {}
+            for i = 1, #KEYS do
+              local interval = tonumber(ARGV[3 * i])
+              local period = tonumber(ARGV[3 * i + 1])
+              local wanted = tonumber(ARGV[3 * i + 2])
+              local tat = tonumber(redis.call('GET', KEYS[i]) or now)
+              if tat < now then tat = now end
+              local fits = math.floor((now + period - tat) / interval)
+              if fits < 1 then
+                local wait = tat + interval - period - now
+                if wait > retry then retry = wait end
+              end
+              granted[i] = math.min(wanted, fits)
+              tats[i] = tat
+            end
+            if retry > 0 then
+              return {0, retry, 0}
+            end
+            if commit then
+              for i = 1, #KEYS do
+                local newTat = tats[i] + tonumber(ARGV[3 * i]) * granted[i]
+                redis.call('SET', KEYS[i], newTat, 'PX', math.max(newTat - now, 1))
+              end
+            end
+            return {1, 0, granted[1] or 0}
+            """, List.class);
+
+    /**
+     * Outcome of one rate-limit check.
+     *
+     * @param allowed Whether the request may proceed
+     * @param retryAfterSeconds Seconds until both limits admit another request (0 when allowed)
+     */
+    public record Decision(boolean allowed, int retryAfterSeconds) { }
+
     private final StringRedisTemplate redis;
-    private final Clock clock;
 
     // Rate limits
-    private final int globalMaxPer5s = 2;     // 0.4 TPS = 2 requests per 5 seconds
-    private final int partyMaxPerMin = 10;    // 10 requests per minute per party
+    private final int globalMaxPer5s;     // 0.4 TPS = 2 requests per 5 seconds
+    private final int partyMaxPerMin;     // 10 requests per minute per party
+    private final long globalIntervalMs;
+    private final long partyIntervalMs;
+    private final int prefetch;
+
+    // Global tokens leased by a prefetching script call
+    private int leasedTokens;
+    private long leaseExpiresAtMs;
 
-    public DistributedRateLimiter(StringRedisTemplate redis, Clock clock) {
+    private final Timer redisLatency;
+    private final Counter allowed;
+    private final Counter denied;
+    private final Counter errors;
+    private final Counter localGrants;
+
+    public DistributedRateLimiter(
+            StringRedisTemplate redis,
+            MeterRegistry meterRegistry,
+            @Value("${rate-limiter.global-max-per-5s:2}") int globalMaxPer5s,
+            @Value("${rate-limiter.party-max-per-min:10}") int partyMaxPerMin,
+            @Value("${rate-limiter.prefetch:1}") int prefetch
+    ) {
         this.redis = redis;
-        this.clock = clock;
-        logger.info("✓ Distributed rate limiter initialized (Redis): global=2/5s, party=10/min");
+        this.globalMaxPer5s = Math.max(1, globalMaxPer5s);
+        this.partyMaxPerMin = Math.max(1, partyMaxPerMin);
+        this.globalIntervalMs = GLOBAL_PERIOD_MS / this.globalMaxPer5s;
+        this.partyIntervalMs = PARTY_PERIOD_MS / this.partyMaxPerMin;
+        this.prefetch = Math.max(1, prefetch);
+        this.redisLatency = Timer.builder("clearportx.ratelimit.redis.latency")
+            .description("Round-trip time of the distributed rate-limit script")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.allowed = decisions(meterRegistry, "allowed");
+        this.denied = decisions(meterRegistry, "denied");
+        this.errors = decisions(meterRegistry, "error");
+        this.localGrants = Counter.builder("clearportx.ratelimit.prefetched")
+            .description("Requests admitted from locally prefetched global tokens, without a Redis call")
+            .register(meterRegistry);
+        logger.info("✓ Distributed rate limiter initialized (Redis GCRA): global={}/5s, party={}/min, prefetch={}",
+            this.globalMaxPer5s, this.partyMaxPerMin, this.prefetch);
         logger.info("✓ Cluster-safe rate limiting enabled");
     }
 
     /**
-     * Try to acquire permission for a request.
+     * Check and consume both limits in one round trip.
      *
      * @param party Canton party ID (null for unauthenticated requests)
      * @param now Current timestamp
-     * @return true if request allowed, false if rate limited
+     * @return Whether the request is allowed and, if not, how long to wait
      */
-    public boolean tryAcquire(String party, Instant now) {
-        long epochSecond = now.getEpochSecond();
-
-        // Check global rate limit (sliding window: sum of last 5 seconds)
-        long globalCount = 0;
-        for (int i = 0; i < 5; i++) {
-            globalCount += getCounter("rl:global:" + (epochSecond - i));
+    public Decision acquire(String party, Instant now) {
+        long nowMs = now.toEpochMilli();
+        boolean globalLeased = takeLeasedToken(nowMs);
+        if (globalLeased && party == null) {
+            localGrants.increment();
+            allowed.increment();
+            return new Decision(true, 0);
         }
 
-        if (globalCount >= globalMaxPer5s) {
-            logger.debug("Global rate limit exceeded: {} >= {}", globalCount, globalMaxPer5s);
-            return false;
+        List<Long> result = runScript(party, nowMs, true, globalLeased ? 0 : prefetch, !globalLeased);
+        if (result == null) {
+            // Fail open, as before: an unreachable Redis must not take swaps down
+            return new Decision(true, 0);
         }
-
-        // Check per-party rate limit (sliding window: sum of last 60 seconds)
-        if (party != null) {
-            long partyCount = 0;
-            for (int i = 0; i < 60; i++) {
-                partyCount += getCounter("rl:party:" + party + ":" + (epochSecond - i));
-            }
-
-            if (partyCount >= partyMaxPerMin) {
-                logger.debug("Per-party rate limit exceeded for {}: {} >= {}", party, partyCount, partyMaxPerMin);
-                return false;
+        if (result.get(0) == 1L) {
+            if (!globalLeased) {
+                leaseTokens(result.get(2).intValue() - 1, nowMs);
             }
+            allowed.increment();
+            return new Decision(true, 0);
         }
-
-        // Consume tokens (increment counters)
-        incrementCounter("rl:global:" + epochSecond, 5);
-        if (party != null) {
-            incrementCounter("rl:party:" + party + ":" + epochSecond, 60);
+        if (globalLeased) {
+            returnLeasedToken();
         }
+        denied.increment();
+        int retryAfterSeconds = (int) Math.max(1, Math.ceil(result.get(1) / 1000.0));
+        logger.debug("Rate limit exceeded for {}: retry in {}s", party != null ? party : "global", retryAfterSeconds);
+        return new Decision(false, retryAfterSeconds);
+    }
 
-        return true;
+    /**
+     * Try to acquire permission for a request.
+     *
+     * @param party Canton party ID (null for unauthenticated requests)
+     * @param now Current timestamp
+     * @return true if request allowed, false if rate limited
+     */
+    public boolean tryAcquire(String party, Instant now) {
+        return acquire(party, now).allowed();
     }
 
     /**
-     * Calculate Retry-After duration in seconds.
+     * Calculate Retry-After duration in seconds without consuming a token.
      *
-     * Returns time until next available bucket (max of global/party limits).
+     * Prefer {@link #acquire}, which returns the same value from the consuming call.
      *
      * @param party Canton party ID (null for unauthenticated)
      * @param now Current timestamp
      * @return seconds to wait before retrying (0 if can proceed immediately)
      */
     public int getRetryAfterSeconds(String party, Instant now) {
-        long epochSecond = now.getEpochSecond();
-
-        // Calculate global wait time
-        int globalWaitSeconds = 0;
-        long globalCount = 0;
-        for (int i = 0; i < 5; i++) {
-            globalCount += getCounter("rl:global:" + (epochSecond - i));
-        }
-        if (globalCount >= globalMaxPer5s) {
-            // Need to wait until oldest bucket expires
-            globalWaitSeconds = 5;  // Wait for full window to clear
+        List<Long> result = runScript(party, now.toEpochMilli(), false, 1, true);
+        if (result == null || result.get(0) == 1L) {
+            return 0;
         }
+        return (int) Math.max(1, Math.ceil(result.get(1) / 1000.0));
+    }
 
-        // Calculate per-party wait time
-        int partyWaitSeconds = 0;
+    /**
+     * @return {allowed, retryAfterMs, globalTokensGranted}, or null when Redis failed
+     */
+    @SuppressWarnings("unchecked")
+    private List<Long> runScript(String party, long nowMs, boolean commit, int globalTokens, boolean includeGlobal) {
+        List<String> keys = new ArrayList<>(2);
+        List<String> args = new ArrayList<>(8);
+        args.add(Long.toString(nowMs));
+        args.add(commit ? "1" : "0");
+        if (includeGlobal) {
+            keys.add(GLOBAL_KEY);
+            addLimitArgs(args, globalIntervalMs, GLOBAL_PERIOD_MS, globalTokens);
+        }
         if (party != null) {
-            long partyCount = 0;
-            for (int i = 0; i < 60; i++) {
-                partyCount += getCounter("rl:party:" + party + ":" + (epochSecond - i));
-            }
-            if (partyCount >= partyMaxPerMin) {
-                // Need to wait until oldest bucket expires
-                partyWaitSeconds = 60;  // Wait for full window to clear
+            keys.add(PARTY_KEY_PREFIX + party);
+            addLimitArgs(args, partyIntervalMs, PARTY_PERIOD_MS, 1);
+        }
+        long start = System.nanoTime();
+        try {
+            List<Long> result = (List<Long>) redis.execute(GCRA_SCRIPT, keys, args.toArray());
+            if (result == null || result.size() < 3) {
+                throw new IllegalStateException("unexpected script result " + result);
             }
+            return result;
+        } catch (Exception ex) {
+            errors.increment();
+            logger.warn("Redis rate-limit script failed, allowing request: {}", ex.getMessage());
+            return null;
+        } finally {
+            redisLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
+    }
 
-        // Return maximum wait time
-        return Math.max(globalWaitSeconds, partyWaitSeconds);
+    private static void addLimitArgs(List<String> args, long intervalMs, long periodMs, int tokens) {
+        args.add(Long.toString(intervalMs));
+        args.add(Long.toString(periodMs));
+        args.add(Integer.toString(tokens));
     }
 
-    /**
-     * Get counter value from Redis.
-     *
-     * @param key Redis key
-     * @return counter value (0 if key doesn't exist)
-     */
-    private long getCounter(String key) {
-        try {
-            String value = redis.opsForValue().get(key);
-            return value != null ? Long.parseLong(value) : 0;
-        } catch (Exception ex) {
-            logger.warn("Failed to read Redis counter {}: {}", key, ex.getMessage());
-            return 0;
+    private synchronized boolean takeLeasedToken(long nowMs) {
+        if (leasedTokens > 0 && nowMs < leaseExpiresAtMs) {
+            leasedTokens--;
+            return true;
         }
+        leasedTokens = 0;
+        return false;
     }
 
-    /**
-     * Increment counter in Redis with TTL.
-     *
-     * @param key Redis key
-     * @param ttlSeconds TTL in seconds
-     */
-    private void incrementCounter(String key, int ttlSeconds) {
-        try {
-            Long newValue = redis.opsForValue().increment(key);
-            // Set TTL only on first increment (when value is 1)
-            if (newValue != null && newValue == 1L) {
-                redis.expire(key, Duration.ofSeconds(ttlSeconds));
-            }
-        } catch (Exception ex) {
-            logger.error("Failed to increment Redis counter {}: {}", key, ex.getMessage());
+    private synchronized void returnLeasedToken() {
+        leasedTokens++;
+    }
+
+    private synchronized void leaseTokens(int tokens, long nowMs) {
+        if (tokens > 0) {
+            leasedTokens += tokens;
+            leaseExpiresAtMs = nowMs + GLOBAL_PERIOD_MS;
         }
     }
 
+    private static Counter decisions(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("clearportx.ratelimit.decisions")
+            .description("Distributed rate-limit decisions")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
     /**
      * Get rate limit configuration.
      */
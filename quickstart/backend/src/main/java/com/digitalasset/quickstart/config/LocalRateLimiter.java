@@ -0,0 +1,270 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process rate limiter: GCRA buckets in three tiers, checked in order party → route → global.
+ *
+ * - Global: one bucket shared by every limited route (the devnet TPS cap)
+ * - Route: optional bucket per route policy
+ * - Party: one bucket per party, per route policy (or shared by routes without their own party rate)
+ *
+ * A request is admitted only if every tier admits it; tiers that already consumed a token are
+ * refunded when a later tier denies.
+ *
+ * Per-party state is striped (one lock per stripe) and self-cleaning: a GCRA key whose theoretical
+ * arrival time has passed is indistinguishable from a fresh one, so idle parties are dropped on a
+ * periodic sweep and the least recently used ones when a stripe is full.
+ *
+ * NOT CLUSTER-SAFE: use {@link DistributedRateLimiter} (rate-limiter.distributed=true) for multiple pods.
+ */
+public class LocalRateLimiter {
+
+    /**
+     * @param allowed Whether the request may proceed
+     * @param waitMs Time until the denying tier admits another request (0 when allowed)
+     * @param tier Denying tier ("party", "route" or "global"), null when allowed
+     */
+    public record Decision(boolean allowed, long waitMs, String tier) { }
+
+    private static final int SWEEP_EVERY = 1024;
+
+    private record Policy(
+            String name,
+            String pathPrefix,
+            GcraTable routeTier,
+            GcraTable partyTier,
+            Counter allowed,
+            Map<String, Counter> denied
+    ) { }
+
+    private final GcraTable global;
+    private final List<Policy> policies = new ArrayList<>();
+    private final List<GcraTable> partyTables = new ArrayList<>();
+
+    public LocalRateLimiter(RateLimiterProperties properties, MeterRegistry meterRegistry) {
+        this.global = new GcraTable(rateIntervalMs(properties.getGlobalTps(), 1000.0), properties.getGlobalBurst(), 1, 1);
+        GcraTable defaultParty = new GcraTable(rateIntervalMs(properties.getPerPartyRpm(), 60_000.0),
+            properties.getPartyBurst(), properties.getStripes(), properties.getMaxPartiesPerStripe());
+        partyTables.add(defaultParty);
+
+        Map<String, RateLimiterProperties.Route> routes = properties.getRoutes();
+        if (routes == null || routes.isEmpty()) {
+            // Rate-limit write operations that create ledger transactions
+            routes = new LinkedHashMap<>();
+            routes.put("swap", new RateLimiterProperties.Route("/api/swap/"));
+            routes.put("liquidity", new RateLimiterProperties.Route("/api/liquidity/"));
+            routes.put("init", new RateLimiterProperties.Route("/api/init/"));
+        }
+        for (Map.Entry<String, RateLimiterProperties.Route> entry : routes.entrySet()) {
+            RateLimiterProperties.Route route = entry.getValue();
+            if (route.getPathPrefix() == null || route.getPathPrefix().isBlank()) {
+                continue;
+            }
+            GcraTable routeTier = route.getTps() > 0
+                ? new GcraTable(rateIntervalMs(route.getTps(), 1000.0), route.getBurst(), 1, 1)
+                : null;
+            GcraTable partyTier = defaultParty;
+            if (route.getPartyRpm() > 0) {
+                partyTier = new GcraTable(rateIntervalMs(route.getPartyRpm(), 60_000.0), route.getPartyBurst(),
+                    properties.getStripes(), properties.getMaxPartiesPerStripe());
+                partyTables.add(partyTier);
+            }
+            Map<String, Counter> denied = new LinkedHashMap<>();
+            for (String tier : List.of("party", "route", "global")) {
+                denied.put(tier, Counter.builder("clearportx.ratelimit.local.denied")
+                    .description("Requests rejected by the in-process rate limiter")
+                    .tag("route", entry.getKey())
+                    .tag("tier", tier)
+                    .register(meterRegistry));
+            }
+            Counter allowed = Counter.builder("clearportx.ratelimit.local.allowed")
+                .description("Requests admitted by the in-process rate limiter")
+                .tag("route", entry.getKey())
+                .register(meterRegistry);
+            policies.add(new Policy(entry.getKey(), route.getPathPrefix(), routeTier, partyTier, allowed, denied));
+        }
+        Gauge.builder("clearportx.ratelimit.local.parties", this, LocalRateLimiter::trackedParties)
+            .description("Parties with rate-limit state held in memory")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return Whether any route policy applies to {@code path}
+     */
+    public boolean isLimited(String path) {
+        return policyFor(path) != null;
+    }
+
+    /**
+     * Check and consume every tier that applies to the request.
+     *
+     * @param path Request path
+     * @param party Canton party ID (null skips the party tier)
+     * @param nowMs Current time in epoch millis
+     */
+    public Decision acquire(String path, String party, long nowMs) {
+        Policy policy = policyFor(path);
+        if (policy == null) {
+            return new Decision(true, 0, null);
+        }
+        if (party != null) {
+            long wait = policy.partyTier.tryConsume(party, nowMs);
+            if (wait > 0) {
+                return deny(policy, "party", wait);
+            }
+        }
+        if (policy.routeTier != null) {
+            long wait = policy.routeTier.tryConsume(policy.name, nowMs);
+            if (wait > 0) {
+                refund(policy.partyTier, party);
+                return deny(policy, "route", wait);
+            }
+        }
+        long wait = global.tryConsume("global", nowMs);
+        if (wait > 0) {
+            refund(policy.partyTier, party);
+            if (policy.routeTier != null) {
+                policy.routeTier.refund(policy.name);
+            }
+            return deny(policy, "global", wait);
+        }
+        policy.allowed.increment();
+        return new Decision(true, 0, null);
+    }
+
+    /**
+     * @return Parties currently tracked across all party tables
+     */
+    public int trackedParties() {
+        return partyTables.stream().mapToInt(GcraTable::size).sum();
+    }
+
+    private Policy policyFor(String path) {
+        for (Policy policy : policies) {
+            if (path.startsWith(policy.pathPrefix)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    private static Decision deny(Policy policy, String tier, long waitMs) {
+        policy.denied.get(tier).increment();
+        return new Decision(false, waitMs, tier);
+    }
+
+    private static void refund(GcraTable table, String key) {
+        if (key != null) {
+            table.refund(key);
+        }
+    }
+
+    private static long rateIntervalMs(double rate, double perMs) {
+        return rate > 0 ? Math.max(1L, (long) (perMs / rate)) : 0L;
+    }
+
+    /**
+     * GCRA state: key → theoretical arrival time (TAT), striped by key hash.
+     */
+    static final class GcraTable {
+
+        private static final class Stripe {
+            // Access order, so the eldest entry is the least recently used
+            final LinkedHashMap<String, long[]> tats = new LinkedHashMap<>(16, 0.75f, true);
+            int opsSinceSweep;
+        }
+
+        private final long intervalMs;
+        private final long toleranceMs;
+        private final Stripe[] stripes;
+        private final int maxPerStripe;
+
+        GcraTable(long intervalMs, int burst, int stripes, int maxPerStripe) {
+            this.intervalMs = intervalMs;
+            this.toleranceMs = intervalMs * (Math.max(1, burst) - 1L);
+            this.stripes = new Stripe[Math.max(1, stripes)];
+            for (int i = 0; i < this.stripes.length; i++) {
+                this.stripes[i] = new Stripe();
+            }
+            this.maxPerStripe = Math.max(1, maxPerStripe);
+        }
+
+        /**
+         * @return 0 if a token was consumed, otherwise ms until one is available
+         */
+        long tryConsume(String key, long nowMs) {
+            if (intervalMs <= 0) {
+                return 0;
+            }
+            Stripe stripe = stripeFor(key);
+            synchronized (stripe) {
+                long[] cell = stripe.tats.get(key);
+                long tat = cell != null ? Math.max(cell[0], nowMs) : nowMs;
+                long wait = tat - toleranceMs - nowMs;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (cell != null) {
+                    cell[0] = tat + intervalMs;
+                    return 0;
+                }
+                stripe.tats.put(key, new long[] {tat + intervalMs});
+                evict(stripe, nowMs);
+                return 0;
+            }
+        }
+
+        void refund(String key) {
+            if (intervalMs <= 0) {
+                return;
+            }
+            Stripe stripe = stripeFor(key);
+            synchronized (stripe) {
+                long[] cell = stripe.tats.get(key);
+                if (cell != null) {
+                    cell[0] -= intervalMs;
+                }
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    size += stripe.tats.size();
+                }
+            }
+            return size;
+        }
+
+        private Stripe stripeFor(String key) {
+            return stripes[(key.hashCode() & 0x7fffffff) % stripes.length];
+        }
+
+        private void evict(Stripe stripe, long nowMs) {
+            if (++stripe.opsSinceSweep < SWEEP_EVERY && stripe.tats.size() <= maxPerStripe) {
+                return;
+            }
+            stripe.opsSinceSweep = 0;
+            // Idle: the bucket has fully drained, so dropping the key changes nothing
+            stripe.tats.values().removeIf(cell -> cell[0] <= nowMs);
+            Iterator<String> eldest = stripe.tats.keySet().iterator();
+            while (stripe.tats.size() > maxPerStripe && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+}
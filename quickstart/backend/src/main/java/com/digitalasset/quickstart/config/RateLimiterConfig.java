@@ -5,10 +5,10 @@ package com.digitalasset.quickstart.config;
 
 import com.digitalasset.quickstart.dto.ErrorResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,9 +21,6 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.time.Clock;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Token bucket rate limiter for Canton Network devnet compliance.
@@ -40,16 +37,18 @@ import java.util.concurrent.atomic.AtomicLong;
  * - Central rate limiting service (e.g., Envoy global rate limit)
  * - Load balancer rate limiting (e.g., NGINX rate_limit_req zone)
  *
- * Two-tier limiting:
- * 1. Global: 1 request per 2.5 seconds (0.4 TPS) across all parties
- * 2. Per-party: 10 requests per minute (0.167 TPS per party)
+ * Three-tier limiting ({@link LocalRateLimiter}):
+ * 1. Global: 1 request per 2.5 seconds (0.4 TPS) across all parties and routes
+ * 2. Route: optional per-route rate (rate-limiter.routes.*.tps)
+ * 3. Per-party: 10 requests per minute (0.167 TPS per party), per route if configured
  *
  * Returns HTTP 429 with Retry-After header when rate limit exceeded.
  *
- * Configuration:
+ * Configuration ({@link RateLimiterProperties}):
  * - rate-limiter.enabled=true/false (default: false for localnet)
- * - rate-limiter.global-tps=0.4 (for devnet)
- * - rate-limiter.per-party-rpm=10 (requests per minute per party)
+ * - rate-limiter.global-tps=0.4, global-burst=1 (for devnet)
+ * - rate-limiter.per-party-rpm=10, party-burst=1 (requests per minute per party)
+ * - rate-limiter.routes.{name}.path-prefix/tps/burst/party-rpm/party-burst
  */
 @Configuration
 @ConditionalOnProperty(name = "rate-limiter.enabled", havingValue = "true", matchIfMissing = false)
@@ -57,11 +56,11 @@ public class RateLimiterConfig implements WebMvcConfigurer {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimiterConfig.class);
 
-    @Value("${rate-limiter.global-tps:0.4}")
-    private double globalTps;
+    @Autowired
+    private RateLimiterProperties properties;
 
-    @Value("${rate-limiter.per-party-rpm:10}")
-    private int perPartyRpm;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Bean
     public Clock clock() {
@@ -71,19 +70,17 @@ public class RateLimiterConfig implements WebMvcConfigurer {
     @Bean
     public RateLimitInterceptor rateLimitInterceptor(Clock clock,
                                                      @Autowired(required = false) DistributedRateLimiter distributedLimiter) {
-        long globalIntervalMs = (long) (1000.0 / globalTps);
-        long perPartyIntervalMs = (long) (60000.0 / perPartyRpm);
-
         if (distributedLimiter != null) {
             logger.info("✓ Using DISTRIBUTED rate limiter (cluster-safe via Redis)");
         } else {
-            logger.warn("⚠️  Rate limiter initialized: global={} TPS ({}ms), per-party={} RPM ({}ms)",
-                globalTps, globalIntervalMs, perPartyRpm, perPartyIntervalMs);
+            logger.warn("⚠️  Rate limiter initialized: global={} TPS (burst {}), per-party={} RPM (burst {}), routes={}",
+                properties.getGlobalTps(), properties.getGlobalBurst(), properties.getPerPartyRpm(),
+                properties.getPartyBurst(), properties.getRoutes().keySet());
             logger.warn("⚠️  WARNING: This rate limiter is LOCAL to this JVM instance only!");
             logger.warn("⚠️  For multi-pod deployments, set rate-limiter.distributed=true and configure Redis");
         }
 
-        return new RateLimitInterceptor(globalIntervalMs, perPartyIntervalMs, globalTps, perPartyRpm, clock, distributedLimiter);
+        return new RateLimitInterceptor(new LocalRateLimiter(properties, meterRegistry), clock, distributedLimiter);
     }
 
     @Override
@@ -93,28 +90,16 @@ public class RateLimiterConfig implements WebMvcConfigurer {
 
     /**
      * Interceptor that applies rate limiting to swap endpoints.
-     * Uses simple token bucket algorithm with AtomicLong timestamps.
+     * Uses the Redis limiter when configured, otherwise the in-process {@link LocalRateLimiter}.
      */
     public class RateLimitInterceptor implements HandlerInterceptor {
 
-        private final long globalIntervalMs;
-        private final long perPartyIntervalMs;
-        private final double globalTps;
-        private final int perPartyRpm;
+        private final LocalRateLimiter localLimiter;
         private final Clock clock;
         private final DistributedRateLimiter distributedLimiter;
 
-        // Global rate limiter state (local fallback)
-        private final AtomicLong lastGlobalRequest = new AtomicLong(0);
-
-        // Per-party rate limiter state (local fallback)
-        private final Map<String, AtomicLong> partyLastRequest = new ConcurrentHashMap<>();
-
-        public RateLimitInterceptor(long globalIntervalMs, long perPartyIntervalMs, double globalTps, int perPartyRpm, Clock clock, DistributedRateLimiter distributedLimiter) {
-            this.globalIntervalMs = globalIntervalMs;
-            this.perPartyIntervalMs = perPartyIntervalMs;
-            this.globalTps = globalTps;
-            this.perPartyRpm = perPartyRpm;
+        public RateLimitInterceptor(LocalRateLimiter localLimiter, Clock clock, DistributedRateLimiter distributedLimiter) {
+            this.localLimiter = localLimiter;
             this.clock = clock;
             this.distributedLimiter = distributedLimiter;
         }
@@ -141,8 +126,9 @@ public class RateLimiterConfig implements WebMvcConfigurer {
         private boolean handleDistributedRateLimit(HttpServletRequest request, HttpServletResponse response, String path, String party) throws Exception {
             var now = clock.instant();
 
-            if (!distributedLimiter.tryAcquire(party, now)) {
-                int retryAfterSeconds = distributedLimiter.getRetryAfterSeconds(party, now);
+            DistributedRateLimiter.Decision decision = distributedLimiter.acquire(party, now);
+            if (!decision.allowed()) {
+                int retryAfterSeconds = decision.retryAfterSeconds();
 
                 logger.warn("⚠️  Distributed rate limit exceeded for {} {}, retry in {}s",
                     request.getMethod(), path, retryAfterSeconds);
@@ -158,16 +144,12 @@ public class RateLimiterConfig implements WebMvcConfigurer {
         private boolean handleLocalRateLimit(HttpServletRequest request, HttpServletResponse response, String path, String party) throws Exception {
             long now = clock.millis();  // Use injected Clock for testability
 
-            // Check BOTH global and per-party limits, take the MAXIMUM wait time
-            long globalWaitTime = getGlobalRateLimitWaitTime(now);
-            long partyWaitTime = party != null ? getPartyRateLimitWaitTime(party, now) : 0;
+            LocalRateLimiter.Decision decision = localLimiter.acquire(path, party, now);
 
-            long maxWaitTime = Math.max(globalWaitTime, partyWaitTime);
-
-            if (maxWaitTime > 0) {
-                int retryAfterSeconds = (int) Math.ceil(maxWaitTime / 1000.0);
-                logger.warn("⚠️  Local rate limit exceeded for {} {}, retry in {}s",
-                    request.getMethod(), path, retryAfterSeconds);
+            if (!decision.allowed()) {
+                int retryAfterSeconds = (int) Math.ceil(decision.waitMs() / 1000.0);
+                logger.warn("⚠️  Local rate limit ({}) exceeded for {} {}, retry in {}s",
+                    decision.tier(), request.getMethod(), path, retryAfterSeconds);
                 writeRateLimitResponse(response, path, request, retryAfterSeconds);
                 return false;
             }
@@ -202,73 +184,8 @@ public class RateLimiterConfig implements WebMvcConfigurer {
         }
 
         private boolean isRateLimitedEndpoint(String path) {
-            // Rate-limit write operations that create ledger transactions
-            return path.startsWith("/api/swap/") ||
-                   path.startsWith("/api/liquidity/") ||
-                   path.startsWith("/api/init/");
-        }
-
-        /**
-         * Get time to wait (in ms) before next global request is allowed.
-         * Returns 0 if request can proceed immediately.
-         */
-        private long getGlobalRateLimitWaitTime(long now) {
-            long lastRequest = lastGlobalRequest.get();
-            long timeSinceLastRequest = now - lastRequest;
-
-            if (timeSinceLastRequest < globalIntervalMs) {
-                return globalIntervalMs - timeSinceLastRequest;
-            }
-
-            // Try to claim the token
-            if (lastGlobalRequest.compareAndSet(lastRequest, now)) {
-                return 0; // Success - request can proceed
-            }
-
-            // CAS failed - someone else claimed it, retry
-            return getGlobalRateLimitWaitTime(now);
-        }
-
-        /**
-         * Check global rate limit using token bucket algorithm.
-         * Allows 1 request every globalIntervalMs milliseconds.
-         * @deprecated Use getGlobalRateLimitWaitTime instead
-         */
-        @Deprecated
-        private boolean checkGlobalRateLimit(long now) {
-            return getGlobalRateLimitWaitTime(now) == 0;
-        }
-
-        /**
-         * Get time to wait (in ms) before next request is allowed for a specific party.
-         * Returns 0 if request can proceed immediately.
-         */
-        private long getPartyRateLimitWaitTime(String party, long now) {
-            AtomicLong lastRequest = partyLastRequest.computeIfAbsent(party, k -> new AtomicLong(0));
-            long lastRequestTime = lastRequest.get();
-            long timeSinceLastRequest = now - lastRequestTime;
-
-            if (timeSinceLastRequest < perPartyIntervalMs) {
-                return perPartyIntervalMs - timeSinceLastRequest;
-            }
-
-            // Try to claim the token
-            if (lastRequest.compareAndSet(lastRequestTime, now)) {
-                return 0; // Success - request can proceed
-            }
-
-            // CAS failed - someone else claimed it, retry
-            return getPartyRateLimitWaitTime(party, now);
-        }
-
-        /**
-         * Check per-party rate limit using token bucket algorithm.
-         * Allows perPartyRpm requests per minute for each party.
-         * @deprecated Use getPartyRateLimitWaitTime instead
-         */
-        @Deprecated
-        private boolean checkPartyRateLimit(String party, long now) {
-            return getPartyRateLimitWaitTime(party, now) == 0;
+            // Rate-limit write operations that create ledger transactions (see rate-limiter.routes)
+            return localLimiter.isLimited(path);
         }
 
         private String extractParty(HttpServletRequest request) {
@@ -0,0 +1,150 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Limits for the in-process rate limiter ({@link LocalRateLimiter}).
+ *
+ * Every limit is a GCRA bucket: {@code *-tps} / {@code *-rpm} is the sustained rate and
+ * {@code *-burst} how many requests may arrive back to back. Burst 1 is the old fixed-interval
+ * behaviour (one request per 1/rate).
+ *
+ * Routes are matched by path prefix, first match wins. When none are configured the swap,
+ * liquidity and init endpoints share the default per-party limit.
+ */
+@Component
+@ConfigurationProperties(prefix = "rate-limiter")
+public class RateLimiterProperties {
+
+    /** Sustained global rate across all limited routes (devnet cap: 0.5 TPS). */
+    private double globalTps = 0.4;
+    private int globalBurst = 1;
+    /** Default per-party rate for routes without their own. */
+    private int perPartyRpm = 10;
+    private int partyBurst = 1;
+    /** Lock stripes for per-party state. */
+    private int stripes = 16;
+    /** Per-stripe cap on tracked parties; idle parties are evicted first. */
+    private int maxPartiesPerStripe = 16384;
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    public static class Route {
+        private String pathPrefix;
+        /** Route-wide rate on top of the global one (0 = none). */
+        private double tps;
+        private int burst = 1;
+        /** Per-party rate on this route (0 = share the default per-party limit). */
+        private int partyRpm;
+        private int partyBurst = 1;
+
+        public Route() {
+        }
+
+        public Route(String pathPrefix) {
+            this.pathPrefix = pathPrefix;
+        }
+
+        public String getPathPrefix() {
+            return pathPrefix;
+        }
+
+        public void setPathPrefix(String pathPrefix) {
+            this.pathPrefix = pathPrefix;
+        }
+
+        public double getTps() {
+            return tps;
+        }
+
+        public void setTps(double tps) {
+            this.tps = tps;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+
+        public int getPartyRpm() {
+            return partyRpm;
+        }
+
+        public void setPartyRpm(int partyRpm) {
+            this.partyRpm = partyRpm;
+        }
+
+        public int getPartyBurst() {
+            return partyBurst;
+        }
+
+        public void setPartyBurst(int partyBurst) {
+            this.partyBurst = partyBurst;
+        }
+    }
+
+    public double getGlobalTps() {
+        return globalTps;
+    }
+
+    public void setGlobalTps(double globalTps) {
+        this.globalTps = globalTps;
+    }
+
+    public int getGlobalBurst() {
+        return globalBurst;
+    }
+
+    public void setGlobalBurst(int globalBurst) {
+        this.globalBurst = globalBurst;
+    }
+
+    public int getPerPartyRpm() {
+        return perPartyRpm;
+    }
+
+    public void setPerPartyRpm(int perPartyRpm) {
+        this.perPartyRpm = perPartyRpm;
+    }
+
+    public int getPartyBurst() {
+        return partyBurst;
+    }
+
+    public void setPartyBurst(int partyBurst) {
+        this.partyBurst = partyBurst;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public int getMaxPartiesPerStripe() {
+        return maxPartiesPerStripe;
+    }
+
+    public void setMaxPartiesPerStripe(int maxPartiesPerStripe) {
+        this.maxPartiesPerStripe = maxPartiesPerStripe;
+    }
+
+    public Map<String, Route> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, Route> routes) {
+        this.routes = routes;
+    }
+}
@@ -0,0 +1,50 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.config;
+
+import com.digitalasset.quickstart.utility.TracingUtils;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sampling for the span attributes and start/success logs written by {@link TracingUtils}.
+ *
+ * Operations are keyed by their tracing message (e.g. "Getting active contracts", "query");
+ * keys with spaces need the bracket syntax in YAML: {@code "[Getting active contracts]": 0.1}.
+ * Spans themselves are still created and sampled by the OpenTelemetry agent, and failures are
+ * always logged.
+ */
+@Component
+@ConfigurationProperties(prefix = "tracing.sampling")
+public class TracingSamplingProperties {
+
+    /** Fraction of operations whose attributes are recorded when no per-operation ratio is set. */
+    private double defaultRatio = 1.0;
+    private Map<String, Double> operations = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void apply() {
+        TracingUtils.setSamplingPolicy(TracingUtils.SamplingPolicy.ratio(defaultRatio, operations));
+    }
+
+    public double getDefaultRatio() {
+        return defaultRatio;
+    }
+
+    public void setDefaultRatio(double defaultRatio) {
+        this.defaultRatio = defaultRatio;
+    }
+
+    public Map<String, Double> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(Map<String, Double> operations) {
+        this.operations = operations;
+    }
+}
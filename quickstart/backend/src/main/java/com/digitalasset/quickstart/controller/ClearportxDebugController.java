@@ -29,7 +29,6 @@ import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.*;
 import com.digitalasset.quickstart.service.PoolDirectoryService;
-import com.digitalasset.quickstart.service.TransactionHistoryService;
 import com.digitalasset.quickstart.service.TxPacer;
 import com.digitalasset.quickstart.service.ResolveGrantService;
 
@@ -47,8 +46,6 @@ public class ClearportxDebugController {
     @Autowired
     private TxPacer txPacer;
     @Autowired
-    private TransactionHistoryService transactionHistoryService;
-    @Autowired
     private ResolveGrantService resolveGrantService;
     @Autowired
     private AddLiquidityService addLiquidityService;
@@ -527,24 +524,11 @@ public class ClearportxDebugController {
     private record LpTokenCreated(String cid, java.math.BigDecimal amount) { }
 
 
-    private static BigDecimal estimateLpMint(BigDecimal amountA, BigDecimal amountB, BigDecimal reserveA, BigDecimal reserveB, BigDecimal totalLp) {
-        if (totalLp == null || totalLp.compareTo(BigDecimal.ZERO) == 0
-                || reserveA == null || reserveA.compareTo(BigDecimal.ZERO) == 0
-                || reserveB == null || reserveB.compareTo(BigDecimal.ZERO) == 0) {
-            double product = amountA.multiply(amountB).doubleValue();
-            double sqrt = product <= 0 ? 0 : Math.sqrt(product);
-            return BigDecimal.valueOf(sqrt);
-        }
-        BigDecimal shareA = amountA.multiply(totalLp).divide(reserveA, MathContext.DECIMAL64);
-        BigDecimal shareB = amountB.multiply(totalLp).divide(reserveB, MathContext.DECIMAL64);
-        return shareA.min(shareB);
-    }
-
     private Map<String, Object> toAddLiquiditySuccess(
             final AddLiquidityService.AddLiquidityCommand command,
             final AddLiquidityResponse response
     ) {
-        updateDirectoryAndHistory(command, response);
+        updateDirectory(command, response);
         Map<String, Object> payload = new LinkedHashMap<>();
         payload.put("success", true);
         payload.put("poolId", command.poolId());
@@ -556,7 +540,10 @@ public class ClearportxDebugController {
         return payload;
     }
 
-    private void updateDirectoryAndHistory(
+    /**
+     * History for the add itself is recorded by AddLiquidityService, keyed by the ledger update id.
+     */
+    private void updateDirectory(
             final AddLiquidityService.AddLiquidityCommand command,
             final AddLiquidityResponse response
     ) {
@@ -564,28 +551,8 @@ public class ClearportxDebugController {
         if (candidatePoolCid == null || candidatePoolCid.isBlank()) {
             return;
         }
-        findPoolContract(candidatePoolCid, command.providerParty()).ifPresent(pool -> {
-            Pool payload = pool.payload;
-            directory.update(command.poolId(), pool.contractId.getContractId, payload.getPoolParty.getParty);
-            BigDecimal estimatedLp = estimateLpMint(
-                    command.amountA(),
-                    command.amountB(),
-                    payload.getReserveA,
-                    payload.getReserveB,
-                    payload.getTotalLPSupply
-            );
-            transactionHistoryService.recordAddLiquidity(
-                    command.poolId(),
-                    pool.contractId.getContractId,
-                    payload.getSymbolA,
-                    payload.getSymbolB,
-                    command.amountA(),
-                    command.amountB(),
-                    command.minLpTokens(),
-                    estimatedLp,
-                    command.providerParty()
-            );
-        });
+        findPoolContract(candidatePoolCid, command.providerParty()).ifPresent(pool ->
+                directory.update(command.poolId(), pool.contractId.getContractId, pool.payload.getPoolParty.getParty));
     }
 
     private Optional<LedgerApi.ActiveContract<Pool>> findPoolContract(final String poolCid, final String providerParty) {
@@ -0,0 +1,170 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.controller;
+
+import com.digitalasset.quickstart.ledger.ReadVersionTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * ConditionalReads - ETag / 304 handling for polled ledger reads
+ *
+ * Responses carry a strong ETag built from the change offset of the parties whose ACS the read
+ * covers ({@link ReadVersionTracker}) and a hash of those parties, and Cache-Control: no-cache, so
+ * clients revalidate on every poll. Newly tracked parties all start at the same offset, so without
+ * the party hash a tag issued for one wallet would validate another's copy on a URL that takes its
+ * party from the JWT. Per-party responses are also private and Vary: Authorization, keeping them
+ * out of shared caches. A matching If-None-Match is answered with 304 before any ledger call. Shared reads (pools)
+ * also keep the last response per endpoint on the server, so every client polling the same version
+ * gets one ledger read between them; their ETag additionally rolls over every
+ * clearportx.http-cache.shared-max-age-ms for the derived fields (24h volume) that age without a
+ * ledger change. While a version is unknown the read goes to the ledger and nothing is cached.
+ *
+ * Outcomes are counted as clearportx.http.cache{endpoint, result=not_modified|hit|miss|uncached}.
+ */
+@Component
+public class ConditionalReads {
+
+    private final Function<List<String>, OptionalLong> versions;
+    private final MeterRegistry meterRegistry;
+    private final long sharedMaxAgeMs;
+    private final Map<String, SharedResponse> sharedResponses = new ConcurrentHashMap<>();
+
+    private record SharedResponse(String etag, CompletableFuture<?> body) { }
+
+    @Autowired
+    public ConditionalReads(
+            ReadVersionTracker versionTracker,
+            MeterRegistry meterRegistry,
+            @Value("${clearportx.http-cache.shared-max-age-ms:60000}") long sharedMaxAgeMs
+    ) {
+        this(versionTracker::version, meterRegistry, sharedMaxAgeMs);
+    }
+
+    ConditionalReads(Function<List<String>, OptionalLong> versions, MeterRegistry meterRegistry, long sharedMaxAgeMs) {
+        this.versions = versions;
+        this.meterRegistry = meterRegistry;
+        this.sharedMaxAgeMs = sharedMaxAgeMs;
+    }
+
+    /**
+     * Read whose result depends only on what {@code parties} see on the ledger.
+     *
+     * @param endpoint Short endpoint name for the ETag and metrics (e.g., "wallet-tokens")
+     * @param parties Parties whose ACS the read covers
+     * @param ifNoneMatch If-None-Match request header, may be null
+     * @param read Ledger read, only called when the client's copy is stale
+     */
+    public <T> CompletableFuture<ResponseEntity<T>> perParty(
+            String endpoint, List<String> parties, String ifNoneMatch, Supplier<CompletableFuture<T>> read) {
+        OptionalLong version = versions.apply(parties);
+        if (version.isEmpty()) {
+            count(endpoint, "uncached");
+            return read.get().thenApply(body -> asPrivate(ResponseEntity.ok()).body(body));
+        }
+        String etag = etag(endpoint, Long.toHexString(version.getAsLong())
+                + "-" + Integer.toHexString(parties.hashCode()));
+        if (matches(ifNoneMatch, etag)) {
+            count(endpoint, "not_modified");
+            return CompletableFuture.completedFuture(asPrivate(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)).build());
+        }
+        count(endpoint, "miss");
+        return read.get().thenApply(body -> asPrivate(ResponseEntity.ok().eTag(etag)).body(body));
+    }
+
+    /**
+     * Read shared by all clients (same result whoever asks); also served from the server-side copy.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<ResponseEntity<T>> shared(
+            String endpoint, List<String> parties, String ifNoneMatch, Supplier<CompletableFuture<T>> read) {
+        OptionalLong version = versions.apply(parties);
+        if (version.isEmpty()) {
+            sharedResponses.remove(endpoint);
+            count(endpoint, "uncached");
+            return read.get().thenApply(ResponseEntity::ok);
+        }
+        String etag = etag(endpoint, Long.toHexString(version.getAsLong())
+                + "-" + Integer.toHexString(parties.hashCode())
+                + (sharedMaxAgeMs > 0 ? "-" + Long.toHexString(System.currentTimeMillis() / sharedMaxAgeMs) : ""));
+        if (matches(ifNoneMatch, etag)) {
+            count(endpoint, "not_modified");
+            return CompletableFuture.completedFuture(notModified(etag));
+        }
+        SharedResponse cached = sharedResponses.get(endpoint);
+        if (cached != null && cached.etag().equals(etag)) {
+            count(endpoint, "hit");
+            return ((CompletableFuture<T>) cached.body()).thenApply(body -> ok(etag, body));
+        }
+        count(endpoint, "miss");
+        CompletableFuture<T> body = read.get();
+        SharedResponse entry = new SharedResponse(etag, body);
+        sharedResponses.put(endpoint, entry);
+        body.whenComplete((value, ex) -> {
+            if (ex != null) {
+                sharedResponses.remove(endpoint, entry);
+            }
+        });
+        return body.thenApply(value -> ok(etag, value));
+    }
+
+    /**
+     * If-None-Match uses weak comparison (RFC 9110 13.1.2): W/ prefixes are ignored, "*" matches anything.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String etag(String endpoint, String version) {
+        return "\"" + endpoint + "-" + version + "\"";
+    }
+
+    private static <T> ResponseEntity<T> ok(String etag, T body) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(body);
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+    }
+
+    /**
+     * Per-party responses may depend on the caller's JWT, so shared caches must not store them.
+     */
+    private static ResponseEntity.BodyBuilder asPrivate(ResponseEntity.BodyBuilder response) {
+        return response.cacheControl(CacheControl.noCache().cachePrivate()).varyBy(HttpHeaders.AUTHORIZATION);
+    }
+
+    private void count(String endpoint, String result) {
+        meterRegistry.counter("clearportx.http.cache", "endpoint", endpoint, "result", result).increment();
+    }
+}
@@ -6,6 +6,7 @@ import com.digitalasset.quickstart.security.devnet.DevNetAuthService;
 import com.digitalasset.quickstart.service.CbtcTransferOfferService;
 import com.digitalasset.quickstart.service.CbtcTransferOfferService.CbtcTransferOfferDto;
 import com.digitalasset.quickstart.service.CbtcTransferOfferService.AcceptOfferResult;
+import com.digitalasset.quickstart.service.CbtcTransferOfferService.BatchAcceptResult;
 import com.digitalasset.quickstart.service.CbtcTransferOfferService.ProbeAcceptResponse;
 import com.digitalasset.quickstart.service.CbtcTransferOfferService.RegistryProbeResponse;
 import com.digitalasset.quickstart.common.DomainError;
@@ -18,6 +19,8 @@ import com.digitalasset.quickstart.dto.ApiResponse;
 import com.digitalasset.quickstart.dto.ErrorCode;
 import com.digitalasset.quickstart.dto.ErrorMapper;
 import com.digitalasset.quickstart.dto.HoldingTemplateListResponse;
+import com.digitalasset.quickstart.dto.BulkPayoutRequest;
+import com.digitalasset.quickstart.dto.BulkPayoutResponse;
 import com.digitalasset.quickstart.dto.PayoutRequest;
 import com.digitalasset.quickstart.dto.PayoutResponse;
 import com.digitalasset.quickstart.dto.TransferInstructionListResponse;
@@ -344,6 +347,29 @@ public class DevNetController {
         public String actAsParty;
     }
 
+    /**
+     * POST /api/devnet/cbtc/offers/accept-pending
+     * Accept every pending CBTC offer of the operator (or actAsParty) in batched ledger submissions.
+     */
+    @PostMapping("/cbtc/offers/accept-pending")
+    public CompletableFuture<ResponseEntity<BatchAcceptResult>> acceptPendingCbtcOffers(
+            @RequestBody(required = false) CbtcAcceptRequest body
+    ) {
+        String requestId = "cbtc-accept-pending-" + UUID.randomUUID().toString().substring(0, 8);
+        String actAs = body != null && body.actAsParty != null && !body.actAsParty.isBlank()
+                ? body.actAsParty
+                : "ClearportX-DEX-1::122081f2b8e29cbe57d1037a18e6f70e57530773b3a4d1bea6bab981b7a76e943b37";
+
+        logger.info("[DevNetController] [requestId={}] POST /cbtc/offers/accept-pending START actAsParty={}", requestId, truncateParty(actAs));
+
+        return cbtcTransferOfferService.acceptPendingOffers(actAs, requestId)
+                .thenApply(result -> ApiSurfaceHeaders.withSurface(ResponseEntity.ok(result), ApiSurfaceHeaders.DEVNET))
+                .exceptionally(ex -> {
+                    logger.error("[DevNetController] [requestId={}] accept-pending failed: {}", requestId, ex.getMessage(), ex);
+                    return ApiSurfaceHeaders.withSurface(ResponseEntity.status(500).build(), ApiSurfaceHeaders.DEVNET);
+                });
+    }
+
     /**
      * POST /api/devnet/cbtc/registry/probe
      * DevNet-only: probe registry choice-context endpoint for CBTC (or other) by admin/tiCid/offerCid.
@@ -732,15 +758,15 @@ public class DevNetController {
      * Create outbound Amulet TransferInstruction (operator -> receiver).
      */
     @PostMapping("/payout/amulet")
-    public ResponseEntity<ApiResponse<PayoutResponse>> payoutAmulet(
+    public CompletableFuture<ResponseEntity<ApiResponse<PayoutResponse>>> payoutAmulet(
             @RequestBody PayoutRequest request,
             HttpServletRequest httpRequest
     ) {
         String requestId = newRequestId("payout-amulet", httpRequest);
         logger.info("[DevNetController] [requestId={}] POST /payout/amulet receiverParty={} amount={}",
                 requestId, request != null ? truncateParty(request.receiverParty) : "null", request != null ? request.amount : "null");
-        Result<PayoutResponse, ApiError> result = payoutService.createAmuletPayout(request, requestId);
-        return respond(requestId, "payout/amulet", result);
+        return payoutService.createAmuletPayout(request, requestId)
+                .thenApply(result -> respond(requestId, "payout/amulet", result));
     }
 
     /**
@@ -748,15 +774,31 @@ public class DevNetController {
      * Create outbound CBTC TransferOffer (operator -> receiver).
      */
     @PostMapping("/payout/cbtc")
-    public ResponseEntity<ApiResponse<PayoutResponse>> payoutCbtc(
+    public CompletableFuture<ResponseEntity<ApiResponse<PayoutResponse>>> payoutCbtc(
             @RequestBody PayoutRequest request,
             HttpServletRequest httpRequest
     ) {
         String requestId = newRequestId("payout-cbtc", httpRequest);
         logger.info("[DevNetController] [requestId={}] POST /payout/cbtc receiverParty={} amount={}",
                 requestId, request != null ? truncateParty(request.receiverParty) : "null", request != null ? request.amount : "null");
-        Result<PayoutResponse, ApiError> result = payoutService.createCbtcPayout(request, requestId);
-        return respond(requestId, "payout/cbtc", result);
+        return payoutService.createCbtcPayout(request, requestId)
+                .thenApply(result -> respond(requestId, "payout/cbtc", result));
+    }
+
+    /**
+     * POST /api/devnet/payout/bulk
+     * Pay out many transfers at once, grouped per instrument into batched ledger commands.
+     */
+    @PostMapping("/payout/bulk")
+    public CompletableFuture<ResponseEntity<ApiResponse<BulkPayoutResponse>>> payoutBulk(
+            @RequestBody BulkPayoutRequest request,
+            HttpServletRequest httpRequest
+    ) {
+        String requestId = newRequestId("payout-bulk", httpRequest);
+        logger.info("[DevNetController] [requestId={}] POST /payout/bulk items={}",
+                requestId, request != null && request.payouts != null ? request.payouts.size() : 0);
+        return payoutService.createBulkPayout(request, requestId)
+                .thenApply(result -> respond(requestId, "payout/bulk", result));
     }
 
     private String newRequestId(String prefix, HttpServletRequest request) {
@@ -61,24 +61,24 @@ public class DevNetMirrorController {
      * POST /api/payout/amulet (agnostic surface)
      */
     @PostMapping("/payout/amulet")
-    public ResponseEntity<ApiResponse<PayoutResponse>> payoutAmulet(
+    public CompletableFuture<ResponseEntity<ApiResponse<PayoutResponse>>> payoutAmulet(
             @RequestBody PayoutRequest request,
             HttpServletRequest httpRequest
     ) {
-        ResponseEntity<ApiResponse<PayoutResponse>> response = devNetController.payoutAmulet(request, httpRequest);
-        return ApiSurfaceHeaders.withSurface(response, ApiSurfaceHeaders.AGNOSTIC);
+        return devNetController.payoutAmulet(request, httpRequest)
+                .thenApply(response -> ApiSurfaceHeaders.withSurface(response, ApiSurfaceHeaders.AGNOSTIC));
     }
 
     /**
      * POST /api/payout/cbtc (agnostic surface)
      */
     @PostMapping("/payout/cbtc")
-    public ResponseEntity<ApiResponse<PayoutResponse>> payoutCbtc(
+    public CompletableFuture<ResponseEntity<ApiResponse<PayoutResponse>>> payoutCbtc(
             @RequestBody PayoutRequest request,
             HttpServletRequest httpRequest
     ) {
-        ResponseEntity<ApiResponse<PayoutResponse>> response = devNetController.payoutCbtc(request, httpRequest);
-        return ApiSurfaceHeaders.withSurface(response, ApiSurfaceHeaders.AGNOSTIC);
+        return devNetController.payoutCbtc(request, httpRequest)
+                .thenApply(response -> ApiSurfaceHeaders.withSurface(response, ApiSurfaceHeaders.AGNOSTIC));
     }
 
     /**
@@ -338,7 +338,7 @@ public class DevNetSwapController {
     }
 
     private void recordHistoryFromConsume(SwapConsumeResponse response) {
-        if (response == null || response.requestId == null || response.requestId.isBlank()) {
+        if (response == null || response.executeSwapLedgerUpdateId == null || response.executeSwapLedgerUpdateId.isBlank()) {
             return;
         }
         if (response.poolCid == null || response.poolCid.isBlank()) {
@@ -358,8 +358,9 @@ public class DevNetSwapController {
                     String actor = response.receiverParty != null && !response.receiverParty.isBlank()
                             ? response.receiverParty
                             : authUtils.getAppProviderPartyId();
+                    // Same key as the consume flow and the ledger history indexer, so the swap is stored once
                     transactionHistoryService.recordSwap(
-                            response.requestId,
+                            response.executeSwapLedgerUpdateId,
                             pool.contractId,
                             pool.contractId,
                             inputSymbol,
@@ -63,15 +63,16 @@ public class HoldingPoolController {
 
     @PostMapping("/{poolId}/bootstrap")
     @WithSpan
-    public ResponseEntity<?> bootstrap(@PathVariable("poolId") String poolId,
-                                       @Valid @RequestBody HoldingPoolBootstrapRequest request) {
-        Result<java.util.Map<String, Object>, DomainError> res = holdingPoolService.bootstrap(poolId, request);
-        if (res.isOk()) {
-            return ResponseEntity.ok().body(res.getValueUnsafe());
-        }
-        DomainError err = res.getErrorUnsafe();
-        ErrorResponse payload = new ErrorResponse(err.code(), err.message(), DomainErrorStatusMapper.map(err).value(), String.format("/api/holding-pools/%s/bootstrap", poolId));
-        return ResponseEntity.status(DomainErrorStatusMapper.map(err)).body(payload);
+    public CompletableFuture<ResponseEntity<?>> bootstrap(@PathVariable("poolId") String poolId,
+                                                          @Valid @RequestBody HoldingPoolBootstrapRequest request) {
+        return holdingPoolService.bootstrapAsync(poolId, request).thenApply(res -> {
+            if (res.isOk()) {
+                return ResponseEntity.ok().body(res.getValueUnsafe());
+            }
+            DomainError err = res.getErrorUnsafe();
+            ErrorResponse payload = new ErrorResponse(err.code(), err.message(), DomainErrorStatusMapper.map(err).value(), String.format("/api/holding-pools/%s/bootstrap", poolId));
+            return ResponseEntity.status(DomainErrorStatusMapper.map(err)).body(payload);
+        });
     }
 
     private ResponseEntity<?> toCreateResponse(Result<HoldingPoolResponse, DomainError> result) {
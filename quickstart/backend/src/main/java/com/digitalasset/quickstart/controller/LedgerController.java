@@ -8,9 +8,13 @@ import com.digitalasset.quickstart.dto.PoolDTO;
 import com.digitalasset.quickstart.dto.TokenDTO;
 import com.digitalasset.quickstart.security.PartyMappingService;
 import com.digitalasset.quickstart.service.LedgerReader;
+import com.digitalasset.quickstart.service.PartyRegistryService;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -25,6 +29,11 @@ import java.util.concurrent.CompletableFuture;
  * Provides REST endpoints for reading tokens and pools directly from Canton.
  * No PQS lag, no package allowlist issues, always authoritative.
  *
+ * Read endpoints send an ETag keyed by the ledger offset of the last relevant change and answer
+ * If-None-Match with 304 without a ledger call (see ConditionalReads), so unchanged polls are cheap.
+ * The public {party} endpoints only get versions for parties this participant is known to host;
+ * any other path value is read uncached so it cannot make the server follow arbitrary parties.
+ *
  * CORS configured globally in WebSecurityConfig
  */
 @RestController
@@ -33,10 +42,15 @@ public class LedgerController {
     private static final Logger logger = LoggerFactory.getLogger(LedgerController.class);
     private final LedgerReader reader;
     private final PartyMappingService partyMappingService;
+    private final ConditionalReads conditionalReads;
+    private final ObjectProvider<PartyRegistryService> partyRegistry;
 
-    public LedgerController(LedgerReader reader, PartyMappingService partyMappingService) {
+    public LedgerController(LedgerReader reader, PartyMappingService partyMappingService, ConditionalReads conditionalReads,
+                            ObjectProvider<PartyRegistryService> partyRegistry) {
         this.reader = reader;
         this.partyMappingService = partyMappingService;
+        this.conditionalReads = conditionalReads;
+        this.partyRegistry = partyRegistry;
     }
 
     /**
@@ -45,7 +59,9 @@ public class LedgerController {
      */
     @GetMapping("/tokens")
     @WithSpan
-    public CompletableFuture<List<TokenDTO>> tokens(@AuthenticationPrincipal Jwt jwt) {
+    public CompletableFuture<ResponseEntity<List<TokenDTO>>> tokens(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         if (jwt == null || jwt.getSubject() == null) {
             logger.error("GET /api/tokens called without valid JWT");
             throw new IllegalArgumentException("Authentication required - JWT subject missing");
@@ -54,7 +70,8 @@ public class LedgerController {
         String jwtSubject = jwt.getSubject();
         String cantonParty = partyMappingService.mapJwtSubjectToParty(jwtSubject);
         logger.info("GET /api/tokens - JWT subject: {}, Canton party: {}", jwtSubject, cantonParty);
-        return reader.tokensForParty(cantonParty);
+        return conditionalReads.perParty("tokens", List.of(cantonParty), ifNoneMatch,
+                () -> reader.tokensForParty(cantonParty));
     }
 
     /**
@@ -65,9 +82,12 @@ public class LedgerController {
     @GetMapping("/tokens/{party}")
     @WithSpan
     @PreAuthorize("permitAll()")
-    public CompletableFuture<List<TokenDTO>> tokensForParty(@PathVariable String party) {
+    public CompletableFuture<ResponseEntity<List<TokenDTO>>> tokensForParty(
+            @PathVariable String party,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.info("GET /api/tokens/{} - public access (TESTING ONLY)", party);
-        return reader.tokensForParty(party);
+        return conditionalReads.perParty("tokens", versionedParties(party), ifNoneMatch,
+                () -> reader.tokensForParty(party));
     }
 
     /**
@@ -77,9 +97,12 @@ public class LedgerController {
     @GetMapping("/wallet/tokens/{party}")
     @WithSpan
     @PreAuthorize("permitAll()")
-    public CompletableFuture<List<TokenDTO>> walletTokensForParty(@PathVariable String party) {
+    public CompletableFuture<ResponseEntity<List<TokenDTO>>> walletTokensForParty(
+            @PathVariable String party,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.info("GET /api/wallet/tokens/{} - public access (wallet-only)", party);
-        return reader.walletTokensForParty(party);
+        return conditionalReads.perParty("wallet-tokens", versionedParties(party), ifNoneMatch,
+                () -> reader.walletTokensForParty(party));
     }
 
     /**
@@ -88,9 +111,13 @@ public class LedgerController {
     @GetMapping("/wallet/lp-tokens/{party}")
     @WithSpan
     @PreAuthorize("permitAll()")
-    public CompletableFuture<java.util.List<LpTokenDTO>> walletLpTokensForParty(@PathVariable String party) {
+    public CompletableFuture<ResponseEntity<List<LpTokenDTO>>> walletLpTokensForParty(
+            @PathVariable String party,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.info("GET /api/wallet/lp-tokens/{} - public access", party);
-        return reader.lpTokensForParty(party);
+        // LP tokens are read from the viewer's ACS, so its changes are the ones that matter
+        return conditionalReads.perParty("lp-tokens", versionedParties(reader.lpTokenViewerParty(party)), ifNoneMatch,
+                () -> reader.lpTokensForParty(party));
     }
     /**
      * GET /api/pools - Get all active liquidity pools
@@ -99,8 +126,21 @@ public class LedgerController {
     @GetMapping("/pools")
     @WithSpan
     @PreAuthorize("permitAll()")
-    public CompletableFuture<List<PoolDTO>> pools() {
+    public CompletableFuture<ResponseEntity<List<PoolDTO>>> pools(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.info("GET /api/pools - public access");
-        return reader.pools();
+        return conditionalReads.shared("pools", List.copyOf(reader.poolReadParties()), ifNoneMatch, reader::pools);
+    }
+
+    /**
+     * Parties to version a public read by: the path party if it is one of the configured pool parties
+     * or a party hosted on this participant, otherwise none (the read is then served uncached).
+     */
+    private List<String> versionedParties(String party) {
+        if (reader.poolReadParties().contains(party)) {
+            return List.of(party);
+        }
+        PartyRegistryService registry = partyRegistry.getIfAvailable();
+        return registry != null && registry.isLocalParty(party) ? List.of(party) : List.of();
     }
 }
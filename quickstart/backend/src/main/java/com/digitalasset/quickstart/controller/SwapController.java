@@ -21,6 +21,7 @@ import com.digitalasset.quickstart.metrics.SwapMetrics;
 import com.digitalasset.quickstart.security.JwtAuthService;
 import com.digitalasset.quickstart.security.JwtAuthService.AuthenticatedUser;
 import com.digitalasset.quickstart.validation.SwapValidator;
+import com.digitalasset.quickstart.service.IdempotencyKey;
 import com.digitalasset.quickstart.service.IdempotencyService;
 import com.digitalasset.quickstart.service.TokenMergeService;
 import com.digitalasset.quickstart.constants.SwapConstants;
@@ -47,6 +48,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -107,10 +109,11 @@ public class SwapController {
         String jwtSubject = jwt.getSubject();
         String trader = partyMappingService.mapJwtSubjectToParty(jwtSubject);
 
-        // IDEMPOTENCY: Check if this request was already processed
+        // IDEMPOTENCY: Check if this request was already processed; reusing the key with another body is rejected
+        String bodyHash = IdempotencyKey.bodyHash(trader, req.poolId, req.inputSymbol, req.outputSymbol, req.inputAmount, req.minOutput, req.maxPriceImpactBps);
         if (idempotencyKey != null) {
             idempotencyService.validateIdempotencyKey(idempotencyKey);
-            Object cachedResponse = idempotencyService.checkIdempotency(idempotencyKey);
+            Object cachedResponse = idempotencyService.checkIdempotencyWithBodyHash(idempotencyKey, bodyHash);
             if (cachedResponse != null) {
                 logger.info("Returning cached response for idempotency key: {}", idempotencyKey);
                 return CompletableFuture.completedFuture((PrepareSwapResponse) cachedResponse);
@@ -127,11 +130,11 @@ public class SwapController {
             jwtSubject, trader, req.poolId, req.inputSymbol, req.outputSymbol, req.inputAmount);
 
         // Record metrics: swap preparation started
-        long startTime = System.currentTimeMillis();
         swapMetrics.recordSwapPrepared(req.inputSymbol, req.outputSymbol);
+        String pair = swapMetrics.pairTag(req.inputSymbol, req.outputSymbol);
 
         // Step 1: Validate pool at ledger end - find pool with POSITIVE reserves
-        return ledger.getActiveContracts(Pool.class)
+        return swapMetrics.timeStage(SwapMetrics.Stage.POOL_LOOKUP, pair, () -> ledger.getActiveContracts(Pool.class))
             .thenCompose(pools -> {
                 // Note: Active pools count is updated by PoolMetricsScheduler (scheduled task)
                 // Not updated here to avoid traffic-dependent metrics
@@ -150,6 +153,8 @@ public class SwapController {
 
                 LedgerApi.ActiveContract<Pool> pool = maybePool.get();
                 Pool poolPayload = pool.payload;
+                // Later stages are tagged by the resolved pool, not by what the client asked for
+                String poolPair = swapMetrics.poolPairTag(poolPayload.getSymbolA, poolPayload.getSymbolB);
 
                 String poolParty = poolPayload.getPoolParty.getParty;
                 String poolOperator = poolPayload.getPoolOperator.getParty;
@@ -158,7 +163,7 @@ public class SwapController {
                     req.poolId, poolParty, poolOperator);
 
                 // Step 2: Validate trader's input token
-                return ledger.getActiveContracts(Token.class)
+                return swapMetrics.timeStage(SwapMetrics.Stage.TOKEN_LOOKUP, poolPair, () -> ledger.getActiveContracts(Token.class))
                     .thenCompose(tokens -> {
                         Optional<LedgerApi.ActiveContract<Token>> maybeToken = tokens.stream()
                             .filter(t -> t.payload.getSymbol.equals(req.inputSymbol) &&
@@ -216,22 +221,22 @@ public class SwapController {
 
                         // Create SwapRequest with createAndGetCid (deterministic, race-free)
                         // Use swapRequest.templateId() to get the correct package ID
-                        return ledger.createAndGetCid(
+                        return swapMetrics.timeStage(SwapMetrics.Stage.CREATE, poolPair, () -> ledger.createAndGetCid(
                                 swapRequest,
                                 List.of(trader),  // actAs: trader creates the SwapRequest
                                 List.of(poolParty),  // readAs: poolParty can see it
                                 commandId + "-create",
                                 swapRequest.templateId()  // Use instance template ID (has correct package ID)
-                            )
+                            ))
                             .thenCompose(swapRequestCid -> {
                                 logger.info("✅ SwapRequest created with CID: {} (via transaction tree)", swapRequestCid.getContractId);
 
                                 // Now exercise PrepareSwap choice on the swapRequestCid
-                                return ledger.exerciseAndGetResult(
+                                return swapMetrics.timeStage(SwapMetrics.Stage.EXERCISE, poolPair, () -> ledger.exerciseAndGetResult(
                                     swapRequestCid,
                                     prepareChoice,
                                     commandId + "-prepare"
-                                );
+                                ));
                             })
                             .thenApply(result -> {
                                 // Result is Tuple2<ContractId<SwapReady>, ContractId<Token>>
@@ -254,7 +259,7 @@ public class SwapController {
 
                                 // IDEMPOTENCY: Register successful response
                                 if (idempotencyKey != null) {
-                                    idempotencyService.registerSuccess(idempotencyKey, commandId, null, response);
+                                    idempotencyService.registerSuccessWithBodyHash(idempotencyKey, bodyHash, commandId, null, response, 200);
                                 }
 
                                 return response;
@@ -309,10 +314,11 @@ public class SwapController {
         String jwtSubject = jwt.getSubject();
         String executingParty = partyMappingService.mapJwtSubjectToParty(jwtSubject);
 
-        // IDEMPOTENCY: Check if this request was already processed
+        // IDEMPOTENCY: Check if this request was already processed; reusing the key with another body is rejected
+        String bodyHash = IdempotencyKey.bodyHash(executingParty, req.swapReadyCid);
         if (idempotencyKey != null) {
             idempotencyService.validateIdempotencyKey(idempotencyKey);
-            Object cachedResponse = idempotencyService.checkIdempotency(idempotencyKey);
+            Object cachedResponse = idempotencyService.checkIdempotencyWithBodyHash(idempotencyKey, bodyHash);
             if (cachedResponse != null) {
                 logger.info("Returning cached response for idempotency key: {}", idempotencyKey);
                 return CompletableFuture.completedFuture((ExecuteSwapResponse) cachedResponse);
@@ -325,7 +331,7 @@ public class SwapController {
             jwtSubject, executingParty, req.swapReadyCid, commandId);
 
         // Record metrics: swap execution started
-        long executionStartTime = System.currentTimeMillis();
+        long executionStartNanos = System.nanoTime();
 
         // Step 1: Validate SwapReady exists
         return ledger.getActiveContracts(SwapReady.class)
@@ -362,10 +368,11 @@ public class SwapController {
 
                 // Step 2: Exercise ExecuteSwap (with automatic retry on stale Pool CID)
                 SwapReady.ExecuteSwap executeChoice = new SwapReady.ExecuteSwap();
+                String pair = swapMetrics.poolPairTag(swapReadyPayload.getInputSymbol, swapReadyPayload.getOutputSymbol);
 
                 logger.info("Executing swap with poolParty: {}, commandId: {}", poolParty, commandId);
 
-                return StaleAcsRetry.run(
+                return swapMetrics.timeStage(SwapMetrics.Stage.EXERCISE, pair, () -> StaleAcsRetry.run(
                     () -> ledger.exerciseAndGetResult(
                         swapReady.contractId,
                         executeChoice,
@@ -373,9 +380,9 @@ public class SwapController {
                     ),
                     () -> logger.info("Refreshing ACS for ExecuteSwap retry (stale pool CID)"),
                     "ExecuteSwap"
-                ).thenCompose(receiptCid -> {
+                )).thenCompose(receiptCid -> {
                     // Fetch receipt to get details
-                    return ledger.getActiveContracts(Receipt.class)
+                    return swapMetrics.timeStage(SwapMetrics.Stage.RECEIPT_FETCH, pair, () -> ledger.getActiveContracts(Receipt.class))
                         .thenApply(receipts -> {
                             Optional<LedgerApi.ActiveContract<Receipt>> maybeReceipt = receipts.stream()
                                 .filter(r -> r.contractId.getContractId.equals(receiptCid.getContractId))
@@ -398,14 +405,16 @@ public class SwapController {
                             Receipt receipt = maybeReceipt.get().payload;
 
                             // Record metrics: swap executed successfully
-                            long executionTime = System.currentTimeMillis() - executionStartTime;
+                            long executionNanos = System.nanoTime() - executionStartNanos;
+                            long executionTime = TimeUnit.NANOSECONDS.toMillis(executionNanos);
                             swapMetrics.recordSwapExecuted(
                                 receipt.getInputSymbol,
                                 receipt.getOutputSymbol,
                                 receipt.getAmountIn,
                                 receipt.getAmountOut,
                                 0, // Price impact not available in receipt
-                                executionTime
+                                executionNanos,
+                                TimeUnit.NANOSECONDS
                             );
 
                             // Record fee collection
@@ -431,7 +440,7 @@ public class SwapController {
 
                             // IDEMPOTENCY: Register successful response
                             if (idempotencyKey != null) {
-                                idempotencyService.registerSuccess(idempotencyKey, commandId, null, response);
+                                idempotencyService.registerSuccessWithBodyHash(idempotencyKey, bodyHash, commandId, null, response, 200);
                             }
 
                             return response;
@@ -488,10 +497,11 @@ public class SwapController {
         String trader = resolveTraderParty(jwt, authorization);
         String jwtSubject = jwt != null ? jwt.getSubject() : trader;
 
-        // IDEMPOTENCY: Check if this request was already processed
+        // IDEMPOTENCY: Check if this request was already processed; reusing the key with another body is rejected
+        String bodyHash = IdempotencyKey.bodyHash(trader, req.poolId, req.inputSymbol, req.outputSymbol, req.inputAmount, req.minOutput, req.maxPriceImpactBps);
         if (idempotencyKey != null) {
             idempotencyService.validateIdempotencyKey(idempotencyKey);
-            Object cachedResponse = idempotencyService.checkIdempotency(idempotencyKey);
+            Object cachedResponse = idempotencyService.checkIdempotencyWithBodyHash(idempotencyKey, bodyHash);
             if (cachedResponse != null) {
                 logger.info("Returning cached response for idempotency key: {}", idempotencyKey);
                 return CompletableFuture.completedFuture((AtomicSwapResponse) cachedResponse);
@@ -514,14 +524,15 @@ public class SwapController {
             jwtSubject, trader, req.poolId, req.inputSymbol, req.outputSymbol, inputAmount);
 
         // Record metrics: swap preparation started
-        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
         swapMetrics.recordSwapPrepared(req.inputSymbol, req.outputSymbol);
+        String pair = swapMetrics.pairTag(req.inputSymbol, req.outputSymbol);
 
         // Step 1: Fetch FRESH snapshots (Ledger API gRPC; no app cache, no PQS)
         CompletableFuture<List<LedgerApi.ActiveContract<Pool>>> poolsFuture =
-            ledger.getActiveContracts(Pool.class);
+            swapMetrics.timeStage(SwapMetrics.Stage.POOL_LOOKUP, pair, () -> ledger.getActiveContracts(Pool.class));
         CompletableFuture<List<LedgerApi.ActiveContract<Token>>> tokensFuture =
-            ledger.getActiveContracts(Token.class);
+            swapMetrics.timeStage(SwapMetrics.Stage.TOKEN_LOOKUP, pair, () -> ledger.getActiveContracts(Token.class));
 
         return poolsFuture.thenCombine(tokensFuture, (pools, tokens) -> {
             logger.info("🔍 ACS snapshot: {} pools, {} tokens", pools.size(), tokens.size());
@@ -604,6 +615,8 @@ public class SwapController {
             String poolParty = result.poolParty;
             List<LedgerApi.ActiveContract<Token>> tokens = result.tokens;
             Pool poolPayload = pool.payload;
+            // Later stages are tagged by the resolved pool, not by what the client asked for
+            String poolPair = swapMetrics.poolPairTag(poolPayload.getSymbolA, poolPayload.getSymbolB);
 
             // Step 2: Find trader's input token (FRESH from Ledger API - no cache!)
             logger.info("🔍 Selecting trader input token from {} active tokens", tokens.size());
@@ -667,26 +680,26 @@ public class SwapController {
                 trader, poolParty, req.inputSymbol, req.outputSymbol, inputAmount);
 
             // Step 5: Create proposal and execute atomically with both parties
-            return ledger.createAndGetCid(
+            return swapMetrics.timeStage(SwapMetrics.Stage.CREATE, poolPair, () -> ledger.createAndGetCid(
                 proposalTemplate,
                 List.of(trader),
                 List.of(),
                 commandId + "-create",
                 proposalTemplate.TEMPLATE_ID
-            ).thenCompose(proposalCid -> {
+            )).thenCompose(proposalCid -> {
                 // Execute with both trader and poolParty authorization
                 AtomicSwapProposal.ExecuteAtomicSwap executeChoice = new AtomicSwapProposal.ExecuteAtomicSwap();
 
                 logger.info("Executing atomic swap with both parties - proposalCid: {}", proposalCid.getContractId);
 
                 // Execute choice with both trader and poolParty authorization
-                return ledger.exerciseAndGetResult(
+                return swapMetrics.timeStage(SwapMetrics.Stage.EXERCISE, poolPair, () -> ledger.exerciseAndGetResult(
                     proposalCid,
                     executeChoice,
                     commandId + "-execute"
-                ).thenCompose(receiptCid -> {
+                )).thenCompose(receiptCid -> {
                     // Fetch receipt to get actual swap details
-                    return ledger.getActiveContracts(Receipt.class)
+                    return swapMetrics.timeStage(SwapMetrics.Stage.RECEIPT_FETCH, poolPair, () -> ledger.getActiveContracts(Receipt.class))
                                     .thenApply(receipts -> {
                                         Optional<LedgerApi.ActiveContract<Receipt>> maybeReceipt = receipts.stream()
                                             .filter(r -> r.contractId.getContractId.equals(receiptCid.getContractId))
@@ -708,14 +721,14 @@ public class SwapController {
                                         Receipt receipt = maybeReceipt.get().payload;
 
                                         // Record metrics: successful swap execution
-                                        long executionTimeMs = System.currentTimeMillis() - startTime;
                                         swapMetrics.recordSwapExecuted(
                                             receipt.getInputSymbol,
                                             receipt.getOutputSymbol,
                                             receipt.getAmountIn,
                                             receipt.getAmountOut,
                                             0,  // priceImpactBps - TODO: calculate from pool reserves
-                                            executionTimeMs
+                                            System.nanoTime() - startNanos,
+                                            TimeUnit.NANOSECONDS
                                         );
 
                                         // Record fee collection (25% protocol, 75% LP)
@@ -742,11 +755,13 @@ public class SwapController {
 
                                         // IDEMPOTENCY: Register successful execution
                                         if (idempotencyKey != null) {
-                                            idempotencyService.registerSuccess(
+                                            idempotencyService.registerSuccessWithBodyHash(
                                                 idempotencyKey,
+                                                bodyHash,
                                                 commandId,
                                                 receiptCid.getContractId,
-                                                response
+                                                response,
+                                                200
                                             );
                                         }
 
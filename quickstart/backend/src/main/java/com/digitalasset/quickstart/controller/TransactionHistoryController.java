@@ -26,6 +26,18 @@ public class TransactionHistoryController {
         return ResponseEntity.ok(transactionHistoryService.getRecent(safeLimit));
     }
 
+    /**
+     * Newest-first page, optionally for one party or pool. Pass the returned nextCursor as {@code before}.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> transactionPage(@RequestParam(name = "limit", defaultValue = "50") int limit,
+                                             @RequestParam(name = "before", required = false) Long before,
+                                             @RequestParam(name = "party", required = false) String party,
+                                             @RequestParam(name = "poolId", required = false) String poolId) {
+        int safeLimit = Math.max(1, Math.min(limit, 1000));
+        return ResponseEntity.ok(transactionHistoryService.getPage(party, poolId, before, safeLimit));
+    }
+
     @PostMapping("/debug/record")
     public ResponseEntity<?> recordDebugEvent(@RequestBody Map<String, Object> body,
                                               @RequestHeader(value = "X-Debug-Token", required = false) String debugToken) {
@@ -0,0 +1,24 @@
+package com.digitalasset.quickstart.dto;
+
+import java.util.List;
+
+public class BulkPayoutRequest {
+    public List<Item> payouts;
+
+    public static class Item {
+        public String instrumentId; // "Amulet" or "CBTC"
+        public String receiverParty;
+        public String amount; // decimal string
+        public Long executeBeforeSeconds; // optional, default 7200
+        public String memo; // optional
+
+        public PayoutRequest toPayoutRequest() {
+            PayoutRequest request = new PayoutRequest();
+            request.receiverParty = receiverParty;
+            request.amount = amount;
+            request.executeBeforeSeconds = executeBeforeSeconds;
+            request.memo = memo;
+            return request;
+        }
+    }
+}
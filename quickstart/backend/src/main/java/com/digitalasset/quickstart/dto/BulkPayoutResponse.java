@@ -0,0 +1,27 @@
+package com.digitalasset.quickstart.dto;
+
+import java.util.List;
+
+/**
+ * Per-item outcome of a bulk payout, in request order, plus how many groups and ledger
+ * submissions it took.
+ */
+public record BulkPayoutResponse(
+        List<Item> results,
+        int groups,
+        int ledgerSubmissions
+) {
+    public record Item(
+            int index,
+            PayoutResponse payout,
+            ApiError error
+    ) {
+        public static Item paid(int index, PayoutResponse payout) {
+            return new Item(index, payout, null);
+        }
+
+        public static Item failed(int index, ApiError error) {
+            return new Item(index, null, error);
+        }
+    }
+}
@@ -22,6 +22,7 @@ public class SwapConsumeResponse {
     public String payoutStatus;
     public String nextAction;
     public String receiverParty;
+    public Integer batchSize; // set when settled as part of a netted batch
 
     public SwapConsumeResponse() {}
 }
@@ -0,0 +1,244 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.CommandsOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DisclosedContractCache - Shared, decoded disclosed contracts for command submission
+ *
+ * Registries disclose the same AmuletRules, featured-app and instrument configuration contracts in
+ * nearly every choice-context. Decoding the base64 blob and building the protobuf is done once per
+ * (contractId, synchronizerId) and the message is reused by every swap, liquidity and payout command
+ * until the TTL elapses or the contract is archived.
+ *
+ * A contract id always maps to the same created-event blob, so an entry outliving its contract is never
+ * served wrongly (registries stop returning archived ids); it only holds memory. Archives seen on the
+ * operator's update stream drop entries early, and {@link #sweepExpired} removes the rest once their TTL
+ * elapses, including registry contracts whose archives the operator never sees.
+ *
+ * Merged lists ({@link #merge}) are memoized by their set of contract ids, so flows that disclose the
+ * same contracts on every settlement get the same immutable list back whatever order they list them in.
+ */
+@Component
+public class DisclosedContractCache {
+
+    private record Entry(CommandsOuterClass.DisclosedContract contract, long expiresAtMs) { }
+    private record Merged(List<CommandsOuterClass.DisclosedContract> contracts, long expiresAtMs) { }
+
+    private final Map<String, Entry> contracts = new ConcurrentHashMap<>();
+    private final Map<String, Merged> merged = new ConcurrentHashMap<>();
+    private final long ttlMs;
+    private final int maxEntries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public DisclosedContractCache(
+            MeterRegistry meterRegistry,
+            @Value("${ledger.disclosed-cache.ttl-ms:300000}") long ttlMs,
+            @Value("${ledger.disclosed-cache.max-entries:4096}") int maxEntries
+    ) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("clearportx.ledger.disclosed.cache.hits")
+            .description("Disclosed contracts served from the cache")
+            .register(meterRegistry);
+        this.misses = Counter.builder("clearportx.ledger.disclosed.cache.misses")
+            .description("Disclosed contracts decoded from a registry response")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Return the disclosed contract for a registry entry, decoding it only on a cache miss.
+     *
+     * @param templateId Template id as "packageId:module:entity"
+     * @param contractId Disclosed contract id
+     * @param createdEventBlob Base64 created-event blob
+     * @param synchronizerId Synchronizer the contract lives on (may be null)
+     * @return The disclosed contract, or null when the entry is malformed
+     */
+    public CommandsOuterClass.DisclosedContract intern(
+            String templateId,
+            String contractId,
+            String createdEventBlob,
+            String synchronizerId
+    ) {
+        if (contractId == null || contractId.isBlank()) {
+            return null;
+        }
+        String key = key(contractId, synchronizerId);
+        long now = System.currentTimeMillis();
+        Entry cached = contracts.get(key);
+        if (cached != null && cached.expiresAtMs > now) {
+            hits.increment();
+            return cached.contract;
+        }
+        misses.increment();
+        CommandsOuterClass.DisclosedContract built = build(templateId, contractId, createdEventBlob, synchronizerId);
+        if (built != null && ttlMs > 0) {
+            evictIfFull(contracts, now);
+            contracts.put(key, new Entry(built, now + ttlMs));
+        }
+        return built;
+    }
+
+    /**
+     * Merge disclosure lists, keeping the first occurrence of each contract id.
+     *
+     * @return An immutable list, shared between callers that merge the same set of contracts; its order
+     *         is that of the first caller, which the ledger does not depend on
+     */
+    @SafeVarargs
+    public final List<CommandsOuterClass.DisclosedContract> merge(List<CommandsOuterClass.DisclosedContract>... lists) {
+        return mergeAll(Arrays.asList(lists));
+    }
+
+    /**
+     * {@link #merge} over a list of disclosure lists (e.g. one per batch leg).
+     */
+    public List<CommandsOuterClass.DisclosedContract> mergeAll(List<List<CommandsOuterClass.DisclosedContract>> lists) {
+        Map<String, CommandsOuterClass.DisclosedContract> byCid = new LinkedHashMap<>();
+        for (List<CommandsOuterClass.DisclosedContract> list : lists) {
+            if (list == null) {
+                continue;
+            }
+            for (CommandsOuterClass.DisclosedContract dc : list) {
+                if (dc != null && !dc.getContractId().isBlank()) {
+                    byCid.putIfAbsent(dc.getContractId(), dc);
+                }
+            }
+        }
+        if (byCid.isEmpty()) {
+            return List.of();
+        }
+        String key = String.join(",", new TreeSet<>(byCid.keySet()));
+        long now = System.currentTimeMillis();
+        Merged cached = merged.get(key);
+        if (cached != null && cached.expiresAtMs > now) {
+            return cached.contracts;
+        }
+        List<CommandsOuterClass.DisclosedContract> list = List.copyOf(byCid.values());
+        if (ttlMs > 0) {
+            evictIfFull(merged, now);
+            merged.put(key, new Merged(list, now + ttlMs));
+        }
+        return list;
+    }
+
+    /**
+     * Drop a contract (on every synchronizer) and every merged list that discloses it.
+     */
+    public void invalidate(String contractId) {
+        if (contractId == null) {
+            return;
+        }
+        String prefix = contractId + "|";
+        contracts.keySet().removeIf(key -> key.startsWith(prefix));
+        merged.entrySet().removeIf(e -> e.getValue().contracts.stream().anyMatch(dc -> contractId.equals(dc.getContractId())));
+    }
+
+    /**
+     * Drop the given archived contracts. Cheap when none of them are cached.
+     */
+    public void onArchived(Set<String> contractIds) {
+        if (contractIds.isEmpty() || contracts.isEmpty()) {
+            return;
+        }
+        List<String> cached = new ArrayList<>();
+        for (String key : contracts.keySet()) {
+            String cid = key.substring(0, key.indexOf('|'));
+            if (contractIds.contains(cid)) {
+                cached.add(cid);
+            }
+        }
+        cached.forEach(this::invalidate);
+    }
+
+    /**
+     * Remove expired contracts and merged lists, so entries nobody asks for again do not stay until
+     * the cache fills up.
+     */
+    @Scheduled(fixedDelayString = "${ledger.disclosed-cache.sweep-ms:60000}")
+    public void sweepExpired() {
+        long now = System.currentTimeMillis();
+        contracts.values().removeIf(e -> e.expiresAtMs <= now);
+        merged.values().removeIf(m -> m.expiresAtMs <= now);
+    }
+
+    public int size() {
+        return contracts.size();
+    }
+
+    private <V> void evictIfFull(Map<String, V> map, long now) {
+        if (map.size() < maxEntries) {
+            return;
+        }
+        map.values().removeIf(v -> expiresAt(v) <= now);
+        Iterator<String> keys = map.keySet().iterator();
+        while (map.size() >= maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static long expiresAt(Object value) {
+        if (value instanceof Entry entry) {
+            return entry.expiresAtMs;
+        }
+        return ((Merged) value).expiresAtMs;
+    }
+
+    private static String key(String contractId, String synchronizerId) {
+        return contractId + "|" + (synchronizerId != null ? synchronizerId : "");
+    }
+
+    private static CommandsOuterClass.DisclosedContract build(
+            String templateId,
+            String contractId,
+            String createdEventBlob,
+            String synchronizerId
+    ) {
+        if (templateId == null || createdEventBlob == null) {
+            return null;
+        }
+        String[] parts = templateId.split(":");
+        if (parts.length < 3) {
+            return null;
+        }
+        try {
+            CommandsOuterClass.DisclosedContract.Builder builder = CommandsOuterClass.DisclosedContract.newBuilder()
+                    .setTemplateId(ValueOuterClass.Identifier.newBuilder()
+                            .setPackageId(parts[0])
+                            .setModuleName(parts[1])
+                            .setEntityName(parts[2])
+                            .build())
+                    .setContractId(contractId)
+                    .setCreatedEventBlob(ByteString.copyFrom(Base64.getDecoder().decode(createdEventBlob)));
+            if (synchronizerId != null && !synchronizerId.isBlank()) {
+                builder.setSynchronizerId(synchronizerId);
+            }
+            return builder.build();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
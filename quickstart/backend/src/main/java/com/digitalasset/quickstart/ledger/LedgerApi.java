@@ -10,7 +10,6 @@ import com.daml.ledger.api.v2.PackageServiceGrpc;
 import com.daml.ledger.api.v2.PackageServiceOuterClass;
 import com.digitalasset.quickstart.config.LedgerConfig;
 import com.digitalasset.quickstart.security.AuthUtils;
-import com.digitalasset.quickstart.security.TokenProvider;
 import com.digitalasset.transcode.Converter;
 import com.digitalasset.transcode.codec.proto.ProtobufCodec;
 import com.digitalasset.transcode.java.Choice;
@@ -34,6 +33,7 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -56,6 +56,7 @@ public class LedgerApi {
     private final PackageManagementServiceGrpc.PackageManagementServiceFutureStub pkg;
     private final PackageServiceGrpc.PackageServiceBlockingStub packageService;
     private final com.daml.ledger.api.v2.UpdateServiceGrpc.UpdateServiceFutureStub transactions;
+    private final com.daml.ledger.api.v2.UpdateServiceGrpc.UpdateServiceStub updateStream;
     private final Dictionary<Converter<Object, ValueOuterClass.Value>> dto2Proto;
     private final Dictionary<Converter<ValueOuterClass.Value, Object>> proto2Dto;
 
@@ -65,9 +66,30 @@ public class LedgerApi {
     private volatile TransactionOuterClass.Transaction lastTxn = null;
 
     @Autowired
-    public LedgerApi(LedgerConfig ledgerConfig, Optional<TokenProvider> tokenProvider, AuthUtils authUtils) {
-        APP_ID = ledgerConfig.getApplicationId();
-        appProviderParty = authUtils.getAppProviderPartyId();
+    public LedgerApi(LedgerConfig ledgerConfig, ServiceTokenHolder tokenHolder, AuthUtils authUtils) {
+        this(connect(ledgerConfig, tokenHolder), ledgerConfig.getApplicationId(), authUtils.getAppProviderPartyId());
+    }
+
+    /**
+     * Ledger API client over an existing channel, e.g. an in-process test ledger.
+     */
+    LedgerApi(Channel channel, String applicationId, String appProviderParty) {
+        APP_ID = applicationId;
+        this.appProviderParty = appProviderParty;
+        submission = CommandSubmissionServiceGrpc.newFutureStub(channel);
+        commands = CommandServiceGrpc.newFutureStub(channel);
+        stateService = StateServiceGrpc.newStub(channel);  // Use regular stub for streaming
+        pkg = PackageManagementServiceGrpc.newFutureStub(channel);
+        packageService = PackageServiceGrpc.newBlockingStub(channel);
+        transactions = com.daml.ledger.api.v2.UpdateServiceGrpc.newFutureStub(channel);
+        updateStream = com.daml.ledger.api.v2.UpdateServiceGrpc.newStub(channel);  // Streaming stub for GetUpdates
+
+        ProtobufCodec protoCodec = new ProtobufCodec();
+        dto2Proto = Utils.getConverters(Daml.ENTITIES, protoCodec);
+        proto2Dto = Utils.getConverters(protoCodec, Daml.ENTITIES);
+    }
+
+    private static ManagedChannel connect(LedgerConfig ledgerConfig, ServiceTokenHolder tokenHolder) {
         ManagedChannelBuilder<?> builder = ManagedChannelBuilder
                 .forAddress(ledgerConfig.getHost(), ledgerConfig.getPort())
                 .usePlaintext();
@@ -75,28 +97,15 @@ public class LedgerApi {
         if (ledgerConfig.getGrpcAuthority() != null && !ledgerConfig.getGrpcAuthority().isBlank()) {
             builder = builder.overrideAuthority(ledgerConfig.getGrpcAuthority());
         }
-        if (tokenProvider.isEmpty()) {
-            throw new IllegalStateException("TokenProvider is required for authentication");
-        }
-        builder.intercept(new Interceptor(tokenProvider.get()));
+        builder.intercept(new Interceptor(tokenHolder));
         ManagedChannel channel = builder.build();
 
         // Single log statement, not duplicating attributes for spans, so leaving as-is:
-        logger.atInfo()
+        LoggerFactory.getLogger(LedgerApi.class).atInfo()
                 .addKeyValue("host", ledgerConfig.getHost())
                 .addKeyValue("port", ledgerConfig.getPort())
                 .log("Connected to ledger");
-
-        submission = CommandSubmissionServiceGrpc.newFutureStub(channel);
-        commands = CommandServiceGrpc.newFutureStub(channel);
-        stateService = StateServiceGrpc.newStub(channel);  // Use regular stub for streaming
-        pkg = PackageManagementServiceGrpc.newFutureStub(channel);
-        packageService = PackageServiceGrpc.newBlockingStub(channel);
-        transactions = com.daml.ledger.api.v2.UpdateServiceGrpc.newFutureStub(channel);
-
-        ProtobufCodec protoCodec = new ProtobufCodec();
-        dto2Proto = Utils.getConverters(Daml.ENTITIES, protoCodec);
-        proto2Dto = Utils.getConverters(protoCodec, Daml.ENTITIES);
+        return channel;
     }
 
     @WithSpan
@@ -115,7 +124,7 @@ public class LedgerApi {
     ) {
         var ctx = tracingCtx(logger, "Creating contract",
                 "commandId", commandId,
-                "templateId", entity.templateId().toString(),
+                "templateId", entity.templateId(),
                 "applicationId", APP_ID
         );
         return traceWithStartEvent(ctx, () -> {
@@ -172,14 +181,37 @@ public class LedgerApi {
             List<String> actAsParties,
             List<String> readAsParties,
             List<CommandsOuterClass.DisclosedContract> disclosedContracts
+    ) {
+        return exerciseAndGetOutcomeWithParties(contractId, choice, commandId, actAsParties, readAsParties, disclosedContracts)
+                .thenApply(ExerciseOutcome::result);
+    }
+
+    /**
+     * Choice result together with the update id of the transaction that produced it.
+     */
+    public record ExerciseOutcome<R>(R result, String updateId) { }
+
+    /**
+     * Same as {@link #exerciseAndGetResultWithParties} but also returns the update id, so callers can
+     * key what they record by the ledger transaction.
+     */
+    @WithSpan
+    public <T extends Template, Result, C extends Choice<T, Result>>
+    CompletableFuture<ExerciseOutcome<Result>> exerciseAndGetOutcomeWithParties(
+            ContractId<T> contractId,
+            C choice,
+            String commandId,
+            List<String> actAsParties,
+            List<String> readAsParties,
+            List<CommandsOuterClass.DisclosedContract> disclosedContracts
     ) {
         var ctx = tracingCtx(logger, "Exercising choice with multi-party",
                 "commandId", commandId,
                 "contractId", contractId.getContractId,
                 "choiceName", choice.choiceName(),
-                "templateId", choice.templateId().toString(),
-                "actAsParties", String.join(",", actAsParties),
-                "readAsParties", String.join(",", readAsParties),
+                "templateId", choice.templateId(),
+                "actAsParties", lazyJoin(actAsParties),
+                "readAsParties", lazyJoin(readAsParties),
                 "applicationId", APP_ID
         );
         return trace(ctx, () -> {
@@ -227,8 +259,8 @@ public class LedgerApi {
                             .build();
 
             addEventWithAttributes(Span.current(), "built ledger submit request", Map.of(
-                "actAsParties", String.join(",", actAsParties),
-                "readAsParties", String.join(",", readAsParties)
+                "actAsParties", lazyJoin(actAsParties),
+                "readAsParties", lazyJoin(readAsParties)
             ));
             logger.info("Submitting multi-party ledger command: actAs={}, readAs={}", actAsParties, readAsParties);
 
@@ -250,14 +282,15 @@ public class LedgerApi {
                                 .findFirst()
                                 .orElse(null);
 
-                        Map<String, Object> completionAttrs = new HashMap<>();
-                        completionAttrs.put("ledgerOffset", offset);
-                        completionAttrs.put("workflowId", workflowId);
-                        completionAttrs.put("actAsParties", String.join(",", actAsParties));
-                        completionAttrs.put("eventsCount", events.size());
-
-                        setSpanAttributes(Span.current(), completionAttrs);
-                        logInfo(logger, "Exercised multi-party choice", completionAttrs);
+                        if (Span.current().isRecording() || logger.isInfoEnabled()) {
+                            Map<String, Object> completionAttrs = Map.of(
+                                    "ledgerOffset", offset,
+                                    "workflowId", workflowId,
+                                    "actAsParties", lazyJoin(actAsParties),
+                                    "eventsCount", events.size());
+                            setSpanAttributes(Span.current(), completionAttrs);
+                            logInfo(logger, "Exercised multi-party choice", completionAttrs);
+                        }
 
                         // Canton 3.4.7: Extract exercise result from flat Event (not TreeEvent)
                         ValueOuterClass.Value resultPayload = exercisedEvent != null
@@ -266,7 +299,7 @@ public class LedgerApi {
 
                         @SuppressWarnings("unchecked")
                         Result result = (Result) proto2Dto.choiceResult(choice.templateId(), choice.choiceName()).convert(resultPayload);
-                        return result;
+                        return new ExerciseOutcome<>(result, txn.getUpdateId());
                     })
                     .exceptionally(ex -> {
                         logger.error("Multi-party choice exercise failed: commandId={}, actAs={}, error={}",
@@ -288,7 +321,7 @@ public class LedgerApi {
                 "commandId", commandId,
                 "contractId", contractId.getContractId,
                 "choiceName", choice.choiceName(),
-                "templateId", choice.templateId().toString(),
+                "templateId", choice.templateId(),
                 "applicationId", APP_ID
         );
         return trace(ctx, () -> {
@@ -351,13 +384,14 @@ public class LedgerApi {
                                 .findFirst()
                                 .orElse(null);
 
-                        Map<String, Object> completionAttrs = new HashMap<>();
-                        completionAttrs.put("ledgerOffset", offset);
-                        completionAttrs.put("workflowId", workflowId);
-                        completionAttrs.put("eventsCount", events.size());
-
-                        setSpanAttributes(Span.current(), completionAttrs);
-                        logInfo(logger, "Exercised choice", completionAttrs);
+                        if (Span.current().isRecording() || logger.isInfoEnabled()) {
+                            Map<String, Object> completionAttrs = Map.of(
+                                    "ledgerOffset", offset,
+                                    "workflowId", workflowId,
+                                    "eventsCount", events.size());
+                            setSpanAttributes(Span.current(), completionAttrs);
+                            logInfo(logger, "Exercised choice", completionAttrs);
+                        }
 
                         // Canton 3.4.7: Get result from flat Event (not TreeEvent)
                         ValueOuterClass.Value resultPayload = exercisedEvent != null
@@ -438,7 +472,7 @@ public class LedgerApi {
     ) {
         Identifier templateId = Utils.getTemplateIdByClass(clazz);
         var ctx = tracingCtx(logger, "Getting active contracts",
-                "templateId", templateId.toString(),
+                "templateId", templateId,
                 "party", filterParty
         );
         return trace(ctx, () -> {
@@ -540,7 +574,7 @@ public class LedgerApi {
     ) {
         ValueOuterClass.Identifier targetInterface = toIdentifier(interfaceId);
         var ctx = tracingCtx(logger, "Getting interface views",
-                "interfaceId", interfaceId.toString(),
+                "interfaceId", interfaceId,
                 "party", filterParty
         );
         return trace(ctx, () -> {
@@ -743,8 +777,8 @@ public class LedgerApi {
     ) {
         var ctx = tracingCtx(logger, "Creating contract and getting CID",
                 "commandId", commandId,
-                "templateId", templateId.toString(),
-                "actAsParties", String.join(",", actAsParties),
+                "templateId", templateId,
+                "actAsParties", lazyJoin(actAsParties),
                 "applicationId", APP_ID
         );
         return trace(ctx, () -> {
@@ -903,9 +937,9 @@ public class LedgerApi {
                 "commandId", commandId,
                 "contractId", contractId.getContractId,
                 "choiceName", choice.choiceName(),
-                "templateId", choice.templateId().toString(),
-                "actAsParties", String.join(",", actAsParties),
-                "readAsParties", String.join(",", readAsParties),
+                "templateId", choice.templateId(),
+                "actAsParties", lazyJoin(actAsParties),
+                "readAsParties", lazyJoin(readAsParties),
                 "applicationId", APP_ID
         );
         return trace(ctx, () -> {
@@ -1027,14 +1061,31 @@ public class LedgerApi {
     ) { }
 
 
+    /**
+     * Raw ACS together with the offset it was read at, so a caller can continue from there with
+     * {@link #subscribeUpdatesForParty}.
+     */
+    public record RawAcsSnapshot(
+            long offset,
+            List<RawActiveContract> contracts
+    ) { }
+
     /**
      * Fetch all active contracts visible to a party using a wildcard filter (no template/interface restriction).
      */
     @WithSpan
     public CompletableFuture<List<RawActiveContract>> getActiveContractsRawForParty(final String party) {
+        return getActiveContractsRawSnapshotForParty(party).thenApply(RawAcsSnapshot::contracts);
+    }
+
+    /**
+     * Same as {@link #getActiveContractsRawForParty} but also returns the ledger end offset the ACS was read at.
+     */
+    @WithSpan
+    public CompletableFuture<RawAcsSnapshot> getActiveContractsRawSnapshotForParty(final String party) {
         var ctx = tracingCtx(logger, "Getting active contracts (raw)", "party", party);
         return trace(ctx, () -> {
-            CompletableFuture<List<RawActiveContract>> resultFuture = new CompletableFuture<>();
+            CompletableFuture<RawAcsSnapshot> resultFuture = new CompletableFuture<>();
 
             stateService.getLedgerEnd(
                     StateServiceOuterClass.GetLedgerEndRequest.newBuilder().build(),
@@ -1043,18 +1094,9 @@ public class LedgerApi {
                         public void onNext(StateServiceOuterClass.GetLedgerEndResponse response) {
                             long ledgerEndOffset = response.getOffset();
 
-                            TransactionFilterOuterClass.EventFormat eventFormat = TransactionFilterOuterClass.EventFormat.newBuilder()
-                                    .putFiltersByParty(party,
-                                            TransactionFilterOuterClass.Filters.newBuilder()
-                                                    .addCumulative(TransactionFilterOuterClass.CumulativeFilter.newBuilder()
-                                                            .setWildcardFilter(TransactionFilterOuterClass.WildcardFilter.newBuilder().build())
-                                                            .build())
-                                                    .build())
-                                    .build();
-
                             StateServiceOuterClass.GetActiveContractsRequest request =
                                     StateServiceOuterClass.GetActiveContractsRequest.newBuilder()
-                                            .setEventFormat(eventFormat)
+                                            .setEventFormat(wildcardEventFormat(List.of(party)))
                                             .setActiveAtOffset(ledgerEndOffset)
                                             .build();
 
@@ -1083,7 +1125,7 @@ public class LedgerApi {
                                 @Override
                                 public void onCompleted() {
                                     logger.info("Fetched {} raw active contracts for {}", contracts.size(), party);
-                                    resultFuture.complete(contracts);
+                                    resultFuture.complete(new RawAcsSnapshot(ledgerEndOffset, contracts));
                                 }
                             });
                         }
@@ -1104,6 +1146,70 @@ public class LedgerApi {
         });
     }
 
+    /**
+     * Stream flat (ACS delta) transactions visible to a party, starting after {@code beginExclusive}.
+     * Cancel the returned context to end the stream; {@link LedgerUpdateStream} adds reconnects on top.
+     */
+    public Context.CancellableContext subscribeUpdatesForParty(
+            final String party,
+            final long beginExclusive,
+            final io.grpc.stub.StreamObserver<UpdateServiceOuterClass.GetUpdatesResponse> observer
+    ) {
+        return subscribeUpdatesForParty(party, beginExclusive, null, observer);
+    }
+
+    /**
+     * Same as {@link #subscribeUpdatesForParty(String, long, io.grpc.stub.StreamObserver)}, bounded to
+     * {@code endInclusive}: the stream completes once that offset has been delivered (null streams forever).
+     */
+    public Context.CancellableContext subscribeUpdatesForParty(
+            final String party,
+            final long beginExclusive,
+            final Long endInclusive,
+            final io.grpc.stub.StreamObserver<UpdateServiceOuterClass.GetUpdatesResponse> observer
+    ) {
+        return subscribeUpdatesForParties(List.of(party), beginExclusive, endInclusive, observer);
+    }
+
+    /**
+     * One stream of the transactions visible to any of {@code parties}; each event's witness parties
+     * tell which of them it concerns.
+     */
+    public Context.CancellableContext subscribeUpdatesForParties(
+            final Collection<String> parties,
+            final long beginExclusive,
+            final Long endInclusive,
+            final io.grpc.stub.StreamObserver<UpdateServiceOuterClass.GetUpdatesResponse> observer
+    ) {
+        UpdateServiceOuterClass.GetUpdatesRequest.Builder request = UpdateServiceOuterClass.GetUpdatesRequest.newBuilder()
+                .setBeginExclusive(beginExclusive);
+        if (endInclusive != null) {
+            request.setEndInclusive(endInclusive);
+        }
+        request.setUpdateFormat(TransactionFilterOuterClass.UpdateFormat.newBuilder()
+                        .setIncludeTransactions(TransactionFilterOuterClass.TransactionFormat.newBuilder()
+                                .setEventFormat(wildcardEventFormat(parties))
+                                .setTransactionShape(TransactionFilterOuterClass.TransactionShape.TRANSACTION_SHAPE_ACS_DELTA)
+                                .build())
+                        .build());
+        Context.CancellableContext streamContext = Context.current().withCancellation();
+        streamContext.run(() -> updateStream.getUpdates(request.build(), observer));
+        logger.info("Subscribed to updates for {} after offset {}{}", parties.size() == 1 ? parties.iterator().next() : parties.size() + " parties",
+                beginExclusive, endInclusive != null ? " up to " + endInclusive : "");
+        return streamContext;
+    }
+
+    private static TransactionFilterOuterClass.EventFormat wildcardEventFormat(final Collection<String> parties) {
+        TransactionFilterOuterClass.Filters wildcard = TransactionFilterOuterClass.Filters.newBuilder()
+                .addCumulative(TransactionFilterOuterClass.CumulativeFilter.newBuilder()
+                        .setWildcardFilter(TransactionFilterOuterClass.WildcardFilter.newBuilder().build())
+                        .build())
+                .build();
+        TransactionFilterOuterClass.EventFormat.Builder format = TransactionFilterOuterClass.EventFormat.newBuilder();
+        parties.forEach(party -> format.putFiltersByParty(party, wildcard));
+        return format.build();
+    }
+
     /**
      * Exercise a choice using raw identifiers (no generated bindings).
      */
@@ -1135,11 +1241,11 @@ public class LedgerApi {
             final String synchronizerId
     ) {
         var ctx = tracingCtx(logger, "Exercising raw choice",
-                "templateId", templateId.toString(),
+                "templateId", templateId,
                 "contractId", contractId,
                 "choiceName", choiceName,
-                "actAs", String.join(",", actAs),
-                "readAs", String.join(",", readAs));
+                "actAs", lazyJoin(actAs),
+                "readAs", lazyJoin(readAs));
         return trace(ctx, () -> {
             CommandsOuterClass.Command exerciseCommand = CommandsOuterClass.Command.newBuilder()
                     .setExercise(CommandsOuterClass.ExerciseCommand.newBuilder()
@@ -1150,47 +1256,7 @@ public class LedgerApi {
                             .build())
                     .build();
 
-            CommandsOuterClass.Commands.Builder commandsBuilder = CommandsOuterClass.Commands.newBuilder()
-                    .setCommandId(java.util.UUID.randomUUID().toString())
-                    .setUserId(appProviderParty)
-                    .addAllActAs(actAs)
-                    .addAllReadAs(readAs)
-                    .addCommands(exerciseCommand);
-
-            if (disclosedContracts != null && !disclosedContracts.isEmpty()) {
-                commandsBuilder.addAllDisclosedContracts(disclosedContracts);
-            }
-            if (synchronizerId != null && !synchronizerId.isBlank()) {
-                commandsBuilder.setSynchronizerId(synchronizerId);
-            }
-
-            // Ensure filtersByParty is populated so the ledger accepts the request
-            String partyForFilters = !actAs.isEmpty()
-                    ? actAs.get(0)
-                    : (!readAs.isEmpty() ? readAs.get(0) : appProviderParty);
-            TransactionFilterOuterClass.EventFormat eventFormat = TransactionFilterOuterClass.EventFormat.newBuilder()
-                    .putFiltersByParty(partyForFilters, TransactionFilterOuterClass.Filters.newBuilder()
-                            .addCumulative(TransactionFilterOuterClass.CumulativeFilter.newBuilder()
-                                    .setWildcardFilter(TransactionFilterOuterClass.WildcardFilter.newBuilder().build())
-                                    .build())
-                            .build())
-                    .build();
-            if (logger.isDebugEnabled()) {
-                logger.debug("exerciseRaw transaction format: actAsParty={}, filtersByPartyCount={}",
-                        partyForFilters,
-                        eventFormat.getFiltersByPartyCount());
-            }
-
-            CommandServiceOuterClass.SubmitAndWaitForTransactionRequest request =
-                    CommandServiceOuterClass.SubmitAndWaitForTransactionRequest.newBuilder()
-                            .setCommands(commandsBuilder.build())
-                            .setTransactionFormat(TransactionFilterOuterClass.TransactionFormat.newBuilder()
-                                    .setEventFormat(eventFormat)
-                                    .setTransactionShape(TransactionFilterOuterClass.TransactionShape.TRANSACTION_SHAPE_LEDGER_EFFECTS)
-                                    .build())
-                            .build();
-
-            return toCompletableFuture(commands.submitAndWaitForTransaction(request));
+            return submitAndWaitRaw(List.of(exerciseCommand), actAs, readAs, disclosedContracts, synchronizerId);
         });
     }
 
@@ -1220,6 +1286,83 @@ public class LedgerApi {
     }
 
 
+    /**
+     * Exercise several raw choices in one transaction (all-or-nothing), with a step label for
+     * structured logging. Root exercise events in the result appear in command order.
+     */
+    @WithSpan
+    public CompletableFuture<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse> exerciseRawBatchWithLabel(
+            final String step,
+            final List<CommandsOuterClass.Command> commandList,
+            final List<String> actAs,
+            final List<String> readAs,
+            final List<CommandsOuterClass.DisclosedContract> disclosedContracts,
+            final String synchronizerId
+    ) {
+        logger.info("[LedgerApi] submit step={} actAs={} readAs={} synchronizerId={} commands={}",
+                step,
+                actAs != null ? String.join(",", actAs) : "",
+                readAs != null ? String.join(",", readAs) : "",
+                synchronizerId,
+                commandList.size());
+        var ctx = tracingCtx(logger, "Exercising raw choice batch",
+                "step", step,
+                "commands.count", commandList.size(),
+                "actAs", lazyJoin(actAs),
+                "readAs", lazyJoin(readAs));
+        return trace(ctx, () -> submitAndWaitRaw(commandList, actAs, readAs, disclosedContracts, synchronizerId));
+    }
+
+    private CompletableFuture<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse> submitAndWaitRaw(
+            final List<CommandsOuterClass.Command> commandList,
+            final List<String> actAs,
+            final List<String> readAs,
+            final List<CommandsOuterClass.DisclosedContract> disclosedContracts,
+            final String synchronizerId
+    ) {
+        CommandsOuterClass.Commands.Builder commandsBuilder = CommandsOuterClass.Commands.newBuilder()
+                .setCommandId(java.util.UUID.randomUUID().toString())
+                .setUserId(appProviderParty)
+                .addAllActAs(actAs)
+                .addAllReadAs(readAs)
+                .addAllCommands(commandList);
+
+        if (disclosedContracts != null && !disclosedContracts.isEmpty()) {
+            commandsBuilder.addAllDisclosedContracts(disclosedContracts);
+        }
+        if (synchronizerId != null && !synchronizerId.isBlank()) {
+            commandsBuilder.setSynchronizerId(synchronizerId);
+        }
+
+        // Ensure filtersByParty is populated so the ledger accepts the request
+        String partyForFilters = !actAs.isEmpty()
+                ? actAs.get(0)
+                : (!readAs.isEmpty() ? readAs.get(0) : appProviderParty);
+        TransactionFilterOuterClass.EventFormat eventFormat = TransactionFilterOuterClass.EventFormat.newBuilder()
+                .putFiltersByParty(partyForFilters, TransactionFilterOuterClass.Filters.newBuilder()
+                        .addCumulative(TransactionFilterOuterClass.CumulativeFilter.newBuilder()
+                                .setWildcardFilter(TransactionFilterOuterClass.WildcardFilter.newBuilder().build())
+                                .build())
+                        .build())
+                .build();
+        if (logger.isDebugEnabled()) {
+            logger.debug("exerciseRaw transaction format: actAsParty={}, filtersByPartyCount={}",
+                    partyForFilters,
+                    eventFormat.getFiltersByPartyCount());
+        }
+
+        CommandServiceOuterClass.SubmitAndWaitForTransactionRequest request =
+                CommandServiceOuterClass.SubmitAndWaitForTransactionRequest.newBuilder()
+                        .setCommands(commandsBuilder.build())
+                        .setTransactionFormat(TransactionFilterOuterClass.TransactionFormat.newBuilder()
+                                .setEventFormat(eventFormat)
+                                .setTransactionShape(TransactionFilterOuterClass.TransactionShape.TRANSACTION_SHAPE_LEDGER_EFFECTS)
+                                .build())
+                        .build();
+
+        return toCompletableFuture(commands.submitAndWaitForTransaction(request));
+    }
+
     /**
      * Create a contract using raw identifiers (no generated bindings).
      */
@@ -1244,9 +1387,9 @@ public class LedgerApi {
             final String synchronizerId
     ) {
         var ctx = tracingCtx(logger, "Creating raw contract",
-                "templateId", templateId.toString(),
-                "actAs", String.join(",", actAs),
-                "readAs", String.join(",", readAs));
+                "templateId", templateId,
+                "actAs", lazyJoin(actAs),
+                "readAs", lazyJoin(readAs));
         return trace(ctx, () -> {
             if (actAs == null || actAs.isEmpty()) {
                 throw new IllegalArgumentException("actAs must contain at least one party");
@@ -1314,11 +1457,10 @@ public class LedgerApi {
     }
 
     private static class Interceptor implements ClientInterceptor {
-        private final Metadata.Key<String> AUTHORIZATION_HEADER = Metadata.Key.of("Authorization", Metadata.ASCII_STRING_MARSHALLER);
-        private final TokenProvider tokenProvider;
+        private final ServiceTokenHolder tokenHolder;
 
-        public Interceptor(TokenProvider tokenProvider) {
-            this.tokenProvider = tokenProvider;
+        public Interceptor(ServiceTokenHolder tokenHolder) {
+            this.tokenHolder = tokenHolder;
         }
 
         @Override
@@ -1327,7 +1469,8 @@ public class LedgerApi {
             return new ForwardingClientCall.SimpleForwardingClientCall<>(clientCall) {
                 @Override
                 public void start(Listener<RespT> responseListener, Metadata headers) {
-                    headers.put(AUTHORIZATION_HEADER, "Bearer " + tokenProvider.getToken());
+                    // Cached header, refreshed in the background ahead of expiry
+                    headers.merge(tokenHolder.headers());
                     super.start(responseListener, headers);
                 }
             };
@@ -0,0 +1,130 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LedgerInbox - Wake-ups for code waiting on something to appear on the ledger
+ *
+ * Waiters arm a future under a key (a memo requestId, a party) and re-check their condition when
+ * it completes; update-stream consumers signal keys as matching contracts are created. Every
+ * waiter on a key is woken (fan-out). An armed future completes with {@code false} on timeout, so
+ * a missed or absent signal degrades to polling instead of hanging.
+ *
+ * Waiters are completed on a pool thread, never on the gRPC stream thread that signalled them.
+ *
+ * Pattern: arm(key) → check state → not there yet → await future → re-check
+ */
+@Component
+public class LedgerInbox {
+
+    private final Map<String, Set<CompletableFuture<Boolean>>> waiters = new ConcurrentHashMap<>();
+    private final Set<String> liveParties = ConcurrentHashMap.newKeySet();
+    private final Counter wakeups;
+    private final Counter timeouts;
+
+    public LedgerInbox(MeterRegistry meterRegistry) {
+        this.wakeups = Counter.builder("clearportx.ledger.inbox.wakeups")
+            .description("Waiters woken by a ledger update")
+            .register(meterRegistry);
+        this.timeouts = Counter.builder("clearportx.ledger.inbox.timeouts")
+            .description("Waiters that timed out without a matching ledger update")
+            .register(meterRegistry);
+        Gauge.builder("clearportx.ledger.inbox.waiters", waiters, w -> w.values().stream().mapToInt(Set::size).sum())
+            .description("Futures currently waiting for a ledger update")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Arm a waiter. Arm before checking state so a signal between the check and the wait is not lost.
+     *
+     * @param key Wake-up key (see {@link #transferInstructionKey} / {@link #partyKey})
+     * @param timeoutMs Maximum wait; the future completes with false when it elapses
+     * @return Future completing with true when signalled
+     */
+    public CompletableFuture<Boolean> arm(String key, long timeoutMs) {
+        CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+        waiters.compute(key, (k, set) -> {
+            Set<CompletableFuture<Boolean>> target = set != null ? set : ConcurrentHashMap.newKeySet();
+            target.add(waiter);
+            return target;
+        });
+        waiter.completeOnTimeout(false, Math.max(timeoutMs, 0L), TimeUnit.MILLISECONDS);
+        waiter.whenComplete((signalled, error) -> {
+            release(key, waiter);
+            if (Boolean.FALSE.equals(signalled)) {
+                timeouts.increment();
+            }
+        });
+        return waiter;
+    }
+
+    /**
+     * Drop a waiter that is no longer needed (its condition was met without waiting).
+     */
+    public void disarm(String key, CompletableFuture<Boolean> waiter) {
+        release(key, waiter);
+        waiter.cancel(false);
+    }
+
+    /**
+     * Wake every waiter armed under {@code key}.
+     *
+     * @return Number of waiters woken
+     */
+    public int signal(String key) {
+        Set<CompletableFuture<Boolean>> woken = waiters.remove(key);
+        if (woken == null) {
+            return 0;
+        }
+        for (CompletableFuture<Boolean> waiter : woken) {
+            waiter.completeAsync(() -> Boolean.TRUE);
+        }
+        wakeups.increment(woken.size());
+        return woken.size();
+    }
+
+    /**
+     * Record whether an update stream currently feeds signals for {@code party}. Waiters on parties
+     * without a live stream should keep a short poll interval.
+     */
+    public void setLive(String party, boolean live) {
+        if (live) {
+            liveParties.add(party);
+        } else {
+            liveParties.remove(party);
+        }
+    }
+
+    public boolean isLive(String party) {
+        return party != null && liveParties.contains(party);
+    }
+
+    /** Key signalled when a TransferInstruction whose memo carries {@code requestId} is created. */
+    public static String transferInstructionKey(String requestId) {
+        return "ti:" + requestId;
+    }
+
+    /** Key signalled when a transaction creates contracts visible to {@code party}. */
+    public static String partyKey(String party) {
+        return "party:" + party;
+    }
+
+    private void release(String key, CompletableFuture<Boolean> waiter) {
+        waiters.computeIfPresent(key, (k, set) -> {
+            set.remove(waiter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
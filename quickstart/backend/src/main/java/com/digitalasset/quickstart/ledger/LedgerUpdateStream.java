@@ -0,0 +1,200 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.TransactionOuterClass;
+import com.daml.ledger.api.v2.UpdateServiceOuterClass;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LedgerUpdateStream - Long-lived transaction subscriptions for a party
+ *
+ * Wraps UpdateService.GetUpdates (flat transactions, ACS delta shape: created + archived events)
+ * and resubscribes from the last delivered offset when the stream drops, e.g. on participant
+ * restarts or token expiry. Consumers use it to keep in-memory views of the ledger current
+ * instead of re-reading the ACS on every request.
+ *
+ * Pattern: ACS snapshot at offset N → subscribe(party, N, listener) → apply create/archive deltas
+ */
+@Component
+public class LedgerUpdateStream {
+    private static final Logger logger = LoggerFactory.getLogger(LedgerUpdateStream.class);
+
+    private static final long INITIAL_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final LedgerApi ledgerApi;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService reconnects = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ledger-update-stream");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public LedgerUpdateStream(LedgerApi ledgerApi) {
+        this.ledgerApi = ledgerApi;
+    }
+
+    /**
+     * Receives transactions in ledger order. Called on gRPC threads, so keep it quick.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onTransaction(TransactionOuterClass.Transaction transaction);
+
+        /**
+         * The stream cannot continue from the last offset (e.g. it was pruned). The subscription is
+         * closed; rebuild from a fresh ACS snapshot and subscribe again.
+         */
+        default void onStreamGap(Throwable cause) { }
+    }
+
+    /**
+     * Subscribe to transactions visible to {@code party} after {@code beginExclusive}.
+     *
+     * @param party Party whose view to stream
+     * @param beginExclusive Offset already reflected by the caller (typically the ACS snapshot offset)
+     * @param name Short name for logging (e.g., "ti-index")
+     * @param listener Transaction callback
+     * @return Subscription handle; close it to stop streaming
+     */
+    public Subscription subscribe(String party, long beginExclusive, String name, Listener listener) {
+        return subscribe(List.of(party), beginExclusive, name, listener);
+    }
+
+    /**
+     * Subscribe to one stream of the transactions visible to any of {@code parties}. Events carry
+     * their witness parties, so a listener can tell which party a change concerns.
+     */
+    public Subscription subscribe(Collection<String> parties, long beginExclusive, String name, Listener listener) {
+        Subscription subscription = new Subscription(List.copyOf(parties), beginExclusive, name, listener);
+        subscriptions.add(subscription);
+        subscription.connect();
+        return subscription;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(Subscription::close);
+        reconnects.shutdownNow();
+    }
+
+    public final class Subscription implements AutoCloseable {
+        private final List<String> parties;
+        private final String party;
+        private final String name;
+        private final Listener listener;
+        private volatile long offset;
+        private volatile boolean closed;
+        private volatile boolean connected;
+        private volatile Context.CancellableContext stream;
+        private long backoffMs = INITIAL_BACKOFF_MS;
+
+        private Subscription(List<String> parties, long beginExclusive, String name, Listener listener) {
+            this.parties = parties;
+            this.party = parties.size() == 1 ? parties.get(0) : parties.size() + " parties";
+            this.offset = beginExclusive;
+            this.name = name;
+            this.listener = listener;
+        }
+
+        /** Last offset delivered to the listener (or the starting offset). */
+        public long offset() {
+            return offset;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * True once the participant has answered on the current connection; false before that, while
+         * the stream is down and waiting to reconnect, i.e. whenever updates may be missing.
+         */
+        public boolean isConnected() {
+            return connected && !closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            Context.CancellableContext current = stream;
+            if (current != null) {
+                current.cancel(null);
+            }
+        }
+
+        private void connect() {
+            if (closed) {
+                return;
+            }
+            try {
+                stream = ledgerApi.subscribeUpdatesForParties(parties, offset, null, new StreamObserver<>() {
+                    @Override
+                    public void onNext(UpdateServiceOuterClass.GetUpdatesResponse response) {
+                        backoffMs = INITIAL_BACKOFF_MS;
+                        connected = true;
+                        if (response.hasTransaction()) {
+                            TransactionOuterClass.Transaction txn = response.getTransaction();
+                            try {
+                                listener.onTransaction(txn);
+                            } catch (RuntimeException e) {
+                                logger.warn("[{}] Listener failed on update {}: {}", name, txn.getUpdateId(), e.getMessage());
+                            }
+                            offset = txn.getOffset();
+                        } else if (response.hasOffsetCheckpoint()) {
+                            offset = response.getOffsetCheckpoint().getOffset();
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        handleDisconnect(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        handleDisconnect(null);
+                    }
+                });
+            } catch (RuntimeException e) {
+                handleDisconnect(e);
+            }
+        }
+
+        private void handleDisconnect(Throwable t) {
+            connected = false;
+            if (closed) {
+                return;
+            }
+            Status.Code code = t != null ? Status.fromThrowable(t).getCode() : Status.Code.OK;
+            if (code == Status.Code.FAILED_PRECONDITION || code == Status.Code.OUT_OF_RANGE) {
+                logger.warn("[{}] Update stream for {} cannot resume after offset {}: {}", name, party, offset, t.getMessage());
+                close();
+                listener.onStreamGap(t);
+                return;
+            }
+            long delay = backoffMs;
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+            logger.warn("[{}] Update stream for {} dropped at offset {} ({}), reconnecting in {} ms",
+                    name, party, offset, t != null ? t.getMessage() : "completed", delay);
+            reconnects.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+}
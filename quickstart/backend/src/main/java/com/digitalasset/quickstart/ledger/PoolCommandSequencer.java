@@ -0,0 +1,320 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.EventOuterClass;
+import com.daml.ledger.api.v2.TransactionOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * PoolCommandSequencer - Serializes ledger commands that consume the same pool contract
+ *
+ * Every swap / add / remove archives the pool contract and creates its successor, so two
+ * commands submitted concurrently against the same CID race and the loser fails with
+ * CONTRACT_NOT_FOUND. Commands are queued per pool "lane" and each one is handed the latest
+ * known pool CID, learned from the previous command's transaction via {@link #observe}.
+ *
+ * A lane is found by the pool's poolId when the caller passes it, and by any CID the lane has
+ * seen, so a request carrying a CID the sequencer never recorded (read from the ACS, or dropped
+ * after MAX_TRACKED_CIDS) still queues behind the pool's other commands. If a CID or poolId turns
+ * out to belong to two lanes (one started from an unknown CID before its succession was learned),
+ * the lanes are merged: the later lane's commands wait for both, and nothing already queued is lost.
+ *
+ * The next queued command starts as soon as the previous one completes, so a hot pool sees a
+ * steady, ordered stream of submissions instead of a storm of conflicting ones.
+ *
+ * Pattern: submit(cid) → wait for lane → run with latest CID → observe(txn) → hand off
+ *
+ * Commands hold the lane until their submit completes, so anything slow that does not depend on
+ * the pool version (TI selection, registry choice contexts, payout preparation) belongs before
+ * submit(). A command that finds its CID consumed elsewhere re-resolves the pool and calls
+ * {@link #advance}, see HoldingPoolService.getLatest / refreshOnFailure.
+ */
+@Component
+public class PoolCommandSequencer {
+    private static final Logger logger = LoggerFactory.getLogger(PoolCommandSequencer.class);
+
+    /**
+     * Pool templates whose choices archive and recreate the pool (module:entity, package-id independent).
+     * Only HoldingPool commands go through the sequencer; AMM.Pool flows submit directly.
+     */
+    private static final Set<String> POOL_TEMPLATES = Set.of("AMM.HoldingPool:HoldingPool");
+
+    /** Old CIDs remembered per lane so late requests carrying a stale CID still join the right queue. */
+    private static final int MAX_TRACKED_CIDS = 64;
+
+    // Written under the sequencer's lock; read without it by latestCid
+    private final Map<String, Lane> lanesByCid = new ConcurrentHashMap<>();
+    private final Map<String, Lane> lanesByPoolId = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedCommands = new AtomicInteger(0);
+    private final Timer waitTime;
+    private final DistributionSummary queueDepth;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+
+    public PoolCommandSequencer(
+            MeterRegistry meterRegistry,
+            @Value("${ledger.pool-sequencer.enabled:true}") boolean enabled
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+
+        this.waitTime = Timer.builder("clearportx.pool.sequencer.wait.time")
+            .description("Time a pool command spent queued behind earlier commands on the same pool")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+
+        this.queueDepth = DistributionSummary.builder("clearportx.pool.sequencer.queue.depth")
+            .description("Lane depth observed when a pool command is enqueued")
+            .register(meterRegistry);
+
+        Gauge.builder("clearportx.pool.sequencer.queued", queuedCommands, AtomicInteger::get)
+            .description("Pool commands currently queued or in flight across all lanes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Run a command against a pool, serialized with every other command on the same pool.
+     *
+     * @param poolId Stable pool identity (HoldingPool poolId), or null if unknown
+     * @param poolCid Pool CID the caller knows about (may already be stale)
+     * @param label Command label for metrics and logging (e.g., choice name)
+     * @param command Operation receiving the latest known pool CID
+     * @param <T> Result type
+     * @return CompletableFuture with the command result
+     */
+    public <T> CompletableFuture<T> submit(
+        String poolId,
+        String poolCid,
+        String label,
+        Function<String, CompletableFuture<T>> command
+    ) {
+        if (!enabled || poolCid == null || poolCid.isBlank()) {
+            return invoke(command, latestCid(poolCid));
+        }
+
+        long enqueuedAt = System.nanoTime();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Lane lane;
+        CompletableFuture<Void> previous;
+        synchronized (this) {
+            lane = laneFor(poolId, poolCid);
+            previous = lane.tail;
+            lane.tail = done;
+        }
+        int depth = lane.depth.incrementAndGet();
+        queuedCommands.incrementAndGet();
+        queueDepth.record(depth);
+        meterRegistry.counter("clearportx.pool.sequencer.commands", "command", label).increment();
+
+        CompletableFuture<T> result = previous.thenCompose(ignored -> {
+            waitTime.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            String current = lane.current().latestCid;
+            if (!current.equals(poolCid)) {
+                logger.debug("{}: pool CID {} superseded by {}, submitting against latest", label, poolCid, current);
+            }
+            return invoke(command, current);
+        });
+
+        // The lane only tracks completion order; failures belong to the caller
+        return result.whenComplete((value, error) -> {
+            done.complete(null);
+            lane.depth.decrementAndGet();
+            queuedCommands.decrementAndGet();
+        });
+    }
+
+    /**
+     * {@link #submit(String, String, String, Function)} for callers that only know a CID.
+     */
+    public <T> CompletableFuture<T> submit(
+        String poolCid,
+        String label,
+        Function<String, CompletableFuture<T>> command
+    ) {
+        return submit(null, poolCid, label, command);
+    }
+
+    /**
+     * Latest pool CID known for the given CID (the CID itself if no successor was observed).
+     */
+    public String latestCid(String poolCid) {
+        if (poolCid == null) {
+            return null;
+        }
+        Lane lane = lanesByCid.get(poolCid);
+        return lane != null ? lane.current().latestCid : poolCid;
+    }
+
+    /**
+     * Record that a command consumed {@code previousCid} and created {@code nextCid}.
+     */
+    public void advance(String previousCid, String nextCid) {
+        if (previousCid == null || nextCid == null || previousCid.equals(nextCid)) {
+            return;
+        }
+        synchronized (this) {
+            Lane lane = laneFor(null, previousCid);
+            Lane successorLane = lanesByCid.get(nextCid);
+            if (successorLane != null && successorLane != lane) {
+                // A command already started a lane from the successor CID; it is the same pool
+                merge(lane, successorLane);
+            }
+            lane.latestCid = nextCid;
+            track(lane, nextCid);
+        }
+        logger.debug("Pool CID advanced: {} → {}", previousCid, nextCid);
+    }
+
+    /**
+     * Lane for a pool, found by poolId or by CID, creating or merging lanes as needed. Caller holds the lock.
+     */
+    private Lane laneFor(String poolId, String poolCid) {
+        Lane byCid = lanesByCid.get(poolCid);
+        Lane byPoolId = poolId == null || poolId.isBlank() ? null : lanesByPoolId.get(poolId);
+        Lane lane;
+        if (byPoolId != null) {
+            lane = byPoolId;
+            if (byCid != null && byCid != byPoolId) {
+                merge(byPoolId, byCid);
+            }
+        } else if (byCid != null) {
+            lane = byCid;
+        } else {
+            lane = new Lane(poolCid);
+        }
+        track(lane, poolCid);
+        if (byPoolId == null && poolId != null && !poolId.isBlank()) {
+            lanesByPoolId.put(poolId, lane);
+            lane.poolIds.add(poolId);
+        }
+        return lane;
+    }
+
+    /**
+     * Fold {@code absorbed} into {@code survivor}: its keys point at the survivor, and commands queued
+     * on the survivor from now on also wait for the absorbed lane's queue. Caller holds the lock.
+     */
+    private void merge(Lane survivor, Lane absorbed) {
+        logger.info("Merging pool lanes {} and {} (poolIds {} / {})",
+            survivor.latestCid, absorbed.latestCid, survivor.poolIds, absorbed.poolIds);
+        if (absorbed.cids.contains(survivor.latestCid)) {
+            // The absorbed lane has seen the survivor's latest CID, so its own latest is newer
+            survivor.latestCid = absorbed.latestCid;
+        }
+        for (String poolId : absorbed.poolIds) {
+            lanesByPoolId.put(poolId, survivor);
+            survivor.poolIds.add(poolId);
+        }
+        for (String cid : absorbed.cids) {
+            track(survivor, cid);
+        }
+        survivor.tail = CompletableFuture.allOf(survivor.tail, absorbed.tail);
+        absorbed.mergedInto = survivor;
+    }
+
+    /**
+     * Make {@code cid} find {@code lane}, forgetting the lane's oldest CIDs beyond MAX_TRACKED_CIDS.
+     * Caller holds the lock.
+     */
+    private void track(Lane lane, String cid) {
+        if (lanesByCid.put(cid, lane) == lane) {
+            return;
+        }
+        lane.cids.remove(cid);
+        lane.cids.addLast(cid);
+        while (lane.cids.size() > MAX_TRACKED_CIDS) {
+            String oldest = lane.cids.removeFirst();
+            if (oldest.equals(lane.latestCid)) {
+                lane.cids.addLast(oldest);
+                continue;
+            }
+            lanesByCid.remove(oldest, lane);
+        }
+    }
+
+    /**
+     * Learn pool successions from a committed transaction: a consumed pool contract and a created
+     * pool contract in the same transaction mean the latter replaced the former.
+     */
+    public void observe(TransactionOuterClass.Transaction txn) {
+        if (txn == null) {
+            return;
+        }
+        List<String> consumed = new ArrayList<>();
+        List<String> created = new ArrayList<>();
+        for (EventOuterClass.Event event : txn.getEventsList()) {
+            if (event.hasExercised()
+                    && event.getExercised().getConsuming()
+                    && isPoolTemplate(event.getExercised().getTemplateId())) {
+                consumed.add(event.getExercised().getContractId());
+            } else if (event.hasArchived() && isPoolTemplate(event.getArchived().getTemplateId())) {
+                consumed.add(event.getArchived().getContractId());
+            } else if (event.hasCreated() && isPoolTemplate(event.getCreated().getTemplateId())) {
+                created.add(event.getCreated().getContractId());
+            }
+        }
+        if (consumed.size() == 1 && created.size() == 1) {
+            advance(consumed.get(0), created.get(0));
+        } else if (!consumed.isEmpty() || !created.isEmpty()) {
+            logger.debug("Ambiguous pool succession in update {}: consumed={}, created={}",
+                txn.getUpdateId(), consumed, created);
+        }
+    }
+
+    private static boolean isPoolTemplate(ValueOuterClass.Identifier id) {
+        return id != null && POOL_TEMPLATES.contains(id.getModuleName() + ":" + id.getEntityName());
+    }
+
+    private static <T> CompletableFuture<T> invoke(Function<String, CompletableFuture<T>> command, String cid) {
+        try {
+            return command.apply(cid);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static final class Lane {
+        private final Deque<String> cids = new ArrayDeque<>();
+        private final Set<String> poolIds = new HashSet<>();
+        private final AtomicInteger depth = new AtomicInteger(0);
+        private volatile String latestCid;
+        private volatile Lane mergedInto;
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        private Lane(String rootCid) {
+            this.latestCid = rootCid;
+        }
+
+        /** The lane this one was merged into, or itself. */
+        private Lane current() {
+            Lane lane = this;
+            while (lane.mergedInto != null) {
+                lane = lane.mergedInto;
+            }
+            return lane;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.EventOuterClass;
+import com.daml.ledger.api.v2.TransactionOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ReadVersionTracker - Per-party change offsets for the wallet and pool read endpoints
+ *
+ * Follows the tracked parties' transactions on one shared {@link LedgerUpdateStream} subscription
+ * and remembers, per party, the offset of the last transaction that created or archived a Token,
+ * LPToken or Pool it witnessed. Two reads of the same party at the same version see the same
+ * contracts, so the version can key HTTP ETags and response caches without touching the ledger.
+ *
+ * A party's version starts at the offset the stream picks it up from. It is unknown (empty) until
+ * the participant has answered on the stream, while the stream is reconnecting or being widened to
+ * a new party, and after a stream gap; callers must then read the ledger and not cache. Callers only
+ * pass parties they have validated (see LedgerController). Parties nobody asks about for
+ * clearportx.http-cache.idle-ms are dropped, and at most clearportx.http-cache.max-parties are
+ * tracked at once.
+ */
+@Component
+public class ReadVersionTracker {
+    private static final Logger logger = LoggerFactory.getLogger(ReadVersionTracker.class);
+
+    // module name -> entity name of the templates behind the cached reads
+    private static final Map<String, String> TRACKED_TEMPLATES = Map.of(
+            "Token.Token", "Token",
+            "LPToken.LPToken", "LPToken",
+            "AMM.Pool", "Pool");
+
+    private static final long UNCOVERED = -1;
+
+    private final LedgerApi ledgerApi;
+    private final LedgerUpdateStream ledgerUpdateStream;
+    private final boolean enabled;
+    private final int maxParties;
+    private final long idleMs;
+    private final Map<String, PartyVersion> parties = new ConcurrentHashMap<>();
+
+    // The shared stream and the parties it was opened for; changed under the monitor only
+    private volatile LedgerUpdateStream.Subscription stream;
+    private Set<String> streamParties = Set.of();
+    private boolean starting;
+    private boolean stopped;
+
+    public ReadVersionTracker(
+            LedgerApi ledgerApi,
+            LedgerUpdateStream ledgerUpdateStream,
+            @Value("${clearportx.http-cache.enabled:true}") boolean enabled,
+            @Value("${clearportx.http-cache.max-parties:256}") int maxParties,
+            @Value("${clearportx.http-cache.idle-ms:600000}") long idleMs
+    ) {
+        this.ledgerApi = ledgerApi;
+        this.ledgerUpdateStream = ledgerUpdateStream;
+        this.enabled = enabled;
+        this.maxParties = maxParties;
+        this.idleMs = idleMs;
+    }
+
+    /**
+     * Current change offset for {@code party}, starting to track it on first use.
+     *
+     * @return Offset of the party's last Token/LPToken/Pool change, or empty while unknown
+     */
+    public OptionalLong version(String party) {
+        if (!enabled || party == null || party.isBlank()) {
+            return OptionalLong.empty();
+        }
+        PartyVersion tracked = parties.get(party);
+        if (tracked == null) {
+            if (parties.size() >= maxParties) {
+                return OptionalLong.empty();
+            }
+            PartyVersion fresh = new PartyVersion();
+            tracked = parties.putIfAbsent(party, fresh);
+            if (tracked == null) {
+                tracked = fresh;
+                resubscribe();
+            }
+        }
+        tracked.lastUsedMs = System.currentTimeMillis();
+        LedgerUpdateStream.Subscription s = stream;
+        long v = tracked.version;
+        return s != null && s.isConnected() && v != UNCOVERED ? OptionalLong.of(v) : OptionalLong.empty();
+    }
+
+    /**
+     * Combined version of several parties: the highest of their change offsets. Offsets only grow,
+     * so this moves whenever any of them changes.
+     *
+     * @return Highest offset, or empty if any party's version is unknown
+     */
+    public OptionalLong version(Iterable<String> partyIds) {
+        long max = Long.MIN_VALUE;
+        for (String party : partyIds) {
+            OptionalLong v = version(party);
+            if (v.isEmpty()) {
+                return OptionalLong.empty();
+            }
+            max = Math.max(max, v.getAsLong());
+        }
+        return max == Long.MIN_VALUE ? OptionalLong.empty() : OptionalLong.of(max);
+    }
+
+    @Scheduled(fixedDelayString = "${clearportx.http-cache.idle-sweep-ms:60000}")
+    public void dropIdle() {
+        long cutoff = System.currentTimeMillis() - idleMs;
+        if (parties.values().removeIf(p -> p.lastUsedMs < cutoff)) {
+            resubscribe();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        stopped = true;
+        closeStream();
+        parties.clear();
+    }
+
+    /**
+     * Point the shared stream at the current party set. An open stream is replaced by one resuming
+     * from its offset, so parties already covered keep their versions; the first stream starts at
+     * the ledger end.
+     */
+    private synchronized void resubscribe() {
+        if (stopped || starting) {
+            return;
+        }
+        if (stream != null && streamParties.equals(parties.keySet())) {
+            return;
+        }
+        if (stream == null) {
+            if (parties.isEmpty()) {
+                return;
+            }
+            starting = true;
+            ledgerApi.getLedgerEndOffset().whenComplete((end, ex) -> {
+                synchronized (this) {
+                    starting = false;
+                    if (ex != null) {
+                        // Nothing is covered; the next request starts over
+                        logger.warn("Cannot track read versions: {}", ex.getMessage());
+                        parties.clear();
+                        return;
+                    }
+                    if (!stopped) {
+                        open(end);
+                    }
+                }
+            });
+            return;
+        }
+        LedgerUpdateStream.Subscription previous = stream;
+        previous.close();
+        open(previous.offset());
+    }
+
+    private void open(long beginExclusive) {
+        Set<String> wanted = Set.copyOf(parties.keySet());
+        if (wanted.isEmpty()) {
+            closeStream();
+            return;
+        }
+        for (String party : wanted) {
+            PartyVersion v = parties.get(party);
+            if (v != null && !streamParties.contains(party)) {
+                v.version = beginExclusive;
+            }
+        }
+        streamParties = wanted;
+        stream = ledgerUpdateStream.subscribe(wanted, beginExclusive, "read-versions", new LedgerUpdateStream.Listener() {
+            @Override
+            public void onTransaction(TransactionOuterClass.Transaction transaction) {
+                for (String party : changedParties(transaction)) {
+                    PartyVersion v = parties.get(party);
+                    if (v != null && v.version != UNCOVERED) {
+                        v.version = transaction.getOffset();
+                    }
+                }
+            }
+
+            @Override
+            public void onStreamGap(Throwable cause) {
+                // Forget every party; the next request starts again from the ledger end
+                synchronized (ReadVersionTracker.this) {
+                    closeStream();
+                    parties.clear();
+                }
+            }
+        });
+    }
+
+    private void closeStream() {
+        LedgerUpdateStream.Subscription s = stream;
+        if (s != null) {
+            s.close();
+        }
+        stream = null;
+        streamParties = Set.of();
+    }
+
+    /** Witnesses of the transaction's Token/LPToken/Pool creates and archives. */
+    static Set<String> changedParties(TransactionOuterClass.Transaction transaction) {
+        Set<String> changed = new HashSet<>();
+        for (EventOuterClass.Event event : transaction.getEventsList()) {
+            if (event.hasCreated() && isTracked(event.getCreated().getTemplateId())) {
+                changed.addAll(event.getCreated().getWitnessPartiesList());
+            } else if (event.hasArchived() && isTracked(event.getArchived().getTemplateId())) {
+                changed.addAll(event.getArchived().getWitnessPartiesList());
+            }
+        }
+        return changed;
+    }
+
+    private static boolean isTracked(ValueOuterClass.Identifier id) {
+        return id != null && id.getEntityName().equals(TRACKED_TEMPLATES.get(id.getModuleName()));
+    }
+
+    private static final class PartyVersion {
+        private volatile long version = UNCOVERED;
+        private volatile long lastUsedMs = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,203 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.digitalasset.quickstart.security.TokenProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.Metadata;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ServiceTokenHolder - Backend service token for Ledger API calls, cached between refreshes
+ *
+ * The gRPC interceptor used to ask the {@link TokenProvider} on every call start; with OAuth2 that
+ * can be a token endpoint round trip inside the call path, and every caller hits the IdP at once
+ * when the token expires. The holder keeps the token and its ready-made Authorization header in a
+ * volatile field and refreshes it on a background thread ahead of the JWT exp claim, with jitter
+ * so pods spread their refreshes. Callers only block when there is no valid token at all (first
+ * call, or refresh failing past expiry). Tokens without a usable exp claim (shared secret, DevNet
+ * empty token) are loaded once and served as-is. A token that is already expired when it arrives is
+ * only served until the next attempt, which backs off like a failed refresh.
+ */
+@Component
+public class ServiceTokenHolder {
+    private static final Logger logger = LoggerFactory.getLogger(ServiceTokenHolder.class);
+
+    static final Metadata.Key<String> AUTHORIZATION_HEADER = Metadata.Key.of("Authorization", Metadata.ASCII_STRING_MARSHALLER);
+    private static final Duration MIN_RETRY = Duration.ofSeconds(1);
+    private static final Duration MAX_RETRY = Duration.ofSeconds(30);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final TokenProvider tokenProvider;
+    private final Duration refreshAhead;
+    private final double jitter;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ledger-token-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // A lock rather than synchronized: the token endpoint call happens while holding it, and a
+    // virtual thread blocked inside a monitor pins its carrier
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile CachedToken current;
+    private ScheduledFuture<?> pendingRefresh;
+    private Duration retryDelay = MIN_RETRY;
+
+    record CachedToken(String token, Metadata headers, Instant expiresAt, Instant retryAt) {
+        boolean validAt(Instant now) {
+            return expiresAt == null || now.isBefore(expiresAt) || (retryAt != null && now.isBefore(retryAt));
+        }
+    }
+
+    @Autowired
+    public ServiceTokenHolder(
+            Optional<TokenProvider> tokenProvider,
+            @Value("${ledger.token.refresh-ahead-seconds:60}") long refreshAheadSeconds,
+            @Value("${ledger.token.refresh-jitter:0.1}") double jitter
+    ) {
+        this(tokenProvider.orElseThrow(() -> new IllegalStateException("TokenProvider is required for authentication")),
+                Duration.ofSeconds(refreshAheadSeconds), jitter, Clock.systemUTC());
+    }
+
+    ServiceTokenHolder(TokenProvider tokenProvider, Duration refreshAhead, double jitter, Clock clock) {
+        this.tokenProvider = tokenProvider;
+        this.refreshAhead = refreshAhead;
+        this.jitter = Math.max(0, Math.min(jitter, 0.5));
+        this.clock = clock;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public String getToken() {
+        return current().token();
+    }
+
+    /**
+     * Authorization header for the current token; merge into outgoing call headers.
+     */
+    public Metadata headers() {
+        return current().headers();
+    }
+
+    private CachedToken current() {
+        CachedToken token = current;
+        if (token != null && token.validAt(clock.instant())) {
+            return token;
+        }
+        return refreshNow();
+    }
+
+    private CachedToken refreshNow() {
+        refreshLock.lock();
+        try {
+            CachedToken token = current;
+            if (token != null && token.validAt(clock.instant())) {
+                return token;
+            }
+            return install(load());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Scheduled ahead of expiry; on failure the current token keeps being served and the refresh
+     * is retried with backoff.
+     */
+    void refreshInBackground() {
+        refreshLock.lock();
+        try {
+            install(load());
+        } catch (RuntimeException e) {
+            Duration delay = nextRetryDelay();
+            logger.warn("Ledger token refresh failed, retrying in {} ms: {}", delay.toMillis(), e.getMessage());
+            schedule(delay);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private CachedToken install(CachedToken token) {
+        Instant now = clock.instant();
+        if (token.expiresAt() != null && !token.expiresAt().isAfter(now)) {
+            // Serve it until the next attempt rather than as a token that never expires
+            Duration delay = nextRetryDelay();
+            logger.warn("Ledger token provider returned a token that expired at {}, retrying in {} ms",
+                    token.expiresAt(), delay.toMillis());
+            token = new CachedToken(token.token(), token.headers(), token.expiresAt(), now.plus(delay));
+            current = token;
+            schedule(delay);
+            return token;
+        }
+        retryDelay = MIN_RETRY;
+        current = token;
+        if (token.expiresAt() != null) {
+            Duration lifetime = Duration.between(now, token.expiresAt());
+            Duration ahead = refreshAhead.compareTo(lifetime.dividedBy(2)) > 0 ? lifetime.dividedBy(2) : refreshAhead;
+            Duration delay = lifetime.minus(ahead);
+            long jitterMs = (long) (delay.toMillis() * jitter * ThreadLocalRandom.current().nextDouble());
+            schedule(delay.minusMillis(jitterMs));
+        }
+        return token;
+    }
+
+    private Duration nextRetryDelay() {
+        Duration delay = retryDelay;
+        retryDelay = retryDelay.multipliedBy(2).compareTo(MAX_RETRY) > 0 ? MAX_RETRY : retryDelay.multipliedBy(2);
+        return delay;
+    }
+
+    private void schedule(Duration delay) {
+        if (pendingRefresh != null) {
+            pendingRefresh.cancel(false);
+        }
+        pendingRefresh = scheduler.schedule(this::refreshInBackground, Math.max(0, delay.toMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private CachedToken load() {
+        String token = tokenProvider.getToken();
+        Metadata headers = new Metadata();
+        headers.put(AUTHORIZATION_HEADER, "Bearer " + token);
+        return new CachedToken(token, headers, expiry(token), null);
+    }
+
+    static Instant expiry(String token) {
+        if (token == null) {
+            return null;
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length < 2) {
+            return null;
+        }
+        try {
+            JsonNode exp = MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1])).get("exp");
+            return exp != null && exp.canConvertToLong() ? Instant.ofEpochSecond(exp.asLong()) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
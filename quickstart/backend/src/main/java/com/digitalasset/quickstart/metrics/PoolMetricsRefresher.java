@@ -3,79 +3,206 @@
 
 package com.digitalasset.quickstart.metrics;
 
-import clearportx_amm_drain_credit.amm.pool.Pool;
+import com.daml.ledger.api.v2.EventOuterClass;
+import com.daml.ledger.api.v2.TransactionOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
 import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.ledger.LedgerApi.RawAcsSnapshot;
+import com.digitalasset.quickstart.ledger.LedgerApi.RawActiveContract;
+import com.digitalasset.quickstart.ledger.LedgerUpdateStream;
+import com.digitalasset.quickstart.security.AuthUtils;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
- * Background task to refresh pool metrics (reserves, K-invariant, active count).
- * Runs every 10 seconds to update Grafana dashboards.
+ * Keeps pool metrics (reserves, K-invariant, LP supply, active count) in step with the ledger.
+ *
+ * Pools are loaded once from an ACS snapshot, then updated from Pool create/archive events on
+ * {@link LedgerUpdateStream}, so gauges move within one transaction of a swap or liquidity change.
+ * A full snapshot is re-read only for reconciliation (metrics.pools.reconcile-ms, 5 min by default)
+ * and after a stream gap. With metrics.pools.event-driven=false the periodic snapshot is the only
+ * source, as before.
  */
 @Component
 public class PoolMetricsRefresher {
     private static final Logger logger = LoggerFactory.getLogger(PoolMetricsRefresher.class);
 
+    private static final String POOL_MODULE = "AMM.Pool";
+    private static final String POOL_ENTITY = "Pool";
+
     private final LedgerApi ledgerApi;
+    private final LedgerUpdateStream ledgerUpdateStream;
+    private final AuthUtils authUtils;
     private final SwapMetrics swapMetrics;
+    private final boolean eventDriven;
+
+    // Active pools by contract id in creation order; guarded by this
+    private final Map<String, PoolView> pools = new LinkedHashMap<>();
+    private LedgerUpdateStream.Subscription subscription;
+    // Bumped on every resync so late events from a replaced subscription are dropped
+    private long generation;
+
+    record PoolView(String symbolA, String symbolB, BigDecimal reserveA, BigDecimal reserveB, BigDecimal totalLpSupply) {
+        boolean funded() {
+            return reserveA.signum() > 0 && reserveB.signum() > 0;
+        }
+    }
 
-    public PoolMetricsRefresher(LedgerApi ledgerApi, SwapMetrics swapMetrics) {
+    public PoolMetricsRefresher(
+            LedgerApi ledgerApi,
+            LedgerUpdateStream ledgerUpdateStream,
+            AuthUtils authUtils,
+            SwapMetrics swapMetrics,
+            @Value("${metrics.pools.event-driven:true}") boolean eventDriven
+    ) {
         this.ledgerApi = ledgerApi;
+        this.ledgerUpdateStream = ledgerUpdateStream;
+        this.authUtils = authUtils;
         this.swapMetrics = swapMetrics;
+        this.eventDriven = eventDriven;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reconcile();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        generation++;
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
     }
 
     /**
-     * Refresh pool metrics every 10 seconds.
-     * Updates: active pool count, reserves, K-invariant for each pool.
+     * Rebuild pool metrics from a fresh ACS snapshot and restart the event subscription from it.
      */
-    @Scheduled(fixedDelayString = "${metrics.pools.refresh-ms:10000}")
-    public void refreshPoolMetrics() {
-        ledgerApi.getActiveContracts(Pool.class)
-            .thenAccept(pools -> {
-                // Count unique active pools (by token pair, not poolId)
-                // This excludes archived pools and counts unique trading pairs
-                long activeCount = pools.stream()
-                    .filter(p -> p.payload.getReserveA.compareTo(BigDecimal.ZERO) > 0)
-                    .filter(p -> p.payload.getReserveB.compareTo(BigDecimal.ZERO) > 0)
-                    .map(p -> normalizePair(p.payload.getSymbolA, p.payload.getSymbolB))  // Normalize to unique pair
-                    .distinct()
-                    .count();
-
-                swapMetrics.setActivePoolsCount((int) activeCount);
-
-                // Update reserves and K-invariant for each unique token pair
-                // Group by normalized pair and take the one with latest reserves
-                pools.stream()
-                    .filter(p -> p.payload.getReserveA.compareTo(BigDecimal.ZERO) > 0)
-                    .filter(p -> p.payload.getReserveB.compareTo(BigDecimal.ZERO) > 0)
-                    .collect(java.util.stream.Collectors.toMap(
-                        p -> normalizePair(p.payload.getSymbolA, p.payload.getSymbolB),
-                        p -> p,
-                        (p1, p2) -> p1  // Keep first occurrence (latest in stream)
-                    ))
-                    .values()
-                    .forEach(p -> {
-                        // Use existing recordPoolLiquidity which properly manages gauge lifecycle
-                        swapMetrics.recordPoolLiquidity(
-                            p.payload.getSymbolA,
-                            p.payload.getSymbolB,
-                            p.payload.getReserveA,
-                            p.payload.getReserveB
-                        );
-                    });
-
-                logger.debug("Refreshed metrics for {} unique active pools", activeCount);
-            })
+    @Scheduled(fixedDelayString = "${metrics.pools.reconcile-ms:300000}",
+               initialDelayString = "${metrics.pools.reconcile-ms:300000}")
+    public void reconcile() {
+        String party = authUtils.getAppProviderPartyId();
+        if (party == null || party.isBlank()) {
+            logger.debug("App provider party not known yet, skipping pool metrics reconcile");
+            return;
+        }
+        ledgerApi.getActiveContractsRawSnapshotForParty(party)
+            .thenAccept(snapshot -> resync(party, snapshot))
             .exceptionally(ex -> {
                 logger.error("Failed to refresh pool metrics", ex);
                 return null;
             });
     }
 
+    synchronized void resync(String party, RawAcsSnapshot snapshot) {
+        stop();
+        pools.clear();
+        for (RawActiveContract rac : snapshot.contracts()) {
+            if (isPool(rac.templateId()) && rac.createArguments() != null) {
+                pools.put(rac.contractId(), toView(rac.createArguments()));
+            }
+        }
+        publish();
+        logger.debug("Reconciled metrics for {} pool contracts at offset {}", pools.size(), snapshot.offset());
+
+        if (!eventDriven) {
+            return;
+        }
+        long gen = generation;
+        subscription = ledgerUpdateStream.subscribe(party, snapshot.offset(), "pool-metrics", new LedgerUpdateStream.Listener() {
+            @Override
+            public void onTransaction(TransactionOuterClass.Transaction transaction) {
+                apply(gen, transaction);
+            }
+
+            @Override
+            public void onStreamGap(Throwable cause) {
+                logger.warn("Pool metrics stream gap, reconciling from a fresh snapshot: {}", cause.getMessage());
+                reconcile();
+            }
+        });
+    }
+
+    synchronized void apply(long gen, TransactionOuterClass.Transaction transaction) {
+        if (gen != generation) {
+            return;
+        }
+        boolean changed = false;
+        for (EventOuterClass.Event event : transaction.getEventsList()) {
+            if (event.hasCreated() && isPool(event.getCreated().getTemplateId())) {
+                pools.put(event.getCreated().getContractId(), toView(event.getCreated().getCreateArguments()));
+                changed = true;
+            } else if (event.hasArchived() && isPool(event.getArchived().getTemplateId())) {
+                changed |= pools.remove(event.getArchived().getContractId()) != null;
+            }
+        }
+        if (changed) {
+            publish();
+        }
+    }
+
+    /**
+     * Push the current pool set to the gauges. Pools are counted by unique token pair; when several
+     * contracts share a pair the most recently created funded one wins.
+     */
+    private void publish() {
+        Map<String, PoolView> byPair = new LinkedHashMap<>();
+        for (PoolView pool : pools.values()) {
+            if (pool.funded()) {
+                byPair.put(normalizePair(pool.symbolA(), pool.symbolB()), pool);
+            }
+        }
+        swapMetrics.setActivePoolsCount(byPair.size());
+        for (PoolView pool : byPair.values()) {
+            swapMetrics.recordPoolLiquidity(pool.symbolA(), pool.symbolB(), pool.reserveA(), pool.reserveB());
+            swapMetrics.recordPoolLpSupply(pool.symbolA(), pool.symbolB(), pool.totalLpSupply());
+        }
+    }
+
+    static PoolView toView(ValueOuterClass.Record pool) {
+        return new PoolView(
+            text(field(pool, "symbolA", 5)),
+            text(field(pool, "symbolB", 6)),
+            numeric(field(pool, "reserveA", 11)),
+            numeric(field(pool, "reserveB", 12)),
+            numeric(field(pool, "totalLPSupply", 10)));
+    }
+
+    private static boolean isPool(ValueOuterClass.Identifier id) {
+        return id != null && POOL_MODULE.equals(id.getModuleName()) && POOL_ENTITY.equals(id.getEntityName());
+    }
+
+    private static ValueOuterClass.Value field(ValueOuterClass.Record rec, String label, int indexFallback) {
+        for (ValueOuterClass.RecordField f : rec.getFieldsList()) {
+            if (label.equals(f.getLabel())) {
+                return f.getValue();
+            }
+        }
+        if (indexFallback >= 0 && indexFallback < rec.getFieldsCount()) {
+            return rec.getFields(indexFallback).getValue();
+        }
+        return null;
+    }
+
+    private static String text(ValueOuterClass.Value v) {
+        return v != null && v.hasText() ? v.getText() : "";
+    }
+
+    private static BigDecimal numeric(ValueOuterClass.Value v) {
+        return v != null && v.hasNumeric() ? new BigDecimal(v.getNumeric()) : BigDecimal.ZERO;
+    }
+
     /**
      * Normalize token pair to consistent format (alphabetical order).
      */
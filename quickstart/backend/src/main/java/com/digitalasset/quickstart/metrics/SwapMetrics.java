@@ -3,30 +3,38 @@
 
 package com.digitalasset.quickstart.metrics;
 
+import com.digitalasset.quickstart.common.Result;
 import io.micrometer.core.instrument.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * Metrics collector for atomic swap operations.
  *
  * Provides Micrometer metrics for:
  * - Swap counters (total, by direction, success/failure)
- * - Pool liquidity gauges (registered once, updated on swap)
+ * - Pool liquidity gauges (registered once, updated from pool create/archive events)
  * - Swap amount histograms
  * - Price impact distribution
- * - Execution time tracking
+ * - Execution time tracking, overall and per stage (clearportx.swap.stage.duration)
  *
  * CARDINALITY SAFETY:
  * - Uses pool pair (e.g., "ETH-USDC") not contract IDs
- * - Limits tag sets to prevent unbounded growth
+ * - Limits tag sets to prevent unbounded growth; stage timers only name pairs of pools that
+ *   were resolved from the ledger (at most MAX_STAGE_PAIRS), everything else is "other"
  * - Gauges registered once and updated via AtomicReference
  */
 @Component
@@ -34,6 +42,30 @@ public class SwapMetrics {
 
     private static final Logger logger = LoggerFactory.getLogger(SwapMetrics.class);
 
+    /**
+     * Steps of a swap timed separately, so a p99 regression can be pinned on one of them.
+     */
+    public enum Stage {
+        POOL_LOOKUP,
+        TOKEN_LOOKUP,
+        CREATE,
+        EXERCISE,
+        RECEIPT_FETCH,
+        MERGE,
+        PAYOUT;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    static final int MAX_STAGE_PAIRS = 32;
+    static final String OTHER_PAIR = "other";
+
+    // Ledger round trips sit between tens of ms and a few seconds
+    private static final Duration[] LATENCY_SLOS = {
+        Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500),
+        Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(5), Duration.ofSeconds(10)
+    };
+
     private final MeterRegistry meterRegistry;
     private final DistributionSummary swapInputAmounts;
     private final DistributionSummary swapOutputAmounts;
@@ -44,6 +76,13 @@ public class SwapMetrics {
     private final AtomicInteger activePoolsCount = new AtomicInteger(0);
     private final Map<String, AtomicReference<BigDecimal>> poolReserveGauges = new ConcurrentHashMap<>();
     private final Map<String, AtomicReference<BigDecimal>> poolKInvariantGauges = new ConcurrentHashMap<>();
+    private final Map<String, AtomicReference<BigDecimal>> poolLpSupplyGauges = new ConcurrentHashMap<>();
+
+    // Stage timers by stage|pair|outcome; pairs are capped so the map stays small
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Set<String> stagePairs = ConcurrentHashMap.newKeySet();
+    // Tokens of the pools in stagePairs, for stages that concern a single token
+    private final Set<String> stageTokens = ConcurrentHashMap.newKeySet();
 
     // DEPRECATED: Fee tracking gauges (kept for backward compatibility but not used)
     // Use recordFeeCollected() instead which uses proper counters
@@ -79,6 +118,10 @@ public class SwapMetrics {
         // Timer: Swap execution time
         this.swapExecutionTime = Timer.builder("clearportx.swap.execution.time")
             .description("Time taken to execute atomic swaps")
+            .publishPercentileHistogram()
+            .serviceLevelObjectives(LATENCY_SLOS)
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(60))
             .register(meterRegistry);
 
         // Gauge: Active pools
@@ -102,6 +145,16 @@ public class SwapMetrics {
     public void recordSwapExecuted(String inputSymbol, String outputSymbol,
                                     BigDecimal inputAmount, BigDecimal outputAmount,
                                     int priceImpactBps, long executionTimeMs) {
+        recordSwapExecuted(inputSymbol, outputSymbol, inputAmount, outputAmount, priceImpactBps,
+            TimeUnit.MILLISECONDS.toNanos(executionTimeMs), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record a successful swap execution with a high-resolution duration.
+     */
+    public void recordSwapExecuted(String inputSymbol, String outputSymbol,
+                                    BigDecimal inputAmount, BigDecimal outputAmount,
+                                    int priceImpactBps, long executionTime, TimeUnit unit) {
         // Use same metric name with pair tag for better PromQL queries
         String pair = normalizePair(inputSymbol, outputSymbol);
         meterRegistry.counter("clearportx.swap.executed.total",
@@ -117,7 +170,85 @@ public class SwapMetrics {
         }
 
         // Record execution time
-        swapExecutionTime.record(executionTimeMs, java.util.concurrent.TimeUnit.MILLISECONDS);
+        swapExecutionTime.record(executionTime, unit);
+    }
+
+    /**
+     * Time one swap stage. The stage counts as failed if the future completes exceptionally or
+     * with an error {@link Result}.
+     *
+     * @param pair Pool pair tag from {@link #pairTag}
+     */
+    public <T> CompletableFuture<T> timeStage(Stage stage, String pair, Supplier<CompletableFuture<T>> body) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = body.get();
+        } catch (RuntimeException e) {
+            recordStage(stage, pair, System.nanoTime() - start, false);
+            throw e;
+        }
+        return future.whenComplete((res, ex) -> recordStage(stage, pair, System.nanoTime() - start,
+            ex == null && !(res instanceof Result<?, ?> result && result.isErr())));
+    }
+
+    public void recordStage(Stage stage, String pair, long durationNanos, boolean success) {
+        String outcome = success ? "success" : "failure";
+        stageTimers.computeIfAbsent(stage.tag + '|' + pair + '|' + outcome, key ->
+            Timer.builder("clearportx.swap.stage.duration")
+                .description("Duration of each swap stage (pool lookup, token lookup, create, exercise, receipt fetch, merge, payout)")
+                .tag("stage", stage.tag)
+                .tag("pair", pair)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(LATENCY_SLOS)
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(meterRegistry)
+        ).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Pair tag for stage timers from client-supplied symbols, before a pool is resolved: the pair
+     * keeps its name only if it belongs to a known pool, so unvalidated requests cannot take slots.
+     */
+    public String pairTag(String tokenA, String tokenB) {
+        if (tokenA == null || tokenB == null) {
+            return OTHER_PAIR;
+        }
+        String pair = normalizePair(tokenA, tokenB);
+        return stagePairs.contains(pair) ? pair : OTHER_PAIR;
+    }
+
+    /**
+     * Pair tag for a pool resolved from the ledger. The first MAX_STAGE_PAIRS pools seen become known
+     * pairs and keep their name; later ones are reported as "other".
+     */
+    public String poolPairTag(String tokenA, String tokenB) {
+        if (tokenA == null || tokenB == null) {
+            return OTHER_PAIR;
+        }
+        String pair = normalizePair(tokenA, tokenB);
+        if (stagePairs.contains(pair)) {
+            return pair;
+        }
+        synchronized (stagePairs) {
+            if (stagePairs.size() < MAX_STAGE_PAIRS) {
+                stageTokens.add(tokenA);
+                stageTokens.add(tokenB);
+                stagePairs.add(pair);
+                return pair;
+            }
+        }
+        return OTHER_PAIR;
+    }
+
+    /**
+     * Tag for stages that concern one token (e.g. merges): a token of a known pool, else "other".
+     * Reported under the same "pair" key as pair tags so the stage timer keeps one tag set.
+     */
+    public String tokenTag(String token) {
+        return token != null && stageTokens.contains(token) ? token : OTHER_PAIR;
     }
 
     /**
@@ -138,6 +269,7 @@ public class SwapMetrics {
     public void recordPoolLiquidity(String tokenA, String tokenB,
                                      BigDecimal reserveA, BigDecimal reserveB) {
         String pair = normalizePair(tokenA, tokenB);
+        poolPairTag(tokenA, tokenB);
 
         // Reserve A gauge
         String keyA = pair + ":" + tokenA;
@@ -175,6 +307,21 @@ public class SwapMetrics {
         }).set(k);
     }
 
+    /**
+     * Update the outstanding LP token supply of a pool pair.
+     */
+    public void recordPoolLpSupply(String tokenA, String tokenB, BigDecimal totalLpSupply) {
+        String pair = normalizePair(tokenA, tokenB);
+        poolLpSupplyGauges.computeIfAbsent(pair, p -> {
+            AtomicReference<BigDecimal> ref = new AtomicReference<>(totalLpSupply);
+            Gauge.builder("clearportx.pool.lp_supply", ref, r -> r.get().doubleValue())
+                .tag("pair", pair)
+                .description("Outstanding LP token supply")
+                .register(meterRegistry);
+            return ref;
+        }).set(totalLpSupply);
+    }
+
     /**
      * Update active pools count.
      */
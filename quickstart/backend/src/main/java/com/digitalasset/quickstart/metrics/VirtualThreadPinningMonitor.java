@@ -0,0 +1,145 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.metrics;
+
+import com.digitalasset.quickstart.config.BlockingExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports virtual threads that pin their carrier thread.
+ *
+ * A virtual thread that blocks inside a synchronized block or a native frame keeps its carrier
+ * busy, and with enough of them the carrier pool (one per core) stalls. When virtual threads are
+ * in use, a JFR stream on jdk.VirtualThreadPinned records every pin longer than
+ * clearportx.threads.pinning.threshold-ms as clearportx.virtual.pinned, tagged with the first
+ * application frame, and logs the stack once per site per minute. Inactive on platform threads.
+ */
+@Component
+public class VirtualThreadPinningMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.digitalasset.quickstart.";
+    private static final int MAX_SITES = 100;
+    private static final long LOG_INTERVAL_MS = 60_000;
+    private static final int LOGGED_FRAMES = 12;
+
+    private final MeterRegistry meterRegistry;
+    private final BlockingExecutor blockingExecutor;
+    private final boolean enabled;
+    private final Duration threshold;
+    private final Map<String, Timer> timersBySite = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastLoggedBySite = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(
+            MeterRegistry meterRegistry,
+            BlockingExecutor blockingExecutor,
+            @Value("${clearportx.threads.pinning.enabled:true}") boolean enabled,
+            @Value("${clearportx.threads.pinning.threshold-ms:20}") long thresholdMs
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.blockingExecutor = blockingExecutor;
+        this.enabled = enabled;
+        this.threshold = Duration.ofMillis(thresholdMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || !blockingExecutor.isVirtual() || stream != null) {
+            return;
+        }
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::onPinned);
+            stream.startAsync();
+            logger.info("Watching for virtual thread pinning longer than {} ms", threshold.toMillis());
+        } catch (RuntimeException e) {
+            // JFR can be unavailable (stripped runtime image, disabled by flags); pinning is a diagnostic only
+            logger.warn("Virtual thread pinning monitor not started: {}", e.getMessage());
+            stream = null;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String site = site(event.getStackTrace());
+        if (!timersBySite.containsKey(site) && timersBySite.size() >= MAX_SITES) {
+            site = "other";
+        }
+        timersBySite.computeIfAbsent(site, s -> Timer.builder("clearportx.virtual.pinned")
+                        .description("Time a virtual thread held its carrier while blocked")
+                        .tag("site", s)
+                        .register(meterRegistry))
+                .record(event.getDuration());
+
+        long now = System.currentTimeMillis();
+        Long last = lastLoggedBySite.get(site);
+        if ((last == null || now - last >= LOG_INTERVAL_MS) && lastLoggedBySite.size() <= MAX_SITES) {
+            lastLoggedBySite.put(site, now);
+            logger.warn("Virtual thread pinned for {} ms at {}:\n{}", event.getDuration().toMillis(), site, stack(event.getStackTrace()));
+        }
+    }
+
+    /**
+     * @return First application frame as Class.method:line, else the top frame, else "unknown"
+     */
+    static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                return format(frame);
+            }
+        }
+        return format(frames.get(0));
+    }
+
+    private static String stack(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "    (no stack trace)";
+        }
+        StringBuilder out = new StringBuilder();
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (int i = 0; i < Math.min(frames.size(), LOGGED_FRAMES); i++) {
+            out.append("    at ").append(format(frames.get(i))).append('\n');
+        }
+        if (frames.size() > LOGGED_FRAMES) {
+            out.append("    ... ").append(frames.size() - LOGGED_FRAMES).append(" more");
+        }
+        return out.toString();
+    }
+
+    private static String format(RecordedFrame frame) {
+        String type = frame.getMethod().getType().getName();
+        return type.substring(type.lastIndexOf('.') + 1) + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -11,12 +11,21 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.Base64;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+/**
+ * Verifies the HS256 bearer tokens issued to wallets.
+ *
+ * Wallets poll with the same token many times a minute, so successfully verified tokens are kept
+ * in a bounded cache keyed by the SHA-256 of the token. An entry lives until the token's exp, or
+ * for the configured TTL when the token has none. Rejected tokens are never cached.
+ */
 @Service
 public class JwtAuthService {
 
@@ -25,15 +34,45 @@ public class JwtAuthService {
     private final byte[] signingKey;
     private final String expectedIssuer;
     private final ObjectMapper objectMapper;
+    private final int cacheSize;
+    private final long cacheTtlMs;
+    private final Map<String, CachedUser> verified = new ConcurrentHashMap<>();
+    private final ThreadLocal<Mac> macs;
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private record CachedUser(AuthenticatedUser user, long validUntilMs) { }
 
     public JwtAuthService(
             @Value("${clearportx.auth.jwt-secret:devnet-secret}") final String jwtSecret,
             @Value("${clearportx.auth.jwt-issuer:clearportx-backend}") final String issuer,
-            final ObjectMapper objectMapper
+            final ObjectMapper objectMapper,
+            @Value("${clearportx.auth.verified-cache-size:10000}") final int cacheSize,
+            @Value("${clearportx.auth.verified-cache-ttl-seconds:300}") final long cacheTtlSeconds
     ) {
         this.signingKey = jwtSecret != null ? jwtSecret.getBytes(StandardCharsets.UTF_8) : new byte[0];
         this.expectedIssuer = issuer;
         this.objectMapper = objectMapper;
+        this.cacheSize = Math.max(0, cacheSize);
+        this.cacheTtlMs = cacheTtlSeconds * 1000;
+        // Mac is not thread-safe; keep one keyed instance per thread instead of getInstance + init per call
+        this.macs = ThreadLocal.withInitial(() -> {
+            if (signingKey.length == 0) {
+                throw new IllegalStateException("JWT secret not configured");
+            }
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(new SecretKeySpec(signingKey, HMAC_ALGORITHM));
+                return mac;
+            } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new IllegalStateException(e);
+            }
+        });
     }
 
     public Result<AuthenticatedUser, DomainError> authenticate(final String authorizationHeader) {
@@ -48,16 +87,28 @@ public class JwtAuthService {
             return missingToken();
         }
 
-        String[] parts = token.split("\\.");
-        if (parts.length != 3) {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
             return invalidToken("Invalid JWT format");
         }
 
+        String cacheKey = cacheSize > 0 ? cacheKey(token) : null;
+        if (cacheKey != null) {
+            CachedUser cached = verified.get(cacheKey);
+            if (cached != null) {
+                if (System.currentTimeMillis() < cached.validUntilMs()) {
+                    return Result.ok(cached.user());
+                }
+                verified.remove(cacheKey, cached);
+            }
+        }
+
         try {
-            byte[] payloadBytes = decode(parts[1]);
-            byte[] signatureBytes = decode(parts[2]);
+            byte[] payloadBytes = decode(token.substring(firstDot + 1, secondDot));
+            byte[] signatureBytes = decode(token.substring(secondDot + 1));
 
-            byte[] computedSignature = sign(parts[0] + "." + parts[1]);
+            byte[] computedSignature = sign(token, secondDot);
             if (!MessageDigest.isEqual(signatureBytes, computedSignature)) {
                 return invalidToken("Invalid JWT signature");
             }
@@ -77,20 +128,62 @@ public class JwtAuthService {
             Instant issuedAt = instantValue(payload.get("iat"));
             Instant expiresAt = instantValue(payload.get("exp"));
 
-            return Result.ok(new AuthenticatedUser(partyId, walletType, issuedAt, expiresAt));
+            AuthenticatedUser user = new AuthenticatedUser(partyId, walletType, issuedAt, expiresAt);
+            if (cacheKey != null) {
+                remember(cacheKey, user);
+            }
+            return Result.ok(user);
         } catch (Exception ex) {
             return invalidToken("Unable to parse JWT: " + ex.getMessage());
         }
     }
 
+    private void remember(final String cacheKey, final AuthenticatedUser user) {
+        long now = System.currentTimeMillis();
+        long validUntil = user.expiresAt() != null ? user.expiresAt().toEpochMilli() : now + cacheTtlMs;
+        if (validUntil <= now) {
+            return;
+        }
+        if (verified.size() >= cacheSize) {
+            evict(now);
+        }
+        verified.put(cacheKey, new CachedUser(user, validUntil));
+    }
+
+    /**
+     * Drop expired entries; if the cache is still full, drop arbitrary entries down to 90%.
+     */
+    private void evict(final long now) {
+        verified.values().removeIf(cached -> cached.validUntilMs() <= now);
+        Iterator<String> it = verified.keySet().iterator();
+        int target = cacheSize - cacheSize / 10 - 1;
+        while (verified.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    int cachedTokens() {
+        return verified.size();
+    }
+
+    private String cacheKey(final String token) {
+        MessageDigest digest = digests.get();
+        digest.reset();
+        return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
     private byte[] decode(final String section) {
         return Base64.getUrlDecoder().decode(section);
     }
 
-    private byte[] sign(final String data) throws NoSuchAlgorithmException, InvalidKeyException {
-        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
-        mac.init(new SecretKeySpec(signingKey, HMAC_ALGORITHM));
-        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    /**
+     * HMAC over the signing input, i.e. the token up to the second dot.
+     */
+    private byte[] sign(final String token, final int signingInputEnd) {
+        Mac mac = macs.get();
+        mac.reset();
+        return mac.doFinal(token.substring(0, signingInputEnd).getBytes(StandardCharsets.UTF_8));
     }
 
     private Result<AuthenticatedUser, DomainError> missingToken() {
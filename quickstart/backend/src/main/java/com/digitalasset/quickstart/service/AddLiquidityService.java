@@ -82,7 +82,7 @@ public class AddLiquidityService {
                 .thenCompose(result -> {
                     if (result.isOk()) {
                         AddLiquidityResponse response = toResponse(pool.payload, command, result.getValueUnsafe());
-                        recordAddLiquidity(pool, command, response);
+                        recordAddLiquidity(pool, command, response, result.getValueUnsafe().updateId());
                         return CompletableFuture.completedFuture(Result.ok(response));
                     }
                     DomainError error = result.getErrorUnsafe();
@@ -241,11 +241,14 @@ public class AddLiquidityService {
     private void recordAddLiquidity(
             final LedgerApi.ActiveContract<Pool> pool,
             final AddLiquidityCommand command,
-            final AddLiquidityResponse response
+            final AddLiquidityResponse response,
+            final String updateId
     ) {
         try {
             BigDecimal lpMinted = new BigDecimal(response.lpAmount());
+            // Keyed by update id so the ledger history indexer does not record it twice
             historyService.recordAddLiquidity(
+                    updateId,
                     pool.payload.getPoolId,
                     pool.contractId.getContractId,
                     pool.payload.getSymbolA,
@@ -9,25 +9,30 @@ import com.digitalasset.quickstart.config.RegistryRoutingConfig.RegistryEndpoint
 import com.digitalasset.quickstart.config.RegistryRoutingConfig.RegistryKind;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.digitalasset.quickstart.ledger.DisclosedContractCache;
 import com.digitalasset.quickstart.ledger.LedgerApi;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import io.grpc.Status;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 
 import java.math.BigDecimal;
-import java.util.Base64;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.net.http.HttpClient;
@@ -43,6 +48,10 @@ import java.net.http.HttpResponse;
  *
  * This service queries the ledger ACS directly (not scan API) to find TransferOffers
  * where the receiver matches the specified party.
+ *
+ * Registry calls are non-blocking. {@link #acceptPendingOffers} accepts every pending offer of a
+ * party at once: choice-contexts are fetched concurrently (at most cbtc.accept.parallelism in
+ * flight) and the accepts are submitted cbtc.accept.batch-size commands per transaction.
  */
 @Service
 public class CbtcTransferOfferService {
@@ -57,18 +66,41 @@ public class CbtcTransferOfferService {
     private static final String CBTC_INSTRUMENT_ADMIN = "cbtc-network::12202a83c6f4082217c175e29bc53da5f2703ba2675778ab99217a5a881a949203ff";
     private static final String CBTC_INSTRUMENT_ID = "CBTC";
 
+    // Offers are accepted through the token-standard TransferInstruction interface
+    private static final ValueOuterClass.Identifier ACCEPT_INTERFACE_ID = ValueOuterClass.Identifier.newBuilder()
+            .setPackageId("#splice-api-token-transfer-instruction-v1")
+            .setModuleName("Splice.Api.Token.TransferInstructionV1")
+            .setEntityName("TransferInstruction")
+            .build();
+    private static final String ACCEPT_CHOICE = "TransferInstruction_Accept";
+
+    private static final Duration REGISTRY_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration REGISTRY_REQUEST_TIMEOUT = Duration.ofSeconds(15);
+
     private final LedgerApi ledgerApi;
     private final LedgerConfig ledgerConfig;
     private final RegistryRoutingConfig registryRouting;
+    private final DisclosedContractCache disclosedContractCache;
     private final ObjectMapper mapper = new ObjectMapper();
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(REGISTRY_CONNECT_TIMEOUT)
+            .build();
+
+    @Value("${cbtc.accept.parallelism:8}")
+    private int acceptParallelism;
+
+    @Value("${cbtc.accept.batch-size:10}")
+    private int acceptBatchSize;
 
     public CbtcTransferOfferService(final LedgerApi ledgerApi,
                                     final LedgerConfig ledgerConfig,
-                                    final RegistryRoutingConfig registryRouting) {
+                                    final RegistryRoutingConfig registryRouting,
+                                    final DisclosedContractCache disclosedContractCache) {
         this.ledgerApi = ledgerApi;
         this.ledgerConfig = ledgerConfig;
         this.registryRouting = registryRouting;
+        this.disclosedContractCache = disclosedContractCache;
     }
 
     public record ProbeAcceptResponse(
@@ -140,6 +172,16 @@ public class CbtcTransferOfferService {
             List<RegistryProbeAttempt> attempts
     ) {}
 
+    public record BatchAcceptResult(
+            String requestId,
+            String actAsParty,
+            int pending,
+            int accepted,
+            int failed,
+            int ledgerSubmissions,
+            List<AcceptOfferResult> results
+    ) {}
+
     private record RegistryFetchResult(
             ChoiceContextDto ctx,
             String url,
@@ -147,6 +189,29 @@ public class CbtcTransferOfferService {
             String bodySnippet
     ) {}
 
+    /**
+     * An offer ready to accept (command inputs resolved), or the reason it cannot be.
+     */
+    private record PreparedAccept(
+            CbtcTransferOfferDto offer,
+            ValueOuterClass.Record choiceArg,
+            List<CommandsOuterClass.DisclosedContract> disclosed,
+            AcceptOfferResult failure
+    ) {
+        static PreparedAccept ready(CbtcTransferOfferDto offer, ValueOuterClass.Record choiceArg,
+                                    List<CommandsOuterClass.DisclosedContract> disclosed) {
+            return new PreparedAccept(offer, choiceArg, disclosed, null);
+        }
+
+        static PreparedAccept failed(AcceptOfferResult failure) {
+            return new PreparedAccept(null, null, List.of(), failure);
+        }
+
+        String tiCid() {
+            return offer.contractId();
+        }
+    }
+
     /**
      * Get all incoming CBTC TransferOffers for a receiver party.
      *
@@ -273,25 +338,102 @@ public class CbtcTransferOfferService {
                         ));
                     }
 
-                    CbtcTransferOfferDto dto = parseTransferOffer(matched);
-                    if (dto == null || dto.transferInstructionId == null || dto.transferInstructionId.isBlank()) {
-                        String msg = "transferInstructionId missing from TransferOffer";
-                        return CompletableFuture.completedFuture(new AcceptOfferResult(
-                                requestId, offerCid, null, actAsParty, false, "CHOICE_CONTEXT", msg,
-                                "Offer does not embed TransferInstruction id", null
-                        ));
-                    }
+                    return prepareAccept(parseTransferOffer(matched), offerCid, actAsParty, requestId)
+                            .thenCompose(prepared -> prepared.failure() != null
+                                    ? CompletableFuture.completedFuture(prepared.failure())
+                                    : acceptPrepared(prepared, actAsParty, requestId));
+                });
+    }
 
-                    List<RegistryEndpoint> registries = getRegistriesToTry(dto.instrumentAdmin());
-                    if (registries.isEmpty()) {
-                        String msg = "registryBaseUri not configured";
-                        return CompletableFuture.completedFuture(new AcceptOfferResult(
-                                requestId, offerCid, dto.transferInstructionId, actAsParty, false, "CHOICE_CONTEXT", msg,
-                                "Configure LEDGER_REGISTRY_BASE_URI", null
-                        ));
+    /**
+     * Accept every pending CBTC offer visible to {@code actAsParty}.
+     *
+     * One ACS query lists the offers; registry choice-contexts are then resolved concurrently and the
+     * accepts are submitted in multi-command transactions. A batch the ledger definitely rejects is
+     * retried offer by offer so one stale offer does not block the rest. Every offer gets its own
+     * {@link AcceptOfferResult}.
+     */
+    @WithSpan
+    public CompletableFuture<BatchAcceptResult> acceptPendingOffers(final String actAsParty, final String requestId) {
+        LOGGER.info("[CbtcTransferOfferService] [requestId={}] acceptPendingOffers START actAs={} parallelism={} batchSize={}",
+                requestId, truncateParty(actAsParty), acceptParallelism, acceptBatchSize);
+
+        return ledgerApi.getActiveContractsRawForParty(actAsParty)
+                .thenCompose(acs -> {
+                    List<CbtcTransferOfferDto> pending = acs.stream()
+                            .filter(c -> TRANSFER_OFFER_MODULE.equals(c.templateId().getModuleName())
+                                    && TRANSFER_OFFER_ENTITY.equals(c.templateId().getEntityName()))
+                            .map(this::parseTransferOffer)
+                            .filter(Objects::nonNull)
+                            .filter(dto -> CBTC_INSTRUMENT_ID.equals(dto.instrumentId()))
+                            .toList();
+                    if (pending.isEmpty()) {
+                        LOGGER.info("[CbtcTransferOfferService] [requestId={}] acceptPendingOffers no pending offers", requestId);
+                        return CompletableFuture.completedFuture(
+                                new BatchAcceptResult(requestId, actAsParty, 0, 0, 0, 0, List.of()));
                     }
 
-                    RegistryFetchResult ctxResult = fetchChoiceContextForOffer(registries, offerCid, requestId);
+                    AtomicInteger submissions = new AtomicInteger();
+                    return mapBounded(pending, acceptParallelism,
+                            dto -> prepareAccept(dto, dto.contractId(), actAsParty, requestId))
+                            .thenCompose(prepared -> {
+                                List<AcceptOfferResult> results = new ArrayList<>();
+                                List<PreparedAccept> ready = new ArrayList<>();
+                                for (PreparedAccept p : prepared) {
+                                    if (p.failure() != null) {
+                                        results.add(p.failure());
+                                    } else {
+                                        ready.add(p);
+                                    }
+                                }
+                                List<CompletableFuture<List<AcceptOfferResult>>> batches = new ArrayList<>();
+                                int batchSize = Math.max(1, acceptBatchSize);
+                                for (int from = 0; from < ready.size(); from += batchSize) {
+                                    List<PreparedAccept> batch = ready.subList(from, Math.min(from + batchSize, ready.size()));
+                                    batches.add(submitAcceptBatch(batch, actAsParty, requestId, submissions));
+                                }
+                                return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]))
+                                        .thenApply(ignored -> {
+                                            batches.forEach(b -> results.addAll(b.join()));
+                                            int accepted = (int) results.stream().filter(AcceptOfferResult::ok).count();
+                                            LOGGER.info("[CbtcTransferOfferService] [requestId={}] acceptPendingOffers DONE pending={} accepted={} failed={} ledgerSubmissions={}",
+                                                    requestId, pending.size(), accepted, results.size() - accepted, submissions.get());
+                                            return new BatchAcceptResult(requestId, actAsParty, pending.size(), accepted,
+                                                    results.size() - accepted, submissions.get(), results);
+                                        });
+                            });
+                });
+    }
+
+    /**
+     * Resolve the registry choice-context for an offer and build the accept inputs. Never fails
+     * exceptionally: problems are returned as a failed {@link PreparedAccept}.
+     */
+    private CompletableFuture<PreparedAccept> prepareAccept(
+            final CbtcTransferOfferDto dto,
+            final String offerCid,
+            final String actAsParty,
+            final String requestId
+    ) {
+        if (dto == null || dto.transferInstructionId == null || dto.transferInstructionId.isBlank()) {
+            String msg = "transferInstructionId missing from TransferOffer";
+            return CompletableFuture.completedFuture(PreparedAccept.failed(new AcceptOfferResult(
+                    requestId, offerCid, null, actAsParty, false, "CHOICE_CONTEXT", msg,
+                    "Offer does not embed TransferInstruction id", null
+            )));
+        }
+
+        List<RegistryEndpoint> registries = getRegistriesToTry(dto.instrumentAdmin());
+        if (registries.isEmpty()) {
+            String msg = "registryBaseUri not configured";
+            return CompletableFuture.completedFuture(PreparedAccept.failed(new AcceptOfferResult(
+                    requestId, offerCid, dto.transferInstructionId, actAsParty, false, "CHOICE_CONTEXT", msg,
+                    "Configure LEDGER_REGISTRY_BASE_URI", null
+            )));
+        }
+
+        return fetchChoiceContextForOffer(registries, offerCid, requestId)
+                .thenApply(ctxResult -> {
                     ChoiceContextDto ctx = ctxResult != null ? ctxResult.ctx : null;
 
                     if (ctx == null || ctx.disclosedContracts == null || ctx.disclosedContracts.isEmpty()) {
@@ -301,7 +443,7 @@ public class CbtcTransferOfferService {
                         LOGGER.warn("[CbtcTransferOfferService] [requestId={}] choice-context missing disclosures url={} status={} bodySnippet={}",
                                 requestId, url, status, snippet);
                         String msg = "choice-context missing disclosures";
-                        return CompletableFuture.completedFuture(new AcceptOfferResult(
+                        return PreparedAccept.failed(new AcceptOfferResult(
                                 requestId, offerCid, dto.transferInstructionId, actAsParty, false, "REGISTRY_EMPTY", msg,
                                 "Registry did not return disclosures", null
                         ));
@@ -313,42 +455,105 @@ public class CbtcTransferOfferService {
                             .toList();
                     if (disclosed.isEmpty()) {
                         String msg = "no valid disclosed contracts";
-                        return CompletableFuture.completedFuture(new AcceptOfferResult(
+                        return PreparedAccept.failed(new AcceptOfferResult(
                                 requestId, offerCid, dto.transferInstructionId, actAsParty, false, "REGISTRY_EMPTY", msg,
                                 "Registry disclosures invalid", null
                         ));
                     }
 
-                // Use interface exercise on the TransferOffer CID (registry endpoint uses OFFER CID).
-                final String tiToAccept = dto.contractId();
-                ValueOuterClass.Record choiceArg = buildChoiceArgument(ctx);
-                ValueOuterClass.Identifier templateId = ValueOuterClass.Identifier.newBuilder()
-                        .setPackageId("#splice-api-token-transfer-instruction-v1")
-                        .setModuleName("Splice.Api.Token.TransferInstructionV1")
-                        .setEntityName("TransferInstruction")
-                        .build();
-                String choiceName = "TransferInstruction_Accept";
-
-                return ledgerApi.exerciseRaw(
-                                templateId,
-                                tiToAccept,
-                                choiceName,
-                                choiceArg,
-                                List.of(actAsParty),
-                                List.of(),
-                                disclosed
-                        )
-                            .thenApply(resp -> {
-                                String updateId = resp.hasTransaction() ? resp.getTransaction().getUpdateId() : null;
-                                LOGGER.info("[CbtcTransferOfferService] [requestId={}] acceptOffer SUCCESS updateId={} tiCid={}",
-                                        requestId, updateId, truncateCid(tiToAccept));
-                                return new AcceptOfferResult(
-                                        requestId, offerCid, tiToAccept, actAsParty, true,
-                                        "OK", null, null, updateId
-                                );
-                            })
-                            .exceptionally(ex -> classifyAcceptError(requestId, offerCid, tiToAccept, actAsParty, ex));
-                });
+                    // Use interface exercise on the TransferOffer CID (registry endpoint uses OFFER CID).
+                    return PreparedAccept.ready(dto, buildChoiceArgument(ctx), disclosed);
+                })
+                .exceptionally(ex -> PreparedAccept.failed(
+                        classifyAcceptError(requestId, offerCid, dto.transferInstructionId, actAsParty, ex)));
+    }
+
+    private CompletableFuture<AcceptOfferResult> acceptPrepared(
+            final PreparedAccept prepared,
+            final String actAsParty,
+            final String requestId
+    ) {
+        final String tiToAccept = prepared.tiCid();
+        return ledgerApi.exerciseRaw(
+                        ACCEPT_INTERFACE_ID,
+                        tiToAccept,
+                        ACCEPT_CHOICE,
+                        prepared.choiceArg(),
+                        List.of(actAsParty),
+                        List.of(),
+                        prepared.disclosed()
+                )
+                .thenApply(resp -> {
+                    String updateId = resp.hasTransaction() ? resp.getTransaction().getUpdateId() : null;
+                    LOGGER.info("[CbtcTransferOfferService] [requestId={}] acceptOffer SUCCESS updateId={} tiCid={}",
+                            requestId, updateId, truncateCid(tiToAccept));
+                    return new AcceptOfferResult(
+                            requestId, tiToAccept, tiToAccept, actAsParty, true,
+                            "OK", null, null, updateId
+                    );
+                })
+                .exceptionally(ex -> classifyAcceptError(requestId, tiToAccept, tiToAccept, actAsParty, ex));
+    }
+
+    /**
+     * Accept a batch of prepared offers in one transaction. The registries disclose the same
+     * AmuletRules/instrument contracts for every offer, so disclosures are de-duplicated by contract id.
+     */
+    private CompletableFuture<List<AcceptOfferResult>> submitAcceptBatch(
+            final List<PreparedAccept> batch,
+            final String actAsParty,
+            final String requestId,
+            final AtomicInteger submissions
+    ) {
+        if (batch.size() == 1) {
+            submissions.incrementAndGet();
+            return acceptPrepared(batch.get(0), actAsParty, requestId).thenApply(List::of);
+        }
+
+        List<CommandsOuterClass.Command> commands = new ArrayList<>(batch.size());
+        Map<String, CommandsOuterClass.DisclosedContract> disclosed = new LinkedHashMap<>();
+        for (PreparedAccept p : batch) {
+            commands.add(CommandsOuterClass.Command.newBuilder()
+                    .setExercise(CommandsOuterClass.ExerciseCommand.newBuilder()
+                            .setTemplateId(ACCEPT_INTERFACE_ID)
+                            .setContractId(p.tiCid())
+                            .setChoice(ACCEPT_CHOICE)
+                            .setChoiceArgument(ValueOuterClass.Value.newBuilder().setRecord(p.choiceArg()).build())
+                            .build())
+                    .build());
+            p.disclosed().forEach(dc -> disclosed.putIfAbsent(dc.getContractId(), dc));
+        }
+
+        submissions.incrementAndGet();
+        return ledgerApi.exerciseRawBatchWithLabel(
+                        "CbtcAcceptBatch",
+                        commands,
+                        List.of(actAsParty),
+                        List.of(),
+                        List.copyOf(disclosed.values()),
+                        null
+                )
+                .handle((resp, ex) -> {
+                    if (ex == null) {
+                        String updateId = resp.hasTransaction() ? resp.getTransaction().getUpdateId() : null;
+                        LOGGER.info("[CbtcTransferOfferService] [requestId={}] acceptPendingOffers batch SUCCESS offers={} updateId={}",
+                                requestId, batch.size(), updateId);
+                        return CompletableFuture.completedFuture(batch.stream()
+                                .map(p -> new AcceptOfferResult(requestId, p.tiCid(), p.tiCid(), actAsParty, true, "OK", null, null, updateId))
+                                .toList());
+                    }
+                    if (!isDefiniteRejection(ex)) {
+                        // Outcome unknown (timeout/unavailable): the batch may have committed, so do not resubmit
+                        return CompletableFuture.completedFuture(batch.stream()
+                                .map(p -> classifyAcceptError(requestId, p.tiCid(), p.tiCid(), actAsParty, ex))
+                                .toList());
+                    }
+                    LOGGER.warn("[CbtcTransferOfferService] [requestId={}] acceptPendingOffers batch of {} rejected ({}), accepting individually",
+                            requestId, batch.size(), Status.fromThrowable(unwrap(ex)).getCode());
+                    submissions.addAndGet(batch.size());
+                    return mapBounded(batch, acceptParallelism, p -> acceptPrepared(p, actAsParty, requestId));
+                })
+                .thenCompose(Function.identity());
     }
 
     /**
@@ -632,36 +837,53 @@ public class CbtcTransferOfferService {
         return List.of();
     }
 
-    private RegistryFetchResult fetchChoiceContextForOffer(List<RegistryEndpoint> registries, String offerCid, String requestId) {
-        RegistryFetchResult lastResult = null;
+    /**
+     * Try each registry URL in preference order and return the first context with disclosures
+     * (or the last response, for diagnostics). Completes normally even when every call fails.
+     */
+    private CompletableFuture<RegistryFetchResult> fetchChoiceContextForOffer(List<RegistryEndpoint> registries, String offerCid, String requestId) {
+        List<Map.Entry<RegistryEndpoint, String>> targets = new ArrayList<>();
         for (RegistryEndpoint ep : registries) {
-            List<String> urls = buildOfferUrls(ep, offerCid);
-            for (String url : urls) {
-                if (url == null) continue;
-                try {
-                    LOGGER.info("[CbtcTransferOfferService] [requestId={}] registry fetch base={} kind={} offerCid={} encoded={}", requestId, abbreviate(ep.baseUri()), ep.kind(), truncateCid(offerCid), url.contains("%3A") ? "yes" : "no");
-                    RegistryFetchResult ctx = doRegistryPost(url, requestId);
-                    if (ctx != null) {
-                        lastResult = ctx;
-                    }
-                    if (ctx != null && ctx.ctx != null && ctx.ctx.disclosedContracts != null && !ctx.ctx.disclosedContracts.isEmpty()) {
-                        LOGGER.info("[CbtcTransferOfferService] choice-context fetched from base={} kind={} disclosures={}",
-                                abbreviate(ep.baseUri()), ep.kind(), ctx.ctx.disclosedContracts.size());
-                        return ctx;
-                    }
-                } catch (Exception e) {
-                    String msg = e.getMessage() != null ? e.getMessage() : e.toString();
-                    LOGGER.warn("[CbtcTransferOfferService] [requestId={}] choice-context fetch failed base={} kind={} cid={} error={}",
-                            requestId, abbreviate(ep.baseUri()), ep.kind(), truncateCid(offerCid), msg);
+            for (String url : buildOfferUrls(ep, offerCid)) {
+                if (url != null) {
+                    targets.add(Map.entry(ep, url));
                 }
             }
         }
-        return lastResult;
+        return fetchChoiceContextFrom(targets, 0, null, offerCid, requestId);
     }
 
-    private RegistryFetchResult doRegistryPost(String url, String requestId) {
-        try {
-            HttpResponse<String> resp = executeRegistryPost(url);
+    private CompletableFuture<RegistryFetchResult> fetchChoiceContextFrom(
+            List<Map.Entry<RegistryEndpoint, String>> targets,
+            int index,
+            RegistryFetchResult lastResult,
+            String offerCid,
+            String requestId
+    ) {
+        if (index >= targets.size()) {
+            return CompletableFuture.completedFuture(lastResult);
+        }
+        RegistryEndpoint ep = targets.get(index).getKey();
+        String url = targets.get(index).getValue();
+        LOGGER.info("[CbtcTransferOfferService] [requestId={}] registry fetch base={} kind={} offerCid={} encoded={}", requestId, abbreviate(ep.baseUri()), ep.kind(), truncateCid(offerCid), url.contains("%3A") ? "yes" : "no");
+        return doRegistryPost(url, requestId).thenCompose(ctx -> {
+            if (ctx.ctx != null && ctx.ctx.disclosedContracts != null && !ctx.ctx.disclosedContracts.isEmpty()) {
+                LOGGER.info("[CbtcTransferOfferService] choice-context fetched from base={} kind={} disclosures={}",
+                        abbreviate(ep.baseUri()), ep.kind(), ctx.ctx.disclosedContracts.size());
+                return CompletableFuture.completedFuture(ctx);
+            }
+            return fetchChoiceContextFrom(targets, index + 1, ctx, offerCid, requestId);
+        });
+    }
+
+    private CompletableFuture<RegistryFetchResult> doRegistryPost(String url, String requestId) {
+        return executeRegistryPost(url).handle((resp, ex) -> {
+            if (ex != null) {
+                Throwable cause = unwrap(ex);
+                String msg = cause.getMessage() != null ? cause.getMessage() : "(no message)";
+                LOGGER.warn("[CbtcTransferOfferService] [requestId={}] registry POST failed url={} error={}", requestId, url, msg);
+                return new RegistryFetchResult(null, url, 0, snippet(msg));
+            }
             String body = resp.body() != null ? resp.body() : "";
             ChoiceContextDto parsed = null;
             if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
@@ -679,22 +901,23 @@ public class CbtcTransferOfferService {
                         requestId, resp.statusCode(), abbreviate(url), disclosedCount, contextKeys);
             }
             return new RegistryFetchResult(parsed, url, resp.statusCode(), snippet(body));
-        } catch (Exception e) {
-            String msg = e.getMessage() != null ? e.getMessage() : "(no message)";
-            LOGGER.warn("[CbtcTransferOfferService] [requestId={}] registry POST failed url={} error={}", requestId, url, msg);
-            return new RegistryFetchResult(null, url, 0, snippet(msg));
-        }
+        });
     }
 
-    private HttpResponse<String> executeRegistryPost(String url) throws Exception {
-        HttpRequest.Builder b = HttpRequest.newBuilder(java.net.URI.create(url))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString("{\"meta\":{}}"));
-        if (ledgerConfig.getRegistryAuthHeader() != null && !ledgerConfig.getRegistryAuthHeader().isBlank()
-                && ledgerConfig.getRegistryAuthToken() != null && !ledgerConfig.getRegistryAuthToken().isBlank()) {
-            b.header(ledgerConfig.getRegistryAuthHeader(), ledgerConfig.getRegistryAuthToken());
+    private CompletableFuture<HttpResponse<String>> executeRegistryPost(String url) {
+        try {
+            HttpRequest.Builder b = HttpRequest.newBuilder(java.net.URI.create(url))
+                    .timeout(REGISTRY_REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"meta\":{}}"));
+            if (ledgerConfig.getRegistryAuthHeader() != null && !ledgerConfig.getRegistryAuthHeader().isBlank()
+                    && ledgerConfig.getRegistryAuthToken() != null && !ledgerConfig.getRegistryAuthToken().isBlank()) {
+                b.header(ledgerConfig.getRegistryAuthHeader(), ledgerConfig.getRegistryAuthToken());
+            }
+            return httpClient.sendAsync(b.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        return httpClient.send(b.build(), HttpResponse.BodyHandlers.ofString());
     }
 
     private ValueOuterClass.Record buildChoiceArgument(ChoiceContextDto ctx) {
@@ -757,29 +980,7 @@ public class CbtcTransferOfferService {
     }
 
     private CommandsOuterClass.DisclosedContract toDisclosedContract(DisclosedContractDto dc) {
-        try {
-            ValueOuterClass.Identifier tid = parseTemplateIdentifier(dc.templateId);
-            byte[] blob = Base64.getDecoder().decode(dc.createdEventBlob);
-            return CommandsOuterClass.DisclosedContract.newBuilder()
-                    .setTemplateId(tid)
-                    .setContractId(dc.contractId)
-                    .setCreatedEventBlob(com.google.protobuf.ByteString.copyFrom(blob))
-                    .build();
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private ValueOuterClass.Identifier parseTemplateIdentifier(String templateIdStr) {
-        String[] parts = templateIdStr.split(":");
-        if (parts.length < 3) {
-            throw new IllegalArgumentException("Invalid templateId format: " + templateIdStr);
-        }
-        return ValueOuterClass.Identifier.newBuilder()
-                .setPackageId(parts[0])
-                .setModuleName(parts[1])
-                .setEntityName(parts[2])
-                .build();
+        return disclosedContractCache.intern(dc.templateId, dc.contractId, dc.createdEventBlob, null);
     }
 
     private AcceptOfferResult classifyAcceptError(
@@ -840,93 +1041,89 @@ public class CbtcTransferOfferService {
         LOGGER.info("[CbtcTransferOfferService] [requestId={}] registry probe START admin={} tiCid={} offerCid={} baseOverride={}",
                 requestId, abbreviate(adminParty), truncateCid(tiCid), truncateCid(offerCid), baseOverride);
 
-        List<RegistryProbeAttempt> attempts = new ArrayList<>();
-        try {
-            List<RegistryEndpoint> registries;
-            if (baseOverride != null && !baseOverride.isBlank()) {
-                RegistryKind k = kindOverride != null ? kindOverride : RegistryKind.SCAN;
-                registries = List.of(new RegistryEndpoint(baseOverride, k, adminParty));
-            } else {
-                registries = getRegistriesToTry(adminParty);
-            }
+        List<RegistryEndpoint> registries;
+        if (baseOverride != null && !baseOverride.isBlank()) {
+            RegistryKind k = kindOverride != null ? kindOverride : RegistryKind.SCAN;
+            registries = List.of(new RegistryEndpoint(baseOverride, k, adminParty));
+        } else {
+            registries = getRegistriesToTry(adminParty);
+        }
 
-            if (registries == null || registries.isEmpty()) {
-                return CompletableFuture.completedFuture(new RegistryProbeResponse(
-                        requestId, false, "REGISTRY_EMPTY", "No registry endpoints configured", null, attempts
-                ));
-            }
+        if (registries == null || registries.isEmpty()) {
+            return CompletableFuture.completedFuture(new RegistryProbeResponse(
+                    requestId, false, "REGISTRY_EMPTY", "No registry endpoints configured", null, List.of()
+            ));
+        }
 
-            List<String> cids = new ArrayList<>();
-            if (tiCid != null && !tiCid.isBlank()) cids.add(tiCid);
-            if (offerCid != null && !offerCid.isBlank()) cids.add(offerCid);
+        List<String> cids = new ArrayList<>();
+        if (tiCid != null && !tiCid.isBlank()) cids.add(tiCid);
+        if (offerCid != null && !offerCid.isBlank()) cids.add(offerCid);
 
-            for (RegistryEndpoint ep : registries) {
-                if (ep == null || ep.baseUri() == null || ep.baseUri().isBlank()) continue;
-                for (String cid : cids) {
-                    RegistryProbeAttempt attempt = doRegistryProbeAttempt(ep, cid, requestId);
-                    attempts.add(attempt);
-                    if (attempt.disclosedCount != null && attempt.disclosedCount > 0) {
-                        return CompletableFuture.completedFuture(new RegistryProbeResponse(
-                                requestId, true, "OK", null, null, attempts
-                        ));
-                    }
-                }
+        List<Map.Entry<RegistryEndpoint, String>> targets = new ArrayList<>();
+        for (RegistryEndpoint ep : registries) {
+            if (ep == null || ep.baseUri() == null || ep.baseUri().isBlank()) continue;
+            for (String cid : cids) {
+                targets.add(Map.entry(ep, cid));
             }
+        }
 
+        return probeFrom(targets, 0, new ArrayList<>(), requestId)
+                .exceptionally(ex -> {
+                    Throwable cause = unwrap(ex);
+                    String msg = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+                    return new RegistryProbeResponse(requestId, false, "UNKNOWN", msg, msg, List.of());
+                });
+    }
+
+    private CompletableFuture<RegistryProbeResponse> probeFrom(
+            List<Map.Entry<RegistryEndpoint, String>> targets,
+            int index,
+            List<RegistryProbeAttempt> attempts,
+            String requestId
+    ) {
+        if (index >= targets.size()) {
             // If none returned disclosures
             return CompletableFuture.completedFuture(new RegistryProbeResponse(
                     requestId, false, "REGISTRY_EMPTY", "No disclosures returned by registry", null, attempts
             ));
-        } catch (Exception e) {
-            String msg = e.getMessage() != null ? e.getMessage() : e.toString();
-            return CompletableFuture.completedFuture(new RegistryProbeResponse(
-                    requestId, false, "UNKNOWN", msg, msg, attempts
-            ));
         }
+        return doRegistryProbeAttempt(targets.get(index).getKey(), targets.get(index).getValue(), requestId)
+                .thenCompose(attempt -> {
+                    attempts.add(attempt);
+                    if (attempt.disclosedCount != null && attempt.disclosedCount > 0) {
+                        return CompletableFuture.completedFuture(new RegistryProbeResponse(
+                                requestId, true, "OK", null, null, attempts
+                        ));
+                    }
+                    return probeFrom(targets, index + 1, attempts, requestId);
+                });
     }
 
-    private RegistryProbeAttempt doRegistryProbeAttempt(RegistryEndpoint ep, String cid, String requestId) {
+    private CompletableFuture<RegistryProbeAttempt> doRegistryProbeAttempt(RegistryEndpoint ep, String cid, String requestId) {
         String url = buildUrl(ep, true, cid);
-        String fallbackUrl = buildUrl(ep, false, cid);
-        List<String> urls = new ArrayList<>();
-        if (url != null) urls.add(url);
-        if (fallbackUrl != null && (fallbackUrl.equals(url) ? false : true)) urls.add(fallbackUrl);
-
-        for (String u : urls) {
-            try {
-                HttpResponse<String> resp = executeRegistryPost(u);
-                String body = resp.body() != null ? resp.body() : "";
-                int status = resp.statusCode();
-                Map<String, String> hdrs = new java.util.LinkedHashMap<>();
-                resp.headers().firstValue("content-type").ifPresent(v -> hdrs.put("content-type", v));
-                resp.headers().firstValue("x-request-id").ifPresent(v -> hdrs.put("request-id", v));
-                RegistryProbeAttempt parsed = parseProbeBody(cid, u, status, hdrs, body);
-                LOGGER.info("[CbtcTransferOfferService] [requestId={}] registry probe url={} status={} disclosed={} contextKeys={}",
-                        requestId, abbreviate(u), status, parsed.disclosedCount, parsed.contextKeysCount);
-                return parsed;
-            } catch (org.springframework.web.client.HttpClientErrorException e) {
-                int status = e.getStatusCode().value();
-                String body = e.getResponseBodyAsString();
-                Map<String, String> hdrs = safeHeaders(e.getResponseHeaders());
-                LOGGER.warn("[CbtcTransferOfferService] [requestId={}] registry probe failed url={} status={} body={}", requestId, abbreviate(u), status, abbreviate(body));
-                return new RegistryProbeAttempt(cid, u, status, hdrs, snippet(body), 0, 0);
-            } catch (Exception e) {
-                LOGGER.warn("[CbtcTransferOfferService] [requestId={}] registry probe exception url={} error={}", requestId, abbreviate(u), e.getMessage());
-                return new RegistryProbeAttempt(cid, u, 0, Map.of(), snippet(e.getMessage()), 0, 0);
-            }
+        if (url == null) {
+            url = buildUrl(ep, false, cid);
         }
-        return new RegistryProbeAttempt(cid, null, 0, Map.of(), "no url", 0, 0);
-    }
-
-    private Map<String, String> safeHeaders(org.springframework.http.HttpHeaders headers) {
-        Map<String, String> m = new java.util.LinkedHashMap<>();
-        if (headers != null) {
-            String ct = headers.getFirst("Content-Type");
-            String rid = headers.getFirst("x-request-id");
-            if (ct != null) m.put("content-type", ct);
-            if (rid != null) m.put("request-id", rid);
+        if (url == null) {
+            return CompletableFuture.completedFuture(new RegistryProbeAttempt(cid, null, 0, Map.of(), "no url", 0, 0));
         }
-        return m;
+        final String u = url;
+        return executeRegistryPost(u).handle((resp, ex) -> {
+            if (ex != null) {
+                Throwable cause = unwrap(ex);
+                LOGGER.warn("[CbtcTransferOfferService] [requestId={}] registry probe exception url={} error={}", requestId, abbreviate(u), cause.getMessage());
+                return new RegistryProbeAttempt(cid, u, 0, Map.of(), snippet(cause.getMessage()), 0, 0);
+            }
+            String body = resp.body() != null ? resp.body() : "";
+            int status = resp.statusCode();
+            Map<String, String> hdrs = new LinkedHashMap<>();
+            resp.headers().firstValue("content-type").ifPresent(v -> hdrs.put("content-type", v));
+            resp.headers().firstValue("x-request-id").ifPresent(v -> hdrs.put("request-id", v));
+            RegistryProbeAttempt parsed = parseProbeBody(cid, u, status, hdrs, body);
+            LOGGER.info("[CbtcTransferOfferService] [requestId={}] registry probe url={} status={} disclosed={} contextKeys={}",
+                    requestId, abbreviate(u), status, parsed.disclosedCount, parsed.contextKeysCount);
+            return parsed;
+        });
     }
 
     private RegistryProbeAttempt parseProbeBody(String cid, String url, int status, Map<String, String> headers, String body) {
@@ -1084,16 +1281,6 @@ public class CbtcTransferOfferService {
         }
     }
 
-    private HttpHeaders buildRegistryHeaders() {
-        HttpHeaders headers = new HttpHeaders();
-        if (ledgerConfig.getRegistryAuthHeader() != null && !ledgerConfig.getRegistryAuthHeader().isBlank()
-                && ledgerConfig.getRegistryAuthToken() != null && !ledgerConfig.getRegistryAuthToken().isBlank()) {
-            headers.add(ledgerConfig.getRegistryAuthHeader(), ledgerConfig.getRegistryAuthToken());
-        }
-        headers.add("Content-Type", "application/json");
-        return headers;
-    }
-
     private static String encodePathSegment(String raw) {
         try {
             return URLEncoder.encode(raw, StandardCharsets.UTF_8.toString());
@@ -1108,6 +1295,95 @@ public class CbtcTransferOfferService {
         return s.substring(0, 15) + "..." + s.substring(s.length() - 10);
     }
 
+    /**
+     * Apply {@code fn} to every item with at most {@code parallelism} futures in flight; results
+     * keep the input order. {@code fn} is expected not to fail: if it does, no further items are
+     * started and the returned future fails with the first error once in-flight items settle.
+     */
+    static <T, R> CompletableFuture<List<R>> mapBounded(List<T> items, int parallelism, Function<T, CompletableFuture<R>> fn) {
+        AtomicReferenceArray<R> out = new AtomicReferenceArray<>(items.size());
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int workers = Math.max(1, Math.min(parallelism, items.size()));
+        CompletableFuture<?>[] running = new CompletableFuture<?>[workers];
+        for (int w = 0; w < workers; w++) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            running[w] = done;
+            drain(items, fn, next, out, failure, done);
+        }
+        return CompletableFuture.allOf(running).thenApply(ignored -> {
+            if (failure.get() != null) {
+                throw new CompletionException(failure.get());
+            }
+            return IntStream.range(0, items.size()).mapToObj(out::get).toList();
+        });
+    }
+
+    /**
+     * One worker of {@link #mapBounded}. Items whose future is already complete are handled in the
+     * loop, and a pending future resumes the loop from its callback, so the stack stays flat however
+     * many items complete synchronously.
+     */
+    private static <T, R> void drain(
+            List<T> items,
+            Function<T, CompletableFuture<R>> fn,
+            AtomicInteger next,
+            AtomicReferenceArray<R> out,
+            AtomicReference<Throwable> failure,
+            CompletableFuture<Void> done
+    ) {
+        while (true) {
+            int i = failure.get() == null ? next.getAndIncrement() : items.size();
+            if (i >= items.size()) {
+                done.complete(null);
+                return;
+            }
+            CompletableFuture<R> result;
+            try {
+                result = fn.apply(items.get(i));
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            if (!result.isDone()) {
+                result.whenComplete((value, ex) -> {
+                    record(i, value, ex, out, failure);
+                    drain(items, fn, next, out, failure, done);
+                });
+                return;
+            }
+            result.whenComplete((value, ex) -> record(i, value, ex, out, failure));
+        }
+    }
+
+    private static <R> void record(int i, R value, Throwable ex, AtomicReferenceArray<R> out, AtomicReference<Throwable> failure) {
+        if (ex != null) {
+            failure.compareAndSet(null, unwrap(ex));
+        } else {
+            out.set(i, value);
+        }
+    }
+
+    /**
+     * True when the ledger definitely did not commit the command, so it is safe to resubmit.
+     */
+    private static boolean isDefiniteRejection(Throwable ex) {
+        Status.Code code = Status.fromThrowable(unwrap(ex)).getCode();
+        return code == Status.Code.INVALID_ARGUMENT
+                || code == Status.Code.FAILED_PRECONDITION
+                || code == Status.Code.NOT_FOUND
+                || code == Status.Code.ALREADY_EXISTS
+                || code == Status.Code.ABORTED
+                || code == Status.Code.PERMISSION_DENIED;
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        Throwable t = ex;
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
     // Minimal DTOs for registry choice-context
     private static final class ChoiceContextDto {
         public ChoiceContextDataDto choiceContextData;
@@ -37,18 +37,21 @@ public class ClearportXInitController {
 
     /**
      * Initialize ClearportX with test tokens and liquidity pools.
-     * Idempotent: can be called multiple times safely.
+     * Idempotent: can be called multiple times safely. Steps whose contracts are already on the
+     * ledger are reused unless fresh=true.
      *
-     * @return InitResponse with state and results
+     * @param fresh Create all tokens and pools anew instead of resuming from ledger state
+     * @return InitResponse with state and results (including per-step timings)
      */
     @PostMapping("/init")
     @WithSpan
-    public CompletableFuture<ResponseEntity<InitResponse>> initializeClearportX() {
-        logger.info("POST /api/clearportx/init - Starting ClearportX initialization");
+    public CompletableFuture<ResponseEntity<InitResponse>> initializeClearportX(
+            @RequestParam(name = "fresh", defaultValue = "false") boolean fresh) {
+        logger.info("POST /api/clearportx/init - Starting ClearportX initialization (fresh: {})", fresh);
 
         String commandIdPrefix = "clearportx-init-" + UUID.randomUUID();
 
-        return initService.initializeClearportX(commandIdPrefix)
+        return initService.initializeClearportX(commandIdPrefix, !fresh)
             .thenApply(finalState -> {
                 InitResponse response = new InitResponse();
                 response.setState(finalState.toString());
@@ -134,7 +137,7 @@ public class ClearportXInitController {
         initService.resetState();
         return ResponseEntity.ok(Map.of(
             "status", "OK",
-            "message", "Initialization state reset. Call /api/clearportx/init to create fresh pools."
+            "message", "Initialization state reset. Call /api/clearportx/init to run it again (?fresh=true to create new pools)."
         ));
     }
 
@@ -14,6 +14,7 @@ import com.digitalasset.quickstart.common.errors.PoolEmptyError;
 import com.digitalasset.quickstart.common.errors.PriceImpactTooHighError;
 import com.digitalasset.quickstart.common.errors.UnexpectedError;
 import com.digitalasset.quickstart.common.errors.ValidationError;
+import com.digitalasset.quickstart.config.BlockingExecutor;
 import com.digitalasset.quickstart.dto.ShowcasePoolResetResponse;
 import com.digitalasset.quickstart.dto.SwapByCidResponse;
 import com.digitalasset.quickstart.dto.WalletDrainResponse;
@@ -53,23 +54,34 @@ public class ClearportxFlowService {
     private final TxPacer txPacer;
     private final TransactionHistoryService historyService;
     private final LedgerAdapter ledgerAdapter;
+    private final BlockingExecutor blockingExecutor;
 
     public ClearportxFlowService(
             LedgerApi ledgerApi,
             PoolDirectoryService directoryService,
             TxPacer txPacer,
             TransactionHistoryService historyService,
-            LedgerAdapter ledgerAdapter
+            LedgerAdapter ledgerAdapter,
+            BlockingExecutor blockingExecutor
     ) {
         this.ledgerApi = ledgerApi;
         this.directoryService = directoryService;
         this.txPacer = txPacer;
         this.historyService = historyService;
         this.ledgerAdapter = ledgerAdapter;
+        this.blockingExecutor = blockingExecutor;
     }
 
+    /**
+     * Archive, create and fund the showcase pool. Each step joins its ledger call, so the whole
+     * sequence runs on {@link BlockingExecutor} rather than the request thread.
+     */
     @WithSpan
     public CompletableFuture<Result<ShowcasePoolResetResponse, DomainError>> resetShowcasePool(final ResetShowcasePoolCommand command) {
+        return blockingExecutor.supply(() -> resetShowcasePoolBlocking(command)).thenCompose(result -> result);
+    }
+
+    private CompletableFuture<Result<ShowcasePoolResetResponse, DomainError>> resetShowcasePoolBlocking(final ResetShowcasePoolCommand command) {
         try {
             List<String> steps = new ArrayList<>();
             BigDecimal cbtcAmount = command.cbtcAmount().setScale(10, RoundingMode.HALF_UP);
@@ -135,7 +147,7 @@ public class ClearportxFlowService {
 
             List<String> actAs = List.of(command.providerParty(), command.operatorParty());
             txPacer.awaitSlot(1200);
-            ledgerApi.exerciseAndGetTransaction(
+            TransactionOuterClass.Transaction addTxn = ledgerApi.exerciseAndGetTransaction(
                     poolCid,
                     addChoice,
                     UUID.randomUUID().toString(),
@@ -145,6 +157,7 @@ public class ClearportxFlowService {
 
             directoryService.update(command.poolId(), poolCid.getContractId, command.operatorParty());
             historyService.recordAddLiquidity(
+                    addTxn.getUpdateId(),
                     command.poolId(),
                     poolCid.getContractId,
                     "CBTC",
@@ -179,6 +192,10 @@ public class ClearportxFlowService {
 
     @WithSpan
     public CompletableFuture<Result<WalletDrainResponse, DomainError>> drainWallet(final WalletDrainCommand command) {
+        return blockingExecutor.supply(() -> drainWalletBlocking(command)).thenCompose(result -> result);
+    }
+
+    private CompletableFuture<Result<WalletDrainResponse, DomainError>> drainWalletBlocking(final WalletDrainCommand command) {
         try {
             List<LedgerApi.ActiveContract<Token>> tokens = ledgerApi.getActiveContractsForParty(Token.class, command.party()).join();
             tokens.sort(Comparator.comparing((LedgerApi.ActiveContract<Token> tok) -> tok.payload.getAmount).reversed());
@@ -406,7 +423,9 @@ public class ClearportxFlowService {
                     String createdPoolCid = extractCreatedPoolCid(txn);
                     String outputTokenCid = extractOutputTokenCid(txn);
                     BigDecimal resolvedOutput = resolveTokenAmount(outputTokenCid, command.trader(), command.outputSymbol());
+                    // Keyed by update id so the ledger history indexer does not record it twice
                     historyService.recordSwap(
+                            txn.getUpdateId(),
                             poolContext.poolId(),
                             command.poolCid(),
                             command.inputSymbol(),
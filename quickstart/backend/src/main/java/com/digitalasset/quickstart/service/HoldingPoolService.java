@@ -7,9 +7,11 @@ import com.digitalasset.quickstart.common.DomainError;
 import com.digitalasset.quickstart.common.Result;
 import com.digitalasset.quickstart.common.errors.UnexpectedError;
 import com.digitalasset.quickstart.common.errors.ValidationError;
+import com.digitalasset.quickstart.config.BlockingExecutor;
 import com.digitalasset.quickstart.dto.HoldingPoolCreateRequest;
 import com.digitalasset.quickstart.dto.HoldingPoolResponse;
 import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.ledger.PoolCommandSequencer;
 import com.digitalasset.quickstart.security.AuthUtils;
 import com.digitalasset.quickstart.service.TransferInstructionAcsQueryService.TransferInstructionDto;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
@@ -41,17 +43,31 @@ public class HoldingPoolService {
     private final TransferInstructionAcsQueryService tiQueryService;
     private final CbtcTransferOfferService cbtcService;
     private final com.digitalasset.quickstart.controller.DevNetTransferInstructionController tiController;
+    private final BlockingExecutor blockingExecutor;
+    private final PoolCommandSequencer poolCommandSequencer;
 
     public HoldingPoolService(final LedgerApi ledgerApi,
                               final AuthUtils authUtils,
                               final TransferInstructionAcsQueryService tiQueryService,
                               final CbtcTransferOfferService cbtcService,
-                              final com.digitalasset.quickstart.controller.DevNetTransferInstructionController tiController) {
+                              final com.digitalasset.quickstart.controller.DevNetTransferInstructionController tiController,
+                              final BlockingExecutor blockingExecutor,
+                              final PoolCommandSequencer poolCommandSequencer) {
         this.ledgerApi = ledgerApi;
         this.authUtils = authUtils;
         this.tiQueryService = tiQueryService;
         this.cbtcService = cbtcService;
         this.tiController = tiController;
+        this.blockingExecutor = blockingExecutor;
+        this.poolCommandSequencer = poolCommandSequencer;
+    }
+
+    /**
+     * {@link #bootstrap} on {@link BlockingExecutor}: it joins the CBTC accept, the CC accept and the
+     * HoldingPool bootstrap choice in sequence, which would otherwise hold the request thread.
+     */
+    public CompletableFuture<Result<java.util.Map<String, Object>, DomainError>> bootstrapAsync(String poolCid, com.digitalasset.quickstart.dto.HoldingPoolBootstrapRequest req) {
+        return blockingExecutor.supply(() -> bootstrap(poolCid, req));
     }
 
     @WithSpan
@@ -289,6 +305,67 @@ public class HoldingPoolService {
                 });
     }
 
+    /**
+     * Read the pool a sequenced command was handed. When that CID is no longer active (the pool was
+     * consumed outside {@link PoolCommandSequencer}), fall back to the active pool with the same
+     * poolId from the same ACS read and record the successor with the sequencer.
+     */
+    @WithSpan
+    public CompletableFuture<Result<HoldingPoolResponse, DomainError>> getLatest(final String contractId, final String poolId) {
+        if (contractId == null || contractId.isBlank()) {
+            return completedError(new ValidationError("contractId is required", ValidationError.Type.REQUEST));
+        }
+        String operator = authUtils.getAppProviderPartyId();
+        return ledgerApi.getActiveContractsRawForParty(operator)
+                .<Result<HoldingPoolResponse, DomainError>>handle((acs, throwable) -> {
+                    if (throwable != null) {
+                        LOG.error("Failed to list HoldingPool ACS: {}", throwable.getMessage(), throwable);
+                        return Result.err(new UnexpectedError(throwable.getMessage()));
+                    }
+                    List<HoldingPoolResponse> pools = new ArrayList<>();
+                    acs.stream()
+                            .filter(rac -> isHoldingPool(rac.templateId()))
+                            .forEach(rac -> parseHoldingPool(rac.createArguments(), rac.contractId()).ifPresent(pools::add));
+                    Optional<HoldingPoolResponse> exact = pools.stream()
+                            .filter(pool -> contractId.equals(pool.contractId))
+                            .findFirst();
+                    if (exact.isPresent()) {
+                        return Result.ok(exact.get());
+                    }
+                    List<HoldingPoolResponse> successors = poolId == null || poolId.isBlank()
+                            ? List.of()
+                            : pools.stream()
+                                    .filter(pool -> poolId.equals(pool.poolId))
+                                    .filter(pool -> pool.status != null && "active".equalsIgnoreCase(pool.status))
+                                    .toList();
+                    if (successors.size() != 1) {
+                        return Result.err(new UnexpectedError("HoldingPool not found: " + contractId));
+                    }
+                    HoldingPoolResponse successor = successors.get(0);
+                    LOG.info("HoldingPool {} was consumed outside the sequencer; continuing with {} (poolId={})",
+                            contractId, successor.contractId, poolId);
+                    poolCommandSequencer.advance(contractId, successor.contractId);
+                    return Result.ok(successor);
+                });
+    }
+
+    /**
+     * Pass through the outcome of a sequenced submit against {@code contractId}. If it failed, first
+     * re-resolve the pool by poolId so the next command in the lane does not start from a CID that
+     * may have been consumed elsewhere.
+     */
+    public <T> CompletableFuture<T> refreshOnFailure(final String contractId, final String poolId, final CompletableFuture<T> submit) {
+        return submit.handle((value, error) -> error)
+                .thenCompose(error -> {
+                    if (error == null) {
+                        return submit;
+                    }
+                    return getLatest(contractId, poolId)
+                            .handle((ignored, refreshError) -> null)
+                            .thenCompose(ignored -> submit);
+                });
+    }
+
     @WithSpan
     public CompletableFuture<Result<HoldingPoolResponse, DomainError>> resolveActiveByPoolId(final String poolId) {
         if (poolId == null || poolId.isBlank()) {
@@ -2,20 +2,26 @@ package com.digitalasset.quickstart.service;
 
 import com.digitalasset.quickstart.common.DomainError;
 import com.digitalasset.quickstart.common.Result;
+import com.digitalasset.quickstart.config.BlockingExecutor;
 import com.digitalasset.quickstart.dto.HoldingSelectRequest;
 import com.digitalasset.quickstart.dto.HoldingSelectResponse;
 import com.digitalasset.quickstart.dto.HoldingUtxoDto;
+import com.digitalasset.quickstart.ledger.LedgerInbox;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Service for UTXO selection of Token Standard holdings (CBTC, CC, etc.).
@@ -36,18 +42,32 @@ import java.util.concurrent.TimeUnit;
  *
  * <h2>Polling Behavior</h2>
  * When polling is enabled (timeout > 0), the service will repeatedly query
- * holdings at the specified interval until a matching holding is found or
- * the timeout expires. Each iteration is logged for observability.
+ * holdings until a matching holding is found or the timeout expires. If the
+ * owner's transactions are streamed (see {@link LedgerInbox}), each retry waits
+ * for the owner's next create, re-checking at least every LIVE_RECHECK_MS in case the
+ * create was signalled before the holdings query could see it; otherwise it re-queries
+ * at the specified interval. Retries run on the {@link BlockingExecutor}, never on the
+ * common pool. Each iteration is logged for observability.
  */
 @Service
 public class HoldingSelectorService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HoldingSelectorService.class);
+    // Upper bound on one live wait, so a signal that beat the holdings query costs this, not the timeout
+    static final long LIVE_RECHECK_MS = 5_000;
 
     private final HoldingsService holdingsService;
+    private final LedgerInbox ledgerInbox;
+    private final BlockingExecutor blockingExecutor;
 
-    public HoldingSelectorService(final HoldingsService holdingsService) {
+    public HoldingSelectorService(
+            final HoldingsService holdingsService,
+            final LedgerInbox ledgerInbox,
+            final BlockingExecutor blockingExecutor
+    ) {
         this.holdingsService = holdingsService;
+        this.ledgerInbox = ledgerInbox;
+        this.blockingExecutor = blockingExecutor;
     }
 
     /**
@@ -94,6 +114,49 @@ public class HoldingSelectorService {
                 });
     }
 
+    /**
+     * Pick a distinct holding for each requested amount from a single holdings query, so a bulk
+     * payout never spends the same UTXO twice. Larger amounts are placed first and each takes the
+     * smallest unused holding that covers it (the same smallest-first rule as single selection).
+     *
+     * @return One entry per requested amount, in request order; empty where no holding is left that fits
+     */
+    @WithSpan
+    public CompletableFuture<Result<List<Optional<HoldingUtxoDto>>, DomainError>> selectDistinctHoldings(
+            final String ownerParty,
+            final String instrumentAdmin,
+            final String instrumentId,
+            final List<BigDecimal> minAmounts
+    ) {
+        final HoldingSelectRequest criteria = new HoldingSelectRequest(ownerParty, instrumentAdmin, instrumentId, BigDecimal.ZERO, 0, 0);
+        return holdingsService.getHoldingUtxos(ownerParty).thenApply(result -> result.map(holdings -> {
+            List<HoldingUtxoDto> available = holdings.stream()
+                    .filter(h -> matchesCriteria(h, criteria))
+                    .sorted(Comparator
+                            .comparing((HoldingUtxoDto h) -> h.amount)
+                            .thenComparing(h -> h.contractId))
+                    .collect(Collectors.toCollection(ArrayList::new));
+            List<Integer> largestFirst = IntStream.range(0, minAmounts.size()).boxed()
+                    .sorted(Comparator.comparing((Integer i) -> minAmounts.get(i)).reversed())
+                    .toList();
+            List<Optional<HoldingUtxoDto>> picked = new ArrayList<>(Collections.nCopies(minAmounts.size(), Optional.empty()));
+            for (int i : largestFirst) {
+                Iterator<HoldingUtxoDto> candidates = available.iterator();
+                while (candidates.hasNext()) {
+                    HoldingUtxoDto holding = candidates.next();
+                    if (holding.amount.compareTo(minAmounts.get(i)) >= 0) {
+                        picked.set(i, Optional.of(holding));
+                        candidates.remove();
+                        break;
+                    }
+                }
+            }
+            LOGGER.info("[HoldingSelector] Distinct selection: owner={}, admin={}, id={}, requested={}, placed={}",
+                    ownerParty, instrumentAdmin, instrumentId, minAmounts.size(), picked.stream().filter(Optional::isPresent).count());
+            return picked;
+        }));
+    }
+
     private CompletableFuture<HoldingSelectResponse> pollUntilFound(
             final HoldingSelectRequest request,
             final long startTime,
@@ -101,14 +164,23 @@ public class HoldingSelectorService {
             final int pollIntervalMs,
             final int attempt
     ) {
+        // Arm before querying so a holding created mid-query still wakes us
+        String wakeKey = LedgerInbox.partyKey(request.ownerParty());
+        long remainingMs = Math.max(0L, timeoutMs - (System.currentTimeMillis() - startTime));
+        long waitMs = Math.min(ledgerInbox.isLive(request.ownerParty()) ? Math.max(LIVE_RECHECK_MS, pollIntervalMs) : pollIntervalMs,
+                remainingMs);
+        CompletableFuture<Boolean> wake = ledgerInbox.arm(wakeKey, waitMs);
+
         return attemptSelection(request, startTime, attempt)
                 .thenCompose(result -> {
                     if (result.isPresent()) {
+                        ledgerInbox.disarm(wakeKey, wake);
                         return CompletableFuture.completedFuture(result.get());
                     }
 
                     long elapsed = System.currentTimeMillis() - startTime;
                     if (elapsed >= timeoutMs) {
+                        ledgerInbox.disarm(wakeKey, wake);
                         LOGGER.warn("[HoldingSelector] Timeout after {}ms and {} attempts. No matching holding found.",
                                 elapsed, attempt);
                         return CompletableFuture.completedFuture(HoldingSelectResponse.notFound(
@@ -122,13 +194,13 @@ public class HoldingSelectorService {
                         ));
                     }
 
-                    // Schedule next poll
-                    LOGGER.debug("[HoldingSelector] Attempt {} failed, scheduling retry in {}ms (elapsed={}ms, remaining={}ms)",
-                            attempt, pollIntervalMs, elapsed, timeoutMs - elapsed);
+                    // Retry on the owner's next create, or after the poll interval without a live stream
+                    LOGGER.debug("[HoldingSelector] Attempt {} failed, retrying within {}ms (elapsed={}ms, remaining={}ms)",
+                            attempt, waitMs, elapsed, timeoutMs - elapsed);
 
-                    return CompletableFuture.supplyAsync(() -> null,
-                                    CompletableFuture.delayedExecutor(pollIntervalMs, TimeUnit.MILLISECONDS))
-                            .thenCompose(ignored -> pollUntilFound(request, startTime, timeoutMs, pollIntervalMs, attempt + 1));
+                    return wake.thenCompose(signalled -> blockingExecutor.supply(() ->
+                            pollUntilFound(request, startTime, timeoutMs, pollIntervalMs, attempt + 1)))
+                            .thenCompose(next -> next);
                 });
     }
 
@@ -7,7 +7,10 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
 
 /**
  * Strong idempotency key with SHA-256 body hash.
@@ -39,6 +42,20 @@ public record IdempotencyKey(String method, String path, String party, String bo
         );
     }
 
+    /**
+     * SHA-256 over the fields that make up a request body, for callers that only hold the parsed request.
+     * Decimals are compared by value, so "1.0" and "1.00" hash the same.
+     *
+     * @param fields Request fields in a fixed order (nulls allowed)
+     * @return Hex-encoded hash
+     */
+    public static String bodyHash(Object... fields) {
+        String canonical = Arrays.stream(fields)
+            .map(f -> f instanceof BigDecimal d ? d.stripTrailingZeros().toPlainString() : String.valueOf(f))
+            .collect(Collectors.joining("\u001f"));
+        return Hex.encodeHexString(DigestUtils.sha256(canonical.getBytes(StandardCharsets.UTF_8)));
+    }
+
     /**
      * Convert to cache key string.
      */
@@ -6,48 +6,74 @@ package com.digitalasset.quickstart.service;
 import com.digitalasset.quickstart.constants.SwapConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.time.Instant;
+import java.time.Duration;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
 
 /**
  * Idempotency service to prevent duplicate swap executions.
  *
- * Uses in-memory cache with TTL to track processed idempotency keys.
- * In production, replace with Redis or distributed cache.
+ * Registrations are indexed by base key (the client's idempotency key); each holds the body hash it
+ * was registered with, so a body mismatch is detected with a single lookup. The local store is
+ * bounded (idempotency.max-entries) and expires entries from a FIFO queue: every entry has the same
+ * TTL, so insertion order is expiry order and expiry never scans the index.
+ *
+ * With idempotency.distributed=true registrations are also written to {@link RedisIdempotencyStore},
+ * so a retry landing on another replica is deduplicated too.
  */
 @Service
 public class IdempotencyService {
 
     private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
 
+    private static final Pattern KEY_PATTERN = Pattern.compile("^[a-zA-Z0-9\\-_]+$");
+    private static final int DEFAULT_MAX_ENTRIES = 100_000;
+
     /**
-     * Cache entry for idempotency tracking.
+     * A processed request: the body hash it was registered with (null when unknown) and its response.
      */
-    private static class IdempotencyEntry {
-        final String commandId;
-        final String transactionId;
-        final Instant expiresAt;
-        final Object response;
+    public record Registration(String bodyHash, String commandId, String transactionId, Object response) { }
 
-        IdempotencyEntry(String commandId, String transactionId, Object response) {
-            this.commandId = commandId;
-            this.transactionId = transactionId;
-            this.response = response;
-            this.expiresAt = Instant.now().plusSeconds(SwapConstants.IDEMPOTENCY_CACHE_DURATION_SECONDS);
-        }
+    private record Slot(Registration registration, long expiresAtMs) { }
+    private record Expiry(String key, Slot slot) { }
 
-        boolean isExpired() {
-            return Instant.now().isAfter(expiresAt);
-        }
+    // Local store: baseKey → slot, plus the expiry queue in insertion (= expiry) order
+    private final Map<String, Slot> index = new ConcurrentHashMap<>();
+    private final Queue<Expiry> expiryQueue = new ConcurrentLinkedQueue<>();
+    private int queued;
+
+    private final int maxEntries;
+    private final long ttlMs = SwapConstants.IDEMPOTENCY_CACHE_DURATION_SECONDS * 1000L;
+    private final RedisIdempotencyStore remoteStore;
+    private final LongSupplier clock;
+
+    public IdempotencyService() {
+        this(DEFAULT_MAX_ENTRIES, null, System::currentTimeMillis);
     }
 
-    // In-memory cache: idempotencyKey → entry
-    private final Map<String, IdempotencyEntry> cache = new ConcurrentHashMap<>();
+    @Autowired
+    public IdempotencyService(
+            @Value("${idempotency.max-entries:100000}") int maxEntries,
+            @Autowired(required = false) RedisIdempotencyStore remoteStore
+    ) {
+        this(maxEntries, remoteStore, System::currentTimeMillis);
+    }
+
+    IdempotencyService(int maxEntries, RedisIdempotencyStore remoteStore, LongSupplier clock) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.remoteStore = remoteStore;
+        this.clock = clock;
+    }
 
     /**
      * Check if idempotency key has been processed before.
@@ -60,20 +86,14 @@ public class IdempotencyService {
             return null;  // No idempotency key provided
         }
 
-        IdempotencyEntry entry = cache.get(idempotencyKey);
+        Registration registration = lookup(idempotencyKey);
 
-        if (entry == null) {
+        if (registration == null) {
             return null;  // First request with this key
         }
 
-        if (entry.isExpired()) {
-            cache.remove(idempotencyKey);
-            logger.debug("Idempotency key expired and removed: {}", idempotencyKey);
-            return null;
-        }
-
         logger.info("Idempotent request detected - returning cached response for key: {}", idempotencyKey);
-        return entry.response;
+        return registration.response();
     }
 
     /**
@@ -92,34 +112,21 @@ public class IdempotencyService {
             return null;  // No idempotency key provided
         }
 
-        // Check if base key exists in cache with ANY body hash
-        String fullKey = baseKey + ":" + bodyHash;
-        IdempotencyEntry entry = cache.get(fullKey);
+        Registration registration = lookup(baseKey);
 
-        if (entry != null) {
-            if (entry.isExpired()) {
-                cache.remove(fullKey);
-                logger.debug("Idempotency key expired and removed: {}", fullKey);
-                return null;
-            }
-            logger.info("Idempotent request detected - returning cached response for key: {}", fullKey);
-            return entry.response;
-        }
-
-        // Check if base key exists with DIFFERENT body hash
-        for (String cachedKey : cache.keySet()) {
-            if (cachedKey.startsWith(baseKey + ":") && !cachedKey.equals(fullKey)) {
-                IdempotencyEntry existingEntry = cache.get(cachedKey);
-                if (existingEntry != null && !existingEntry.isExpired()) {
-                    logger.error("Idempotency key body mismatch - same key with different body: {} vs {}",
-                        fullKey, cachedKey);
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                        "IDEMPOTENCY_KEY_BODY_MISMATCH: Same idempotency key used with different request body");
-                }
-            }
+        if (registration == null) {
+            return null;  // First request with this key
+        }
+
+        if (registration.bodyHash() == null || registration.bodyHash().equals(bodyHash)) {
+            logger.info("Idempotent request detected - returning cached response for key: {}", baseKey);
+            return registration.response();
         }
 
-        return null;  // First request with this key
+        logger.error("Idempotency key body mismatch - same key with different body: {} ({} vs {})",
+            baseKey, bodyHash, registration.bodyHash());
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "IDEMPOTENCY_KEY_BODY_MISMATCH: Same idempotency key used with different request body");
     }
 
     /**
@@ -134,21 +141,36 @@ public class IdempotencyService {
      * @param statusCode HTTP status code
      */
     public void registerSuccess(String idempotencyKey, String commandId, String transactionId, Object response, int statusCode) {
-        if (idempotencyKey == null || idempotencyKey.trim().isEmpty()) {
+        registerSuccessWithBodyHash(idempotencyKey, null, commandId, transactionId, response, statusCode);
+    }
+
+    /**
+     * Register successful operation together with the hash of the request body, so a later request
+     * reusing the key with a different body is rejected by {@link #checkIdempotencyWithBodyHash}.
+     *
+     * @param baseKey base idempotency key (from header)
+     * @param bodyHash SHA-256 hash of request body (null when unknown)
+     */
+    public void registerSuccessWithBodyHash(String baseKey, String bodyHash, String commandId, String transactionId,
+                                            Object response, int statusCode) {
+        if (baseKey == null || baseKey.trim().isEmpty()) {
             return;  // No idempotency tracking without key
         }
 
         // Never cache 5xx responses
         if (statusCode >= 500) {
-            logger.debug("Skipping cache for 5xx response: {} (status={})", idempotencyKey, statusCode);
+            logger.debug("Skipping cache for 5xx response: {} (status={})", baseKey, statusCode);
             return;
         }
 
-        IdempotencyEntry entry = new IdempotencyEntry(commandId, transactionId, response);
-        cache.put(idempotencyKey, entry);
+        Registration registration = new Registration(bodyHash, commandId, transactionId, response);
+        store(baseKey, registration);
+        if (remoteStore != null) {
+            remoteStore.put(baseKey, registration, Duration.ofMillis(ttlMs));
+        }
 
         logger.info("Registered idempotency key: {} → commandId: {}, txId: {}, status: {}",
-            idempotencyKey, commandId, transactionId != null ? transactionId : "N/A", statusCode);
+            baseKey, commandId, transactionId != null ? transactionId : "N/A", statusCode);
     }
 
     /**
@@ -180,7 +202,7 @@ public class IdempotencyService {
         }
 
         // Validate characters (alphanumeric + hyphens + underscores)
-        if (!idempotencyKey.matches("^[a-zA-Z0-9\\-_]+$")) {
+        if (!KEY_PATTERN.matcher(idempotencyKey).matches()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                 "Idempotency key contains invalid characters (only alphanumeric, -, _ allowed)");
         }
@@ -190,13 +212,7 @@ public class IdempotencyService {
      * Clear expired entries from cache (cleanup task).
      */
     public void cleanupExpired() {
-        int removed = 0;
-        for (Map.Entry<String, IdempotencyEntry> entry : cache.entrySet()) {
-            if (entry.getValue().isExpired()) {
-                cache.remove(entry.getKey());
-                removed++;
-            }
-        }
+        int removed = expire(clock.getAsLong());
 
         if (removed > 0) {
             logger.info("Cleaned up {} expired idempotency entries", removed);
@@ -207,14 +223,67 @@ public class IdempotencyService {
      * Get cache size (for monitoring).
      */
     public int getCacheSize() {
-        return cache.size();
+        return index.size();
     }
 
     /**
      * Clear all cache entries (for testing).
      */
-    public void clearCache() {
-        cache.clear();
+    public synchronized void clearCache() {
+        index.clear();
+        expiryQueue.clear();
+        queued = 0;
         logger.warn("Idempotency cache cleared");
     }
+
+    /**
+     * Local registration for {@code baseKey}, falling back to the shared store on a local miss.
+     */
+    private Registration lookup(String baseKey) {
+        Slot slot = index.get(baseKey);
+        if (slot != null) {
+            if (slot.expiresAtMs > clock.getAsLong()) {
+                return slot.registration;
+            }
+            index.remove(baseKey, slot);
+            logger.debug("Idempotency key expired and removed: {}", baseKey);
+        }
+        if (remoteStore == null) {
+            return null;
+        }
+        Registration shared = remoteStore.get(baseKey).orElse(null);
+        if (shared != null) {
+            store(baseKey, shared);
+        }
+        return shared;
+    }
+
+    private synchronized void store(String baseKey, Registration registration) {
+        long now = clock.getAsLong();
+        Slot slot = new Slot(registration, now + ttlMs);
+        index.put(baseKey, slot);
+        expiryQueue.add(new Expiry(baseKey, slot));
+        queued++;
+        expire(now);
+    }
+
+    /**
+     * Pop the queue head while it is expired or the store is over capacity. Queue entries superseded
+     * by a re-registration of the same key are dropped without touching the index.
+     *
+     * @return Number of index entries removed
+     */
+    private synchronized int expire(long now) {
+        int removed = 0;
+        Expiry head;
+        while ((head = expiryQueue.peek()) != null
+                && (head.slot.expiresAtMs <= now || index.size() > maxEntries || queued > 2 * maxEntries)) {
+            expiryQueue.poll();
+            queued--;
+            if (index.remove(head.key, head.slot)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
 }
@@ -0,0 +1,176 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InitGraph - Runs named asynchronous steps in dependency order
+ *
+ * A step starts as soon as all of its dependencies have finished, so independent steps (token and
+ * pool creates) run concurrently and a liquidity add only waits for its own pool and tokens.
+ * Steps already satisfied by ledger state are registered with {@link #resumed} and not run again.
+ * A failed step fails only its dependents, which are reported as skipped; independent branches
+ * still finish, so a later run has less left to do. Dependencies must be declared before the
+ * steps that use them, which also rules out cycles.
+ */
+final class InitGraph {
+
+    enum Status {
+        DONE,
+        RESUMED,
+        FAILED,
+        SKIPPED
+    }
+
+    /**
+     * @param startMs Start offset from the beginning of the run
+     * @param durationMs Time from start to completion, 0 for resumed and skipped steps
+     */
+    record StepTiming(String step, Status status, long startMs, long durationMs, String error) { }
+
+    @FunctionalInterface
+    interface Action {
+        CompletableFuture<?> run(Results results);
+    }
+
+    /**
+     * Results of finished steps by step id (null for steps that produce nothing).
+     */
+    static final class Results {
+        private final Map<String, Object> values = Collections.synchronizedMap(new HashMap<>());
+
+        @SuppressWarnings("unchecked")
+        <T> T get(String step) {
+            return (T) values.get(step);
+        }
+
+        private void put(String step, Object value) {
+            values.put(step, value);
+        }
+    }
+
+    record Outcome(Results results, List<StepTiming> timings, long elapsedMs) {
+        List<StepTiming> failures() {
+            return timings.stream().filter(t -> t.status() == Status.FAILED).toList();
+        }
+
+        boolean succeeded() {
+            return timings.stream().allMatch(t -> t.status() == Status.DONE || t.status() == Status.RESUMED);
+        }
+
+        long count(Status status) {
+            return timings.stream().filter(t -> t.status() == status).count();
+        }
+    }
+
+    private record Step(String id, List<String> dependsOn, Action action, boolean resumed, Object resumedResult) { }
+
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    InitGraph step(String id, List<String> dependsOn, Action action) {
+        return add(new Step(id, List.copyOf(dependsOn), action, false, null));
+    }
+
+    /**
+     * Register a step that is already satisfied, with the result a run would have produced.
+     */
+    InitGraph resumed(String id, Object result) {
+        return add(new Step(id, List.of(), null, true, result));
+    }
+
+    boolean contains(String id) {
+        return steps.containsKey(id);
+    }
+
+    private InitGraph add(Step step) {
+        if (steps.containsKey(step.id())) {
+            throw new IllegalArgumentException("Duplicate step " + step.id());
+        }
+        for (String dependency : step.dependsOn()) {
+            if (!steps.containsKey(dependency)) {
+                throw new IllegalArgumentException("Step " + step.id() + " depends on undeclared step " + dependency);
+            }
+        }
+        steps.put(step.id(), step);
+        return this;
+    }
+
+    /**
+     * @return Outcome once every step has finished, failed or been skipped; never completes exceptionally
+     */
+    CompletableFuture<Outcome> run() {
+        long runStart = System.nanoTime();
+        Results results = new Results();
+        List<StepTiming> timings = Collections.synchronizedList(new ArrayList<>());
+        Map<String, CompletableFuture<Void>> finished = new HashMap<>();
+
+        for (Step step : steps.values()) {
+            if (step.resumed()) {
+                results.put(step.id(), step.resumedResult());
+                timings.add(new StepTiming(step.id(), Status.RESUMED, 0, 0, null));
+                finished.put(step.id(), CompletableFuture.completedFuture(null));
+                continue;
+            }
+            CompletableFuture<?>[] dependencies = step.dependsOn().stream().map(finished::get).toArray(CompletableFuture[]::new);
+            CompletableFuture<Void> done = CompletableFuture.allOf(dependencies)
+                    .handle((ignored, dependencyError) -> dependencyError)
+                    .thenCompose(dependencyError -> {
+                        long startMs = millisSince(runStart);
+                        if (dependencyError != null) {
+                            timings.add(new StepTiming(step.id(), Status.SKIPPED, startMs, 0, "dependency failed"));
+                            return CompletableFuture.<Void>failedFuture(dependencyError);
+                        }
+                        return start(step, results).handle((value, error) -> {
+                            long durationMs = millisSince(runStart) - startMs;
+                            if (error != null) {
+                                timings.add(new StepTiming(step.id(), Status.FAILED, startMs, durationMs, message(error)));
+                                throw error instanceof CompletionException ce ? ce : new CompletionException(error);
+                            }
+                            results.put(step.id(), value);
+                            timings.add(new StepTiming(step.id(), Status.DONE, startMs, durationMs, null));
+                            return null;
+                        });
+                    });
+            finished.put(step.id(), done);
+        }
+
+        CompletableFuture<?>[] settled = finished.values().stream()
+                .map(f -> f.handle((ignored, error) -> null))
+                .toArray(CompletableFuture[]::new);
+        List<String> order = new ArrayList<>(steps.keySet());
+        return CompletableFuture.allOf(settled).thenApply(ignored -> {
+            List<StepTiming> ordered = new ArrayList<>(timings);
+            ordered.sort(Comparator.comparingInt(t -> order.indexOf(t.step())));
+            return new Outcome(results, List.copyOf(ordered), millisSince(runStart));
+        });
+    }
+
+    private static CompletableFuture<?> start(Step step, Results results) {
+        try {
+            CompletableFuture<?> future = step.action().run(results);
+            return future != null ? future : CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static String message(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+}
@@ -70,18 +70,19 @@ public class LedgerAdapter {
         List<String> readAs = List.of(payload.getPoolParty.getParty);
         String commandId = UUID.randomUUID().toString();
 
-        return ledgerApi.exerciseAndGetResultWithParties(
+        return ledgerApi.exerciseAndGetOutcomeWithParties(
                         pool.contractId,
                         choice,
                         commandId,
                         actAs,
-                        readAs
+                        readAs,
+                        List.of()
                 )
-                .handle((result, throwable) -> {
+                .handle((outcome, throwable) -> {
                     if (throwable != null) {
                         return Result.<AddLiquidityResult, DomainError>err(mapLedgerException(throwable));
                     }
-                    return Result.ok(new AddLiquidityResult(result.get_1, result.get_2));
+                    return Result.ok(new AddLiquidityResult(outcome.result().get_1, outcome.result().get_2, outcome.updateId()));
                 });
     }
 
@@ -174,7 +175,7 @@ public class LedgerAdapter {
         return message != null ? message : root.toString();
     }
 
-    public record AddLiquidityResult(ContractId<LPToken> lpTokenCid, ContractId<Pool> newPoolCid) { }
+    public record AddLiquidityResult(ContractId<LPToken> lpTokenCid, ContractId<Pool> newPoolCid, String updateId) { }
 
     public enum TokenSide {
         A, B
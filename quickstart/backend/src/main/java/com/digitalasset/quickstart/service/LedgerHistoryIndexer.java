@@ -0,0 +1,542 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.daml.ledger.api.v2.EventOuterClass;
+import com.daml.ledger.api.v2.TransactionOuterClass;
+import com.daml.ledger.api.v2.UpdateServiceOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.ledger.LedgerUpdateStream;
+import com.digitalasset.quickstart.security.AuthUtils;
+import com.digitalasset.quickstart.service.TransactionHistoryService.TransactionHistoryEntry;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LedgerHistoryIndexer - Builds the activity feed from the ledger instead of from this process
+ *
+ * Reads the operator's transactions and turns the AMM ones into history entries:
+ * - Receipt created → SWAP
+ * - LPToken created together with a Pool or HoldingPool whose LP supply grew → ADD_LIQUIDITY
+ * - HoldingPool replaced with the same LP supply, one reserve up and the other down, for a single
+ *   inbound transfer instruction → SWAP (multi-leg batches are recorded by the batch flow per leg)
+ * - Pool or HoldingPool created for a pool id not seen before, with nothing archived → POOL_CREATION
+ *
+ * Liquidity and swap amounts come from the pool's previous state. Pools first seen being replaced
+ * (their earlier state predates the indexed range) are skipped rather than guessed; once the
+ * backfill is done, pools it did not touch are seeded from the ACS snapshot it ran up to.
+ *
+ * Startup: the offsets between the last indexed offset and the ledger end are split into ranges
+ * fetched concurrently (bounded streams), then applied strictly in offset order so the feed keeps
+ * ledger order. Afterwards the indexer tails {@link LedgerUpdateStream}. The indexed offset is
+ * saved next to the history log after every range and periodically while tailing; replays after
+ * a crash are harmless because entries are keyed by update id.
+ *
+ * If the participant has pruned past the saved offset, the backfill cannot read the gap: it is
+ * logged and indexing resumes at the ACS snapshot offset, as after a gap while tailing. Other
+ * failures are retried with exponential backoff.
+ */
+@Component
+public class LedgerHistoryIndexer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LedgerHistoryIndexer.class);
+
+    static final String OFFSET_FILE = "ledger.offset";
+    private static final long RETRY_INITIAL_SECONDS = 5;
+    private static final long RETRY_MAX_SECONDS = 300;
+    private static final long PERSIST_INTERVAL_MS = 5_000;
+
+    private static final String RECEIPT_MODULE = "AMM.Receipt";
+    private static final String RECEIPT_ENTITY = "Receipt";
+    private static final String LP_TOKEN_MODULE = "LPToken.LPToken";
+    private static final String LP_TOKEN_ENTITY = "LPToken";
+    private static final String POOL_MODULE = "AMM.Pool";
+    private static final String POOL_ENTITY = "Pool";
+    private static final String HOLDING_POOL_MODULE = "AMM.HoldingPool";
+    private static final String HOLDING_POOL_ENTITY = "HoldingPool";
+
+    private final LedgerApi ledgerApi;
+    private final LedgerUpdateStream ledgerUpdateStream;
+    private final TransactionHistoryService historyService;
+    private final AuthUtils authUtils;
+    private final boolean enabled;
+    private final int parallelism;
+    private final long rangeSize;
+    private final Counter indexedCounter;
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "history-indexer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Latest state per pool id, used to derive liquidity deltas; only touched under apply()
+    private final Map<String, PoolState> pools = new HashMap<>();
+    private volatile long indexedOffset;
+    private volatile boolean stopped;
+    private volatile LedgerUpdateStream.Subscription live;
+    private volatile long lastPersistMs;
+    private long retryDelaySeconds = RETRY_INITIAL_SECONDS;
+
+    record PoolState(String poolId, String operator, String poolParty, String symbolA, String symbolB,
+                     BigDecimal totalLpSupply, BigDecimal reserveA, BigDecimal reserveB) { }
+
+    public LedgerHistoryIndexer(
+            LedgerApi ledgerApi,
+            LedgerUpdateStream ledgerUpdateStream,
+            TransactionHistoryService historyService,
+            AuthUtils authUtils,
+            MeterRegistry meterRegistry,
+            @Value("${clearportx.history.indexer.enabled:false}") boolean enabled,
+            @Value("${clearportx.history.indexer.parallelism:4}") int parallelism,
+            @Value("${clearportx.history.indexer.range-size:10000}") long rangeSize
+    ) {
+        this.ledgerApi = ledgerApi;
+        this.ledgerUpdateStream = ledgerUpdateStream;
+        this.historyService = historyService;
+        this.authUtils = authUtils;
+        this.enabled = enabled;
+        this.parallelism = Math.max(1, parallelism);
+        this.rangeSize = Math.max(1, rangeSize);
+        this.indexedCounter = Counter.builder("clearportx.history.indexer.entries")
+                .description("History entries created from ledger updates")
+                .register(meterRegistry);
+        Gauge.builder("clearportx.history.indexer.offset", this, indexer -> indexer.indexedOffset)
+                .description("Last ledger offset reflected in the transaction history")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            LOG.info("Ledger history indexer disabled (clearportx.history.indexer.enabled=false)");
+            return;
+        }
+        worker.execute(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        LedgerUpdateStream.Subscription subscription = live;
+        if (subscription != null) {
+            subscription.close();
+            persistOffset(subscription.offset());
+        }
+        worker.shutdownNow();
+    }
+
+    public long indexedOffset() {
+        return indexedOffset;
+    }
+
+    private void run() {
+        String party = authUtils.getAppProviderPartyId();
+        if (party == null || party.isBlank()) {
+            LOG.warn("Ledger history indexer: no app provider party configured, not starting");
+            return;
+        }
+        try {
+            long from = readOffset();
+            LedgerApi.RawAcsSnapshot snapshot = ledgerApi.getActiveContractsRawSnapshotForParty(party).join();
+            long end = snapshot.offset();
+            long started = System.currentTimeMillis();
+            try {
+                backfill(party, from, end);
+            } catch (RuntimeException e) {
+                if (!isPruned(e)) {
+                    throw e;
+                }
+                // Offsets we have not indexed were pruned; their history cannot be recovered
+                LOG.warn("History after offset {} was pruned, resuming at snapshot offset {}: {}",
+                        indexedOffset, end, unwrap(e).getMessage());
+                resetPools();
+                persistOffset(end);
+            }
+            if (stopped) {
+                return;
+            }
+            seed(snapshot.contracts());
+            LOG.info("History backfill {} → {} done in {}ms; tailing updates for {}",
+                    from, end, System.currentTimeMillis() - started, party);
+            retryDelaySeconds = RETRY_INITIAL_SECONDS;
+            tail(party, end);
+        } catch (Exception e) {
+            if (stopped) {
+                return;
+            }
+            long delay = retryDelaySeconds;
+            retryDelaySeconds = Math.min(retryDelaySeconds * 2, RETRY_MAX_SECONDS);
+            LOG.warn("History backfill failed at offset {}, retrying in {}s: {}", indexedOffset, delay, e.getMessage());
+            worker.schedule(this::run, delay, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * The same statuses {@link LedgerUpdateStream} reports as a stream gap: the begin offset is no longer readable.
+     */
+    private static boolean isPruned(Throwable e) {
+        Status.Code code = Status.fromThrowable(unwrap(e)).getCode();
+        return code == Status.Code.FAILED_PRECONDITION || code == Status.Code.OUT_OF_RANGE;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        Throwable t = e;
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    /**
+     * Fetch (from, end] in ranges, keeping up to {@code parallelism} in flight, and apply them in order.
+     */
+    private void backfill(String party, long from, long end) {
+        Deque<CompletableFuture<List<TransactionOuterClass.Transaction>>> inFlight = new ArrayDeque<>();
+        Deque<Long> rangeEnds = new ArrayDeque<>();
+        long next = from;
+        while (!stopped && (next < end || !inFlight.isEmpty())) {
+            while (next < end && inFlight.size() < parallelism) {
+                long rangeEnd = Math.min(end, next + rangeSize);
+                inFlight.add(fetchRange(party, next, rangeEnd));
+                rangeEnds.add(rangeEnd);
+                next = rangeEnd;
+            }
+            List<TransactionOuterClass.Transaction> transactions = inFlight.poll().join();
+            long rangeEnd = rangeEnds.poll();
+            transactions.forEach(this::apply);
+            persistOffset(rangeEnd);
+        }
+    }
+
+    private CompletableFuture<List<TransactionOuterClass.Transaction>> fetchRange(String party, long beginExclusive, long endInclusive) {
+        CompletableFuture<List<TransactionOuterClass.Transaction>> result = new CompletableFuture<>();
+        List<TransactionOuterClass.Transaction> transactions = new ArrayList<>();
+        ledgerApi.subscribeUpdatesForParty(party, beginExclusive, endInclusive, new StreamObserver<>() {
+            @Override
+            public void onNext(UpdateServiceOuterClass.GetUpdatesResponse response) {
+                if (response.hasTransaction()) {
+                    transactions.add(response.getTransaction());
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                result.complete(transactions);
+            }
+        });
+        return result;
+    }
+
+    private void tail(String party, long beginExclusive) {
+        live = ledgerUpdateStream.subscribe(party, beginExclusive, "history-index", new LedgerUpdateStream.Listener() {
+            @Override
+            public void onTransaction(TransactionOuterClass.Transaction transaction) {
+                apply(transaction);
+                long now = System.currentTimeMillis();
+                if (now - lastPersistMs >= PERSIST_INTERVAL_MS) {
+                    persistOffset(transaction.getOffset());
+                }
+            }
+
+            @Override
+            public void onStreamGap(Throwable cause) {
+                // Offsets we have not indexed were pruned; their history cannot be recovered
+                LOG.warn("History stream gap after offset {}, resuming at ledger end: {}", indexedOffset, cause.getMessage());
+                worker.execute(() -> {
+                    try {
+                        persistOffset(ledgerApi.getLedgerEndOffset().join());
+                    } catch (Exception e) {
+                        LOG.warn("Failed to read ledger end after stream gap: {}", e.getMessage());
+                    }
+                    run();
+                });
+            }
+        });
+    }
+
+    /**
+     * Forget pool states from a partial backfill; {@link #seed} then starts them from the snapshot.
+     */
+    synchronized void resetPools() {
+        pools.clear();
+    }
+
+    /**
+     * Pools not touched by the backfill have the same state at its end as in the snapshot it ran up to.
+     */
+    synchronized void seed(List<LedgerApi.RawActiveContract> contracts) {
+        for (LedgerApi.RawActiveContract contract : contracts) {
+            if (contract.createArguments() == null) {
+                continue;
+            }
+            PoolState state = null;
+            if (is(contract.templateId(), POOL_MODULE, POOL_ENTITY)) {
+                state = toPoolState(contract.createArguments());
+            } else if (is(contract.templateId(), HOLDING_POOL_MODULE, HOLDING_POOL_ENTITY)) {
+                state = toHoldingPoolState(contract.createArguments());
+            }
+            if (state != null && state.poolId() != null) {
+                pools.putIfAbsent(state.poolId(), state);
+            }
+        }
+    }
+
+    synchronized void apply(TransactionOuterClass.Transaction transaction) {
+        toEntry(transaction).ifPresent(entry -> {
+            if (historyService.recordFromLedger(entry)) {
+                indexedCounter.increment();
+            }
+        });
+    }
+
+    /**
+     * Map one ledger transaction to at most one history entry, keyed by its update id.
+     */
+    synchronized Optional<TransactionHistoryEntry> toEntry(TransactionOuterClass.Transaction transaction) {
+        ValueOuterClass.Record receipt = null;
+        ValueOuterClass.Record lpToken = null;
+        PoolState pool = null;
+        String poolCid = null;
+        boolean holdingPool = false;
+        boolean poolArchived = false;
+        int instructionsArchived = 0;
+        for (EventOuterClass.Event event : transaction.getEventsList()) {
+            if (event.hasCreated()) {
+                EventOuterClass.CreatedEvent created = event.getCreated();
+                ValueOuterClass.Identifier id = created.getTemplateId();
+                if (is(id, RECEIPT_MODULE, RECEIPT_ENTITY)) {
+                    receipt = created.getCreateArguments();
+                } else if (is(id, LP_TOKEN_MODULE, LP_TOKEN_ENTITY)) {
+                    lpToken = created.getCreateArguments();
+                } else if (is(id, POOL_MODULE, POOL_ENTITY)) {
+                    pool = toPoolState(created.getCreateArguments());
+                    poolCid = created.getContractId();
+                } else if (is(id, HOLDING_POOL_MODULE, HOLDING_POOL_ENTITY)) {
+                    pool = toHoldingPoolState(created.getCreateArguments());
+                    poolCid = created.getContractId();
+                    holdingPool = true;
+                }
+            } else if (event.hasArchived()) {
+                ValueOuterClass.Identifier id = event.getArchived().getTemplateId();
+                if (is(id, POOL_MODULE, POOL_ENTITY) || is(id, HOLDING_POOL_MODULE, HOLDING_POOL_ENTITY)) {
+                    poolArchived = true;
+                } else if (id.getEntityName().endsWith("TransferInstruction")) {
+                    instructionsArchived++;
+                }
+            }
+        }
+        PoolState previous = pool != null && pool.poolId() != null ? pools.put(pool.poolId(), pool) : null;
+
+        TransactionHistoryEntry entry = null;
+        String updateId = transaction.getUpdateId();
+        if (receipt != null) {
+            entry = TransactionHistoryService.swapEntry(updateId,
+                    pool != null ? pool.poolId() : null,
+                    pool != null ? poolCid : contractId(field(receipt, "newPoolCid", 9)),
+                    text(field(receipt, "inputSymbol", 2)),
+                    text(field(receipt, "outputSymbol", 3)),
+                    numeric(field(receipt, "amountIn", 4)),
+                    numeric(field(receipt, "amountOut", 5)),
+                    party(field(receipt, "trader", 0)));
+        } else if (pool != null && previous == null && poolArchived) {
+            LOG.debug("History indexer: no earlier state for pool {} in update {}, skipping", pool.poolId(), updateId);
+        } else if (lpToken != null && previous != null && grew(previous, pool)) {
+            entry = TransactionHistoryService.addLiquidityEntry(updateId, pool.poolId(), poolCid,
+                    pool.symbolA(), pool.symbolB(),
+                    pool.reserveA().subtract(previous.reserveA()),
+                    pool.reserveB().subtract(previous.reserveB()),
+                    null,
+                    numeric(field(lpToken, "amount", 3)),
+                    party(field(lpToken, "owner", 1)));
+        } else if (holdingPool && previous != null && instructionsArchived == 1 && swapped(previous, pool)) {
+            boolean aToB = pool.reserveA().compareTo(previous.reserveA()) > 0;
+            entry = TransactionHistoryService.swapEntry(updateId, pool.poolId(), poolCid,
+                    aToB ? pool.symbolA() : pool.symbolB(),
+                    aToB ? pool.symbolB() : pool.symbolA(),
+                    aToB ? pool.reserveA().subtract(previous.reserveA()) : pool.reserveB().subtract(previous.reserveB()),
+                    aToB ? previous.reserveB().subtract(pool.reserveB()) : previous.reserveA().subtract(pool.reserveA()),
+                    payoutReceiver(transaction, pool.operator()));
+        } else if (pool != null && previous == null && !poolArchived) {
+            entry = TransactionHistoryService.poolCreationEntry(updateId, pool.poolId(), poolCid,
+                    pool.symbolA(), pool.symbolB(), pool.reserveA(), pool.reserveB(),
+                    pool.operator(), pool.poolParty());
+        }
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (transaction.hasEffectiveAt()) {
+            entry.createdAt = DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochSecond(
+                    transaction.getEffectiveAt().getSeconds(), transaction.getEffectiveAt().getNanos()));
+            for (TransactionHistoryService.TimelineItem item : entry.eventTimeline) {
+                item.timestamp = entry.createdAt;
+            }
+        }
+        return Optional.of(entry);
+    }
+
+    private static boolean grew(PoolState previous, PoolState current) {
+        return current.totalLpSupply().compareTo(previous.totalLpSupply()) > 0;
+    }
+
+    private static boolean swapped(PoolState previous, PoolState current) {
+        int deltaA = current.reserveA().compareTo(previous.reserveA());
+        int deltaB = current.reserveB().compareTo(previous.reserveB());
+        return current.totalLpSupply().compareTo(previous.totalLpSupply()) == 0 && deltaA != 0 && deltaA == -deltaB;
+    }
+
+    /**
+     * The swap recipient, taken from the payout the transaction created: a holding owned by someone
+     * other than the operator, or a pending transfer instruction's receiver. Null if neither is visible.
+     */
+    private static String payoutReceiver(TransactionOuterClass.Transaction transaction, String operator) {
+        for (EventOuterClass.Event event : transaction.getEventsList()) {
+            if (!event.hasCreated() || event.getCreated().getTemplateId().getModuleName().startsWith("AMM.")) {
+                continue;
+            }
+            ValueOuterClass.Record args = event.getCreated().getCreateArguments();
+            String owner = party(field(args, "owner", -1));
+            if (owner != null && !owner.equals(operator)) {
+                return owner;
+            }
+            ValueOuterClass.Value transfer = field(args, "transfer", -1);
+            String receiver = transfer != null && transfer.hasRecord() ? party(field(transfer.getRecord(), "receiver", -1)) : null;
+            if (receiver != null && !receiver.equals(operator)) {
+                return receiver;
+            }
+        }
+        return null;
+    }
+
+    private static PoolState toPoolState(ValueOuterClass.Record pool) {
+        return new PoolState(
+                text(field(pool, "poolId", 8)),
+                party(field(pool, "poolOperator", 0)),
+                party(field(pool, "poolParty", 1)),
+                text(field(pool, "symbolA", 5)),
+                text(field(pool, "symbolB", 6)),
+                numeric(field(pool, "totalLPSupply", 10)),
+                numeric(field(pool, "reserveA", 11)),
+                numeric(field(pool, "reserveB", 12)));
+    }
+
+    private static PoolState toHoldingPoolState(ValueOuterClass.Record pool) {
+        String operator = party(field(pool, "operator", 0));
+        return new PoolState(
+                optionalText(field(pool, "poolId", 10)),
+                operator,
+                operator,
+                instrumentSymbol(field(pool, "instrumentA", 1)),
+                instrumentSymbol(field(pool, "instrumentB", 2)),
+                numeric(field(pool, "lpSupply", 9)),
+                numeric(field(pool, "reserveAmountA", 4)),
+                numeric(field(pool, "reserveAmountB", 5)));
+    }
+
+    private static String instrumentSymbol(ValueOuterClass.Value instrument) {
+        String id = instrument != null && instrument.hasRecord() ? text(field(instrument.getRecord(), "id", 1)) : null;
+        return "Amulet".equalsIgnoreCase(id) ? "CC" : id;
+    }
+
+    private static boolean is(ValueOuterClass.Identifier id, String module, String entity) {
+        return id != null && module.equals(id.getModuleName()) && entity.equals(id.getEntityName());
+    }
+
+    private static ValueOuterClass.Value field(ValueOuterClass.Record rec, String label, int indexFallback) {
+        for (ValueOuterClass.RecordField f : rec.getFieldsList()) {
+            if (label.equals(f.getLabel())) {
+                return f.getValue();
+            }
+        }
+        if (indexFallback >= 0 && indexFallback < rec.getFieldsCount()) {
+            return rec.getFields(indexFallback).getValue();
+        }
+        return null;
+    }
+
+    private static String text(ValueOuterClass.Value v) {
+        return v != null && v.hasText() ? v.getText() : null;
+    }
+
+    private static String optionalText(ValueOuterClass.Value v) {
+        if (v != null && v.hasOptional()) {
+            return v.getOptional().hasValue() ? text(v.getOptional().getValue()) : null;
+        }
+        return text(v);
+    }
+
+    private static String party(ValueOuterClass.Value v) {
+        return v != null && v.hasParty() ? v.getParty() : null;
+    }
+
+    private static String contractId(ValueOuterClass.Value v) {
+        return v != null && v.hasContractId() ? v.getContractId() : null;
+    }
+
+    private static BigDecimal numeric(ValueOuterClass.Value v) {
+        return v != null && v.hasNumeric() ? new BigDecimal(v.getNumeric()) : BigDecimal.ZERO;
+    }
+
+    private long readOffset() {
+        Path file = historyService.directory().resolve(OFFSET_FILE);
+        try {
+            if (Files.exists(file)) {
+                indexedOffset = Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim());
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOG.warn("Unreadable history indexer offset {}, backfilling from the start: {}", file, e.getMessage());
+            indexedOffset = 0;
+        }
+        return indexedOffset;
+    }
+
+    private void persistOffset(long offset) {
+        indexedOffset = offset;
+        lastPersistMs = System.currentTimeMillis();
+        Path file = historyService.directory().resolve(OFFSET_FILE);
+        Path tmp = file.resolveSibling(OFFSET_FILE + ".tmp");
+        try {
+            Files.writeString(tmp, Long.toString(offset), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Failed to save history indexer offset {}: {}", offset, e.getMessage());
+        }
+    }
+}
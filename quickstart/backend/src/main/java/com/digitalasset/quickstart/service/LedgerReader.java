@@ -144,9 +144,7 @@ public class LedgerReader {
      */
     @WithSpan
     public CompletableFuture<java.util.List<LpTokenDTO>> lpTokensForParty(String party) {
-        String viewerParty = (appProviderPartyId != null && !appProviderPartyId.isBlank())
-                ? appProviderPartyId
-                : party;
+        String viewerParty = lpTokenViewerParty(party);
         logger.info("Fetching LP tokens for party: {} (viewer={})", party, viewerParty);
         return ledger.getActiveContractsForParty(LPToken.class, viewerParty)
                 .thenApply(contracts -> contracts.stream()
@@ -178,19 +176,7 @@ public class LedgerReader {
         logger.info("Fetching all active pools (party-aware Ledger API)");
         final java.util.Set<String> showcasePoolIds = java.util.Set.of("cc-cbtc-showcase");
 
-        LinkedHashSet<String> partyCandidates = new LinkedHashSet<>();
-        if (appProviderPartyId != null && !appProviderPartyId.isBlank()) {
-            partyCandidates.add(appProviderPartyId);
-        }
-        if (dexPartyId != null && !dexPartyId.isBlank()) {
-            partyCandidates.add(dexPartyId);
-        }
-        Map<String, Map<String, String>> directorySnapshot = poolDirectoryService.snapshot();
-        directorySnapshot.values().stream()
-                .map(entry -> entry.get("party"))
-                .filter(party -> party != null && !party.isBlank())
-                .forEach(partyCandidates::add);
-
+        LinkedHashSet<String> partyCandidates = poolReadParties();
         if (partyCandidates.isEmpty()) {
             logger.warn("No parties available for pool lookup; falling back to default app provider scope.");
             partyCandidates.add(appProviderPartyId);
@@ -263,6 +249,34 @@ public class LedgerReader {
                 });
     }
 
+    /**
+     * Party whose ACS {@link #lpTokensForParty} reads (the app provider sees all LP tokens)
+     */
+    public String lpTokenViewerParty(String party) {
+        return (appProviderPartyId != null && !appProviderPartyId.isBlank())
+                ? appProviderPartyId
+                : party;
+    }
+
+    /**
+     * Parties whose ACS {@link #pools()} reads: app provider, DEX party and pool directory parties
+     */
+    public LinkedHashSet<String> poolReadParties() {
+        LinkedHashSet<String> parties = new LinkedHashSet<>();
+        if (appProviderPartyId != null && !appProviderPartyId.isBlank()) {
+            parties.add(appProviderPartyId);
+        }
+        if (dexPartyId != null && !dexPartyId.isBlank()) {
+            parties.add(dexPartyId);
+        }
+        Map<String, Map<String, String>> directorySnapshot = poolDirectoryService.snapshot();
+        directorySnapshot.values().stream()
+                .map(entry -> entry.get("party"))
+                .filter(party -> party != null && !party.isBlank())
+                .forEach(parties::add);
+        return parties;
+    }
+
     private List<PoolDTO> mapPoolsToDto(List<LedgerApi.ActiveContract<Pool>> contracts,
                                         java.util.Set<String> showcasePoolIds) {
         LinkedHashMap<String, PoolDTO> bestPools = new LinkedHashMap<>();
@@ -15,7 +15,9 @@ import com.digitalasset.quickstart.dto.LiquidityRemoveConsumeRequest;
 import com.digitalasset.quickstart.dto.LiquidityRemoveConsumeResponse;
 import com.digitalasset.quickstart.dto.LiquidityRemoveInspectResponse;
 import com.digitalasset.quickstart.dto.LpTokenDTO;
+import com.digitalasset.quickstart.ledger.DisclosedContractCache;
 import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.ledger.PoolCommandSequencer;
 import com.digitalasset.quickstart.security.AuthUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
@@ -33,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 @Service
 @Profile("devnet")
@@ -48,6 +51,8 @@ public class LiquidityRemoveService {
     private final LedgerApi ledgerApi;
     private final AuthUtils authUtils;
     private final IdempotencyService idempotencyService;
+    private final PoolCommandSequencer poolCommandSequencer;
+    private final DisclosedContractCache disclosedContractCache;
 
     private final ObjectMapper mapper = new ObjectMapper();
 
@@ -61,7 +66,9 @@ public class LiquidityRemoveService {
             PayoutService payoutService,
             LedgerApi ledgerApi,
             AuthUtils authUtils,
-            IdempotencyService idempotencyService
+            IdempotencyService idempotencyService,
+            PoolCommandSequencer poolCommandSequencer,
+            DisclosedContractCache disclosedContractCache
     ) {
         this.holdingPoolService = holdingPoolService;
         this.ledgerReader = ledgerReader;
@@ -70,6 +77,8 @@ public class LiquidityRemoveService {
         this.ledgerApi = ledgerApi;
         this.authUtils = authUtils;
         this.idempotencyService = idempotencyService;
+        this.poolCommandSequencer = poolCommandSequencer;
+        this.disclosedContractCache = disclosedContractCache;
     }
 
     @WithSpan
@@ -83,7 +92,22 @@ public class LiquidityRemoveService {
         if (request.receiverParty == null || request.receiverParty.isBlank()) {
             return completedError(validationError("receiverParty is required", "receiverParty"));
         }
-        Object cached = idempotencyService.checkIdempotency(request.requestId);
+        // A requestId reused with other parameters is a conflict, not a replay; the deadline may be refreshed on retry
+        String bodyHash = IdempotencyKey.bodyHash(request.poolCid, request.lpCid, request.receiverParty,
+                request.lpBurnAmount, request.minOutA, request.minOutB);
+        Object cached;
+        try {
+            cached = idempotencyService.checkIdempotencyWithBodyHash(request.requestId, bodyHash);
+        } catch (ResponseStatusException e) {
+            return completedError(new ApiError(
+                    ErrorCode.CONFLICT,
+                    "requestId was already used for a different remove-liquidity request",
+                    Map.of("field", "requestId"),
+                    false,
+                    null,
+                    null
+            ));
+        }
         if (cached instanceof LiquidityRemoveConsumeResponse cachedResponse) {
             return CompletableFuture.completedFuture(Result.ok(cachedResponse));
         }
@@ -222,7 +246,8 @@ public class LiquidityRemoveService {
 
                                 String memoRaw = buildMemo(request.requestId, resolvedPoolCid, request.lpCid, receiverParty, deadline,
                                             lpBurnAmount, outA, outB);
-                                    Result<PayoutService.TransferFactoryPlan, ApiError> payoutPlanAResult =
+                                    // Both registry lookups run concurrently
+                                    CompletableFuture<Result<PayoutService.TransferFactoryPlan, ApiError>> payoutPlanAFut =
                                             payoutService.prepareTransferFactory(
                                                     instA.admin,
                                                     instA.id,
@@ -233,14 +258,7 @@ public class LiquidityRemoveService {
                                                     memoRaw,
                                                     "remove-payout-a-" + request.requestId
                                             );
-                                    if (payoutPlanAResult.isErr()) {
-                                        return completedError(annotateNoSynchronizer(payoutPlanAResult.getErrorUnsafe(),
-                                                "PreparePayoutA",
-                                                List.of(operator),
-                                                List.of(operator),
-                                                null));
-                                    }
-                                    Result<PayoutService.TransferFactoryPlan, ApiError> payoutPlanBResult =
+                                    CompletableFuture<Result<PayoutService.TransferFactoryPlan, ApiError>> payoutPlanBFut =
                                             payoutService.prepareTransferFactory(
                                                     instB.admin,
                                                     instB.id,
@@ -251,111 +269,125 @@ public class LiquidityRemoveService {
                                                     memoRaw,
                                                     "remove-payout-b-" + request.requestId
                                             );
-                                    if (payoutPlanBResult.isErr()) {
-                                        return completedError(annotateNoSynchronizer(payoutPlanBResult.getErrorUnsafe(),
-                                                "PreparePayoutB",
-                                                List.of(operator),
-                                                List.of(operator),
-                                                null));
-                                    }
-                                    PayoutService.TransferFactoryPlan planA = payoutPlanAResult.getValueUnsafe();
-                                    PayoutService.TransferFactoryPlan planB = payoutPlanBResult.getValueUnsafe();
-
-                                    List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> disclosed =
-                                            mergeDisclosed(planA.disclosedContracts(), planB.disclosedContracts());
-                                    String synchronizerId = firstNonBlank(planA.synchronizerId(), planB.synchronizerId());
-
-                                LOG.info("[LiquidityRemove] requestId={} operator={} poolCid={} poolIdText={} lpPoolId={} lpCid={} lpBurnAmount={} outA={} outB={} receiver={} payoutFactoryA={} payoutFactoryB={} actAs=[{}]",
-                                            request.requestId,
-                                            operator,
-                                        resolvedPoolCid,
-                                        poolIdText,
-                                        lpToken.poolId,
-                                            request.lpCid,
-                                            lpBurnAmount.toPlainString(),
-                                            outA.toPlainString(),
-                                            outB.toPlainString(),
-                                            receiverParty,
-                                            planA.factoryCid(),
-                                            planB.factoryCid(),
-                                            operator);
-
-                                    ValueOuterClass.Record choiceArgs = ValueOuterClass.Record.newBuilder()
-                                            .addFields(recordField("requestId", textValue(request.requestId)))
-                                            .addFields(recordField("lpCid", contractIdValue(request.lpCid)))
-                                            .addFields(recordField("lpBurnAmount", numericValue(lpBurnAmount)))
-                                            .addFields(recordField("receiverParty", partyValue(receiverParty)))
-                                            .addFields(recordField("minOutA", numericValue(minOutA)))
-                                            .addFields(recordField("minOutB", numericValue(minOutB)))
-                                            .addFields(recordField("deadline", timestampValue(deadline)))
-                                        .addFields(recordField("poolIdText", textValue(poolIdText)))
-                                            .addFields(recordField("outputHoldingCidA", contractIdValue(holdingCidA)))
-                                            .addFields(recordField("outputHoldingCidB", contractIdValue(holdingCidB)))
-                                            .addFields(recordField("payoutFactoryCidA", contractIdValue(planA.factoryCid())))
-                                            .addFields(recordField("payoutFactoryCidB", contractIdValue(planB.factoryCid())))
-                                            .addFields(recordField("payoutExtraArgsA", recordValue(planA.extraArgs())))
-                                            .addFields(recordField("payoutExtraArgsB", recordValue(planB.extraArgs())))
-                                            .addFields(recordField("payoutMemo", textValue(memoRaw)))
-                                            .build();
-
-                                    return ledgerApi.exerciseRawWithLabel(
-                                                    "RemoveLiquidityFromLpV1",
-                                                    holdingPoolTemplateId(),
-                                                resolvedPoolCid,
-                                                    "RemoveLiquidityFromLpV1",
-                                                    choiceArgs,
+                                    return payoutPlanAFut.thenCombine(payoutPlanBFut, PayoutPlanResultPair::new).thenCompose(plans -> {
+                                        if (plans.a.isErr()) {
+                                            return completedError(annotateNoSynchronizer(plans.a.getErrorUnsafe(),
+                                                    "PreparePayoutA",
                                                     List.of(operator),
-                                                    List.of(),
-                                                    disclosed,
-                                                    synchronizerId
-                                            )
-                                            .handle((resp, throwable) -> {
-                                                if (throwable != null) {
-                                                    return Result.<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>err(
-                                                            annotateNoSynchronizer(ApiError.of(ErrorCode.LEDGER_REJECTED, throwable.getMessage()),
-                                                                    "RemoveLiquidityFromLpV1",
-                                                                    List.of(operator),
-                                                                    List.of(),
-                                                                    synchronizerId));
-                                                }
-                                                return Result.<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>ok(resp);
-                                            })
-                                            .thenCompose(result -> {
-                                                if (result.isErr()) {
-                                                    return completedError(result.getErrorUnsafe());
-                                                }
-                                                CommandServiceOuterClass.SubmitAndWaitForTransactionResponse resp = result.getValueUnsafe();
-                                                String updateId = extractUpdateId(resp);
-                                                RemoveOutcome outcome = extractRemoveOutcome(resp);
-                                                if (updateId == null || updateId.isBlank()) {
-                                                    return completedError(ApiError.of(ErrorCode.INTERNAL, "RemoveLiquidity returned no updateId"));
-                                                }
-                                                if (outcome == null || outcome.newPoolCid == null) {
-                                                    return completedError(ApiError.of(ErrorCode.INTERNAL, "RemoveLiquidity returned no result"));
-                                                }
-
-                                                LiquidityRemoveConsumeResponse response = new LiquidityRemoveConsumeResponse();
-                                                response.requestId = request.requestId;
-                                                response.poolCid = resolvedPoolCid;
-                                                response.lpCid = request.lpCid;
-                                                response.receiverParty = receiverParty;
-                                                response.lpBurnAmount = lpBurnAmount.toPlainString();
-                                                response.outAmountA = outcome.outA.toPlainString();
-                                                response.outAmountB = outcome.outB.toPlainString();
-                                                response.payoutStatusA = outcome.payoutA.completed ? "COMPLETED" : "CREATED";
-                                                response.payoutStatusB = outcome.payoutB.completed ? "COMPLETED" : "CREATED";
-                                                response.payoutCidA = outcome.payoutA.payoutCid;
-                                                response.payoutCidB = outcome.payoutB.payoutCid;
-                                                response.payoutFactoryIdA = planA.factoryCid();
-                                                response.payoutFactoryIdB = planB.factoryCid();
-                                                response.newReserveA = outcome.newReserveA.toPlainString();
-                                                response.newReserveB = outcome.newReserveB.toPlainString();
-                                                response.ledgerUpdateId = updateId;
-                                                response.executeStatus = "SUCCEEDED";
-
-                                                idempotencyService.registerSuccess(request.requestId, request.requestId, updateId, response);
-                                                return CompletableFuture.completedFuture(Result.ok(response));
-                                            });
+                                                    List.of(operator),
+                                                    null));
+                                        }
+                                        if (plans.b.isErr()) {
+                                            return completedError(annotateNoSynchronizer(plans.b.getErrorUnsafe(),
+                                                    "PreparePayoutB",
+                                                    List.of(operator),
+                                                    List.of(operator),
+                                                    null));
+                                        }
+                                        PayoutService.TransferFactoryPlan planA = plans.a.getValueUnsafe();
+                                        PayoutService.TransferFactoryPlan planB = plans.b.getValueUnsafe();
+
+                                        List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> disclosed =
+                                                mergeDisclosed(planA.disclosedContracts(), planB.disclosedContracts());
+                                        String synchronizerId = firstNonBlank(planA.synchronizerId(), planB.synchronizerId());
+
+                                    LOG.info("[LiquidityRemove] requestId={} operator={} poolCid={} poolIdText={} lpPoolId={} lpCid={} lpBurnAmount={} outA={} outB={} receiver={} payoutFactoryA={} payoutFactoryB={} actAs=[{}]",
+                                                request.requestId,
+                                                operator,
+                                            resolvedPoolCid,
+                                            poolIdText,
+                                            lpToken.poolId,
+                                                request.lpCid,
+                                                lpBurnAmount.toPlainString(),
+                                                outA.toPlainString(),
+                                                outB.toPlainString(),
+                                                receiverParty,
+                                                planA.factoryCid(),
+                                                planB.factoryCid(),
+                                                operator);
+
+                                        ValueOuterClass.Record choiceArgs = ValueOuterClass.Record.newBuilder()
+                                                .addFields(recordField("requestId", textValue(request.requestId)))
+                                                .addFields(recordField("lpCid", contractIdValue(request.lpCid)))
+                                                .addFields(recordField("lpBurnAmount", numericValue(lpBurnAmount)))
+                                                .addFields(recordField("receiverParty", partyValue(receiverParty)))
+                                                .addFields(recordField("minOutA", numericValue(minOutA)))
+                                                .addFields(recordField("minOutB", numericValue(minOutB)))
+                                                .addFields(recordField("deadline", timestampValue(deadline)))
+                                            .addFields(recordField("poolIdText", textValue(poolIdText)))
+                                                .addFields(recordField("outputHoldingCidA", contractIdValue(holdingCidA)))
+                                                .addFields(recordField("outputHoldingCidB", contractIdValue(holdingCidB)))
+                                                .addFields(recordField("payoutFactoryCidA", contractIdValue(planA.factoryCid())))
+                                                .addFields(recordField("payoutFactoryCidB", contractIdValue(planB.factoryCid())))
+                                                .addFields(recordField("payoutExtraArgsA", recordValue(planA.extraArgs())))
+                                                .addFields(recordField("payoutExtraArgsB", recordValue(planB.extraArgs())))
+                                                .addFields(recordField("payoutMemo", textValue(memoRaw)))
+                                                .build();
+
+                                        // Queue behind in-flight swaps/adds on this pool; minOutA/minOutB still guard the payout
+                                        return poolCommandSequencer.submit(poolIdText, resolvedPoolCid, "RemoveLiquidityFromLpV1", latestPoolCid ->
+                                                holdingPoolService.refreshOnFailure(latestPoolCid, poolIdText, ledgerApi.exerciseRawWithLabel(
+                                                        "RemoveLiquidityFromLpV1",
+                                                        holdingPoolTemplateId(),
+                                                        latestPoolCid,
+                                                        "RemoveLiquidityFromLpV1",
+                                                        choiceArgs,
+                                                        List.of(operator),
+                                                        List.of(),
+                                                        disclosed,
+                                                        synchronizerId
+                                                )).thenApply(resp -> {
+                                                    poolCommandSequencer.observe(resp.getTransaction());
+                                                    return resp;
+                                                }))
+                                                .handle((resp, throwable) -> {
+                                                    if (throwable != null) {
+                                                        return Result.<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>err(
+                                                                annotateNoSynchronizer(ApiError.of(ErrorCode.LEDGER_REJECTED, throwable.getMessage()),
+                                                                        "RemoveLiquidityFromLpV1",
+                                                                        List.of(operator),
+                                                                        List.of(),
+                                                                        synchronizerId));
+                                                    }
+                                                    return Result.<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>ok(resp);
+                                                })
+                                                .thenCompose(result -> {
+                                                    if (result.isErr()) {
+                                                        return completedError(result.getErrorUnsafe());
+                                                    }
+                                                    CommandServiceOuterClass.SubmitAndWaitForTransactionResponse resp = result.getValueUnsafe();
+                                                    String updateId = extractUpdateId(resp);
+                                                    RemoveOutcome outcome = extractRemoveOutcome(resp);
+                                                    if (updateId == null || updateId.isBlank()) {
+                                                        return completedError(ApiError.of(ErrorCode.INTERNAL, "RemoveLiquidity returned no updateId"));
+                                                    }
+                                                    if (outcome == null || outcome.newPoolCid == null) {
+                                                        return completedError(ApiError.of(ErrorCode.INTERNAL, "RemoveLiquidity returned no result"));
+                                                    }
+
+                                                    LiquidityRemoveConsumeResponse response = new LiquidityRemoveConsumeResponse();
+                                                    response.requestId = request.requestId;
+                                                    response.poolCid = resolvedPoolCid;
+                                                    response.lpCid = request.lpCid;
+                                                    response.receiverParty = receiverParty;
+                                                    response.lpBurnAmount = lpBurnAmount.toPlainString();
+                                                    response.outAmountA = outcome.outA.toPlainString();
+                                                    response.outAmountB = outcome.outB.toPlainString();
+                                                    response.payoutStatusA = outcome.payoutA.completed ? "COMPLETED" : "CREATED";
+                                                    response.payoutStatusB = outcome.payoutB.completed ? "COMPLETED" : "CREATED";
+                                                    response.payoutCidA = outcome.payoutA.payoutCid;
+                                                    response.payoutCidB = outcome.payoutB.payoutCid;
+                                                    response.payoutFactoryIdA = planA.factoryCid();
+                                                    response.payoutFactoryIdB = planB.factoryCid();
+                                                    response.newReserveA = outcome.newReserveA.toPlainString();
+                                                    response.newReserveB = outcome.newReserveB.toPlainString();
+                                                    response.ledgerUpdateId = updateId;
+                                                    response.executeStatus = "SUCCEEDED";
+
+                                                    idempotencyService.registerSuccessWithBodyHash(request.requestId, bodyHash, request.requestId, updateId, response, 200);
+                                                    return CompletableFuture.completedFuture(Result.ok(response));
+                                                });
+                                    });
                                 });
                             });
                 });
@@ -630,22 +662,7 @@ public class LiquidityRemoveService {
             List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> a,
             List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> b
     ) {
-        Map<String, com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> byCid = new LinkedHashMap<>();
-        if (a != null) {
-            for (var dc : a) {
-                if (dc != null && !dc.getContractId().isBlank()) {
-                    byCid.putIfAbsent(dc.getContractId(), dc);
-                }
-            }
-        }
-        if (b != null) {
-            for (var dc : b) {
-                if (dc != null && !dc.getContractId().isBlank()) {
-                    byCid.putIfAbsent(dc.getContractId(), dc);
-                }
-            }
-        }
-        return new ArrayList<>(byCid.values());
+        return disclosedContractCache.merge(a, b);
     }
 
     private String firstNonBlank(String... values) {
@@ -801,6 +818,11 @@ public class LiquidityRemoveService {
 
     private record HoldingSelectResponsePair(HoldingSelectResponse a, HoldingSelectResponse b) {}
 
+    private record PayoutPlanResultPair(
+            Result<PayoutService.TransferFactoryPlan, ApiError> a,
+            Result<PayoutService.TransferFactoryPlan, ApiError> b
+    ) {}
+
     private record RemoveOutcome(
             String newPoolCid,
             BigDecimal outA,
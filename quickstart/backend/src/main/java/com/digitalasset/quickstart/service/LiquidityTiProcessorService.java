@@ -4,6 +4,7 @@ import com.daml.ledger.api.v2.CommandServiceOuterClass;
 import com.daml.ledger.api.v2.ValueOuterClass;
 import com.digitalasset.quickstart.common.DomainError;
 import com.digitalasset.quickstart.common.Result;
+import com.digitalasset.quickstart.config.BlockingExecutor;
 import com.digitalasset.quickstart.constants.SwapConstants;
 import com.digitalasset.quickstart.dto.ApiError;
 import com.digitalasset.quickstart.dto.ErrorCode;
@@ -12,7 +13,10 @@ import com.digitalasset.quickstart.dto.HoldingPoolResponse;
 import com.digitalasset.quickstart.dto.LiquidityConsumeRequest;
 import com.digitalasset.quickstart.dto.LiquidityConsumeResponse;
 import com.digitalasset.quickstart.dto.LiquidityInspectResponse;
+import com.digitalasset.quickstart.ledger.DisclosedContractCache;
 import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.ledger.LedgerInbox;
+import com.digitalasset.quickstart.ledger.PoolCommandSequencer;
 import com.digitalasset.quickstart.security.AuthUtils;
 import com.digitalasset.quickstart.service.TransferInstructionAcsQueryService.TransferInstructionDto;
 import com.digitalasset.quickstart.service.TransferInstructionAcsQueryService.TransferInstructionWithMemo;
@@ -49,6 +53,10 @@ public class LiquidityTiProcessorService {
     private final AuthUtils authUtils;
     private final IdempotencyService idempotencyService;
     private final TransactionHistoryService transactionHistoryService;
+    private final PoolCommandSequencer poolCommandSequencer;
+    private final LedgerInbox ledgerInbox;
+    private final DisclosedContractCache disclosedContractCache;
+    private final BlockingExecutor blockingExecutor;
 
     private final ObjectMapper mapper = new ObjectMapper();
 
@@ -66,7 +74,11 @@ public class LiquidityTiProcessorService {
             LedgerApi ledgerApi,
             AuthUtils authUtils,
             IdempotencyService idempotencyService,
-            TransactionHistoryService transactionHistoryService
+            TransactionHistoryService transactionHistoryService,
+            PoolCommandSequencer poolCommandSequencer,
+            LedgerInbox ledgerInbox,
+            DisclosedContractCache disclosedContractCache,
+            BlockingExecutor blockingExecutor
     ) {
         this.tiQueryService = tiQueryService;
         this.holdingPoolService = holdingPoolService;
@@ -75,6 +87,10 @@ public class LiquidityTiProcessorService {
         this.authUtils = authUtils;
         this.idempotencyService = idempotencyService;
         this.transactionHistoryService = transactionHistoryService;
+        this.poolCommandSequencer = poolCommandSequencer;
+        this.ledgerInbox = ledgerInbox;
+        this.disclosedContractCache = disclosedContractCache;
+        this.blockingExecutor = blockingExecutor;
     }
 
     @WithSpan
@@ -98,7 +114,10 @@ public class LiquidityTiProcessorService {
                 ? request.maxAgeSeconds
                 : 7200L;
 
-        return holdingPoolService.getByContractId(request.poolCid)
+        // Pair selection (which can wait up to liquidity.consume.wait-ms for the second TI) and the
+        // registry lookups only depend on the pool's instruments, so they run before taking the pool
+        // lane; the lane covers the pool read and the submit.
+        return holdingPoolService.getByContractId(poolCommandSequencer.latestCid(request.poolCid))
                 .thenCompose(poolResult -> {
                     if (poolResult.isErr()) {
                         return completedError(domainError("Pool not found or not visible", poolResult.getErrorUnsafe()));
@@ -111,143 +130,177 @@ public class LiquidityTiProcessorService {
                         return completedError(preconditionError("Pool instruments are missing", Map.of("poolCid", request.poolCid)));
                     }
 
-                    Result<PairSelection, ApiError> selection = awaitPairSelection(
+                    return awaitPairSelection(
                             operator,
                             request.requestId,
                             request.poolCid,
                             pool,
                             maxAgeSeconds
-                    );
-                    if (selection.isErr()) {
-                        return completedError(selection.getErrorUnsafe());
-                    }
-                    PairSelection picked = selection.getValueUnsafe();
-                    Candidate a = picked.candidateA;
-                    Candidate b = picked.candidateB;
-
-                    Instant deadline = picked.deadline;
-                    BigDecimal amountA = picked.amountA;
-                    BigDecimal amountB = picked.amountB;
-
-                    Result<ChoiceContextResult, ApiError> ctxAResult =
-                            choiceContextService.resolveDisclosedContracts(a.transfer.contractId(), pool.instrumentA.admin, request.requestId);
-                    if (ctxAResult.isErr()) {
-                        return completedError(ctxAResult.getErrorUnsafe());
-                    }
-                    Result<ChoiceContextResult, ApiError> ctxBResult =
-                            choiceContextService.resolveDisclosedContracts(b.transfer.contractId(), pool.instrumentB.admin, request.requestId);
-                    if (ctxBResult.isErr()) {
-                        return completedError(ctxBResult.getErrorUnsafe());
-                    }
-                    ChoiceContextResult ctxA = ctxAResult.getValueUnsafe();
-                    ChoiceContextResult ctxB = ctxBResult.getValueUnsafe();
-
-                    List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> disclosed =
-                            mergeDisclosed(ctxA.disclosedContracts(), ctxB.disclosedContracts());
-                    String synchronizerId = firstNonBlank(ctxA.synchronizerId(), ctxB.synchronizerId());
-
-                    String poolIdText = (pool.poolId != null && !pool.poolId.isBlank()) ? pool.poolId : request.poolCid;
-                    LOG.info("[LiquidityConsume] requestId={} operator={} poolCid={} poolIdText={} tiA={} tiB={} amountA={} amountB={} provider={} ctxAKeys={} ctxBKeys={} actAs=[{}]",
-                            request.requestId,
-                            operator,
-                            request.poolCid,
-                            poolIdText,
-                            a.transfer.contractId(),
-                            b.transfer.contractId(),
-                            amountA.toPlainString(),
-                            amountB.toPlainString(),
-                            picked.providerParty,
-                            ctxA.contextKeyCount(),
-                            ctxB.contextKeyCount(),
-                            operator);
-
-                    ValueOuterClass.Record choiceArgs = ValueOuterClass.Record.newBuilder()
-                            .addFields(recordField("provider", partyValue(picked.providerParty)))
-                            .addFields(recordField("tiCidA", contractIdValue(a.transfer.contractId())))
-                            .addFields(recordField("tiCidB", contractIdValue(b.transfer.contractId())))
-                            .addFields(recordField("amountA", numericValue(amountA)))
-                            .addFields(recordField("amountB", numericValue(amountB)))
-                            .addFields(recordField("deadline", timestampValue(deadline)))
-                            .addFields(recordField("poolIdText", textValue(poolIdText)))
-                            .addFields(recordField("acceptExtraArgsA", optionalValue(recordValue(ctxA.extraArgs()))))
-                            .addFields(recordField("acceptExtraArgsB", optionalValue(recordValue(ctxB.extraArgs()))))
-                            .build();
-
-                    return ledgerApi.exerciseRawWithLabel(
-                                    "AddLiquidityFromTransferInstructionsV1",
-                                    holdingPoolTemplateId(),
+                    ).thenCompose(selection -> {
+                        if (selection.isErr()) {
+                            return completedError(selection.getErrorUnsafe());
+                        }
+                        PairSelection picked = selection.getValueUnsafe();
+                        Candidate a = picked.candidateA;
+                        Candidate b = picked.candidateB;
+
+                        Instant deadline = picked.deadline;
+                        BigDecimal amountA = picked.amountA;
+                        BigDecimal amountB = picked.amountB;
+
+                        return choiceContextService.resolvePairAsync(
+                                a.transfer.contractId(), pool.instrumentA.admin,
+                                b.transfer.contractId(), pool.instrumentB.admin,
+                                request.requestId
+                        ).thenCompose(contexts -> {
+                            if (contexts.isErr()) {
+                                return completedError(contexts.getErrorUnsafe());
+                            }
+                            ChoiceContextResult ctxA = contexts.getValueUnsafe().a();
+                            ChoiceContextResult ctxB = contexts.getValueUnsafe().b();
+
+                            List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> disclosed =
+                                    mergeDisclosed(ctxA.disclosedContracts(), ctxB.disclosedContracts());
+                            String synchronizerId = firstNonBlank(ctxA.synchronizerId(), ctxB.synchronizerId());
+
+                            String poolIdText = (pool.poolId != null && !pool.poolId.isBlank()) ? pool.poolId : request.poolCid;
+                            LOG.info("[LiquidityConsume] requestId={} operator={} poolCid={} poolIdText={} tiA={} tiB={} amountA={} amountB={} provider={} ctxAKeys={} ctxBKeys={} actAs=[{}]",
+                                    request.requestId,
+                                    operator,
                                     request.poolCid,
-                                    "AddLiquidityFromTransferInstructionsV1",
-                                    choiceArgs,
-                                    List.of(operator),
-                                    List.of(),
-                                    disclosed,
-                                    synchronizerId
-                            )
-                            .handle((resp, throwable) -> {
-                                if (throwable != null) {
-                                    return Result.<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>err(
-                                            annotateNoSynchronizer(ApiError.of(ErrorCode.LEDGER_REJECTED, throwable.getMessage()),
-                                                    "AddLiquidityFromTransferInstructionsV1",
-                                                    List.of(operator),
-                                                    List.of(),
-                                                    synchronizerId));
-                                }
-                                return Result.<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>ok(resp);
-                            })
-                            .thenCompose((Result<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError> result) -> {
-                                if (result.isErr()) {
-                                    return completedError(result.getErrorUnsafe());
-                                }
-                                CommandServiceOuterClass.SubmitAndWaitForTransactionResponse resp = result.getValueUnsafe();
-                                String updateId = extractUpdateId(resp);
-                                LiquidityOutcome outcome = extractLiquidityOutcome(resp);
-                                if (updateId == null || updateId.isBlank()) {
-                                    return completedError(ApiError.of(ErrorCode.INTERNAL, "AddLiquidity returned no updateId"));
-                                }
-                                if (outcome == null || outcome.newPoolCid == null) {
-                                    return completedError(ApiError.of(ErrorCode.INTERNAL, "AddLiquidity returned no result"));
-                                }
-
-                                LiquidityConsumeResponse response = new LiquidityConsumeResponse();
-                                response.requestId = request.requestId;
-                                response.poolCid = request.poolCid;
-                                response.newPoolCid = outcome.newPoolCid;
-                                response.providerParty = picked.providerParty;
-                                response.lpOwnerParty = picked.providerParty;
-                                response.lpOwnerParty = picked.providerParty;
-                                response.tiCidA = a.transfer.contractId();
-                                response.tiCidB = b.transfer.contractId();
-                                response.amountA = amountA.toPlainString();
-                                response.amountB = amountB.toPlainString();
-                                response.lpMinted = outcome.lpMinted.toPlainString();
-                                response.newReserveA = outcome.newReserveA.toPlainString();
-                                response.newReserveB = outcome.newReserveB.toPlainString();
-                                response.ledgerUpdateId = updateId;
-                                response.executeStatus = "SUCCEEDED";
-
-                                try {
-                                    transactionHistoryService.recordAddLiquidity(
-                                            outcome.newPoolCid,
-                                            outcome.newPoolCid,
-                                            displaySymbol(pool.instrumentA.id),
-                                            displaySymbol(pool.instrumentB.id),
-                                            amountA,
-                                            amountB,
-                                            BigDecimal.ZERO.setScale(SwapConstants.SCALE, RoundingMode.DOWN),
-                                            outcome.lpMinted,
-                                            picked.providerParty
-                                    );
-                                } catch (Exception e) {
-                                    LOG.warn("[LiquidityConsume] Failed to record history: {}", e.getMessage());
-                                }
-
-                                idempotencyService.registerSuccess(request.requestId, request.requestId, updateId, response);
-                                return CompletableFuture.completedFuture(Result.ok(response));
-                            });
+                                    poolIdText,
+                                    a.transfer.contractId(),
+                                    b.transfer.contractId(),
+                                    amountA.toPlainString(),
+                                    amountB.toPlainString(),
+                                    picked.providerParty,
+                                    ctxA.contextKeyCount(),
+                                    ctxB.contextKeyCount(),
+                                    operator);
+
+                            ValueOuterClass.Record choiceArgs = ValueOuterClass.Record.newBuilder()
+                                    .addFields(recordField("provider", partyValue(picked.providerParty)))
+                                    .addFields(recordField("tiCidA", contractIdValue(a.transfer.contractId())))
+                                    .addFields(recordField("tiCidB", contractIdValue(b.transfer.contractId())))
+                                    .addFields(recordField("amountA", numericValue(amountA)))
+                                    .addFields(recordField("amountB", numericValue(amountB)))
+                                    .addFields(recordField("deadline", timestampValue(deadline)))
+                                    .addFields(recordField("poolIdText", textValue(poolIdText)))
+                                    .addFields(recordField("acceptExtraArgsA", optionalValue(recordValue(ctxA.extraArgs()))))
+                                    .addFields(recordField("acceptExtraArgsB", optionalValue(recordValue(ctxB.extraArgs()))))
+                                    .build();
+
+                            return poolCommandSequencer.submit(pool.poolId, request.poolCid, "AddLiquidityFromTransferInstructionsV1", latestPoolCid ->
+                                            submitAddLiquidity(latestPoolCid, pool.poolId, choiceArgs, operator, disclosed, synchronizerId))
+                                    .thenCompose((Result<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError> result) -> {
+                                        if (result.isErr()) {
+                                            choiceContextService.invalidate(a.transfer.contractId());
+                                            choiceContextService.invalidate(b.transfer.contractId());
+                                            return completedError(result.getErrorUnsafe());
+                                        }
+                                        CommandServiceOuterClass.SubmitAndWaitForTransactionResponse resp = result.getValueUnsafe();
+                                        String updateId = extractUpdateId(resp);
+                                        LiquidityOutcome outcome = extractLiquidityOutcome(resp);
+                                        if (updateId == null || updateId.isBlank()) {
+                                            return completedError(ApiError.of(ErrorCode.INTERNAL, "AddLiquidity returned no updateId"));
+                                        }
+                                        if (outcome == null || outcome.newPoolCid == null) {
+                                            return completedError(ApiError.of(ErrorCode.INTERNAL, "AddLiquidity returned no result"));
+                                        }
+
+                                        LiquidityConsumeResponse response = new LiquidityConsumeResponse();
+                                        response.requestId = request.requestId;
+                                        response.poolCid = request.poolCid;
+                                        response.newPoolCid = outcome.newPoolCid;
+                                        response.providerParty = picked.providerParty;
+                                        response.lpOwnerParty = picked.providerParty;
+                                        response.lpOwnerParty = picked.providerParty;
+                                        response.tiCidA = a.transfer.contractId();
+                                        response.tiCidB = b.transfer.contractId();
+                                        response.amountA = amountA.toPlainString();
+                                        response.amountB = amountB.toPlainString();
+                                        response.lpMinted = outcome.lpMinted.toPlainString();
+                                        response.newReserveA = outcome.newReserveA.toPlainString();
+                                        response.newReserveB = outcome.newReserveB.toPlainString();
+                                        response.ledgerUpdateId = updateId;
+                                        response.executeStatus = "SUCCEEDED";
+
+                                        try {
+                                            // Keyed by update id so the ledger history indexer does not record it twice
+                                            transactionHistoryService.recordAddLiquidity(
+                                                    updateId,
+                                                    outcome.newPoolCid,
+                                                    outcome.newPoolCid,
+                                                    displaySymbol(pool.instrumentA.id),
+                                                    displaySymbol(pool.instrumentB.id),
+                                                    amountA,
+                                                    amountB,
+                                                    BigDecimal.ZERO.setScale(SwapConstants.SCALE, RoundingMode.DOWN),
+                                                    outcome.lpMinted,
+                                                    picked.providerParty
+                                            );
+                                        } catch (Exception e) {
+                                            LOG.warn("[LiquidityConsume] Failed to record history: {}", e.getMessage());
+                                        }
+
+                                        idempotencyService.registerSuccess(request.requestId, request.requestId, updateId, response);
+                                        return CompletableFuture.completedFuture(Result.ok(response));
+                                    });
+                        });
+                    });
                 });
     }
 
+    /**
+     * The part of an add that holds the pool lane: read the pool at the latest CID, then exercise.
+     * A failed exercise re-resolves the pool by poolId before the lane moves on.
+     */
+    private CompletableFuture<Result<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>> submitAddLiquidity(
+            String latestPoolCid,
+            String poolId,
+            ValueOuterClass.Record choiceArgs,
+            String operator,
+            List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> disclosed,
+            String synchronizerId
+    ) {
+        return holdingPoolService.getLatest(latestPoolCid, poolId).thenCompose(latest -> {
+            if (latest.isErr()) {
+                return CompletableFuture.completedFuture(
+                        Result.<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>err(
+                                domainError("Pool not found or not visible", latest.getErrorUnsafe())));
+            }
+            HoldingPoolResponse current = latest.getValueUnsafe();
+            if (current.status == null || !"active".equalsIgnoreCase(current.status)) {
+                return CompletableFuture.completedFuture(
+                        Result.<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>err(
+                                preconditionError("Pool is not active", Map.of("status", String.valueOf(current.status)))));
+            }
+            return holdingPoolService.refreshOnFailure(current.contractId, poolId, ledgerApi.exerciseRawWithLabel(
+                            "AddLiquidityFromTransferInstructionsV1",
+                            holdingPoolTemplateId(),
+                            current.contractId,
+                            "AddLiquidityFromTransferInstructionsV1",
+                            choiceArgs,
+                            List.of(operator),
+                            List.of(),
+                            disclosed,
+                            synchronizerId
+                    ))
+                    .handle((resp, throwable) -> {
+                        if (throwable != null) {
+                            return Result.<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>err(
+                                    annotateNoSynchronizer(ApiError.of(ErrorCode.LEDGER_REJECTED, throwable.getMessage()),
+                                            "AddLiquidityFromTransferInstructionsV1",
+                                            List.of(operator),
+                                            List.of(),
+                                            synchronizerId));
+                        }
+                        poolCommandSequencer.observe(resp.getTransaction());
+                        return Result.<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>ok(resp);
+                    });
+        });
+    }
+
     @WithSpan
     public CompletableFuture<Result<LiquidityInspectResponse, ApiError>> inspect(final String requestId, final String poolCid) {
         if (requestId == null || requestId.isBlank()) {
@@ -257,7 +310,7 @@ public class LiquidityTiProcessorService {
         boolean alreadyProcessed = cached instanceof LiquidityConsumeResponse;
 
         String operator = authUtils.getAppProviderPartyId();
-        Result<List<TransferInstructionWithMemo>, DomainError> pending = tiQueryService.listForReceiverWithMemo(operator);
+        Result<List<TransferInstructionWithMemo>, DomainError> pending = tiQueryService.listForReceiverWithMemo(operator, requestId);
         if (pending.isErr()) {
             return CompletableFuture.completedFuture(Result.err(domainError("Failed to query pending TIs", pending.getErrorUnsafe())));
         }
@@ -458,58 +511,70 @@ public class LiquidityTiProcessorService {
         return candidates;
     }
 
-    private Result<PairSelection, ApiError> awaitPairSelection(
+    private CompletableFuture<Result<PairSelection, ApiError>> awaitPairSelection(
             String operator,
             String requestId,
             String poolCid,
             HoldingPoolResponse pool,
             long maxAgeSeconds
     ) {
-        long waitMs = consumeWaitMs;
+        long deadlineMs = System.currentTimeMillis() + Math.max(consumeWaitMs, 0L);
+        return attemptPairSelection(operator, requestId, poolCid, pool, maxAgeSeconds, deadlineMs, 1);
+    }
+
+    /**
+     * One selection attempt. While a leg is missing, wait on the inbox for the next TI carrying this
+     * requestId instead of sleeping; without a live TI index the wait falls back to the poll interval.
+     */
+    private CompletableFuture<Result<PairSelection, ApiError>> attemptPairSelection(
+            String operator,
+            String requestId,
+            String poolCid,
+            HoldingPoolResponse pool,
+            long maxAgeSeconds,
+            long deadlineMs,
+            int attempt
+    ) {
+        long remainingMs = Math.max(0L, deadlineMs - System.currentTimeMillis());
         long pollMs = consumePollMs <= 0 ? 1000L : consumePollMs;
-        long deadlineMs = System.currentTimeMillis() + Math.max(waitMs, 0L);
-        int attempts = 0;
-        ApiError lastMissing = null;
-        while (true) {
-            attempts += 1;
-            Result<List<TransferInstructionWithMemo>, DomainError> pending = tiQueryService.listForReceiverWithMemo(operator);
-            if (pending.isErr()) {
-                return Result.err(domainError("Failed to query pending TIs", pending.getErrorUnsafe()));
-            }
-            Result<PairSelection, ApiError> selection = selectPair(
-                    pending.getValueUnsafe(),
-                    requestId,
-                    poolCid,
-                    pool,
-                    maxAgeSeconds,
-                    operator
-            );
-            if (selection.isOk()) {
-                if (attempts > 1) {
-                    LOG.info("[LiquidityConsume] Found inbound TIs after {} attempts for requestId={}", attempts, requestId);
-                }
-                return selection;
-            }
-            ApiError error = selection.getErrorUnsafe();
-            if (error.code == ErrorCode.MISSING_INBOUND_TIS_FOR_POOL_INSTRUMENT) {
-                lastMissing = error;
-            } else {
-                return selection;
-            }
-            if (waitMs <= 0 || System.currentTimeMillis() >= deadlineMs) {
-                return Result.err(lastMissing != null ? lastMissing : error);
-            }
-            long sleepMs = Math.min(pollMs, Math.max(0L, deadlineMs - System.currentTimeMillis()));
-            if (sleepMs <= 0) {
-                return Result.err(lastMissing != null ? lastMissing : error);
-            }
-            try {
-                Thread.sleep(sleepMs);
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-                return Result.err(lastMissing != null ? lastMissing : error);
+        boolean live = ledgerInbox.isLive(operator);
+        String wakeKey = LedgerInbox.transferInstructionKey(requestId);
+        // Arm before reading so a create landing mid-read still wakes us
+        CompletableFuture<Boolean> wake = ledgerInbox.arm(wakeKey, live ? remainingMs : Math.min(pollMs, remainingMs));
+
+        // Retries after a wake-up read the index only; the first attempt may scan to cover stream lag
+        Optional<List<TransferInstructionWithMemo>> indexed = attempt > 1
+                ? tiQueryService.findIndexedByRequestId(operator, requestId)
+                : Optional.empty();
+        Result<List<TransferInstructionWithMemo>, DomainError> pending = indexed.isPresent()
+                ? Result.ok(indexed.get())
+                : tiQueryService.listForReceiverWithMemo(operator, requestId);
+        if (pending.isErr()) {
+            ledgerInbox.disarm(wakeKey, wake);
+            return CompletableFuture.completedFuture(
+                    Result.err(domainError("Failed to query pending TIs", pending.getErrorUnsafe())));
+        }
+        Result<PairSelection, ApiError> selection = selectPair(
+                pending.getValueUnsafe(),
+                requestId,
+                poolCid,
+                pool,
+                maxAgeSeconds,
+                operator
+        );
+        boolean missing = selection.isErr()
+                && selection.getErrorUnsafe().code == ErrorCode.MISSING_INBOUND_TIS_FOR_POOL_INSTRUMENT;
+        if (!missing || remainingMs <= 0) {
+            ledgerInbox.disarm(wakeKey, wake);
+            if (selection.isOk() && attempt > 1) {
+                LOG.info("[LiquidityConsume] Found inbound TIs after {} attempts for requestId={}", attempt, requestId);
             }
+            return CompletableFuture.completedFuture(selection);
         }
+        // A retry may fall back to a blocking ACS scan, so it runs on the blocking executor
+        return wake.thenCompose(signalled -> blockingExecutor.supply(() ->
+                        attemptPairSelection(operator, requestId, poolCid, pool, maxAgeSeconds, deadlineMs, attempt + 1)))
+                .thenCompose(next -> next);
     }
 
     private String rowMemo(Candidate a, Candidate b) {
@@ -802,22 +867,7 @@ public class LiquidityTiProcessorService {
             List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> a,
             List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> b
     ) {
-        Map<String, com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> byCid = new LinkedHashMap<>();
-        if (a != null) {
-            for (var dc : a) {
-                if (dc != null && !dc.getContractId().isBlank()) {
-                    byCid.putIfAbsent(dc.getContractId(), dc);
-                }
-            }
-        }
-        if (b != null) {
-            for (var dc : b) {
-                if (dc != null && !dc.getContractId().isBlank()) {
-                    byCid.putIfAbsent(dc.getContractId(), dc);
-                }
-            }
-        }
-        return new ArrayList<>(byCid.values());
+        return disclosedContractCache.merge(a, b);
     }
 
     private String firstNonBlank(String... values) {
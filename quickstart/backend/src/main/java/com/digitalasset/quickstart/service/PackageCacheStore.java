@@ -0,0 +1,121 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * PackageCacheStore - On-disk cache of decoded Daml-LF packages for {@link TemplateSchemaService}
+ *
+ * A package id is the hash of the package, so entries are immutable and never invalidated. Each
+ * file holds the already extracted Package payload and its LF major version, which skips the
+ * download, unzip and payload heuristics on the next start. Reads memory-map the file and the
+ * payload is parsed straight from the mapped buffer.
+ *
+ * File layout: magic "DLFC" | LF major (1 byte) | SHA-256 of payload (32 bytes) | payload
+ */
+class PackageCacheStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PackageCacheStore.class);
+
+    private static final byte[] MAGIC = {'D', 'L', 'F', 'C'};
+    private static final int HEADER_BYTES = MAGIC.length + 1 + 32;
+    private static final Pattern SAFE_ID = Pattern.compile("[A-Za-z0-9_-]{1,128}");
+
+    private final Path dir;
+
+    record CachedPackage(int lfMajor, ByteBuffer payload) { }
+
+    PackageCacheStore(Path dir) {
+        this.dir = dir;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            LOG.warn("Package cache directory {} unavailable, packages will be downloaded on each start: {}", dir, e.getMessage());
+        }
+    }
+
+    Optional<CachedPackage> read(String packageId) {
+        Path file = file(packageId);
+        if (file == null || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return corrupt(file, "truncated");
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] magic = new byte[MAGIC.length];
+            mapped.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                return corrupt(file, "bad magic");
+            }
+            int lfMajor = mapped.get();
+            byte[] digest = new byte[32];
+            mapped.get(digest);
+            ByteBuffer payload = mapped.slice();
+            if (!Arrays.equals(digest, sha256(payload.duplicate()))) {
+                return corrupt(file, "checksum mismatch");
+            }
+            return Optional.of(new CachedPackage(lfMajor, payload));
+        } catch (IOException e) {
+            LOG.warn("Failed to read cached package {}: {}", packageId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    void write(String packageId, int lfMajor, byte[] payload) {
+        Path file = file(packageId);
+        if (file == null) {
+            return;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+            out.put(MAGIC).put((byte) lfMajor).put(sha256(ByteBuffer.wrap(payload))).put(payload);
+            Files.write(tmp, out.array());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Failed to cache package {}: {}", packageId, e.getMessage());
+        }
+    }
+
+    private Path file(String packageId) {
+        return packageId != null && SAFE_ID.matcher(packageId).matches() ? dir.resolve(packageId + ".lf") : null;
+    }
+
+    private Optional<CachedPackage> corrupt(Path file, String reason) {
+        LOG.warn("Discarding cached package {} ({})", file.getFileName(), reason);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Overwritten on the next successful download
+        }
+        return Optional.empty();
+    }
+
+    private static byte[] sha256(ByteBuffer data) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(data);
+            return md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -12,9 +12,16 @@ import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -22,6 +29,11 @@ import java.util.concurrent.TimeUnit;
 /**
  * DevNet party registry that resolves display names to fully-qualified party IDs.
  * Periodically refreshes from the ledger's party management API.
+ *
+ * Lookups read an immutable {@link PartySnapshot} that a refresh replaces in one volatile write,
+ * so a refresh never exposes an empty or half-built registry. Parties are listed page by page;
+ * the party management API has no "created since" filter, so every refresh walks the list, but a
+ * new snapshot is only built when the set of parties actually changed.
  */
 @Service
 @Profile("devnet")
@@ -35,8 +47,11 @@ public class PartyRegistryService {
     @Value("${canton.ledger.port:5001}")
     private int ledgerPort;
 
-    private final Map<String, String> byName = new ConcurrentHashMap<>();
-    private final Map<String, String> byId = new ConcurrentHashMap<>();
+    @Value("${canton.party-registry.page-size:1000}")
+    private int pageSize;
+
+    private volatile PartySnapshot snapshot = PartySnapshot.EMPTY;
+    private volatile Set<String> localParties = Set.of();
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
     private ManagedChannel channel;
@@ -70,7 +85,8 @@ public class PartyRegistryService {
 
     /**
      * Resolve a party name or ID to a fully-qualified party ID.
-     * @param nameOrId Display name (e.g., "Alice", "PoolOperator") or fully-qualified ID
+     * @param nameOrId Display name (e.g., "Alice", "PoolOperator"), party hint or a unique prefix of
+     *                 one (e.g., "Alice-9cef"), or fully-qualified ID
      * @return Fully-qualified party ID if found
      */
     public Optional<String> resolve(String nameOrId) {
@@ -78,22 +94,21 @@ public class PartyRegistryService {
             return Optional.empty();
         }
 
-        // If it's already a fully-qualified ID, return it
-        if (byId.containsKey(nameOrId)) {
-            return Optional.of(nameOrId);
-        }
-
-        // Try to resolve by display name
-        String normalized = normalize(nameOrId);
-        String fullyQualified = byName.get(normalized);
-
-        if (fullyQualified != null) {
-            logger.debug("Resolved '{}' -> '{}'", nameOrId, fullyQualified);
-            return Optional.of(fullyQualified);
+        Optional<String> resolved = snapshot.resolve(nameOrId);
+        if (resolved.isPresent()) {
+            logger.debug("Resolved '{}' -> '{}'", nameOrId, resolved.get());
+        } else {
+            logger.warn("Failed to resolve party: '{}'", nameOrId);
         }
+        return resolved;
+    }
 
-        logger.warn("Failed to resolve party: '{}'", nameOrId);
-        return Optional.empty();
+    /**
+     * Whether {@code partyId} is the exact ID of a party hosted on this participant. Unlike
+     * {@link #resolve(String)} this does no name or prefix matching.
+     */
+    public boolean isLocalParty(String partyId) {
+        return partyId != null && localParties.contains(partyId);
     }
 
     /**
@@ -101,51 +116,37 @@ public class PartyRegistryService {
      */
     private void refresh() {
         try {
-            var request = PartyManagementServiceOuterClass.ListKnownPartiesRequest.newBuilder().build();
-            var response = partyMgmtStub.listKnownParties(request);
-
-            int localCount = 0;
-            int totalCount = 0;
-
-            byName.clear();
-            byId.clear();
-
-            for (var partyDetails : response.getPartyDetailsList()) {
-                String partyId = partyDetails.getParty();
-                boolean isLocal = partyDetails.getIsLocal();
-
-                totalCount++;
-                if (isLocal) {
-                    localCount++;
-                }
-
-                // Always store by ID (idempotent)
-                byId.put(partyId, partyId);
-
-                // Store by party hint (short prefix before ::)
-                // e.g., "Alice-9cefe94d::1220..." -> store "Alice-9cefe94d" and "alice" mappings
-                int separatorIdx = partyId.indexOf("::");
-                if (separatorIdx > 0) {
-                    String hint = partyId.substring(0, separatorIdx);
-                    byName.put(normalize(hint), partyId);
-
-                    // Also store just the name part without the hash
-                    // e.g., "Alice-9cefe94d" -> "alice"
-                    int dashIdx = hint.indexOf('-');
-                    if (dashIdx > 0) {
-                        String nameOnly = hint.substring(0, dashIdx);
-                        byName.put(normalize(nameOnly), partyId);
+            List<String> partyIds = new ArrayList<>();
+            Set<String> localIds = new HashSet<>();
+            String pageToken = "";
+            do {
+                var request = PartyManagementServiceOuterClass.ListKnownPartiesRequest.newBuilder()
+                        .setPageSize(pageSize)
+                        .setPageToken(pageToken)
+                        .build();
+                var response = partyMgmtStub.listKnownParties(request);
+                for (var partyDetails : response.getPartyDetailsList()) {
+                    partyIds.add(partyDetails.getParty());
+                    if (partyDetails.getIsLocal()) {
+                        localIds.add(partyDetails.getParty());
+                        logger.debug("Registered local party: {}", partyDetails.getParty());
                     }
                 }
-
-                if (isLocal) {
-                    logger.debug("Registered local party: {}", partyId);
-                }
+                pageToken = response.getNextPageToken();
+            } while (!pageToken.isEmpty());
+
+            localParties = Set.copyOf(localIds);
+            PartySnapshot current = snapshot;
+            if (current.hasSameParties(partyIds)) {
+                logger.debug("Party registry unchanged: {} parties", partyIds.size());
+                return;
             }
-
-            logger.info("Refreshed party registry: {} local parties, {} total parties", localCount, totalCount);
+            snapshot = PartySnapshot.build(partyIds);
+            logger.info("Refreshed party registry: {} local parties, {} total parties (was {})",
+                    localIds.size(), partyIds.size(), current.size());
 
         } catch (Exception e) {
+            // Keep serving the previous snapshot
             logger.error("Failed to refresh party registry", e);
         }
     }
@@ -158,7 +159,7 @@ public class PartyRegistryService {
         }
     }
 
-    private String normalize(String s) {
+    private static String normalize(String s) {
         return s.trim().toLowerCase();
     }
 
@@ -166,6 +167,93 @@ public class PartyRegistryService {
      * Get all registered party IDs (for debugging).
      */
     public Map<String, String> getAllMappings() {
-        return Map.copyOf(byName);
+        return snapshot.byName;
+    }
+
+    /**
+     * Immutable view of the known parties.
+     *
+     * Names: the party hint before "::" ("Alice-9cefe94d") and the name before the first dash
+     * ("alice"), normalized. Hints are also kept sorted, so a prefix of a hint resolves by binary
+     * search when it matches exactly one party.
+     */
+    static final class PartySnapshot {
+        static final PartySnapshot EMPTY = new PartySnapshot(Set.of(), Map.of(), new String[0], new String[0]);
+
+        private final Set<String> ids;
+        private final Map<String, String> byName;
+        private final String[] sortedHints;
+        private final String[] hintParties;
+
+        private PartySnapshot(Set<String> ids, Map<String, String> byName, String[] sortedHints, String[] hintParties) {
+            this.ids = ids;
+            this.byName = byName;
+            this.sortedHints = sortedHints;
+            this.hintParties = hintParties;
+        }
+
+        static PartySnapshot build(Collection<String> partyIds) {
+            Set<String> ids = new LinkedHashSet<>(partyIds);
+            Map<String, String> byName = new HashMap<>();
+            Map<String, String> byHint = new HashMap<>();
+            for (String partyId : ids) {
+                // e.g., "Alice-9cefe94d::1220..." -> store "alice-9cefe94d" and "alice" mappings
+                int separatorIdx = partyId.indexOf("::");
+                if (separatorIdx > 0) {
+                    String hint = normalize(partyId.substring(0, separatorIdx));
+                    byName.put(hint, partyId);
+                    byHint.put(hint, partyId);
+
+                    int dashIdx = hint.indexOf('-');
+                    if (dashIdx > 0) {
+                        byName.put(hint.substring(0, dashIdx), partyId);
+                    }
+                }
+            }
+            String[] sortedHints = byHint.keySet().toArray(new String[0]);
+            Arrays.sort(sortedHints);
+            String[] hintParties = new String[sortedHints.length];
+            for (int i = 0; i < sortedHints.length; i++) {
+                hintParties[i] = byHint.get(sortedHints[i]);
+            }
+            return new PartySnapshot(Set.copyOf(ids), Map.copyOf(byName), sortedHints, hintParties);
+        }
+
+        int size() {
+            return ids.size();
+        }
+
+        boolean hasSameParties(Collection<String> partyIds) {
+            return partyIds.size() == ids.size() && ids.containsAll(partyIds);
+        }
+
+        Optional<String> resolve(String nameOrId) {
+            // If it's already a fully-qualified ID, return it
+            if (ids.contains(nameOrId)) {
+                return Optional.of(nameOrId);
+            }
+
+            String normalized = normalize(nameOrId);
+            String fullyQualified = byName.get(normalized);
+            if (fullyQualified != null) {
+                return Optional.of(fullyQualified);
+            }
+
+            // Partial hint: the full display name plus the start of the hash, matching one party only
+            if (normalized.indexOf('-') > 0) {
+                return uniquePrefixMatch(normalized);
+            }
+            return Optional.empty();
+        }
+
+        private Optional<String> uniquePrefixMatch(String prefix) {
+            int i = Arrays.binarySearch(sortedHints, prefix);
+            int first = i >= 0 ? i : -i - 1;
+            if (first >= sortedHints.length || !sortedHints[first].startsWith(prefix)) {
+                return Optional.empty();
+            }
+            boolean ambiguous = first + 1 < sortedHints.length && sortedHints[first + 1].startsWith(prefix);
+            return ambiguous ? Optional.empty() : Optional.of(hintParties[first]);
+        }
     }
 }
@@ -12,11 +12,15 @@ import com.digitalasset.quickstart.config.RegistryRoutingConfig;
 import com.digitalasset.quickstart.config.TemplateSchemaDebugConfig;
 import com.digitalasset.quickstart.constants.SwapConstants;
 import com.digitalasset.quickstart.dto.ApiError;
+import com.digitalasset.quickstart.dto.BulkPayoutRequest;
+import com.digitalasset.quickstart.dto.BulkPayoutResponse;
 import com.digitalasset.quickstart.dto.ErrorCode;
 import com.digitalasset.quickstart.dto.HoldingSelectRequest;
 import com.digitalasset.quickstart.dto.HoldingSelectResponse;
+import com.digitalasset.quickstart.dto.HoldingUtxoDto;
 import com.digitalasset.quickstart.dto.PayoutRequest;
 import com.digitalasset.quickstart.dto.PayoutResponse;
+import com.digitalasset.quickstart.ledger.DisclosedContractCache;
 import com.digitalasset.quickstart.ledger.LedgerApi;
 import com.digitalasset.quickstart.security.AuthUtils;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -36,16 +40,20 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * DEVNET-only payout factory for outbound Amulet and CBTC instructions.
  * Uses TemplateSchemaService to deterministically build create arguments (no guessing order).
+ * Every step (holding selection, registry call, ledger submission) is chained asynchronously;
+ * nothing here blocks the calling thread.
  */
 @Service
 public class PayoutService {
@@ -78,15 +86,25 @@ public class PayoutService {
     private final TemplateSchemaDebugConfig schemaConfig;
     private final String amuletChoiceName;
     private final LedgerConfig ledgerConfig;
+    private final DisclosedContractCache disclosedContractCache;
     private final HttpClient httpClient;
     private final ObjectMapper mapper = new ObjectMapper();
 
+    @org.springframework.beans.factory.annotation.Value("${payout.bulk.max-items:200}")
+    private int bulkMaxItems;
+    @org.springframework.beans.factory.annotation.Value("${payout.bulk.max-commands:20}")
+    private int bulkMaxCommands;
+
+    @org.springframework.beans.factory.annotation.Value("${clearportx.packages.prewarm:true}")
+    private boolean prewarmPackages;
+
     public PayoutService(LedgerApi ledgerApi,
                          TemplateSchemaService schemaService,
                          HoldingSelectorService holdingSelectorService,
                          AuthUtils authUtils,
                          TemplateSchemaDebugConfig schemaConfig,
                          LedgerConfig ledgerConfig,
+                         DisclosedContractCache disclosedContractCache,
                          @org.springframework.beans.factory.annotation.Value("${feature.amulet-payout-choice:}") String amuletChoiceName) {
         this.ledgerApi = ledgerApi;
         this.schemaService = schemaService;
@@ -94,6 +112,7 @@ public class PayoutService {
         this.authUtils = authUtils;
         this.schemaConfig = schemaConfig;
         this.ledgerConfig = ledgerConfig;
+        this.disclosedContractCache = disclosedContractCache;
         this.amuletChoiceName = amuletChoiceName;
         this.httpClient = HttpClient.newHttpClient();
     }
@@ -102,25 +121,35 @@ public class PayoutService {
         return schemaConfig.isEnabled();
     }
 
+    /**
+     * Load the packages whose layouts payouts are built from before the first payout asks for them.
+     * Only when schema-driven payouts are enabled; the loading itself runs on the schema service's
+     * prewarm thread, so startup does not wait for it.
+     */
+    @org.springframework.context.event.EventListener(org.springframework.boot.context.event.ApplicationReadyEvent.class)
+    public void prewarmSchemas() {
+        if (prewarmPackages && schemaConfig.isEnabled()) {
+            schemaService.prewarm(List.of(TRANSFER_INSTRUCTION_PKG, AMULET_PKG, CBTC_PKG));
+        }
+    }
+
     @WithSpan
-    public Result<PayoutResponse, ApiError> createAmuletPayout(PayoutRequest request, String requestId) {
+    public CompletableFuture<Result<PayoutResponse, ApiError>> createAmuletPayout(PayoutRequest request, String requestId) {
         return createAmuletViaHoldingChoice(request, requestId);
     }
 
     @WithSpan
-    public Result<PayoutResponse, ApiError> createCbtcPayout(PayoutRequest request, String requestId) {
-        Result<PayoutResponse, ApiError> viaFactory = createPayoutViaTransferFactory(request, InstrumentConfig.cbtc(), requestId);
-        if (viaFactory.isOk()) {
-            return viaFactory;
-        }
-        if (isRegistryUrlNotConfigured(viaFactory.getErrorUnsafe())) {
-            return createPayout(request, InstrumentConfig.cbtc(), requestId);
-        }
-        return viaFactory;
+    public CompletableFuture<Result<PayoutResponse, ApiError>> createCbtcPayout(PayoutRequest request, String requestId) {
+        return createPayoutViaTransferFactory(request, InstrumentConfig.cbtc(), requestId).thenCompose(viaFactory -> {
+            if (viaFactory.isErr() && isRegistryUrlNotConfigured(viaFactory.getErrorUnsafe())) {
+                return createPayout(request, InstrumentConfig.cbtc(), requestId);
+            }
+            return CompletableFuture.completedFuture(viaFactory);
+        });
     }
 
     @WithSpan
-    public Result<TransferFactoryPlan, ApiError> prepareTransferFactory(
+    public CompletableFuture<Result<TransferFactoryPlan, ApiError>> prepareTransferFactory(
             String instrumentAdmin,
             String instrumentId,
             String holdingCid,
@@ -131,7 +160,7 @@ public class PayoutService {
             String requestId
     ) {
         if (!schemaConfig.isEnabled()) {
-            return Result.err(new ApiError(
+            return completedErr(new ApiError(
                     ErrorCode.PRECONDITION_FAILED,
                     "Template schema debug is disabled",
                     Map.of("flag", "feature.enable-template-schema-debug"),
@@ -141,7 +170,7 @@ public class PayoutService {
             ));
         }
         if (holdingCid == null || holdingCid.isBlank()) {
-            return Result.err(new ApiError(
+            return completedErr(new ApiError(
                     ErrorCode.VALIDATION,
                     "holdingCid is required",
                     Map.of("field", "holdingCid"),
@@ -151,7 +180,7 @@ public class PayoutService {
             ));
         }
         if (receiverParty == null || receiverParty.isBlank()) {
-            return Result.err(new ApiError(
+            return completedErr(new ApiError(
                     ErrorCode.VALIDATION,
                     "receiverParty is required",
                     Map.of("field", "receiverParty"),
@@ -161,7 +190,7 @@ public class PayoutService {
             ));
         }
         if (instrumentAdmin == null || instrumentAdmin.isBlank() || instrumentId == null || instrumentId.isBlank()) {
-            return Result.err(new ApiError(
+            return completedErr(new ApiError(
                     ErrorCode.VALIDATION,
                     "instrument is required",
                     Map.of("field", "instrumentId"),
@@ -171,7 +200,7 @@ public class PayoutService {
             ));
         }
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-            return Result.err(new ApiError(
+            return completedErr(new ApiError(
                     ErrorCode.VALIDATION,
                     "amount must be positive",
                     Map.of("field", "amount"),
@@ -181,7 +210,7 @@ public class PayoutService {
             ));
         }
         if (executeBefore == null) {
-            return Result.err(new ApiError(
+            return completedErr(new ApiError(
                     ErrorCode.VALIDATION,
                     "executeBefore is required",
                     Map.of("field", "executeBefore"),
@@ -212,12 +241,12 @@ public class PayoutService {
         Map<String, Object> payloadBody = Map.of("choiceArguments", recordToJson(transferFactoryArg));
         Result<String, ApiError> payloadJson = toJsonSafe(payloadBody);
         if (payloadJson.isErr()) {
-            return Result.err(payloadJson.getErrorUnsafe());
+            return completedErr(payloadJson.getErrorUnsafe());
         }
 
         String url = resolveTransferFactoryUrl(instrumentAdmin);
         if (url == null || url.isBlank()) {
-            return Result.err(new ApiError(
+            return completedErr(new ApiError(
                     ErrorCode.PRECONDITION_FAILED,
                     "Transfer factory registry URL not configured",
                     Map.of("instrumentAdmin", instrumentAdmin, "instrumentId", instrumentId),
@@ -235,10 +264,10 @@ public class PayoutService {
             req.header(ledgerConfig.getRegistryAuthHeader(), ledgerConfig.getRegistryAuthToken());
         }
 
-        return await(
+        return attempt(
                 httpClient.sendAsync(req.build(), HttpResponse.BodyHandlers.ofString()),
                 ex -> internalError("Transfer factory registry call failed", ex, Map.of("url", url))
-        ).flatMap(resp -> {
+        ).thenApply(sent -> sent.flatMap(resp -> {
             if (resp.statusCode() / 100 != 2) {
                 return Result.err(mapRegistryHttpError(resp.statusCode(), resp.body(), url, null));
             }
@@ -292,12 +321,276 @@ public class PayoutService {
                     .findFirst()
                     .orElse(null);
             return Result.ok(new TransferFactoryPlan(factoryCid, extraArgs, disclosed, synchronizerId));
+        }));
+    }
+
+    /**
+     * Pay out many transfers with as few registry and ledger round trips as possible.
+     *
+     * Items are grouped by instrument. Each group selects distinct holdings with one holdings query,
+     * fetches the transfer-factory context once per receiver and exercises TransferFactory_Transfer for up to
+     * {@code payout.bulk.max-commands} items per transaction. A receiver without a context, or a chunk the
+     * ledger rejects, is paid item by item through the single-payout path, so one bad item does not fail
+     * its neighbours.
+     */
+    @WithSpan
+    public CompletableFuture<Result<BulkPayoutResponse, ApiError>> createBulkPayout(BulkPayoutRequest request, String requestId) {
+        if (request == null || request.payouts == null || request.payouts.isEmpty()) {
+            return completedErr(validationError("payouts must not be empty", Map.of("field", "payouts")));
+        }
+        if (request.payouts.size() > bulkMaxItems) {
+            return completedErr(validationError("too many payouts", Map.of("field", "payouts", "max", bulkMaxItems)));
+        }
+        if (!schemaConfig.isEnabled()) {
+            return completedErr(new ApiError(
+                    ErrorCode.PRECONDITION_FAILED,
+                    "Template schema debug is disabled",
+                    Map.of("flag", "feature.enable-template-schema-debug"),
+                    false,
+                    null,
+                    null
+            ));
+        }
+
+        List<BulkPayoutResponse.Item> results = new ArrayList<>(Collections.nCopies(request.payouts.size(), null));
+        Map<InstrumentConfig, List<BulkItem>> groups = new java.util.LinkedHashMap<>();
+        for (int i = 0; i < request.payouts.size(); i++) {
+            BulkPayoutRequest.Item item = request.payouts.get(i);
+            InstrumentConfig cfg = item != null ? InstrumentConfig.forId(item.instrumentId) : null;
+            if (cfg == null) {
+                results.set(i, BulkPayoutResponse.Item.failed(i, validationError(
+                        "Unsupported instrument", Map.of("field", "instrumentId"))));
+                continue;
+            }
+            Result<ValidatedRequest, ApiError> validated = validateRequest(item.toPayoutRequest());
+            if (validated.isErr()) {
+                results.set(i, BulkPayoutResponse.Item.failed(i, validated.getErrorUnsafe()));
+                continue;
+            }
+            groups.computeIfAbsent(cfg, k -> new ArrayList<>()).add(new BulkItem(i, item, validated.getValueUnsafe()));
+        }
+
+        AtomicInteger submissions = new AtomicInteger();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        groups.forEach((cfg, items) -> pending.add(
+                payoutGroup(cfg, items, requestId, submissions).thenAccept(groupResults -> groupResults.forEach(r -> results.set(r.index(), r)))));
+
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            long failed = results.stream().filter(r -> r.error() != null).count();
+            LOG.info("[PayoutService] [requestId={}] Bulk payout items={} groups={} ledgerSubmissions={} failed={}",
+                    requestId, results.size(), groups.size(), submissions.get(), failed);
+            return Result.ok(new BulkPayoutResponse(results, groups.size(), submissions.get()));
         });
     }
 
-    private Result<PayoutResponse, ApiError> createAmuletViaHoldingChoice(PayoutRequest request, String requestId) {
+    private CompletableFuture<List<BulkPayoutResponse.Item>> payoutGroup(
+            InstrumentConfig cfg,
+            List<BulkItem> items,
+            String requestId,
+            AtomicInteger submissions
+    ) {
+        String operator = authUtils.getAppProviderPartyId();
+        List<BigDecimal> amounts = items.stream().map(it -> it.vr.amount()).toList();
+        return holdingSelectorService.selectDistinctHoldings(operator, cfg.admin, cfg.id, amounts).thenCompose(selection -> {
+            if (selection.isErr()) {
+                ApiError error = new ApiError(ErrorCode.INTERNAL, "Holding selection failed: " + selection.getErrorUnsafe().message(),
+                        Map.of("instrumentId", cfg.id), false, null, null);
+                return CompletableFuture.completedFuture(items.stream().map(it -> BulkPayoutResponse.Item.failed(it.index, error)).toList());
+            }
+            List<BulkPayoutResponse.Item> failures = new ArrayList<>();
+            List<BulkItem> funded = new ArrayList<>();
+            for (int k = 0; k < items.size(); k++) {
+                BulkItem it = items.get(k);
+                Optional<HoldingUtxoDto> holding = selection.getValueUnsafe().get(k);
+                if (holding.isEmpty()) {
+                    failures.add(BulkPayoutResponse.Item.failed(it.index, new ApiError(
+                            ErrorCode.NOT_FOUND,
+                            "No suitable holding found",
+                            Map.of("instrumentAdmin", cfg.admin, "instrumentId", cfg.id, "amount", it.vr.amountText()),
+                            false,
+                            null,
+                            null
+                    )));
+                } else {
+                    funded.add(it.withHolding(holding.get().contractId));
+                }
+            }
+            if (funded.isEmpty()) {
+                return CompletableFuture.completedFuture(failures);
+            }
+
+            // The registry's factory context can depend on the receiver (e.g. its transfer preapproval),
+            // so fetch it once per receiver, for that receiver's total
+            Map<String, List<BulkItem>> byReceiver = new java.util.LinkedHashMap<>();
+            funded.forEach(it -> byReceiver.computeIfAbsent(it.vr.receiverParty(), r -> new ArrayList<>()).add(it));
+            Map<String, CompletableFuture<Result<TransferFactoryPlan, ApiError>>> plans = new java.util.LinkedHashMap<>();
+            byReceiver.forEach((receiver, receiverItems) -> {
+                BulkItem first = receiverItems.get(0);
+                BigDecimal total = receiverItems.stream().map(it -> it.vr.amount()).reduce(BigDecimal.ZERO, BigDecimal::add);
+                plans.put(receiver, prepareTransferFactory(cfg.admin, cfg.id, first.holdingCid, receiver, total,
+                        first.vr.executeBefore(), first.vr.memo(), requestId));
+            });
+            return CompletableFuture.allOf(plans.values().toArray(new CompletableFuture[0])).thenCompose(ignored -> {
+                Map<String, TransferFactoryPlan> receiverPlans = new java.util.HashMap<>();
+                List<BulkItem> planned = new ArrayList<>();
+                List<BulkItem> unplanned = new ArrayList<>();
+                byReceiver.forEach((receiver, receiverItems) -> {
+                    Result<TransferFactoryPlan, ApiError> plan = plans.get(receiver).join();
+                    if (plan.isErr()) {
+                        LOG.warn("[PayoutService] [requestId={}] Bulk {} context for {} unavailable ({}), paying its items individually",
+                                requestId, cfg.id, receiver, plan.getErrorUnsafe().message);
+                        unplanned.addAll(receiverItems);
+                    } else {
+                        receiverPlans.put(receiver, plan.getValueUnsafe());
+                        planned.addAll(receiverItems);
+                    }
+                });
+                List<CompletableFuture<List<BulkPayoutResponse.Item>>> chunks = new ArrayList<>();
+                for (int from = 0; from < planned.size(); from += bulkMaxCommands) {
+                    List<BulkItem> chunk = planned.subList(from, Math.min(from + bulkMaxCommands, planned.size()));
+                    chunks.add(submitBulkChunk(cfg, chunk, receiverPlans, operator, requestId, submissions));
+                }
+                if (!unplanned.isEmpty()) {
+                    chunks.add(payIndividually(cfg, unplanned, requestId, submissions));
+                }
+                return collect(chunks);
+            }).thenApply(paid -> {
+                List<BulkPayoutResponse.Item> all = new ArrayList<>(failures);
+                all.addAll(paid);
+                return all;
+            });
+        });
+    }
+
+    private CompletableFuture<List<BulkPayoutResponse.Item>> submitBulkChunk(
+            InstrumentConfig cfg,
+            List<BulkItem> chunk,
+            Map<String, TransferFactoryPlan> receiverPlans,
+            String operator,
+            String requestId,
+            AtomicInteger submissions
+    ) {
+        TemplateSchemaService.DataTypeAst tfAst = schemaService.getDataTypeAst(
+                TRANSFER_INSTRUCTION_PKG,
+                TRANSFER_INSTRUCTION_MODULE,
+                TRANSFER_FACTORY_ARG
+        );
+        ValueOuterClass.Identifier interfaceId = ValueOuterClass.Identifier.newBuilder()
+                .setPackageId(TRANSFER_FACTORY_INTERFACE_PKG)
+                .setModuleName(TRANSFER_INSTRUCTION_MODULE)
+                .setEntityName(TRANSFER_FACTORY_ENTITY)
+                .build();
+        List<CommandsOuterClass.Command> commands = new ArrayList<>(chunk.size());
+        List<List<CommandsOuterClass.DisclosedContract>> disclosures = new ArrayList<>();
+        List<String> synchronizerIds = new ArrayList<>();
+        for (TransferFactoryPlan plan : new java.util.LinkedHashSet<>(chunk.stream().map(it -> receiverPlans.get(it.vr.receiverParty())).toList())) {
+            disclosures.add(plan.disclosedContracts());
+            synchronizerIds.add(plan.synchronizerId());
+        }
+        List<CommandsOuterClass.DisclosedContract> disclosed = disclosedContractCache.mergeAll(disclosures);
+        String synchronizerId = synchronizerIds.stream().filter(id -> id != null && !id.isBlank()).findFirst().orElse(null);
+        for (BulkItem it : chunk) {
+            TransferFactoryPlan plan = receiverPlans.get(it.vr.receiverParty());
+            ValueOuterClass.Record transferFactoryArg = replaceRecordField(
+                    buildRecordFromDataTypeAst(tfAst, new BuildContext(
+                            operator,
+                            it.vr.receiverParty(),
+                            cfg.admin,
+                            cfg.id,
+                            it.vr.amountText(),
+                            it.vr.executeBefore(),
+                            it.vr.memo(),
+                            it.holdingCid
+                    )),
+                    "extraArgs",
+                    ValueOuterClass.Value.newBuilder().setRecord(plan.extraArgs()).build()
+            );
+            commands.add(CommandsOuterClass.Command.newBuilder()
+                    .setExercise(CommandsOuterClass.ExerciseCommand.newBuilder()
+                            .setTemplateId(interfaceId)
+                            .setContractId(plan.factoryCid())
+                            .setChoice(TRANSFER_FACTORY_CHOICE)
+                            .setChoiceArgument(ValueOuterClass.Value.newBuilder().setRecord(transferFactoryArg).build())
+                            .build())
+                    .build());
+        }
+
+        submissions.incrementAndGet();
+        return ledgerApi.exerciseRawBatchWithLabel(
+                        "BulkPayout",
+                        commands,
+                        List.of(operator),
+                        List.of(operator),
+                        disclosed,
+                        synchronizerId
+                )
+                .handle((resp, ex) -> {
+                    if (ex != null) {
+                        ApiError error = mapLedgerError("Ledger rejected bulk payout", ex, Map.of("choice", TRANSFER_FACTORY_CHOICE));
+                        if (!isDefiniteRejection(ex)) {
+                            // Outcome unknown (timeout/unavailable): the batch may have committed, so do not pay again
+                            return CompletableFuture.completedFuture(chunk.stream()
+                                    .map(it -> BulkPayoutResponse.Item.failed(it.index, error))
+                                    .toList());
+                        }
+                        LOG.warn("[PayoutService] [requestId={}] Bulk payout chunk of {} {} rejected ({}), paying items individually",
+                                requestId, chunk.size(), cfg.id, error.grpcDescription != null ? error.grpcDescription : error.message);
+                        return payIndividually(cfg, chunk, requestId, submissions);
+                    }
+                    TransactionOuterClass.Transaction txn = resp.getTransaction();
+                    List<Optional<String>> created = firstCreatedPerRootExercise(txn);
+                    List<BulkPayoutResponse.Item> paid = new ArrayList<>(chunk.size());
+                    for (int k = 0; k < chunk.size(); k++) {
+                        BulkItem it = chunk.get(k);
+                        TransferFactoryPlan plan = receiverPlans.get(it.vr.receiverParty());
+                        String cid = k < created.size() ? created.get(k).orElse(null) : null;
+                        paid.add(BulkPayoutResponse.Item.paid(it.index, new PayoutResponse(
+                                cid,
+                                txn.getUpdateId(),
+                                it.vr.executeBefore().toString(),
+                                operator,
+                                it.vr.receiverParty(),
+                                cfg.admin,
+                                cfg.id,
+                                it.vr.amountText(),
+                                it.vr.memo(),
+                                plan.factoryCid(),
+                                plan.disclosedContracts().size()
+                        )));
+                    }
+                    LOG.info("[PayoutService] [requestId={}] Bulk payout instrument={} items={} updateId={}",
+                            requestId, cfg.id, chunk.size(), txn.getUpdateId());
+                    return CompletableFuture.completedFuture(paid);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<List<BulkPayoutResponse.Item>> payIndividually(
+            InstrumentConfig cfg,
+            List<BulkItem> items,
+            String requestId,
+            AtomicInteger submissions
+    ) {
+        String operator = authUtils.getAppProviderPartyId();
+        List<CompletableFuture<List<BulkPayoutResponse.Item>>> each = new ArrayList<>(items.size());
+        for (BulkItem it : items) {
+            submissions.incrementAndGet();
+            each.add(createViaTransferFactory(it.vr, it.holdingCid, operator, cfg, requestId + "-" + it.index, null)
+                    .thenApply(result -> List.of(result.isOk()
+                            ? BulkPayoutResponse.Item.paid(it.index, result.getValueUnsafe())
+                            : BulkPayoutResponse.Item.failed(it.index, result.getErrorUnsafe()))));
+        }
+        return collect(each);
+    }
+
+    private static <T> CompletableFuture<List<T>> collect(List<CompletableFuture<List<T>>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> futures.stream().flatMap(f -> f.join().stream()).toList());
+    }
+
+    private CompletableFuture<Result<PayoutResponse, ApiError>> createAmuletViaHoldingChoice(PayoutRequest request, String requestId) {
         if (!schemaConfig.isEnabled()) {
-            return Result.err(new ApiError(
+            return completedErr(new ApiError(
                     ErrorCode.PRECONDITION_FAILED,
                     "Template schema debug is disabled",
                     Map.of("flag", "feature.enable-template-schema-debug"),
@@ -309,7 +602,7 @@ public class PayoutService {
 
         Result<ValidatedRequest, ApiError> validated = validateRequest(request);
         if (validated.isErr()) {
-            return Result.err(validated.getErrorUnsafe());
+            return completedErr(validated.getErrorUnsafe());
         }
         ValidatedRequest vr = validated.getValueUnsafe();
 
@@ -323,12 +616,12 @@ public class PayoutService {
                 0
         );
 
-        return await(
+        return andThen(attempt(
                 holdingSelectorService.selectHoldingOnce(selectReq),
                 ex -> internalError("Holding selection failed", ex, Map.of("instrumentId", AMULET_ID))
-        ).flatMap(selection -> {
+        ), selection -> {
             if (!selection.found()) {
-                return Result.err(new ApiError(
+                return completedErr(new ApiError(
                         ErrorCode.NOT_FOUND,
                         "No suitable holding found",
                         Map.of(
@@ -343,16 +636,16 @@ public class PayoutService {
             }
 
             String holdingCid = selection.holdingCid();
-            return await(
+            return andThen(attempt(
                     ledgerApi.getActiveContractsRawForParty(operator),
                     ex -> internalError("Failed to load active contracts", ex, Map.of("party", operator))
-            ).flatMap(acs -> {
+            ), acs -> {
                 LedgerApi.RawActiveContract rac = acs.stream()
                         .filter(c -> holdingCid.equals(c.contractId()))
                         .findFirst()
                         .orElse(null);
                 if (rac == null) {
-                    return Result.err(new ApiError(
+                    return completedErr(new ApiError(
                             ErrorCode.NOT_FOUND,
                             "Holding contract not visible in ACS",
                             Map.of("holdingCid", holdingCid),
@@ -381,11 +674,11 @@ public class PayoutService {
                         holdingCid
                 ));
                 if (choiceArgsResult.isErr()) {
-                    return Result.err(choiceArgsResult.getErrorUnsafe());
+                    return completedErr(choiceArgsResult.getErrorUnsafe());
                 }
                 ValueOuterClass.Record choiceArgs = choiceArgsResult.getValueUnsafe();
 
-                return await(
+                return attempt(
                         ledgerApi.exerciseRawWithLabel(
                                 "Payout",
                                 templateId,
@@ -401,7 +694,7 @@ public class PayoutService {
                                 "template", templateId.getModuleName() + ":" + templateId.getEntityName(),
                                 "choice", chosen.name()
                         ))
-                ).map(resp -> {
+                ).thenApply(exercised -> exercised.map(resp -> {
                     String cid = firstCreated(resp.getTransaction()).orElse(null);
                     LOG.info("[PayoutService] [requestId={}] Amulet payout via holding choice={} cid={} updateId={}",
                             requestId, chosen.name(), cid, resp.getTransaction().getUpdateId());
@@ -418,14 +711,14 @@ public class PayoutService {
                             null,
                             null
                     );
-                });
+                }));
             });
         });
     }
 
-    private Result<PayoutResponse, ApiError> createPayout(PayoutRequest request, InstrumentConfig cfg, String requestId) {
+    private CompletableFuture<Result<PayoutResponse, ApiError>> createPayout(PayoutRequest request, InstrumentConfig cfg, String requestId) {
         if (!schemaConfig.isEnabled()) {
-            return Result.err(new ApiError(
+            return completedErr(new ApiError(
                     ErrorCode.PRECONDITION_FAILED,
                     "Template schema debug is disabled",
                     Map.of("flag", "feature.enable-template-schema-debug"),
@@ -437,7 +730,7 @@ public class PayoutService {
 
         Result<ValidatedRequest, ApiError> validated = validateRequest(request);
         if (validated.isErr()) {
-            return Result.err(validated.getErrorUnsafe());
+            return completedErr(validated.getErrorUnsafe());
         }
         ValidatedRequest vr = validated.getValueUnsafe();
 
@@ -451,12 +744,12 @@ public class PayoutService {
                 0
         );
 
-        return await(
+        return andThen(attempt(
                 holdingSelectorService.selectHoldingOnce(selectReq),
                 ex -> internalError("Holding selection failed", ex, Map.of("instrumentId", cfg.id))
-        ).flatMap(selection -> {
+        ), selection -> {
             if (!selection.found()) {
-                return Result.err(new ApiError(
+                return completedErr(new ApiError(
                         ErrorCode.NOT_FOUND,
                         "No suitable holding found",
                         Map.of(
@@ -489,10 +782,10 @@ public class PayoutService {
                     .setEntityName(cfg.entityName)
                     .build();
 
-            return await(
+            return attempt(
                     ledgerApi.createRaw(tid, args, List.of(operator), List.of(operator)),
                     ex -> mapLedgerError("Ledger rejected create", ex, Map.of("template", cfg.moduleName + ":" + cfg.entityName))
-            ).map(resp -> {
+            ).thenApply(createdResult -> createdResult.map(resp -> {
                 String cid = firstCreated(resp.getTransaction()).orElse(null);
                 LOG.info("[PayoutService] [requestId={}] Created outbound {} payout cid={} updateId={}",
                         requestId, cfg.id, cid, resp.getTransaction().getUpdateId());
@@ -509,11 +802,11 @@ public class PayoutService {
                         null,
                         null
                 );
-            });
+            }));
         });
     }
 
-    private Result<PayoutResponse, ApiError> createViaTransferFactory(
+    private CompletableFuture<Result<PayoutResponse, ApiError>> createViaTransferFactory(
             ValidatedRequest vr,
             String holdingCid,
             String operator,
@@ -529,7 +822,7 @@ public class PayoutService {
             details.put("instrumentId", cfg.id);
             details.put("reason", "REGISTRY_URL_NOT_CONFIGURED");
             details.put("holdingChoiceError", holdingChoiceError != null ? holdingChoiceError.message : null);
-            return Result.err(new ApiError(
+            return completedErr(new ApiError(
                     ErrorCode.PRECONDITION_FAILED,
                     "Transfer factory registry URL not configured",
                     details,
@@ -557,7 +850,7 @@ public class PayoutService {
         Map<String, Object> payloadBody = Map.of("choiceArguments", recordToJson(transferFactoryArg));
         Result<String, ApiError> payloadJson = toJsonSafe(payloadBody);
         if (payloadJson.isErr()) {
-            return Result.err(payloadJson.getErrorUnsafe());
+            return completedErr(payloadJson.getErrorUnsafe());
         }
 
         HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(url))
@@ -568,16 +861,16 @@ public class PayoutService {
             req.header(ledgerConfig.getRegistryAuthHeader(), ledgerConfig.getRegistryAuthToken());
         }
 
-        return await(
+        return andThen(attempt(
                 httpClient.sendAsync(req.build(), HttpResponse.BodyHandlers.ofString()),
                 ex -> internalError("Transfer factory registry call failed", ex, Map.of("url", url))
-        ).flatMap(resp -> {
+        ), resp -> {
             if (resp.statusCode() / 100 != 2) {
-                return Result.err(mapRegistryHttpError(resp.statusCode(), resp.body(), url, holdingChoiceError));
+                return completedErr(mapRegistryHttpError(resp.statusCode(), resp.body(), url, holdingChoiceError));
             }
             Result<TransferFactoryContext, ApiError> parsed = parseTransferFactoryContext(resp.body(), url, holdingChoiceError);
             if (parsed.isErr()) {
-                return Result.err(parsed.getErrorUnsafe());
+                return completedErr(parsed.getErrorUnsafe());
             }
             TransferFactoryContext ctx = parsed.getValueUnsafe();
 
@@ -595,7 +888,7 @@ public class PayoutService {
                 details.put("url", url);
                 details.put("bodySnippet", snippet(resp.body()));
                 details.put("holdingChoiceError", holdingChoiceError != null ? holdingChoiceError.message : null);
-                return Result.err(new ApiError(
+                return completedErr(new ApiError(
                         ErrorCode.PRECONDITION_FAILED,
                         "Registry response did not include factoryCid",
                         details,
@@ -606,7 +899,7 @@ public class PayoutService {
             }
 
             if (disclosedContracts == null || disclosedContracts.isEmpty()) {
-                return Result.err(new ApiError(
+                return completedErr(new ApiError(
                         ErrorCode.PRECONDITION_FAILED,
                         "Registry response did not include disclosedContracts",
                         Map.of("url", url),
@@ -629,7 +922,7 @@ public class PayoutService {
                     .filter(dc -> dc != null)
                     .toList();
             if (disclosed.isEmpty()) {
-                return Result.err(new ApiError(
+                return completedErr(new ApiError(
                         ErrorCode.PRECONDITION_FAILED,
                         "Registry disclosures invalid",
                         Map.of("url", url),
@@ -645,7 +938,7 @@ public class PayoutService {
                     .setEntityName(TRANSFER_FACTORY_ENTITY)
                     .build();
 
-            return await(
+            return attempt(
                     ledgerApi.exerciseRawWithLabel(
                             "Payout",
                             interfaceId,
@@ -658,7 +951,7 @@ public class PayoutService {
                             null
                     ),
                     ex -> mapLedgerError("Ledger rejected transfer factory exercise", ex, Map.of("choice", TRANSFER_FACTORY_CHOICE))
-            ).map(resp2 -> {
+            ).thenApply(exercised -> exercised.map(resp2 -> {
                 String cid = firstCreated(resp2.getTransaction()).orElse(null);
                 LOG.info("[PayoutService] [requestId={}] Payout via transfer factory instrument={} cid={} updateId={}",
                         requestId, cfg.id, cid, resp2.getTransaction().getUpdateId());
@@ -675,17 +968,17 @@ public class PayoutService {
                         finalFactoryCid,
                         disclosed.size()
                 );
-            });
+            }));
         });
     }
 
-    private Result<PayoutResponse, ApiError> createPayoutViaTransferFactory(
+    private CompletableFuture<Result<PayoutResponse, ApiError>> createPayoutViaTransferFactory(
             PayoutRequest request,
             InstrumentConfig cfg,
             String requestId
     ) {
         if (!schemaConfig.isEnabled()) {
-            return Result.err(new ApiError(
+            return completedErr(new ApiError(
                     ErrorCode.PRECONDITION_FAILED,
                     "Template schema debug is disabled",
                     Map.of("flag", "feature.enable-template-schema-debug"),
@@ -697,7 +990,7 @@ public class PayoutService {
 
         Result<ValidatedRequest, ApiError> validated = validateRequest(request);
         if (validated.isErr()) {
-            return Result.err(validated.getErrorUnsafe());
+            return completedErr(validated.getErrorUnsafe());
         }
         ValidatedRequest vr = validated.getValueUnsafe();
 
@@ -710,12 +1003,12 @@ public class PayoutService {
                 0,
                 0
         );
-        return await(
+        return andThen(attempt(
                 holdingSelectorService.selectHoldingOnce(selectReq),
                 ex -> internalError("Holding selection failed", ex, Map.of("instrumentId", cfg.id))
-        ).flatMap(selection -> {
+        ), selection -> {
             if (!selection.found()) {
-                return Result.err(new ApiError(
+                return completedErr(new ApiError(
                         ErrorCode.NOT_FOUND,
                         "No suitable holding found",
                         Map.of(
@@ -768,13 +1061,39 @@ public class PayoutService {
         ));
     }
 
-    private <T> Result<T, ApiError> await(CompletableFuture<T> future, java.util.function.Function<Throwable, ApiError> errorMapper) {
+    private <T> CompletableFuture<Result<T, ApiError>> attempt(CompletableFuture<T> future, Function<Throwable, ApiError> errorMapper) {
         return future.handle((value, ex) -> {
             if (ex != null) {
                 return Result.<T, ApiError>err(errorMapper.apply(ex));
             }
             return Result.<T, ApiError>ok(value);
-        }).join();
+        });
+    }
+
+    private static <A, B> CompletableFuture<Result<B, ApiError>> andThen(
+            CompletableFuture<Result<A, ApiError>> future,
+            Function<A, CompletableFuture<Result<B, ApiError>>> next
+    ) {
+        return future.thenCompose(result -> result.isOk()
+                ? next.apply(result.getValueUnsafe())
+                : completedErr(result.getErrorUnsafe()));
+    }
+
+    private static <T> CompletableFuture<Result<T, ApiError>> completedErr(ApiError error) {
+        return CompletableFuture.completedFuture(Result.err(error));
+    }
+
+    /**
+     * True when the ledger definitely did not commit the command, so it is safe to resubmit.
+     */
+    private boolean isDefiniteRejection(Throwable ex) {
+        Status.Code code = Status.fromThrowable(unwrap(ex)).getCode();
+        return code == Status.Code.INVALID_ARGUMENT
+                || code == Status.Code.FAILED_PRECONDITION
+                || code == Status.Code.NOT_FOUND
+                || code == Status.Code.ALREADY_EXISTS
+                || code == Status.Code.ABORTED
+                || code == Status.Code.PERMISSION_DENIED;
     }
 
     private ApiError validationError(String message, Map<String, Object> details) {
@@ -835,6 +1154,27 @@ public class PayoutService {
         return Optional.empty();
     }
 
+    /**
+     * First created contract under each root exercise, in command order. LEDGER_EFFECTS events are
+     * in pre-order, and an exercise's descendants are the node ids up to its last_descendant_node_id.
+     */
+    private List<Optional<String>> firstCreatedPerRootExercise(TransactionOuterClass.Transaction txn) {
+        List<Optional<String>> perRoot = new ArrayList<>();
+        int rootEnd = -1;
+        boolean found = false;
+        for (var ev : txn.getEventsList()) {
+            if (ev.hasExercised() && ev.getExercised().getNodeId() > rootEnd) {
+                rootEnd = ev.getExercised().getLastDescendantNodeId();
+                perRoot.add(Optional.empty());
+                found = false;
+            } else if (!found && ev.hasCreated() && ev.getCreated().getNodeId() <= rootEnd) {
+                perRoot.set(perRoot.size() - 1, Optional.of(ev.getCreated().getContractId()));
+                found = true;
+            }
+        }
+        return perRoot;
+    }
+
     /**
      * Build a Value.Record respecting field order using the decoded template AST.
      */
@@ -1505,32 +1845,7 @@ public class PayoutService {
     }
 
     private CommandsOuterClass.DisclosedContract toDisclosedContract(DisclosedContractDto dc) {
-        try {
-            ValueOuterClass.Identifier tid = parseTemplateIdentifier(dc.templateId);
-            byte[] blob = Base64.getDecoder().decode(dc.createdEventBlob);
-            CommandsOuterClass.DisclosedContract.Builder builder = CommandsOuterClass.DisclosedContract.newBuilder()
-                    .setTemplateId(tid)
-                    .setContractId(dc.contractId)
-                    .setCreatedEventBlob(com.google.protobuf.ByteString.copyFrom(blob));
-            if (dc.synchronizerId != null && !dc.synchronizerId.isBlank()) {
-                builder.setSynchronizerId(dc.synchronizerId);
-            }
-            return builder.build();
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private ValueOuterClass.Identifier parseTemplateIdentifier(String templateIdStr) {
-        String[] parts = templateIdStr.split(":");
-        if (parts.length < 3) {
-            throw new IllegalArgumentException("Invalid templateId format: " + templateIdStr);
-        }
-        return ValueOuterClass.Identifier.newBuilder()
-                .setPackageId(parts[0])
-                .setModuleName(parts[1])
-                .setEntityName(parts[2])
-                .build();
+        return disclosedContractCache.intern(dc.templateId, dc.contractId, dc.createdEventBlob, dc.synchronizerId);
     }
 
     private ValueOuterClass.Record replaceRecordField(
@@ -1660,6 +1975,16 @@ public class PayoutService {
     ) { }
 
 
+    private record BulkItem(int index, BulkPayoutRequest.Item item, ValidatedRequest vr, String holdingCid) {
+        BulkItem(int index, BulkPayoutRequest.Item item, ValidatedRequest vr) {
+            this(index, item, vr, null);
+        }
+
+        BulkItem withHolding(String cid) {
+            return new BulkItem(index, item, vr, cid);
+        }
+    }
+
     private record ValidatedRequest(
             String receiverParty,
             BigDecimal amount,
@@ -1676,6 +2001,16 @@ public class PayoutService {
         static InstrumentConfig cbtc() {
             return new InstrumentConfig(CBTC_ADMIN, CBTC_ID, CBTC_PKG, CBTC_MODULE, CBTC_ENTITY);
         }
+
+        static InstrumentConfig forId(String instrumentId) {
+            if (AMULET_ID.equalsIgnoreCase(instrumentId)) {
+                return amulet();
+            }
+            if (CBTC_ID.equalsIgnoreCase(instrumentId)) {
+                return cbtc();
+            }
+            return null;
+        }
     }
 }
 
@@ -0,0 +1,132 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.dto.AtomicSwapResponse;
+import com.digitalasset.quickstart.dto.ExecuteSwapResponse;
+import com.digitalasset.quickstart.dto.LiquidityConsumeResponse;
+import com.digitalasset.quickstart.dto.LiquidityRemoveConsumeResponse;
+import com.digitalasset.quickstart.dto.PrepareSwapResponse;
+import com.digitalasset.quickstart.dto.SwapConsumeResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Redis-backed idempotency registrations, shared by every replica.
+ *
+ * CLUSTER-SAFE: a retry that lands on another pod finds the registration written by the pod that
+ * executed the original request.
+ *
+ * Redis keys:
+ * - idem:{baseKey} → JSON {bodyHash, commandId, transactionId, type, response}, TTL = idempotency TTL
+ *
+ * The response is stored with the simple name of its type so callers that test the cached type (e.g.
+ * {@code instanceof LiquidityRemoveConsumeResponse}) see the same type on every replica. Only the
+ * response DTOs in {@link #RESPONSE_TYPES} are written or read back; Redis content never picks the
+ * class to instantiate.
+ *
+ * Redis errors are logged and treated as a miss; {@link IdempotencyService} keeps its local store
+ * in front of this one, so a Redis outage degrades to per-pod deduplication.
+ *
+ * Configuration:
+ * - idempotency.distributed=true (share registrations via Redis)
+ */
+@Component
+@ConditionalOnProperty(name = "idempotency.distributed", havingValue = "true")
+public class RedisIdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisIdempotencyStore.class);
+    private static final String KEY_PREFIX = "idem:";
+
+    // The responses idempotent endpoints register, by simple name
+    static final Map<String, Class<?>> RESPONSE_TYPES = List.<Class<?>>of(
+            PrepareSwapResponse.class,
+            ExecuteSwapResponse.class,
+            AtomicSwapResponse.class,
+            SwapConsumeResponse.class,
+            LiquidityConsumeResponse.class,
+            LiquidityRemoveConsumeResponse.class
+    ).stream().collect(Collectors.toUnmodifiableMap(Class::getSimpleName, Function.identity()));
+
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+
+    public RedisIdempotencyStore(StringRedisTemplate redis, ObjectMapper objectMapper) {
+        this.redis = redis;
+        this.objectMapper = objectMapper;
+        logger.info("✓ Distributed idempotency store initialized (Redis)");
+    }
+
+    /**
+     * @param baseKey Idempotency key (without body hash)
+     * @return The registration shared by all replicas, if any
+     */
+    public Optional<IdempotencyService.Registration> get(String baseKey) {
+        try {
+            String json = redis.opsForValue().get(KEY_PREFIX + baseKey);
+            if (json == null) {
+                return Optional.empty();
+            }
+            JsonNode node = objectMapper.readTree(json);
+            Object response = null;
+            JsonNode type = node.get("type");
+            if (type != null && type.isTextual() && node.hasNonNull("response")) {
+                Class<?> responseType = RESPONSE_TYPES.get(type.asText());
+                if (responseType == null) {
+                    logger.warn("Ignoring idempotency key {} in Redis with unknown response type {}", baseKey, type.asText());
+                    return Optional.empty();
+                }
+                response = objectMapper.treeToValue(node.get("response"), responseType);
+            }
+            return Optional.of(new IdempotencyService.Registration(
+                text(node, "bodyHash"), text(node, "commandId"), text(node, "transactionId"), response));
+        } catch (Exception ex) {
+            logger.warn("Failed to read idempotency key {} from Redis: {}", baseKey, ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store a registration for {@code ttl}, replacing any earlier one for the same key.
+     */
+    public void put(String baseKey, IdempotencyService.Registration registration, Duration ttl) {
+        try {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("bodyHash", registration.bodyHash());
+            node.put("commandId", registration.commandId());
+            node.put("transactionId", registration.transactionId());
+            if (registration.response() != null) {
+                String type = registration.response().getClass().getSimpleName();
+                if (RESPONSE_TYPES.get(type) != registration.response().getClass()) {
+                    logger.warn("Not sharing idempotency key {}: response type {} is not shareable", baseKey,
+                            registration.response().getClass().getName());
+                    return;
+                }
+                node.put("type", type);
+                node.set("response", objectMapper.valueToTree(registration.response()));
+            }
+            redis.opsForValue().set(KEY_PREFIX + baseKey, objectMapper.writeValueAsString(node), ttl);
+        } catch (Exception ex) {
+            logger.error("Failed to write idempotency key {} to Redis: {}", baseKey, ex.getMessage());
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && value.isTextual() ? value.asText() : null;
+    }
+}
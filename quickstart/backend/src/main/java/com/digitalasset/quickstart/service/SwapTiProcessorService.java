@@ -6,15 +6,20 @@ import com.digitalasset.quickstart.common.DomainError;
 import com.digitalasset.quickstart.common.Result;
 import com.digitalasset.quickstart.constants.SwapConstants;
 import com.digitalasset.quickstart.dto.*;
+import com.digitalasset.quickstart.ledger.DisclosedContractCache;
 import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.ledger.PoolCommandSequencer;
+import com.digitalasset.quickstart.metrics.SwapMetrics;
 import com.digitalasset.quickstart.security.AuthUtils;
 import com.digitalasset.quickstart.service.TransferInstructionAcsQueryService.TransferInstructionDto;
 import com.digitalasset.quickstart.service.TransferInstructionAcsQueryService.TransferInstructionWithMemo;
 import com.digitalasset.quickstart.service.TransferInstructionChoiceContextService.ChoiceContextResult;
+import com.digitalasset.quickstart.util.AmmMath;
 import com.digitalasset.quickstart.validation.SwapValidator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -28,6 +33,10 @@ import java.time.Instant;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Service
 @Profile("devnet")
@@ -45,12 +54,28 @@ public class SwapTiProcessorService {
     private final TransferInstructionChoiceContextService choiceContextService;
     private final SwapValidator swapValidator;
     private final TransactionHistoryService transactionHistoryService;
+    private final PoolCommandSequencer poolCommandSequencer;
+    private final DisclosedContractCache disclosedContractCache;
+    private final SwapMetrics swapMetrics;
 
     private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, PendingBatch> openBatches = new HashMap<>();
+    // Window timers for batch mode; created with the first batch, guarded by openBatches
+    private ScheduledExecutorService batchScheduler;
 
     @Value("${holdingpool.package-id:}")
     private String holdingPoolPackageId;
 
+    // Batch mode collects swaps per pool for a short window and settles them at one clearing price
+    @Value("${swap.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${swap.batch.window-ms:250}")
+    private long batchWindowMs;
+
+    @Value("${swap.batch.max-legs:16}")
+    private int batchMaxLegs;
+
     public SwapTiProcessorService(
             TransferInstructionAcsQueryService tiQueryService,
             HoldingPoolService holdingPoolService,
@@ -61,7 +86,10 @@ public class SwapTiProcessorService {
             IdempotencyService idempotencyService,
             TransferInstructionChoiceContextService choiceContextService,
             SwapValidator swapValidator,
-            TransactionHistoryService transactionHistoryService
+            TransactionHistoryService transactionHistoryService,
+            PoolCommandSequencer poolCommandSequencer,
+            DisclosedContractCache disclosedContractCache,
+            SwapMetrics swapMetrics
     ) {
         this.tiQueryService = tiQueryService;
         this.holdingPoolService = holdingPoolService;
@@ -73,6 +101,9 @@ public class SwapTiProcessorService {
         this.choiceContextService = choiceContextService;
         this.swapValidator = swapValidator;
         this.transactionHistoryService = transactionHistoryService;
+        this.poolCommandSequencer = poolCommandSequencer;
+        this.disclosedContractCache = disclosedContractCache;
+        this.swapMetrics = swapMetrics;
     }
 
     @WithSpan
@@ -95,7 +126,7 @@ public class SwapTiProcessorService {
                 ? request.maxAgeSeconds
                 : 7200L;
 
-        Result<List<TransferInstructionWithMemo>, DomainError> pending = tiQueryService.listForReceiverWithMemo(operator);
+        Result<List<TransferInstructionWithMemo>, DomainError> pending = tiQueryService.listForReceiverWithMemo(operator, request.requestId);
         if (pending.isErr()) {
             return CompletableFuture.completedFuture(Result.err(domainError("Failed to query pending TIs", pending.getErrorUnsafe())));
         }
@@ -138,7 +169,24 @@ public class SwapTiProcessorService {
             )));
         }
 
-        return holdingPoolService.getByContractId(memo.poolCid)
+        if (batchEnabled) {
+            return enqueueBatchLeg(new BatchLeg(request, ti, memo, memoRaw, deadline, new CompletableFuture<>()));
+        }
+        return consumeSingle(request, ti, memo, memoRaw, deadline, operator);
+    }
+
+    private CompletableFuture<Result<SwapConsumeResponse, ApiError>> consumeSingle(
+            SwapConsumeRequest request,
+            TransferInstructionDto ti,
+            SwapMemo memo,
+            String memoRaw,
+            Instant deadline,
+            String operator
+    ) {
+        // Pricing, output-holding selection and the registry lookups run against a pre-read of the
+        // pool before taking its lane; inside the lane the pool is read again at the latest CID, the
+        // quote re-checked against that version, and ExecuteSwap submitted.
+        return holdingPoolService.getByContractId(poolCommandSequencer.latestCid(memo.poolCid))
                 .thenCompose(poolResult -> {
                     if (poolResult.isErr()) {
                         return completedError(domainError("Pool not found or not visible", poolResult.getErrorUnsafe()));
@@ -221,13 +269,13 @@ public class SwapTiProcessorService {
                                 }
 
                                 String outputHoldingCid = holdingSelection.holdingCid();
-                                Result<ChoiceContextResult, ApiError> choiceCtx =
-                                        choiceContextService.resolveDisclosedContracts(ti.contractId(), inputInstrument.admin, request.requestId);
-                                if (choiceCtx.isErr()) {
-                                    return completedError(choiceCtx.getErrorUnsafe());
-                                }
-                                ChoiceContextResult ctx = choiceCtx.getValueUnsafe();
-                                Result<PayoutService.TransferFactoryPlan, ApiError> payoutPlanResult =
+                                // Registry lookups for the inbound accept and the outbound payout run concurrently
+                                CompletableFuture<Result<ChoiceContextResult, ApiError>> choiceCtxFut =
+                                        choiceContextService.resolveDisclosedContractsAsync(ti.contractId(), inputInstrument.admin, request.requestId);
+                                String pair = swapMetrics.poolPairTag(displaySymbol(inputInstrument.id), displaySymbol(outputInstrument.id));
+                                // The payout stage runs from the registry lookup through the submit that pays out
+                                long payoutStart = System.nanoTime();
+                                CompletableFuture<Result<PayoutService.TransferFactoryPlan, ApiError>> payoutPlanFut =
                                         payoutService.prepareTransferFactory(
                                                 outputInstrument.admin,
                                                 outputInstrument.id,
@@ -238,114 +286,665 @@ public class SwapTiProcessorService {
                                                 memoRaw,
                                                 "swap-payout-" + request.requestId
                                         );
-                                if (payoutPlanResult.isErr()) {
-                                    return completedError(annotateNoSynchronizer(payoutPlanResult.getErrorUnsafe(),
-                                            "PreparePayout",
-                                            List.of(operator),
-                                            List.of(operator),
-                                            null));
-                                }
-                                PayoutService.TransferFactoryPlan payoutPlan = payoutPlanResult.getValueUnsafe();
-                                List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> disclosed =
-                                        mergeDisclosed(ctx.disclosedContracts(), payoutPlan.disclosedContracts());
-                                String synchronizerId = firstNonBlank(ctx.synchronizerId(), payoutPlan.synchronizerId());
-
-                                LOG.info("[SwapConsume] requestId={} operator={} inboundTiCid={} poolCid={} amountIn={} amountOut={} directionRaw={} directionNormalized={} damlDirection={} acceptContextKeys={} actAs=[{}] readAs=[{}]",
-                                        request.requestId,
-                                        operator,
-                                        ti.contractId(),
-                                        pool.contractId,
-                                        amountIn.toPlainString(),
-                                        amountOut.toPlainString(),
-                                        memo.direction,
-                                        normalizedDirection,
-                                        direction.damlConstructor,
-                                        ctx.contextKeyCount(),
-                                        operator,
-                                        "");
-
-                                return executeSwapFromTransferInstruction(
-                                                pool.contractId,
-                                                ti.contractId(),
-                                                outputHoldingCid,
-                                                direction,
-                                                minOut,
-                                                deadline,
-                                                memo.receiverParty,
-                                                payoutPlan.factoryCid(),
-                                                payoutPlan.extraArgs(),
-                                                memoRaw,
-                                                ctx.extraArgs(),
-                                                disclosed,
-                                                synchronizerId
-                                        )
-                                        .thenCompose(executeResult -> {
-                                            if (executeResult.isErr()) {
-                                                return completedError(annotateNoSynchronizer(executeResult.getErrorUnsafe(),
-                                                        "ExecuteSwapFromTransferInstruction",
-                                                        List.of(operator),
-                                                        List.of(),
-                                                        synchronizerId));
-                                            }
-                                            String updateId = extractUpdateId(executeResult.getValueUnsafe());
-                                            if (updateId == null || updateId.isBlank()) {
-                                                return completedError(ApiError.of(ErrorCode.INTERNAL, "ExecuteSwap returned no updateId"));
-                                            }
-                                            PayoutOutcomeInfo payoutOutcome = extractPayoutOutcome(executeResult.getValueUnsafe());
-                                            if (payoutOutcome == null) {
-                                                return completedError(ApiError.of(ErrorCode.INTERNAL, "ExecuteSwap returned no payout outcome"));
-                                            }
-                                            if (!payoutOutcome.completed && (payoutOutcome.payoutCid == null || payoutOutcome.payoutCid.isBlank())) {
-                                                return completedError(ApiError.of(ErrorCode.INTERNAL, "ExecuteSwap returned no payoutCid"));
+                                return choiceCtxFut.thenCombine(payoutPlanFut, PayoutInputs::new).thenCompose(inputs -> {
+                                    if (inputs.choiceContext().isErr()) {
+                                        return completedError(inputs.choiceContext().getErrorUnsafe());
+                                    }
+                                    ChoiceContextResult ctx = inputs.choiceContext().getValueUnsafe();
+                                    if (inputs.payoutPlan().isErr()) {
+                                        swapMetrics.recordStage(SwapMetrics.Stage.PAYOUT, pair, System.nanoTime() - payoutStart, false);
+                                        return completedError(annotateNoSynchronizer(inputs.payoutPlan().getErrorUnsafe(),
+                                                "PreparePayout",
+                                                List.of(operator),
+                                                List.of(operator),
+                                                null));
+                                    }
+                                    PayoutService.TransferFactoryPlan payoutPlan = inputs.payoutPlan().getValueUnsafe();
+                                    List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> disclosed =
+                                            mergeDisclosed(ctx.disclosedContracts(), payoutPlan.disclosedContracts());
+                                    String synchronizerId = firstNonBlank(ctx.synchronizerId(), payoutPlan.synchronizerId());
+
+                                    LOG.info("[SwapConsume] requestId={} operator={} inboundTiCid={} poolCid={} amountIn={} amountOut={} directionRaw={} directionNormalized={} damlDirection={} acceptContextKeys={} actAs=[{}] readAs=[{}]",
+                                            request.requestId,
+                                            operator,
+                                            ti.contractId(),
+                                            pool.contractId,
+                                            amountIn.toPlainString(),
+                                            amountOut.toPlainString(),
+                                            memo.direction,
+                                            normalizedDirection,
+                                            direction.damlConstructor,
+                                            ctx.contextKeyCount(),
+                                            operator,
+                                            "");
+
+                                    return poolCommandSequencer.submit(pool.poolId, memo.poolCid, "ExecuteSwapFromTransferInstructionV2", latestPoolCid ->
+                                                    submitSwap(latestPoolCid, pool.poolId, ti, holdingSelection, direction, amountIn, minOut,
+                                                            deadline, memo.receiverParty, payoutPlan, memoRaw, ctx.extraArgs(), disclosed, synchronizerId))
+                                            .whenComplete((executed, ex) -> swapMetrics.recordStage(SwapMetrics.Stage.PAYOUT, pair,
+                                                    System.nanoTime() - payoutStart, ex == null && executed.isOk()))
+                                            .thenCompose(executed -> {
+                                                if (executed.isErr()) {
+                                                    choiceContextService.invalidate(ti.contractId());
+                                                    return completedError(annotateNoSynchronizer(executed.getErrorUnsafe(),
+                                                            "ExecuteSwapFromTransferInstruction",
+                                                            List.of(operator),
+                                                            List.of(),
+                                                            synchronizerId));
+                                                }
+                                                CommandServiceOuterClass.SubmitAndWaitForTransactionResponse executeResponse = executed.getValueUnsafe().response();
+                                                BigDecimal amountOutExecuted = executed.getValueUnsafe().amountOut();
+                                                String updateId = extractUpdateId(executeResponse);
+                                                if (updateId == null || updateId.isBlank()) {
+                                                    return completedError(ApiError.of(ErrorCode.INTERNAL, "ExecuteSwap returned no updateId"));
+                                                }
+                                                PayoutOutcomeInfo payoutOutcome = extractPayoutOutcome(executeResponse);
+                                                if (payoutOutcome == null) {
+                                                    return completedError(ApiError.of(ErrorCode.INTERNAL, "ExecuteSwap returned no payout outcome"));
+                                                }
+                                                if (!payoutOutcome.completed && (payoutOutcome.payoutCid == null || payoutOutcome.payoutCid.isBlank())) {
+                                                    return completedError(ApiError.of(ErrorCode.INTERNAL, "ExecuteSwap returned no payoutCid"));
+                                                }
+                                                SwapConsumeResponse response = new SwapConsumeResponse();
+                                                response.requestId = request.requestId;
+                                                response.inboundTiCid = ti.contractId();
+                                                response.intentCid = null;
+                                                response.swapIntentCid = null;
+                                                response.poolCid = memo.poolCid;
+                                                response.direction = memo.direction;
+                                                response.amountIn = amountIn.toPlainString();
+                                                response.amountOut = amountOutExecuted.toPlainString();
+                                                response.minOut = minOut.toPlainString();
+                                                response.executeSwapLedgerUpdateId = updateId;
+                                                response.executeSwapStatus = "SUCCEEDED";
+                                                response.payoutCid = payoutOutcome.payoutCid;
+                                                response.payoutExecuteBefore = deadline.toString();
+                                                response.payoutFactoryId = payoutPlan.factoryCid();
+                                                response.payoutDisclosedContractsCount = payoutPlan.disclosedContracts().size();
+                                                response.payoutStatus = payoutOutcome.completed ? "COMPLETED" : "CREATED";
+                                                response.nextAction = payoutOutcome.completed ? "NONE" : "ACCEPT_PAYOUT_IN_LOOP";
+                                                response.receiverParty = memo.receiverParty;
+
+                                                try {
+                                                    String inputSymbol = direction == SwapDirection.A2B
+                                                            ? displaySymbol(pool.instrumentA.id)
+                                                            : displaySymbol(pool.instrumentB.id);
+                                                    String outputSymbol = direction == SwapDirection.A2B
+                                                            ? displaySymbol(pool.instrumentB.id)
+                                                            : displaySymbol(pool.instrumentA.id);
+                                                    // Keyed by update id so the ledger history indexer does not record it twice
+                                                    transactionHistoryService.recordSwap(
+                                                            updateId,
+                                                            pool.contractId,
+                                                            pool.contractId,
+                                                            inputSymbol,
+                                                            outputSymbol,
+                                                            amountIn,
+                                                            amountOutExecuted,
+                                                            memo.receiverParty
+                                                    );
+                                                } catch (Exception e) {
+                                                    LOG.warn("[SwapConsume] Failed to record transaction history: {}", e.getMessage());
+                                                }
+
+                                                idempotencyService.registerSuccess(request.requestId, request.requestId, updateId, response);
+                                                return CompletableFuture.completedFuture(Result.ok(response));
+                                            });
+                                });
+                            });
+                });
+    }
+
+    // ---- Batch mode: net opposing swaps on the same pool and settle them in one transaction ----
+
+    private CompletableFuture<Result<SwapConsumeResponse, ApiError>> enqueueBatchLeg(BatchLeg leg) {
+        String poolKey = poolCommandSequencer.latestCid(leg.memo.poolCid);
+        PendingBatch ready = null;
+        synchronized (openBatches) {
+            PendingBatch batch = openBatches.get(poolKey);
+            if (batch == null) {
+                PendingBatch opened = new PendingBatch(poolKey);
+                openBatches.put(poolKey, opened);
+                if (batchScheduler == null) {
+                    batchScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "swap-batch-window");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+                batchScheduler.schedule(() -> flushBatch(opened), batchWindowMs, TimeUnit.MILLISECONDS);
+                batch = opened;
+            }
+            for (BatchLeg queued : batch.legs) {
+                if (queued.ti.contractId().equals(leg.ti.contractId())) {
+                    // Same inbound TI picked twice (e.g. a client retry): share the queued outcome
+                    return queued.result;
+                }
+            }
+            batch.legs.add(leg);
+            if (batch.legs.size() >= batchMaxLegs) {
+                openBatches.remove(poolKey);
+                ready = batch;
+            }
+        }
+        if (ready != null) {
+            settleBatch(ready);
+        }
+        return leg.result;
+    }
+
+    private void flushBatch(PendingBatch batch) {
+        synchronized (openBatches) {
+            if (!openBatches.remove(batch.poolCid, batch)) {
+                return; // already settled because it filled up
+            }
+        }
+        settleBatch(batch);
+    }
+
+    private void settleBatch(PendingBatch batch) {
+        List<BatchLeg> legs = List.copyOf(batch.legs);
+        String operator = authUtils.getAppProviderPartyId();
+        if (legs.size() == 1) {
+            BatchLeg only = legs.get(0);
+            completeLeg(only, consumeSingle(only.request, only.ti, only.memo, only.memoRaw, only.deadline, operator));
+            return;
+        }
+
+        LOG.info("[SwapBatch] Settling {} swaps on pool {}", legs.size(), batch.poolCid);
+        // Registry lookups finish before the batch takes the pool lane; only pricing and the submit run in it
+        holdingPoolService.getByContractId(poolCommandSequencer.latestCid(batch.poolCid))
+                .thenCompose(poolResult -> {
+                    if (poolResult.isErr()) {
+                        return CompletableFuture.completedFuture(Result.<Integer, ApiError>err(
+                                domainError("Pool not found or not visible", poolResult.getErrorUnsafe())));
+                    }
+                    Map<BatchLeg, CompletableFuture<Result<ChoiceContextResult, ApiError>>> lookups =
+                            resolveBatchChoiceContexts(poolResult.getValueUnsafe(), legs);
+                    return CompletableFuture.allOf(lookups.values().toArray(CompletableFuture[]::new))
+                            .thenCompose(ignored -> {
+                                Map<BatchLeg, Result<ChoiceContextResult, ApiError>> choiceContexts = new HashMap<>();
+                                lookups.forEach((leg, lookup) -> choiceContexts.put(leg, lookup.getNow(null)));
+                                return poolCommandSequencer.submit(poolResult.getValueUnsafe().poolId, batch.poolCid, "ExecuteSwapBatchFromTransferInstructionsV1", latestPoolCid ->
+                                        holdingPoolService.getByContractId(latestPoolCid)
+                                                .thenCompose(latest -> {
+                                                    if (latest.isErr()) {
+                                                        return CompletableFuture.completedFuture(Result.<Integer, ApiError>err(
+                                                                domainError("Pool not found or not visible", latest.getErrorUnsafe())));
+                                                    }
+                                                    return executeBatch(latest.getValueUnsafe(), legs, choiceContexts, operator);
+                                                }));
+                            });
+                })
+                .whenComplete((settled, throwable) -> {
+                    if (throwable == null && settled.isOk()) {
+                        LOG.info("[SwapBatch] Settled {} of {} swaps on pool {}", settled.getValueUnsafe(), legs.size(), batch.poolCid);
+                        return;
+                    }
+                    // The batch is one atomic transaction, so nothing was consumed: retry the open legs one by one
+                    List<BatchLeg> open = legs.stream().filter(leg -> !leg.result.isDone()).toList();
+                    LOG.warn("[SwapBatch] Batch on pool {} not settled ({}), falling back to single swaps for {} legs",
+                            batch.poolCid,
+                            throwable != null ? throwable.getMessage() : settled.getErrorUnsafe().message,
+                            open.size());
+                    for (BatchLeg leg : open) {
+                        completeLeg(leg, consumeSingle(leg.request, leg.ti, leg.memo, leg.memoRaw, leg.deadline, operator));
+                    }
+                });
+    }
+
+    /**
+     * Start every leg's registry lookup at once. A failed lookup becomes that leg's error result, so
+     * the combined future always completes normally.
+     */
+    private Map<BatchLeg, CompletableFuture<Result<ChoiceContextResult, ApiError>>> resolveBatchChoiceContexts(
+            HoldingPoolResponse pool,
+            List<BatchLeg> legs
+    ) {
+        Map<BatchLeg, CompletableFuture<Result<ChoiceContextResult, ApiError>>> lookups = new HashMap<>();
+        if (pool.instrumentA == null || pool.instrumentB == null) {
+            return lookups;
+        }
+        for (BatchLeg leg : legs) {
+            SwapDirection direction = SwapDirection.fromNormalized(SwapDirection.normalizeMemo(leg.memo.direction));
+            HoldingPoolCreateRequest.InstrumentRef inputInstrument = direction == SwapDirection.A2B ? pool.instrumentA : pool.instrumentB;
+            if (direction != null && matchesInstrument(leg.ti, inputInstrument)) {
+                lookups.put(leg, choiceContextService.resolveDisclosedContractsAsync(
+                                leg.ti.contractId(), inputInstrument.admin, leg.request.requestId)
+                        .exceptionally(ex -> Result.err(ApiError.of(ErrorCode.INTERNAL,
+                                "choice-context resolution failed: " + ex.getMessage()))));
+            }
+        }
+        return lookups;
+    }
+
+    /**
+     * Price and settle a batch against one pool version. Legs that cannot take part (bad memo,
+     * minOut not met at the clearing price, ...) are completed with their own error; an error
+     * result means the batch as a whole was not submitted or was rejected.
+     */
+    private CompletableFuture<Result<Integer, ApiError>> executeBatch(
+            HoldingPoolResponse pool,
+            List<BatchLeg> legs,
+            Map<BatchLeg, Result<ChoiceContextResult, ApiError>> choiceContexts,
+            String operator
+    ) {
+        if (pool.status == null || !"active".equalsIgnoreCase(pool.status)) {
+            return CompletableFuture.completedFuture(Result.err(preconditionError("Pool is not active", Map.of("status", pool.status))));
+        }
+        if (pool.instrumentA == null || pool.instrumentB == null) {
+            return CompletableFuture.completedFuture(Result.err(preconditionError("Pool instruments are missing", Map.of("poolCid", pool.contractId))));
+        }
+
+        List<PricedLeg> priced = new ArrayList<>();
+        for (BatchLeg leg : legs) {
+            SwapDirection direction = SwapDirection.fromNormalized(SwapDirection.normalizeMemo(leg.memo.direction));
+            if (direction == null) {
+                leg.result.complete(Result.err(validationError("memo.direction is invalid", "direction")));
+                continue;
+            }
+            HoldingPoolCreateRequest.InstrumentRef inputInstrument = direction == SwapDirection.A2B ? pool.instrumentA : pool.instrumentB;
+            if (!matchesInstrument(leg.ti, inputInstrument)) {
+                leg.result.complete(Result.err(preconditionError(
+                        "Inbound TI instrument does not match swap direction",
+                        Map.of("tiInstrumentAdmin", leg.ti.admin(), "tiInstrumentId", leg.ti.instrumentId(),
+                                "expectedAdmin", inputInstrument.admin, "expectedId", inputInstrument.id,
+                                "direction", leg.memo.direction)
+                )));
+                continue;
+            }
+            BigDecimal amountIn;
+            BigDecimal minOut;
+            try {
+                amountIn = normalizeAmount(leg.ti.amount());
+                minOut = normalizeAmount(leg.memo.minOut);
+                swapValidator.validateInputAmount(amountIn);
+                swapValidator.validateMinOutput(minOut);
+            } catch (Exception e) {
+                leg.result.complete(Result.err(validationError(e.getMessage(), "amountIn")));
+                continue;
+            }
+            Result<ChoiceContextResult, ApiError> choiceCtx = choiceContexts.get(leg);
+            if (choiceCtx == null) {
+                leg.result.complete(Result.err(preconditionError("No choice context resolved for inbound TI",
+                        Map.of("tiCid", leg.ti.contractId()))));
+                continue;
+            }
+            if (choiceCtx.isErr()) {
+                leg.result.complete(Result.err(choiceCtx.getErrorUnsafe()));
+                continue;
+            }
+            priced.add(new PricedLeg(leg, direction, amountIn, minOut, choiceCtx.getValueUnsafe()));
+        }
+
+        BigDecimal feeRate = feeRate(pool);
+        BigDecimal reserveA = normalizeAmount(pool.reserveAmountA);
+        BigDecimal reserveB = normalizeAmount(pool.reserveAmountB);
+        Map<PricedLeg, BigDecimal> amountsOut = quoteBatch(priced, feeRate, reserveA, reserveB);
+        // Dropping a leg moves the clearing price, so re-quote until every remaining leg meets its minOut
+        while (true) {
+            List<PricedLeg> belowMin = priced.stream()
+                    .filter(p -> amountsOut.get(p).compareTo(p.minOut) < 0)
+                    .toList();
+            if (belowMin.isEmpty()) {
+                break;
+            }
+            for (PricedLeg p : belowMin) {
+                p.leg.result.complete(Result.err(preconditionError(
+                        "Output amount below minimum",
+                        Map.of("amountOut", amountsOut.get(p).toPlainString(), "minOut", p.minOut.toPlainString())
+                )));
+                priced.remove(p);
+            }
+            amountsOut.clear();
+            amountsOut.putAll(quoteBatch(priced, feeRate, reserveA, reserveB));
+        }
+        if (priced.isEmpty()) {
+            return CompletableFuture.completedFuture(Result.ok(0));
+        }
+
+        BigDecimal grossInA = BigDecimal.ZERO;
+        BigDecimal grossInB = BigDecimal.ZERO;
+        BigDecimal totalOutA = BigDecimal.ZERO;
+        BigDecimal totalOutB = BigDecimal.ZERO;
+        Instant expiresAt = null;
+        for (PricedLeg p : priced) {
+            if (p.direction == SwapDirection.A2B) {
+                grossInA = grossInA.add(p.amountIn);
+                totalOutB = totalOutB.add(amountsOut.get(p));
+            } else {
+                grossInB = grossInB.add(p.amountIn);
+                totalOutA = totalOutA.add(amountsOut.get(p));
+            }
+            if (expiresAt == null || p.leg.deadline.isBefore(expiresAt)) {
+                expiresAt = p.leg.deadline;
+            }
+        }
+        if (!Instant.now().isBefore(expiresAt)) {
+            return CompletableFuture.completedFuture(Result.err(preconditionError(
+                    "Swap deadline has expired", Map.of("deadline", expiresAt.toString()))));
+        }
+        // Holdings received from the opposite side also fund payouts, so only the net must come from the pool
+        if (totalOutA.compareTo(getAvailableOut(pool, SwapDirection.B2A).add(grossInA)) > 0
+                || totalOutB.compareTo(getAvailableOut(pool, SwapDirection.A2B).add(grossInB)) > 0) {
+            return CompletableFuture.completedFuture(Result.err(preconditionError(
+                    "Insufficient available liquidity for batch output",
+                    Map.of("totalOutA", totalOutA.toPlainString(), "totalOutB", totalOutB.toPlainString()))));
+        }
+
+        final BigDecimal outA = totalOutA;
+        final BigDecimal outB = totalOutB;
+        final BigDecimal fundA = totalOutA.subtract(grossInA).max(BigDecimal.ZERO);
+        final BigDecimal fundB = totalOutB.subtract(grossInB).max(BigDecimal.ZERO);
+        final Instant batchExpiresAt = expiresAt;
+        CompletableFuture<HoldingSelectResponse> holdingA = outA.signum() > 0
+                ? holdingSelectorService.selectHoldingOnce(new HoldingSelectRequest(operator, pool.instrumentA.admin, pool.instrumentA.id, fundA, 0, 0))
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<HoldingSelectResponse> holdingB = outB.signum() > 0
+                ? holdingSelectorService.selectHoldingOnce(new HoldingSelectRequest(operator, pool.instrumentB.admin, pool.instrumentB.id, fundB, 0, 0))
+                : CompletableFuture.completedFuture(null);
+
+        final String pair = swapMetrics.poolPairTag(displaySymbol(pool.instrumentA.id), displaySymbol(pool.instrumentB.id));
+        return holdingA.thenCombine(holdingB, (selA, selB) ->
+                        prepareBatchPayoutSource(pool.instrumentA, selA, outA, priced, amountsOut, SwapDirection.B2A, batchExpiresAt, operator, pair)
+                                .thenCombine(
+                                        prepareBatchPayoutSource(pool.instrumentB, selB, outB, priced, amountsOut, SwapDirection.A2B, batchExpiresAt, operator, pair),
+                                        (sourceA, sourceB) -> {
+                                            if (sourceA.isErr()) {
+                                                return Result.<BatchCommand, ApiError>err(sourceA.getErrorUnsafe());
                                             }
-                                            SwapConsumeResponse response = new SwapConsumeResponse();
-                                            response.requestId = request.requestId;
-                                            response.inboundTiCid = ti.contractId();
-                                            response.intentCid = null;
-                                            response.swapIntentCid = null;
-                                            response.poolCid = memo.poolCid;
-                                            response.direction = memo.direction;
-                                            response.amountIn = amountIn.toPlainString();
-                                            response.amountOut = amountOut.toPlainString();
-                                            response.minOut = minOut.toPlainString();
-                                            response.executeSwapLedgerUpdateId = updateId;
-                                            response.executeSwapStatus = "SUCCEEDED";
-                                            response.payoutCid = payoutOutcome.payoutCid;
-                                            response.payoutExecuteBefore = deadline.toString();
-                                            response.payoutFactoryId = payoutPlan.factoryCid();
-                                            response.payoutDisclosedContractsCount = payoutPlan.disclosedContracts().size();
-                                            response.payoutStatus = payoutOutcome.completed ? "COMPLETED" : "CREATED";
-                                            response.nextAction = payoutOutcome.completed ? "NONE" : "ACCEPT_PAYOUT_IN_LOOP";
-                                            response.receiverParty = memo.receiverParty;
-
-                                            try {
-                                                String inputSymbol = direction == SwapDirection.A2B
-                                                        ? displaySymbol(pool.instrumentA.id)
-                                                        : displaySymbol(pool.instrumentB.id);
-                                                String outputSymbol = direction == SwapDirection.A2B
-                                                        ? displaySymbol(pool.instrumentB.id)
-                                                        : displaySymbol(pool.instrumentA.id);
-                                                transactionHistoryService.recordSwap(
-                                                        request.requestId,
-                                                        pool.contractId,
-                                                        pool.contractId,
-                                                        inputSymbol,
-                                                        outputSymbol,
-                                                        amountIn,
-                                                        amountOut,
-                                                        memo.receiverParty
-                                                );
-                                            } catch (Exception e) {
-                                                LOG.warn("[SwapConsume] Failed to record transaction history: {}", e.getMessage());
+                                            if (sourceB.isErr()) {
+                                                return Result.<BatchCommand, ApiError>err(sourceB.getErrorUnsafe());
                                             }
+                                            return Result.<BatchCommand, ApiError>ok(new BatchCommand(sourceA.getValueUnsafe(), sourceB.getValueUnsafe()));
+                                        }))
+                .thenCompose(Function.identity())
+                .thenCompose(commandResult -> {
+                    if (commandResult.isErr()) {
+                        return CompletableFuture.completedFuture(Result.<Integer, ApiError>err(commandResult.getErrorUnsafe()));
+                    }
+                    BatchCommand command = commandResult.getValueUnsafe();
+                    return submitBatch(pool, priced, amountsOut, command, batchExpiresAt, operator);
+                });
+    }
 
-                                            idempotencyService.registerSuccess(request.requestId, request.requestId, updateId, response);
-                                            return CompletableFuture.completedFuture(Result.ok(response));
-                                        });
-                            });
+    private Map<PricedLeg, BigDecimal> quoteBatch(List<PricedLeg> legs, BigDecimal feeRate, BigDecimal reserveA, BigDecimal reserveB) {
+        Map<PricedLeg, BigDecimal> afterFee = new LinkedHashMap<>();
+        BigDecimal netInA = BigDecimal.ZERO;
+        BigDecimal netInB = BigDecimal.ZERO;
+        for (PricedLeg p : legs) {
+            BigDecimal inputAfterFee = p.amountIn.multiply(BigDecimal.ONE.subtract(feeRate), MathContext.DECIMAL64)
+                    .setScale(SwapConstants.SCALE, RoundingMode.DOWN);
+            afterFee.put(p, inputAfterFee);
+            if (p.direction == SwapDirection.A2B) {
+                netInA = netInA.add(inputAfterFee);
+            } else {
+                netInB = netInB.add(inputAfterFee);
+            }
+        }
+
+        BigDecimal price = AmmMath.batchClearingPrice(netInA, netInB, reserveA, reserveB);
+        Map<PricedLeg, BigDecimal> amountsOut = new LinkedHashMap<>();
+        for (Map.Entry<PricedLeg, BigDecimal> entry : afterFee.entrySet()) {
+            BigDecimal out;
+            if (price.signum() <= 0) {
+                out = BigDecimal.ZERO;
+            } else if (entry.getKey().direction == SwapDirection.A2B) {
+                out = entry.getValue().multiply(price, MathContext.DECIMAL64);
+            } else {
+                out = entry.getValue().divide(price, MathContext.DECIMAL64);
+            }
+            amountsOut.put(entry.getKey(), out.setScale(SwapConstants.SCALE, RoundingMode.DOWN));
+        }
+        return amountsOut;
+    }
+
+    /**
+     * Payout source for one instrument. The registry's factory context can depend on the receiver
+     * (e.g. its transfer preapproval), so it is fetched once per receiver for that receiver's total
+     * and attached to each of its legs; all receivers must share the source's factory.
+     */
+    private CompletableFuture<Result<Optional<BatchPayoutSource>, ApiError>> prepareBatchPayoutSource(
+            HoldingPoolCreateRequest.InstrumentRef instrument,
+            HoldingSelectResponse selection,
+            BigDecimal totalOut,
+            List<PricedLeg> priced,
+            Map<PricedLeg, BigDecimal> amountsOut,
+            SwapDirection payoutDirection,
+            Instant expiresAt,
+            String operator,
+            String pair
+    ) {
+        if (totalOut.signum() <= 0) {
+            return CompletableFuture.completedFuture(Result.ok(Optional.empty()));
+        }
+        if (selection == null || !selection.found()) {
+            return CompletableFuture.completedFuture(Result.err(preconditionError(
+                    "No output holding found for batch payout",
+                    Map.of("admin", instrument.admin, "id", instrument.id, "minAmount", totalOut.toPlainString())
+            )));
+        }
+        Map<String, List<PricedLeg>> byReceiver = new LinkedHashMap<>();
+        for (PricedLeg p : priced) {
+            if (p.direction == payoutDirection) {
+                byReceiver.computeIfAbsent(p.leg.memo.receiverParty, r -> new ArrayList<>()).add(p);
+            }
+        }
+        Map<String, CompletableFuture<Result<PayoutService.TransferFactoryPlan, ApiError>>> plans = new LinkedHashMap<>();
+        byReceiver.forEach((receiver, receiverLegs) -> {
+            BigDecimal receiverTotal = receiverLegs.stream().map(amountsOut::get).reduce(BigDecimal.ZERO, BigDecimal::add);
+            PricedLeg first = receiverLegs.get(0);
+            plans.put(receiver, swapMetrics.timeStage(SwapMetrics.Stage.PAYOUT, pair, () -> payoutService.prepareTransferFactory(
+                    instrument.admin,
+                    instrument.id,
+                    selection.holdingCid(),
+                    receiver,
+                    receiverTotal,
+                    expiresAt,
+                    first.leg.memoRaw,
+                    "swap-batch-payout-" + first.leg.request.requestId
+            )));
+        });
+        return CompletableFuture.allOf(plans.values().toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            Map<String, PayoutService.TransferFactoryPlan> receiverPlans = new LinkedHashMap<>();
+            for (Map.Entry<String, CompletableFuture<Result<PayoutService.TransferFactoryPlan, ApiError>>> entry : plans.entrySet()) {
+                Result<PayoutService.TransferFactoryPlan, ApiError> plan = entry.getValue().join();
+                if (plan.isErr()) {
+                    return Result.<Optional<BatchPayoutSource>, ApiError>err(
+                            annotateNoSynchronizer(plan.getErrorUnsafe(), "PrepareBatchPayout", List.of(operator), List.of(operator), null));
+                }
+                receiverPlans.put(entry.getKey(), plan.getValueUnsafe());
+            }
+            PayoutService.TransferFactoryPlan sourcePlan = receiverPlans.values().iterator().next();
+            for (PayoutService.TransferFactoryPlan plan : receiverPlans.values()) {
+                if (!Objects.equals(plan.factoryCid(), sourcePlan.factoryCid())) {
+                    return Result.<Optional<BatchPayoutSource>, ApiError>err(preconditionError(
+                            "Batch receivers resolved different transfer factories",
+                            Map.of("factoryCid", sourcePlan.factoryCid(), "otherFactoryCid", plan.factoryCid())));
+                }
+            }
+            return Result.<Optional<BatchPayoutSource>, ApiError>ok(Optional.of(
+                    new BatchPayoutSource(selection.holdingCid(), sourcePlan, receiverPlans)));
+        });
+    }
+
+    private CompletableFuture<Result<Integer, ApiError>> submitBatch(
+            HoldingPoolResponse pool,
+            List<PricedLeg> priced,
+            Map<PricedLeg, BigDecimal> amountsOut,
+            BatchCommand command,
+            Instant expiresAt,
+            String operator
+    ) {
+        List<List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract>> disclosures = new ArrayList<>();
+        List<String> synchronizerIds = new ArrayList<>();
+        ValueOuterClass.List.Builder legValues = ValueOuterClass.List.newBuilder();
+        for (PricedLeg p : priced) {
+            disclosures.add(p.choiceContext.disclosedContracts());
+            synchronizerIds.add(p.choiceContext.synchronizerId());
+            PayoutService.TransferFactoryPlan payoutPlan = payoutPlanFor(p, command);
+            legValues.addElements(recordValue(ValueOuterClass.Record.newBuilder()
+                    .addFields(recordField("transferInstructionCid", contractIdValue(p.leg.ti.contractId())))
+                    .addFields(recordField("direction", swapDirectionValue(p.direction)))
+                    .addFields(recordField("minOutput", numericValue(p.minOut)))
+                    .addFields(recordField("recipient", partyValue(p.leg.memo.receiverParty)))
+                    .addFields(recordField("payoutMemo", textValue(p.leg.memoRaw)))
+                    .addFields(recordField("acceptExtraArgs", optionalValue(recordValue(p.choiceContext.extraArgs()))))
+                    .addFields(recordField("payoutExtraArgs", optionalValue(payoutPlan != null ? recordValue(payoutPlan.extraArgs()) : null)))
+                    .build()));
+        }
+        for (Optional<BatchPayoutSource> source : List.of(command.sourceA, command.sourceB)) {
+            if (source.isPresent()) {
+                for (PayoutService.TransferFactoryPlan plan : source.get().receiverPlans.values()) {
+                    disclosures.add(plan.disclosedContracts());
+                    synchronizerIds.add(plan.synchronizerId());
+                }
+            }
+        }
+        // Legs share the AmuletRules/featured-app disclosures; merge once for the whole batch
+        List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> disclosed =
+                disclosedContractCache.mergeAll(disclosures);
+        String synchronizerId = firstNonBlank(synchronizerIds.toArray(new String[0]));
+
+        ValueOuterClass.Record choiceArgs = ValueOuterClass.Record.newBuilder()
+                .addFields(recordField("legs", ValueOuterClass.Value.newBuilder().setList(legValues).build()))
+                .addFields(recordField("expiresAt", timestampValue(expiresAt)))
+                .addFields(recordField("payoutSourceA", optionalValue(command.sourceA.map(this::batchPayoutSourceValue).orElse(null))))
+                .addFields(recordField("payoutSourceB", optionalValue(command.sourceB.map(this::batchPayoutSourceValue).orElse(null))))
+                .build();
+
+        return ledgerApi.exerciseRawWithLabel(
+                        "ExecuteSwapBatchFromTransferInstructionsV1",
+                        holdingPoolTemplateId(),
+                        pool.contractId,
+                        "ExecuteSwapBatchFromTransferInstructionsV1",
+                        choiceArgs,
+                        List.of(operator),
+                        List.of(),
+                        disclosed,
+                        synchronizerId
+                )
+                .handle((resp, throwable) -> {
+                    if (throwable != null) {
+                        priced.forEach(pricedLeg -> choiceContextService.invalidate(pricedLeg.leg.ti.contractId()));
+                        return Result.<Integer, ApiError>err(annotateNoSynchronizer(
+                                ApiError.of(ErrorCode.LEDGER_REJECTED, throwable.getMessage()),
+                                "ExecuteSwapBatchFromTransferInstructions",
+                                List.of(operator),
+                                List.of(),
+                                synchronizerId));
+                    }
+                    poolCommandSequencer.observe(resp.getTransaction());
+                    String updateId = extractUpdateId(resp);
+                    List<PayoutOutcomeInfo> outcomes = extractBatchPayoutOutcomes(resp);
+                    if (updateId == null || updateId.isBlank() || outcomes.size() != priced.size()) {
+                        // Committed but unreadable: report per leg rather than retrying consumed TIs
+                        ApiError error = ApiError.of(ErrorCode.INTERNAL, "ExecuteSwapBatch returned no updateId or payout outcomes");
+                        priced.forEach(p -> p.leg.result.complete(Result.err(error)));
+                        return Result.<Integer, ApiError>ok(0);
+                    }
+                    for (int i = 0; i < priced.size(); i++) {
+                        PricedLeg p = priced.get(i);
+                        SwapConsumeResponse response = batchLegResponse(p, amountsOut.get(p), updateId, outcomes.get(i),
+                                payoutPlanFor(p, command), priced.size());
+                        recordSwapHistory(p, pool, amountsOut.get(p), i == 0 ? updateId : updateId + "#" + i);
+                        idempotencyService.registerSuccess(p.leg.request.requestId, p.leg.request.requestId, updateId, response);
+                        p.leg.result.complete(Result.ok(response));
+                    }
+                    return Result.<Integer, ApiError>ok(priced.size());
                 });
     }
 
+    private static PayoutService.TransferFactoryPlan payoutPlanFor(PricedLeg p, BatchCommand command) {
+        Optional<BatchPayoutSource> source = p.direction == SwapDirection.A2B ? command.sourceB : command.sourceA;
+        return source.map(s -> s.receiverPlans.get(p.leg.memo.receiverParty)).orElse(null);
+    }
+
+    private ValueOuterClass.Value batchPayoutSourceValue(BatchPayoutSource source) {
+        return recordValue(ValueOuterClass.Record.newBuilder()
+                .addFields(recordField("outputHoldingCids", ValueOuterClass.Value.newBuilder()
+                        .setList(ValueOuterClass.List.newBuilder().addElements(contractIdValue(source.holdingCid)))
+                        .build()))
+                .addFields(recordField("payoutFactoryCid", contractIdValue(source.plan.factoryCid())))
+                .addFields(recordField("payoutExtraArgs", recordValue(source.plan.extraArgs())))
+                .build());
+    }
+
+    private SwapConsumeResponse batchLegResponse(
+            PricedLeg p,
+            BigDecimal amountOut,
+            String updateId,
+            PayoutOutcomeInfo payoutOutcome,
+            PayoutService.TransferFactoryPlan payoutPlan,
+            int batchSize
+    ) {
+        SwapConsumeResponse response = new SwapConsumeResponse();
+        response.requestId = p.leg.request.requestId;
+        response.inboundTiCid = p.leg.ti.contractId();
+        response.poolCid = p.leg.memo.poolCid;
+        response.direction = p.leg.memo.direction;
+        response.amountIn = p.amountIn.toPlainString();
+        response.amountOut = amountOut.toPlainString();
+        response.minOut = p.minOut.toPlainString();
+        response.executeSwapLedgerUpdateId = updateId;
+        response.executeSwapStatus = "SUCCEEDED";
+        response.payoutCid = payoutOutcome.payoutCid;
+        response.payoutExecuteBefore = p.leg.deadline.toString();
+        response.payoutFactoryId = payoutPlan != null ? payoutPlan.factoryCid() : null;
+        response.payoutDisclosedContractsCount = payoutPlan != null ? payoutPlan.disclosedContracts().size() : 0;
+        response.payoutStatus = payoutOutcome.completed ? "COMPLETED" : "CREATED";
+        response.nextAction = payoutOutcome.completed ? "NONE" : "ACCEPT_PAYOUT_IN_LOOP";
+        response.receiverParty = p.leg.memo.receiverParty;
+        response.batchSize = batchSize;
+        return response;
+    }
+
+    /**
+     * One entry per leg. The first leg uses the bare update id, so a single-leg batch is stored once
+     * next to the ledger history indexer's entry; the indexer skips multi-leg batches.
+     */
+    private void recordSwapHistory(PricedLeg p, HoldingPoolResponse pool, BigDecimal amountOut, String eventId) {
+        try {
+            String inputSymbol = p.direction == SwapDirection.A2B
+                    ? displaySymbol(pool.instrumentA.id)
+                    : displaySymbol(pool.instrumentB.id);
+            String outputSymbol = p.direction == SwapDirection.A2B
+                    ? displaySymbol(pool.instrumentB.id)
+                    : displaySymbol(pool.instrumentA.id);
+            transactionHistoryService.recordSwap(
+                    eventId,
+                    pool.contractId,
+                    pool.contractId,
+                    inputSymbol,
+                    outputSymbol,
+                    p.amountIn,
+                    amountOut,
+                    p.leg.memo.receiverParty
+            );
+        } catch (Exception e) {
+            LOG.warn("[SwapBatch] Failed to record transaction history: {}", e.getMessage());
+        }
+    }
+
+    private void completeLeg(BatchLeg leg, CompletableFuture<Result<SwapConsumeResponse, ApiError>> outcome) {
+        outcome.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                leg.result.completeExceptionally(throwable);
+            } else {
+                leg.result.complete(result);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (openBatches) {
+            if (batchScheduler != null) {
+                batchScheduler.shutdown();
+            }
+        }
+    }
+
     private Result<Selection, ApiError> selectCandidate(
             List<TransferInstructionWithMemo> items,
             String requestId,
@@ -463,18 +1062,13 @@ public class SwapTiProcessorService {
                 ? normalizeAmount(pool.reserveAmountB)
                 : normalizeAmount(pool.reserveAmountA);
 
-        BigDecimal feeRate = pool.feeBps != null
+        return AmmMath.swapOutput(amountIn, reserveIn, reserveOut, feeRate(pool));
+    }
+
+    private BigDecimal feeRate(HoldingPoolResponse pool) {
+        return pool.feeBps != null
                 ? new BigDecimal(pool.feeBps).movePointLeft(4).setScale(SwapConstants.SCALE, RoundingMode.DOWN)
                 : SwapConstants.FEE_RATE;
-
-        BigDecimal inputAfterFee = amountIn.multiply(BigDecimal.ONE.subtract(feeRate), MathContext.DECIMAL64)
-                .setScale(SwapConstants.SCALE, RoundingMode.DOWN);
-        BigDecimal numerator = inputAfterFee.multiply(reserveOut, MathContext.DECIMAL64);
-        BigDecimal denominator = reserveIn.add(inputAfterFee);
-        if (denominator.compareTo(BigDecimal.ZERO) <= 0) {
-            return BigDecimal.ZERO.setScale(SwapConstants.SCALE, RoundingMode.DOWN);
-        }
-        return numerator.divide(denominator, SwapConstants.SCALE, RoundingMode.DOWN);
     }
 
     private BigDecimal getAvailableOut(HoldingPoolResponse pool, SwapDirection direction) {
@@ -491,8 +1085,84 @@ public class SwapTiProcessorService {
         return available.setScale(SwapConstants.SCALE, RoundingMode.DOWN);
     }
 
+    /**
+     * The part of a single swap that holds the pool lane: read the pool at the latest CID, re-check
+     * the quote against that version (the pre-lane quote may predate commands queued ahead of this
+     * one), then exercise.
+     */
+    private CompletableFuture<Result<SwapExecution, ApiError>> submitSwap(
+            String latestPoolCid,
+            String poolId,
+            TransferInstructionDto ti,
+            HoldingSelectResponse outputHolding,
+            SwapDirection direction,
+            BigDecimal amountIn,
+            BigDecimal minOut,
+            Instant deadline,
+            String receiverParty,
+            PayoutService.TransferFactoryPlan payoutPlan,
+            String memoRaw,
+            ValueOuterClass.Record acceptExtraArgs,
+            List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> disclosed,
+            String synchronizerId
+    ) {
+        return holdingPoolService.getLatest(latestPoolCid, poolId).thenCompose(latest -> {
+            if (latest.isErr()) {
+                return laneError(domainError("Pool not found or not visible", latest.getErrorUnsafe()));
+            }
+            HoldingPoolResponse current = latest.getValueUnsafe();
+            if (current.status == null || !"active".equalsIgnoreCase(current.status)) {
+                return laneError(preconditionError("Pool is not active", Map.of("status", String.valueOf(current.status))));
+            }
+            BigDecimal amountOut = computeOutputAmount(current, direction, amountIn);
+            if (amountOut.compareTo(minOut) < 0) {
+                return laneError(preconditionError(
+                        "Output amount below minimum",
+                        Map.of("amountOut", amountOut.toPlainString(), "minOut", minOut.toPlainString())
+                ));
+            }
+            BigDecimal availableOut = getAvailableOut(current, direction);
+            if (amountOut.compareTo(availableOut) > 0) {
+                return laneError(preconditionError(
+                        "Insufficient available liquidity for output",
+                        Map.of("amountOut", amountOut.toPlainString(), "availableOut", availableOut.toPlainString())
+                ));
+            }
+            if (outputHolding.amount() != null && amountOut.compareTo(outputHolding.amount()) > 0) {
+                return laneError(preconditionError(
+                        "Output holding does not cover the payout",
+                        Map.of("amountOut", amountOut.toPlainString(), "holdingAmount", outputHolding.amount().toPlainString())
+                ));
+            }
+            return executeSwapFromTransferInstruction(
+                            current.contractId,
+                            poolId,
+                            ti.contractId(),
+                            outputHolding.holdingCid(),
+                            direction,
+                            minOut,
+                            deadline,
+                            receiverParty,
+                            payoutPlan.factoryCid(),
+                            payoutPlan.extraArgs(),
+                            memoRaw,
+                            acceptExtraArgs,
+                            disclosed,
+                            synchronizerId
+                    )
+                    .thenApply(result -> result.isErr()
+                            ? Result.<SwapExecution, ApiError>err(result.getErrorUnsafe())
+                            : Result.<SwapExecution, ApiError>ok(new SwapExecution(result.getValueUnsafe(), amountOut)));
+        });
+    }
+
+    private CompletableFuture<Result<SwapExecution, ApiError>> laneError(ApiError err) {
+        return CompletableFuture.completedFuture(Result.err(err));
+    }
+
     private CompletableFuture<Result<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse, ApiError>> executeSwapFromTransferInstruction(
             String poolCid,
+            String poolId,
             String transferInstructionCid,
             String outputHoldingCid,
             SwapDirection direction,
@@ -519,7 +1189,7 @@ public class SwapTiProcessorService {
                 .addFields(recordField("acceptExtraArgs", optionalValue(recordValue(acceptExtraArgs))))
                 .build();
 
-        return ledgerApi.exerciseRawWithLabel(
+        return holdingPoolService.refreshOnFailure(poolCid, poolId, ledgerApi.exerciseRawWithLabel(
                         "ExecuteSwapFromTransferInstructionV2",
                         holdingPoolTemplateId(),
                         poolCid,
@@ -529,16 +1199,17 @@ public class SwapTiProcessorService {
                         List.of(),
                         disclosedContracts,
                         synchronizerId
-                )
+                ))
                 .handle((resp, throwable) -> {
                     if (throwable != null) {
                         return Result.err(ApiError.of(ErrorCode.LEDGER_REJECTED, throwable.getMessage()));
                     }
+                    poolCommandSequencer.observe(resp.getTransaction());
                     return Result.ok(resp);
                 });
     }
 
-    private Result<PayoutResponse, ApiError> createPayout(
+    private CompletableFuture<Result<PayoutResponse, ApiError>> createPayout(
             HoldingPoolCreateRequest.InstrumentRef outputInstrument,
             String receiverParty,
             BigDecimal amountOut,
@@ -553,7 +1224,8 @@ public class SwapTiProcessorService {
 
         long remainingSeconds = Duration.between(Instant.now(), deadline).getSeconds();
         if (remainingSeconds <= 0) {
-            return Result.err(preconditionError("Swap deadline expired before payout", Map.of("deadline", deadline.toString())));
+            return CompletableFuture.completedFuture(Result.err(
+                    preconditionError("Swap deadline expired before payout", Map.of("deadline", deadline.toString()))));
         }
         payout.executeBeforeSeconds = Math.min(remainingSeconds, 7200L);
 
@@ -563,7 +1235,8 @@ public class SwapTiProcessorService {
         if ("CBTC".equalsIgnoreCase(outputInstrument.id)) {
             return payoutService.createCbtcPayout(payout, "swap-payout-cbtc-" + requestId);
         }
-        return Result.err(validationError("Unsupported output instrument: " + outputInstrument.id, "instrumentId"));
+        return CompletableFuture.completedFuture(Result.err(
+                validationError("Unsupported output instrument: " + outputInstrument.id, "instrumentId")));
     }
 
     private ValueOuterClass.Identifier holdingPoolTemplateId() {
@@ -626,22 +1299,7 @@ public class SwapTiProcessorService {
             List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> a,
             List<com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> b
     ) {
-        Map<String, com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract> byCid = new LinkedHashMap<>();
-        if (a != null) {
-            for (var dc : a) {
-                if (dc != null && !dc.getContractId().isBlank()) {
-                    byCid.putIfAbsent(dc.getContractId(), dc);
-                }
-            }
-        }
-        if (b != null) {
-            for (var dc : b) {
-                if (dc != null && !dc.getContractId().isBlank()) {
-                    byCid.putIfAbsent(dc.getContractId(), dc);
-                }
-            }
-        }
-        return new ArrayList<>(byCid.values());
+        return disclosedContractCache.merge(a, b);
     }
 
     private String firstNonBlank(String... values) {
@@ -687,30 +1345,60 @@ public class SwapTiProcessorService {
             if (!result.hasRecord()) continue;
             var rec = result.getRecord();
             if (rec.getFieldsCount() < 2) continue;
-            var payoutVal = rec.getFields(1).getValue();
-            if (payoutVal.hasContractId()) {
-                return new PayoutOutcomeInfo(payoutVal.getContractId(), false);
-            }
-            if (payoutVal.hasVariant()) {
-                var variant = payoutVal.getVariant();
-                String ctor = variant.getConstructor();
-                if ("PayoutCompleted".equals(ctor)) {
-                    return new PayoutOutcomeInfo(null, true);
-                }
-                if ("PayoutPending".equals(ctor)) {
-                    ValueOuterClass.Value inner = variant.getValue();
-                    if (inner.hasContractId()) {
-                        return new PayoutOutcomeInfo(inner.getContractId(), false);
-                    }
+            PayoutOutcomeInfo outcome = toPayoutOutcome(rec.getFields(1).getValue());
+            if (outcome != null) {
+                return outcome;
+            }
+        }
+        return null;
+    }
+
+    private List<PayoutOutcomeInfo> extractBatchPayoutOutcomes(CommandServiceOuterClass.SubmitAndWaitForTransactionResponse resp) {
+        if (resp == null || !resp.hasTransaction()) return List.of();
+        for (var ev : resp.getTransaction().getEventsList()) {
+            if (!ev.hasExercised() || !"ExecuteSwapBatchFromTransferInstructionsV1".equals(ev.getExercised().getChoice())) {
+                continue;
+            }
+            var result = ev.getExercised().getExerciseResult();
+            if (!result.hasRecord() || result.getRecord().getFieldsCount() < 2) continue;
+            var outcomesVal = result.getRecord().getFields(1).getValue();
+            if (!outcomesVal.hasList()) continue;
+            List<PayoutOutcomeInfo> outcomes = new ArrayList<>();
+            for (ValueOuterClass.Value element : outcomesVal.getList().getElementsList()) {
+                PayoutOutcomeInfo outcome = toPayoutOutcome(element);
+                if (outcome == null) {
+                    return List.of();
                 }
+                outcomes.add(outcome);
+            }
+            return outcomes;
+        }
+        return List.of();
+    }
+
+    private PayoutOutcomeInfo toPayoutOutcome(ValueOuterClass.Value payoutVal) {
+        if (payoutVal.hasContractId()) {
+            return new PayoutOutcomeInfo(payoutVal.getContractId(), false);
+        }
+        if (payoutVal.hasVariant()) {
+            var variant = payoutVal.getVariant();
+            String ctor = variant.getConstructor();
+            if ("PayoutCompleted".equals(ctor)) {
+                return new PayoutOutcomeInfo(null, true);
             }
-            if (payoutVal.hasOptional()) {
-                var opt = payoutVal.getOptional();
-                if (opt.hasValue() && opt.getValue().hasContractId()) {
-                    return new PayoutOutcomeInfo(opt.getValue().getContractId(), false);
+            if ("PayoutPending".equals(ctor)) {
+                ValueOuterClass.Value inner = variant.getValue();
+                if (inner.hasContractId()) {
+                    return new PayoutOutcomeInfo(inner.getContractId(), false);
                 }
             }
         }
+        if (payoutVal.hasOptional()) {
+            var opt = payoutVal.getOptional();
+            if (opt.hasValue() && opt.getValue().hasContractId()) {
+                return new PayoutOutcomeInfo(opt.getValue().getContractId(), false);
+            }
+        }
         return null;
     }
 
@@ -784,6 +1472,25 @@ public class SwapTiProcessorService {
     private record Candidate(TransferInstructionDto transfer, SwapMemo memo, String memoRaw) { }
     private record Selection(Candidate candidate, boolean matchedRequestId) { }
     private record PayoutOutcomeInfo(String payoutCid, boolean completed) { }
+    private record BatchLeg(SwapConsumeRequest request, TransferInstructionDto ti, SwapMemo memo, String memoRaw,
+                            Instant deadline, CompletableFuture<Result<SwapConsumeResponse, ApiError>> result) { }
+    private record PricedLeg(BatchLeg leg, SwapDirection direction, BigDecimal amountIn, BigDecimal minOut,
+                             ChoiceContextResult choiceContext) { }
+    private record PayoutInputs(Result<ChoiceContextResult, ApiError> choiceContext,
+                                Result<PayoutService.TransferFactoryPlan, ApiError> payoutPlan) { }
+    private record SwapExecution(CommandServiceOuterClass.SubmitAndWaitForTransactionResponse response, BigDecimal amountOut) { }
+    private record BatchPayoutSource(String holdingCid, PayoutService.TransferFactoryPlan plan,
+                                     Map<String, PayoutService.TransferFactoryPlan> receiverPlans) { }
+    private record BatchCommand(Optional<BatchPayoutSource> sourceA, Optional<BatchPayoutSource> sourceB) { }
+
+    private static final class PendingBatch {
+        private final String poolCid;
+        private final List<BatchLeg> legs = new ArrayList<>();
+
+        private PendingBatch(String poolCid) {
+            this.poolCid = poolCid;
+        }
+    }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static final class SwapMemo {
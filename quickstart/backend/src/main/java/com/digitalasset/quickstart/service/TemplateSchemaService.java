@@ -7,16 +7,28 @@ import com.google.protobuf.WireFormat;
 import com.digitalasset.quickstart.ledger.LedgerApi;
 import com.digitalasset.quickstart.config.TemplateSchemaDebugConfig;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 /**
  * DEVNET-only helper to inspect template parameter schemas from DALF packages.
  * Guarded by feature flag to avoid leaking in production.
+ *
+ * Decoded packages are kept in memory and in an on-disk {@link PackageCacheStore}, so a restart
+ * does not download and re-extract them. Template, choice and data type layouts derived from a
+ * package are indexed by (package, module, entity) after the first lookup. {@link #prewarm} loads
+ * packages and their dependencies in the background before the first request needs them.
  */
 @Service
 public class TemplateSchemaService {
@@ -26,12 +38,73 @@ public class TemplateSchemaService {
     private final LedgerApi ledgerApi;
     private final TemplateSchemaDebugConfig debugConfig;
 
+    // Package ids are 64 hex chars; LF packages intern the ids of the packages they reference
+    private static final Pattern PACKAGE_ID = Pattern.compile("[0-9a-f]{64}");
+
     // Cache packageId -> decoded package
     private final Map<String, PackageWrapper> packageCache = new ConcurrentHashMap<>();
-
-    public TemplateSchemaService(LedgerApi ledgerApi, TemplateSchemaDebugConfig debugConfig) {
+    // Derived layouts by kind|packageId|module|entity
+    private final Map<String, Object> layoutIndex = new ConcurrentHashMap<>();
+    private final PackageCacheStore diskCache;
+    private final int prewarmMax;
+    private final ExecutorService prewarmExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "package-prewarm");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public TemplateSchemaService(
+            LedgerApi ledgerApi,
+            TemplateSchemaDebugConfig debugConfig,
+            @Value("${clearportx.packages.cache-dir:${java.io.tmpdir}/clearportx-packages}") String cacheDir,
+            @Value("${clearportx.packages.prewarm-max:200}") int prewarmMax
+    ) {
         this.ledgerApi = ledgerApi;
         this.debugConfig = debugConfig;
+        this.diskCache = new PackageCacheStore(Path.of(cacheDir));
+        this.prewarmMax = prewarmMax;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prewarmExecutor.shutdownNow();
+    }
+
+    /**
+     * Load the given packages and the packages they reference (up to clearportx.packages.prewarm-max)
+     * on a background thread. Failures are logged; the package is fetched again on first use.
+     */
+    public void prewarm(Collection<String> packageIds) {
+        prewarmExecutor.execute(() -> {
+            Deque<String> pending = new ArrayDeque<>(packageIds);
+            Set<String> seen = new HashSet<>(packageIds);
+            int loaded = 0;
+            long start = System.nanoTime();
+            while (!pending.isEmpty() && loaded < prewarmMax && !Thread.currentThread().isInterrupted()) {
+                PackageWrapper pkg = packageCache.computeIfAbsent(pending.poll(), this::loadPackage);
+                if (pkg == null) {
+                    continue;
+                }
+                loaded++;
+                for (String dep : dependencyIds(pkg)) {
+                    if (seen.add(dep)) {
+                        pending.add(dep);
+                    }
+                }
+            }
+            LOG.info("Pre-warmed {} Daml packages in {} ms", loaded, (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+
+    private static List<String> dependencyIds(PackageWrapper pkg) {
+        List<String> interned = pkg.lf2 != null ? pkg.lf2.getInternedStringsList() : pkg.lf1.getInternedStringsList();
+        return interned.stream().filter(s -> PACKAGE_ID.matcher(s).matches()).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T layout(String kind, String packageId, String moduleName, String entityName, Supplier<T> derive) {
+        // computeIfAbsent does not store anything when derive throws, so lookup errors are not cached
+        return (T) layoutIndex.computeIfAbsent(kind + '|' + packageId + '|' + moduleName + '|' + entityName, k -> derive.get());
     }
 
     public boolean isEnabled() {
@@ -85,6 +158,10 @@ public class TemplateSchemaService {
     }
 
     public TemplateChoicesAst getTemplateChoicesAst(String packageId, String moduleName, String entityName) {
+        return layout("choices", packageId, moduleName, entityName, () -> deriveTemplateChoicesAst(packageId, moduleName, entityName));
+    }
+
+    private TemplateChoicesAst deriveTemplateChoicesAst(String packageId, String moduleName, String entityName) {
         PackageWrapper pkg = packageCache.computeIfAbsent(packageId, this::loadPackage);
         if (pkg == null) {
             throw new IllegalStateException("Package not found or failed to load");
@@ -96,6 +173,10 @@ public class TemplateSchemaService {
     }
 
     public DataTypeAst getDataTypeAst(String packageId, String moduleName, String entityName) {
+        return layout("data", packageId, moduleName, entityName, () -> deriveDataTypeAst(packageId, moduleName, entityName));
+    }
+
+    private DataTypeAst deriveDataTypeAst(String packageId, String moduleName, String entityName) {
         PackageWrapper pkg = packageCache.computeIfAbsent(packageId, this::loadPackage);
         if (pkg == null) {
             throw new IllegalStateException("Package not found or failed to load");
@@ -246,6 +327,17 @@ public class TemplateSchemaService {
     }
 
     private PackageWrapper loadPackage(String packageId) {
+        Optional<PackageCacheStore.CachedPackage> cached = diskCache.read(packageId);
+        if (cached.isPresent()) {
+            try {
+                PackageCacheStore.CachedPackage c = cached.get();
+                return c.lfMajor() == 2
+                        ? new PackageWrapper(null, DamlLf2.Package.parseFrom(c.payload()))
+                        : new PackageWrapper(DamlLf1.Package.parseFrom(c.payload()), null);
+            } catch (Exception e) {
+                LOG.warn("Cached package {} did not parse, downloading again: {}", packageId, e.getMessage());
+            }
+        }
         try {
             byte[] rawBytes = ledgerApi.getPackageBytes(packageId);
 
@@ -263,10 +355,12 @@ public class TemplateSchemaService {
 
             DamlLf1.Package lf1 = tryParseLf1(payloadCandidate);
             if (lf1 != null) {
+                diskCache.write(packageId, 1, payloadCandidate);
                 return new PackageWrapper(lf1, null);
             }
             DamlLf2.Package lf2 = tryParseLf2(payloadCandidate);
             if (lf2 != null) {
+                diskCache.write(packageId, 2, payloadCandidate);
                 return new PackageWrapper(null, lf2);
             }
 
@@ -667,6 +761,10 @@ public class TemplateSchemaService {
 
     /** Provide full AST (record fields) for template create arguments. */
     public TemplateAst getTemplateAst(String packageId, String moduleName, String entityName) {
+        return layout("template", packageId, moduleName, entityName, () -> deriveTemplateAst(packageId, moduleName, entityName));
+    }
+
+    private TemplateAst deriveTemplateAst(String packageId, String moduleName, String entityName) {
         PackageWrapper pkg = packageCache.computeIfAbsent(packageId, this::loadPackage);
         if (pkg == null) {
             throw new IllegalStateException("Package not found or failed to load");
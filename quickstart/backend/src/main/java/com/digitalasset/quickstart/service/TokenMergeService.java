@@ -5,6 +5,7 @@ package com.digitalasset.quickstart.service;
 
 import clearportx_amm_drain_credit.token.token.Token;
 import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.metrics.SwapMetrics;
 import com.digitalasset.transcode.java.ContractId;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import org.slf4j.Logger;
@@ -25,9 +26,11 @@ import java.util.stream.Collectors;
 public class TokenMergeService {
     private static final Logger logger = LoggerFactory.getLogger(TokenMergeService.class);
     private final LedgerApi ledger;
+    private final SwapMetrics swapMetrics;
 
-    public TokenMergeService(LedgerApi ledger) {
+    public TokenMergeService(LedgerApi ledger, SwapMetrics swapMetrics) {
         this.ledger = ledger;
+        this.swapMetrics = swapMetrics;
     }
 
     /**
@@ -60,7 +63,8 @@ public class TokenMergeService {
                     b.payload.getAmount.compareTo(a.payload.getAmount)
                 );
 
-                return mergeTokensSequentially(matchingTokens, party);
+                return swapMetrics.timeStage(SwapMetrics.Stage.MERGE, swapMetrics.tokenTag(symbol),
+                    () -> mergeTokensSequentially(matchingTokens, party));
             })
             .exceptionally(ex -> {
                 logger.error("Failed to merge {} tokens: {}", symbol, ex.getMessage());
@@ -5,6 +5,7 @@ import com.digitalasset.quickstart.common.DomainError;
 import com.digitalasset.quickstart.common.Result;
 import com.digitalasset.quickstart.common.errors.UnexpectedError;
 import com.digitalasset.quickstart.common.errors.ValidationError;
+import com.digitalasset.quickstart.config.BlockingExecutor;
 import com.digitalasset.quickstart.dto.MintTokensResponse;
 import com.digitalasset.quickstart.ledger.LedgerApi;
 import com.digitalasset.transcode.java.ContractId;
@@ -27,12 +28,19 @@ public class TokenMintService {
     private static final Logger LOGGER = LoggerFactory.getLogger(TokenMintService.class);
 
     private final LedgerApi ledgerApi;
+    private final BlockingExecutor blockingExecutor;
 
-    public TokenMintService(LedgerApi ledgerApi) {
+    public TokenMintService(LedgerApi ledgerApi, BlockingExecutor blockingExecutor) {
         this.ledgerApi = ledgerApi;
+        this.blockingExecutor = blockingExecutor;
     }
 
     public CompletableFuture<Result<MintTokensResponse, DomainError>> mintTokens(final MintTokensCommand command) {
+        // Both creates are joined in turn; run them off the request thread
+        return blockingExecutor.supply(() -> mintTokensBlocking(command)).thenCompose(result -> result);
+    }
+
+    private CompletableFuture<Result<MintTokensResponse, DomainError>> mintTokensBlocking(final MintTokensCommand command) {
         try {
             List<String> steps = new ArrayList<>();
             List<Map<String, String>> minted = new ArrayList<>();
@@ -0,0 +1,444 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.service.TransactionHistoryService.TransactionHistoryEntry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, segmented transaction history log.
+ *
+ * Each entry is one compact JSON line {"s": seq, "e": entry} appended to the active segment
+ * (segment-NNNNNNNNNN.log); the segment rolls over at segmentMaxBytes. Sealed segments are read
+ * through read-only memory maps, the active one with positional reads. Only the index lives on the
+ * heap: seq → location, plus id, party and pool lookups.
+ *
+ * Each segment has an append-only index file (segment-NNNNNNNNNN.idx) with one line per record's
+ * keys and location. Every checkpointEvery appends only the records written since the last
+ * checkpoint are appended to it, so a checkpoint costs O(delta) however large the log grows, and
+ * a restart loads the index files and scans just the segment tails they do not cover. A torn last
+ * line (log or index) is truncated.
+ *
+ * Retention drops whole sealed segments, oldest first, while the log exceeds retentionBytes or
+ * the segment is older than retentionAge.
+ *
+ * Appends are serialized by the caller ({@link TransactionHistoryService}); reads are lock-free.
+ */
+public final class TransactionHistoryLog implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransactionHistoryLog.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+    /** Full-index snapshot written by earlier versions; segments are rescanned once instead. */
+    private static final String LEGACY_CHECKPOINT = "index.ckpt";
+
+    private record Location(String id, String poolId, String party, int segment, long offset, int length) { }
+
+    private final Path dir;
+    private final long segmentMaxBytes;
+    private final long retentionBytes;
+    private final Duration retentionAge;
+    private final int checkpointEvery;
+    private final ObjectMapper mapper;
+
+    private final ConcurrentSkipListMap<Long, Location> bySeq = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> byId = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<Long>> byParty = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<Long>> byPool = new ConcurrentHashMap<>();
+    private final Map<Integer, MappedByteBuffer> sealed = new ConcurrentHashMap<>();
+    // Records not yet in their segment's index file, in seq order; touched only by the appending thread
+    private final List<Map.Entry<Long, Location>> unflushed = new ArrayList<>();
+
+    private volatile FileChannel active;
+    private volatile int activeSegment;
+    private long nextSeq;
+    private int sinceCheckpoint;
+
+    public TransactionHistoryLog(Path dir, long segmentMaxBytes, long retentionBytes, Duration retentionAge,
+                                 int checkpointEvery, ObjectMapper mapper) {
+        this.dir = dir;
+        this.segmentMaxBytes = Math.max(4096, segmentMaxBytes);
+        this.retentionBytes = retentionBytes;
+        this.retentionAge = retentionAge;
+        this.checkpointEvery = Math.max(1, checkpointEvery);
+        this.mapper = mapper;
+    }
+
+    /**
+     * Load each segment's index file, scan what it does not cover and open the active segment for appends.
+     */
+    public void open() throws IOException {
+        Files.createDirectories(dir);
+        Files.deleteIfExists(dir.resolve(LEGACY_CHECKPOINT));
+        List<Integer> segments = listSegments();
+        for (int segment : segments) {
+            scan(segment, loadIndex(segment));
+        }
+        checkpoint();
+        activeSegment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        openActive();
+        for (int segment : segments) {
+            if (segment != activeSegment) {
+                map(segment);
+            }
+        }
+        enforceRetention();
+        LOG.info("Transaction history log opened at {}: {} entries in {} segment(s)", dir, bySeq.size(), segments.size());
+    }
+
+    /**
+     * Append one entry. Not thread-safe; callers serialize appends.
+     *
+     * @return The entry's sequence number
+     */
+    public long append(TransactionHistoryEntry entry) throws IOException {
+        long seq = nextSeq;
+        ObjectNode line = mapper.createObjectNode();
+        line.put("s", seq);
+        line.set("e", mapper.valueToTree(entry));
+        byte[] bytes = (mapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8);
+        if (active.size() > 0 && active.size() + bytes.length > segmentMaxBytes) {
+            roll();
+        }
+        long offset = active.size();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            active.write(buffer, offset + buffer.position());
+        }
+        unflushed.add(Map.entry(seq, index(seq, entry, activeSegment, offset, bytes.length)));
+        nextSeq = seq + 1;
+        if (++sinceCheckpoint >= checkpointEvery) {
+            checkpoint();
+        }
+        return seq;
+    }
+
+    /**
+     * @return The entry at {@code seq}, or null when it was never written or has been retained away
+     */
+    public TransactionHistoryEntry read(long seq) {
+        Location location = bySeq.get(seq);
+        if (location == null) {
+            return null;
+        }
+        try {
+            byte[] bytes = new byte[location.length];
+            MappedByteBuffer mapped = sealed.get(location.segment);
+            if (mapped != null) {
+                mapped.duplicate().position((int) location.offset).get(bytes);
+            } else if (location.segment == activeSegment) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    if (active.read(buffer, location.offset + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+            } else {
+                return null;
+            }
+            return mapper.treeToValue(mapper.readTree(bytes).get("e"), TransactionHistoryEntry.class);
+        } catch (Exception e) {
+            LOG.warn("Failed to read history entry {}: {}", seq, e.getMessage());
+            return null;
+        }
+    }
+
+    public Long seqOf(String id) {
+        return id != null ? byId.get(id) : null;
+    }
+
+    /**
+     * Sequence numbers newest first, optionally filtered by party or pool.
+     *
+     * @param party Actor party filter (null for all)
+     * @param poolId Pool filter (null for all); combined with the party filter when both are given
+     * @param beforeSeq Exclusive upper bound (null for the newest)
+     * @param limit Maximum number of results
+     */
+    public List<Long> newest(String party, String poolId, Long beforeSeq, int limit) {
+        NavigableSet<Long> source;
+        if (party != null) {
+            source = byParty.get(party);
+        } else if (poolId != null) {
+            source = byPool.get(poolId);
+        } else {
+            source = bySeq.navigableKeySet();
+        }
+        if (source == null || limit <= 0) {
+            return List.of();
+        }
+        NavigableSet<Long> view = beforeSeq != null ? source.headSet(beforeSeq, false) : source;
+        List<Long> seqs = new ArrayList<>(Math.min(limit, 64));
+        for (Iterator<Long> it = view.descendingIterator(); it.hasNext() && seqs.size() < limit; ) {
+            Long seq = it.next();
+            Location location = bySeq.get(seq);
+            if (location != null && (poolId == null || poolId.equals(location.poolId))) {
+                seqs.add(seq);
+            }
+        }
+        return seqs;
+    }
+
+    public int size() {
+        return bySeq.size();
+    }
+
+    public Path directory() {
+        return dir;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (active != null) {
+            checkpoint();
+            active.close();
+        }
+    }
+
+    private Location index(long seq, TransactionHistoryEntry entry, int segment, long offset, int length) {
+        return index(seq, new Location(entry.id, entry.poolId, entry.actorParty, segment, offset, length));
+    }
+
+    private Location index(long seq, Location location) {
+        bySeq.put(seq, location);
+        if (location.id != null) {
+            byId.put(location.id, seq);
+        }
+        link(byParty, location.party, seq);
+        link(byPool, location.poolId, seq);
+        return location;
+    }
+
+    private void unindex(long seq, Location location) {
+        bySeq.remove(seq);
+        if (location.id != null) {
+            byId.remove(location.id, seq);
+        }
+        unlink(byParty, location.party, seq);
+        unlink(byPool, location.poolId, seq);
+    }
+
+    private static void link(Map<String, NavigableSet<Long>> index, String key, long seq) {
+        if (key != null && !key.isBlank()) {
+            index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>()).add(seq);
+        }
+    }
+
+    private static void unlink(Map<String, NavigableSet<Long>> index, String key, long seq) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, seqs) -> {
+            seqs.remove(seq);
+            return seqs.isEmpty() ? null : seqs;
+        });
+    }
+
+    private void roll() throws IOException {
+        active.force(false);
+        map(activeSegment);
+        FileChannel previous = active;
+        activeSegment++;
+        openActive();
+        previous.close();
+        checkpoint();
+        enforceRetention();
+    }
+
+    private void openActive() throws IOException {
+        active = FileChannel.open(segmentPath(activeSegment),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void map(int segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            sealed.put(segment, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Index every complete line of {@code segment} from {@code fromOffset}; truncate a torn tail.
+     */
+    private void scan(int segment, long fromOffset) throws IOException {
+        Path path = segmentPath(segment);
+        byte[] raw = Files.readAllBytes(path);
+        int lineStart = (int) Math.min(fromOffset, raw.length);
+        for (int i = lineStart; i < raw.length; i++) {
+            if (raw[i] != '\n') {
+                continue;
+            }
+            int length = i + 1 - lineStart;
+            try {
+                JsonNode line = mapper.readTree(raw, lineStart, length);
+                long seq = line.get("s").asLong();
+                TransactionHistoryEntry entry = mapper.treeToValue(line.get("e"), TransactionHistoryEntry.class);
+                unflushed.add(Map.entry(seq, index(seq, entry, segment, lineStart, length)));
+                nextSeq = Math.max(nextSeq, seq + 1);
+            } catch (Exception e) {
+                LOG.warn("Skipping unreadable history record in {} at {}: {}", path.getFileName(), lineStart, e.getMessage());
+            }
+            lineStart = i + 1;
+        }
+        if (lineStart < raw.length) {
+            LOG.warn("Truncating torn history record in {} at {}", path.getFileName(), lineStart);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(lineStart);
+            }
+        }
+    }
+
+    /**
+     * Index the records listed in {@code segment}'s index file; an unreadable tail is truncated and
+     * left to the segment scan.
+     *
+     * @return Offset in the segment up to which records are indexed
+     */
+    private long loadIndex(int segment) throws IOException {
+        Path path = indexPath(segment);
+        if (!Files.exists(path)) {
+            return 0L;
+        }
+        byte[] raw = Files.readAllBytes(path);
+        long covered = 0L;
+        int lineStart = 0;
+        for (int i = 0; i < raw.length; i++) {
+            if (raw[i] != '\n') {
+                continue;
+            }
+            try {
+                JsonNode r = mapper.readTree(raw, lineStart, i + 1 - lineStart);
+                long seq = r.get(0).asLong();
+                Location location = new Location(textOrNull(r.get(1)), textOrNull(r.get(2)), textOrNull(r.get(3)),
+                    segment, r.get(4).asLong(), r.get(5).asInt());
+                index(seq, location);
+                nextSeq = Math.max(nextSeq, seq + 1);
+                covered = Math.max(covered, location.offset + location.length);
+            } catch (Exception e) {
+                LOG.warn("Unreadable history index record in {} at {}, rescanning the segment from {}: {}",
+                    path.getFileName(), lineStart, covered, e.getMessage());
+                break;
+            }
+            lineStart = i + 1;
+        }
+        if (lineStart < raw.length) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(lineStart);
+            }
+        }
+        return covered;
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    /**
+     * Append the records written since the last checkpoint to their segments' index files.
+     */
+    private void checkpoint() throws IOException {
+        sinceCheckpoint = 0;
+        if (unflushed.isEmpty()) {
+            return;
+        }
+        Map<Integer, StringBuilder> lines = new TreeMap<>();
+        for (Map.Entry<Long, Location> e : unflushed) {
+            Location l = e.getValue();
+            ArrayNode record = mapper.createArrayNode().add(e.getKey()).add(l.id).add(l.poolId).add(l.party)
+                .add(l.offset).add(l.length);
+            lines.computeIfAbsent(l.segment, segment -> new StringBuilder()).append(mapper.writeValueAsString(record)).append('\n');
+        }
+        for (Map.Entry<Integer, StringBuilder> e : lines.entrySet()) {
+            if (!Files.exists(segmentPath(e.getKey()))) {
+                continue;
+            }
+            Files.writeString(indexPath(e.getKey()), e.getValue(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        unflushed.clear();
+    }
+
+    private void enforceRetention() throws IOException {
+        List<Integer> segments = listSegments();
+        long total = 0;
+        for (int segment : segments) {
+            total += Files.size(segmentPath(segment));
+        }
+        Instant cutoff = retentionAge != null && !retentionAge.isZero() ? Instant.now().minus(retentionAge) : null;
+        for (int segment : segments) {
+            if (segment == activeSegment) {
+                break;
+            }
+            Path path = segmentPath(segment);
+            boolean tooBig = retentionBytes > 0 && total > retentionBytes;
+            boolean tooOld = cutoff != null && Files.getLastModifiedTime(path).toInstant().isBefore(cutoff);
+            if (!tooBig && !tooOld) {
+                break;
+            }
+            total -= Files.size(path);
+            dropSegment(segment);
+        }
+    }
+
+    private void dropSegment(int segment) throws IOException {
+        for (Iterator<Map.Entry<Long, Location>> it = bySeq.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Location> e = it.next();
+            if (e.getValue().segment > segment) {
+                break;
+            }
+            if (e.getValue().segment == segment) {
+                unindex(e.getKey(), e.getValue());
+            }
+        }
+        sealed.remove(segment);
+        unflushed.removeIf(e -> e.getValue().segment == segment);
+        Files.deleteIfExists(segmentPath(segment));
+        Files.deleteIfExists(indexPath(segment));
+        LOG.info("Dropped history segment {} (retention)", segment);
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                .filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX))
+                .map(n -> Integer.parseInt(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length())))
+                .sorted()
+                .toList();
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return dir.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private Path indexPath(int segment) {
+        return dir.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segment, INDEX_SUFFIX));
+    }
+}
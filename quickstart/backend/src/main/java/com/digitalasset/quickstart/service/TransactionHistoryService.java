@@ -1,8 +1,10 @@
 package com.digitalasset.quickstart.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,32 +15,90 @@ import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
 
+/**
+ * User-visible activity feed (swaps, liquidity adds, pool creations).
+ *
+ * Entries go to an append-only segmented log ({@link TransactionHistoryLog}) under
+ * clearportx.history.dir with id, party and pool indexes; reads page newest-first by sequence
+ * number. A legacy single-file history (clearportx.history.path) is imported once on first start.
+ *
+ * Entries come from two sources: the record* methods (written by the flow that submitted the
+ * command) and {@link LedgerHistoryIndexer}, which replays the ledger so every replica ends up
+ * with the same feed. Ledger-sourced entries use the update id as entry id.
+ */
 @Service
 public class TransactionHistoryService {
 
     private static final Logger LOG = LoggerFactory.getLogger(TransactionHistoryService.class);
-    private static final int MAX_RECORDS = 1000;
-    private final Deque<TransactionHistoryEntry> history = new ArrayDeque<>();
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Object appendLock = new Object();
 
-    @Value("${clearportx.history.path:/tmp/clearportx-history.json}")
-    private String historyPath;
+    private final String historyDir;
+    private final String legacyHistoryPath;
+    private final long segmentBytes;
+    private final long retentionBytes;
+    private final Duration retentionAge;
+    private final int checkpointEvery;
+    private TransactionHistoryLog log;
+
+    /**
+     * One page of history, newest first. Pass nextCursor as {@code before} to get the next page.
+     */
+    public record HistoryPage(List<TransactionHistoryEntry> entries, Long nextCursor) { }
+
+    public TransactionHistoryService(
+            @Value("${clearportx.history.dir:/tmp/clearportx-history}") String historyDir,
+            @Value("${clearportx.history.path:/tmp/clearportx-history.json}") String legacyHistoryPath,
+            @Value("${clearportx.history.segment-bytes:8388608}") long segmentBytes,
+            @Value("${clearportx.history.retention-bytes:536870912}") long retentionBytes,
+            @Value("${clearportx.history.retention-days:90}") long retentionDays,
+            @Value("${clearportx.history.checkpoint-every:1000}") int checkpointEvery
+    ) {
+        this.historyDir = historyDir;
+        this.legacyHistoryPath = legacyHistoryPath;
+        this.segmentBytes = segmentBytes;
+        this.retentionBytes = retentionBytes;
+        this.retentionAge = Duration.ofDays(Math.max(0, retentionDays));
+        this.checkpointEvery = checkpointEvery;
+    }
 
     @PostConstruct
     public void init() {
-        loadHistory();
+        try {
+            log = openLog(Paths.get(historyDir));
+        } catch (IOException e) {
+            LOG.warn("Failed to open transaction history at {}: {} - using a temporary directory", historyDir, e.getMessage());
+            try {
+                log = openLog(Files.createTempDirectory("clearportx-history"));
+            } catch (IOException fallback) {
+                throw new IllegalStateException("Cannot open transaction history", fallback);
+            }
+        }
+        importLegacyHistory();
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (appendLock) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close transaction history: {}", e.getMessage());
+            }
+        }
     }
 
-    public synchronized TransactionHistoryEntry recordPoolCreation(String poolId,
+    public TransactionHistoryEntry recordPoolCreation(String poolId,
                                                                    String poolCid,
                                                                    String tokenA,
                                                                    String tokenB,
@@ -46,7 +106,23 @@ public class TransactionHistoryService {
                                                                    BigDecimal bootstrapB,
                                                                    String operator,
                                                                    String poolParty) {
-        TransactionHistoryEntry entry = baseEntry("Pool Creation Transaction", "POOL_CREATION", poolId, poolCid, null);
+        TransactionHistoryEntry entry = poolCreationEntry(null, poolId, poolCid, tokenA, tokenB, bootstrapA, bootstrapB,
+                operator, poolParty);
+        append(entry);
+        return entry;
+    }
+
+    static TransactionHistoryEntry poolCreationEntry(String eventId,
+                                                     String poolId,
+                                                     String poolCid,
+                                                     String tokenA,
+                                                     String tokenB,
+                                                     BigDecimal bootstrapA,
+                                                     BigDecimal bootstrapB,
+                                                     String operator,
+                                                     String poolParty) {
+        TransactionHistoryEntry entry = baseEntry("Pool Creation Transaction", "POOL_CREATION", poolId, poolCid, eventId);
+        entry.actorParty = operator;
         entry.tokenA = tokenA;
         entry.tokenB = tokenB;
         entry.amountADesired = formatAmount(bootstrapA);
@@ -57,11 +133,10 @@ public class TransactionHistoryService {
                 String.format(Locale.ROOT, "Pool %s created by %s for %s", poolId, operator, poolParty),
                 "completed",
                 entry.createdAt));
-        append(entry);
         return entry;
     }
 
-    public synchronized TransactionHistoryEntry recordAddLiquidity(String poolId,
+    public TransactionHistoryEntry recordAddLiquidity(String poolId,
                                                                    String poolCid,
                                                                    String tokenA,
                                                                    String tokenB,
@@ -70,7 +145,35 @@ public class TransactionHistoryService {
                                                                    BigDecimal minLp,
                                                                    BigDecimal lpMinted,
                                                                    String actorParty) {
-        TransactionHistoryEntry entry = baseEntry("AddLiquidity Transaction", "ADD_LIQUIDITY", poolId, poolCid, null);
+        return recordAddLiquidity(null, poolId, poolCid, tokenA, tokenB, amountA, amountB, minLp, lpMinted, actorParty);
+    }
+
+    public TransactionHistoryEntry recordAddLiquidity(String eventId,
+                                                                   String poolId,
+                                                                   String poolCid,
+                                                                   String tokenA,
+                                                                   String tokenB,
+                                                                   BigDecimal amountA,
+                                                                   BigDecimal amountB,
+                                                                   BigDecimal minLp,
+                                                                   BigDecimal lpMinted,
+                                                                   String actorParty) {
+        return append(addLiquidityEntry(eventId, poolId, poolCid, tokenA, tokenB, amountA, amountB,
+                minLp, lpMinted, actorParty));
+    }
+
+    static TransactionHistoryEntry addLiquidityEntry(String eventId,
+                                                     String poolId,
+                                                     String poolCid,
+                                                     String tokenA,
+                                                     String tokenB,
+                                                     BigDecimal amountA,
+                                                     BigDecimal amountB,
+                                                     BigDecimal minLp,
+                                                     BigDecimal lpMinted,
+                                                     String actorParty) {
+        TransactionHistoryEntry entry = baseEntry("AddLiquidity Transaction", "ADD_LIQUIDITY", poolId, poolCid, eventId);
+        entry.actorParty = actorParty;
         entry.tokenA = tokenA;
         entry.tokenB = tokenB;
         entry.amountADesired = formatAmount(amountA);
@@ -84,11 +187,10 @@ public class TransactionHistoryService {
                 String.format(Locale.ROOT, "%s added %s %s / %s %s", actorParty, formatAmount(amountA), tokenA, formatAmount(amountB), tokenB),
                 "completed",
                 entry.createdAt));
-        append(entry);
         return entry;
     }
 
-    public synchronized TransactionHistoryEntry recordSwap(String poolId,
+    public TransactionHistoryEntry recordSwap(String poolId,
                                                            String poolCid,
                                                            String inputSymbol,
                                                            String outputSymbol,
@@ -98,7 +200,7 @@ public class TransactionHistoryService {
         return recordSwap(null, poolId, poolCid, inputSymbol, outputSymbol, amountIn, amountOut, actorParty);
     }
 
-    public synchronized TransactionHistoryEntry recordSwap(String eventId,
+    public TransactionHistoryEntry recordSwap(String eventId,
                                                            String poolId,
                                                            String poolCid,
                                                            String inputSymbol,
@@ -106,13 +208,19 @@ public class TransactionHistoryService {
                                                            BigDecimal amountIn,
                                                            BigDecimal amountOut,
                                                            String actorParty) {
-        if (eventId != null && !eventId.isBlank()) {
-            TransactionHistoryEntry existing = findById(eventId);
-            if (existing != null) {
-                return existing;
-            }
-        }
+        return append(swapEntry(eventId, poolId, poolCid, inputSymbol, outputSymbol, amountIn, amountOut, actorParty));
+    }
+
+    static TransactionHistoryEntry swapEntry(String eventId,
+                                             String poolId,
+                                             String poolCid,
+                                             String inputSymbol,
+                                             String outputSymbol,
+                                             BigDecimal amountIn,
+                                             BigDecimal amountOut,
+                                             String actorParty) {
         TransactionHistoryEntry entry = baseEntry("Swap Transaction", "SWAP", poolId, poolCid, eventId);
+        entry.actorParty = actorParty;
         entry.tokenA = inputSymbol;
         entry.tokenB = outputSymbol;
         entry.amountADesired = formatAmount(amountIn);
@@ -123,28 +231,79 @@ public class TransactionHistoryService {
                 String.format(Locale.ROOT, "%s swapped %s %s → %s %s", actorParty, formatAmount(amountIn), inputSymbol, formatAmount(amountOut), outputSymbol),
                 "completed",
                 entry.createdAt));
-        append(entry);
         return entry;
     }
 
-    public synchronized List<TransactionHistoryEntry> getRecent(int limit) {
-        int size = Math.min(limit, history.size());
-        List<TransactionHistoryEntry> list = new ArrayList<>(size);
-        int i = 0;
-        for (TransactionHistoryEntry entry : history) {
-            list.add(entry);
-            i++;
-            if (i >= size) break;
+    public List<TransactionHistoryEntry> getRecent(int limit) {
+        return getPage(null, null, null, limit).entries();
+    }
+
+    /**
+     * @param party Only entries recorded for this actor party (null for all)
+     * @param poolId Only entries for this pool (null for all)
+     * @param before Cursor from a previous page (null for the newest entries)
+     * @param limit Page size
+     */
+    public HistoryPage getPage(String party, String poolId, Long before, int limit) {
+        List<Long> seqs = log.newest(party, poolId, before, limit);
+        List<TransactionHistoryEntry> entries = new ArrayList<>(seqs.size());
+        for (long seq : seqs) {
+            TransactionHistoryEntry entry = log.read(seq);
+            if (entry != null) {
+                entries.add(entry);
+            }
         }
-        return list;
+        Long nextCursor = seqs.size() == limit ? seqs.get(seqs.size() - 1) : null;
+        return new HistoryPage(entries, nextCursor);
+    }
+
+    public TransactionHistoryEntry findById(String id) {
+        Long seq = log.seqOf(id);
+        return seq != null ? log.read(seq) : null;
+    }
+
+    public int size() {
+        return log.size();
+    }
+
+    /**
+     * Store an entry built from a ledger update (see {@link LedgerHistoryIndexer}).
+     *
+     * @return false if an entry with the same id (the update id) is already stored
+     */
+    public boolean recordFromLedger(TransactionHistoryEntry entry) {
+        synchronized (appendLock) {
+            if (log.seqOf(entry.id) != null) {
+                return false;
+            }
+            append(entry);
+            return true;
+        }
+    }
+
+    /** Directory the history log lives in (may be a temporary fallback). */
+    Path directory() {
+        return log.directory();
     }
 
-    private void append(TransactionHistoryEntry entry) {
-        history.addFirst(entry);
-        while (history.size() > MAX_RECORDS) {
-            history.removeLast();
+    /**
+     * Append unless an entry with the same id exists; returns the stored entry either way.
+     */
+    private TransactionHistoryEntry append(TransactionHistoryEntry entry) {
+        synchronized (appendLock) {
+            if (log.seqOf(entry.id) != null) {
+                TransactionHistoryEntry existing = findById(entry.id);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+            try {
+                log.append(entry);
+            } catch (IOException e) {
+                LOG.warn("Failed to persist transaction history entry {}: {}", entry.id, e.getMessage());
+            }
         }
-        persistHistory();
+        return entry;
     }
 
     private static TransactionHistoryEntry baseEntry(String title, String type, String poolId, String poolCid, String entryId) {
@@ -167,53 +326,33 @@ public class TransactionHistoryService {
         return value.stripTrailingZeros().toPlainString();
     }
 
-    private TransactionHistoryEntry findById(String id) {
-        if (id == null || id.isBlank()) {
-            return null;
-        }
-        for (TransactionHistoryEntry entry : history) {
-            if (id.equals(entry.id)) {
-                return entry;
-            }
-        }
-        return null;
+    private TransactionHistoryLog openLog(Path dir) throws IOException {
+        TransactionHistoryLog opened = new TransactionHistoryLog(dir, segmentBytes, retentionBytes, retentionAge,
+                checkpointEvery, mapper);
+        opened.open();
+        return opened;
     }
 
-    private synchronized void loadHistory() {
-        if (historyPath == null || historyPath.isBlank()) {
+    /**
+     * One-time import of the pre-segment history file (newest first), renamed afterwards.
+     */
+    private void importLegacyHistory() {
+        if (legacyHistoryPath == null || legacyHistoryPath.isBlank() || log.size() > 0) {
             return;
         }
-        Path path = Paths.get(historyPath);
+        Path path = Paths.get(legacyHistoryPath);
         if (!Files.exists(path)) {
             return;
         }
         try {
-            byte[] raw = Files.readAllBytes(path);
-            List<TransactionHistoryEntry> stored = mapper.readValue(raw, new TypeReference<List<TransactionHistoryEntry>>() {});
-            history.clear();
-            for (TransactionHistoryEntry entry : stored) {
-                history.addLast(entry);
+            List<TransactionHistoryEntry> stored = mapper.readValue(path.toFile(), new TypeReference<List<TransactionHistoryEntry>>() {});
+            for (int i = stored.size() - 1; i >= 0; i--) {
+                append(stored.get(i));
             }
-            LOG.info("Loaded {} history entries from {}", history.size(), historyPath);
+            Files.move(path, path.resolveSibling(path.getFileName() + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+            LOG.info("Imported {} history entries from {}", stored.size(), legacyHistoryPath);
         } catch (Exception e) {
-            LOG.warn("Failed to load transaction history from {}: {}", historyPath, e.getMessage());
-        }
-    }
-
-    private synchronized void persistHistory() {
-        if (historyPath == null || historyPath.isBlank()) {
-            return;
-        }
-        Path path = Paths.get(historyPath);
-        try {
-            Path parent = path.getParent();
-            if (parent != null && !Files.exists(parent)) {
-                Files.createDirectories(parent);
-            }
-            byte[] payload = mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(new ArrayList<>(history));
-            Files.write(path, payload);
-        } catch (IOException e) {
-            LOG.warn("Failed to persist transaction history to {}: {}", historyPath, e.getMessage());
+            LOG.warn("Failed to import transaction history from {}: {}", legacyHistoryPath, e.getMessage());
         }
     }
 
@@ -233,6 +372,7 @@ public class TransactionHistoryService {
         public String lpMintedAmount;
         public String poolId;
         public String contractId;
+        public String actorParty;
         public List<TimelineItem> eventTimeline = new ArrayList<>();
 
         public TransactionHistoryEntry() {}
@@ -3,21 +3,43 @@ package com.digitalasset.quickstart.service;
 import com.digitalasset.quickstart.common.DomainError;
 import com.digitalasset.quickstart.common.Result;
 import com.digitalasset.quickstart.common.errors.UnexpectedError;
+import com.daml.ledger.api.v2.EventOuterClass;
+import com.daml.ledger.api.v2.TransactionOuterClass;
+import com.digitalasset.quickstart.ledger.DisclosedContractCache;
 import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.ledger.LedgerApi.RawAcsSnapshot;
 import com.digitalasset.quickstart.ledger.LedgerApi.RawActiveContract;
+import com.digitalasset.quickstart.ledger.LedgerInbox;
+import com.digitalasset.quickstart.ledger.LedgerUpdateStream;
+import com.digitalasset.quickstart.security.AuthUtils;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 /**
  * Helper to query TransferInstruction ACS entries for a receiver and filter by instrument/amount.
+ *
+ * For the operator party, results come from a {@link TransferInstructionIndex} that is bootstrapped
+ * from one ACS read and then kept current from the update stream; other parties fall back to ACS scans.
+ * The bootstrap runs on a background thread at startup and after a stream gap, retrying with backoff;
+ * until the index is live, operator reads are served by ACS scans as well.
+ * Each indexed create signals the {@link LedgerInbox} so waiters wake as soon as their TI lands.
  */
 @Service
 public class TransferInstructionAcsQueryService {
@@ -33,9 +55,65 @@ public class TransferInstructionAcsQueryService {
     private static final String TRANSFER_OFFER_ENTITY = "TransferOffer";
 
     private final LedgerApi ledgerApi;
-
-    public TransferInstructionAcsQueryService(final LedgerApi ledgerApi) {
+    private final LedgerUpdateStream ledgerUpdateStream;
+    private final LedgerInbox ledgerInbox;
+    private final DisclosedContractCache disclosedContractCache;
+    private final AuthUtils authUtils;
+    private final boolean indexEnabled;
+    private final long retryInitialMs;
+    private final long retryMaxMs;
+
+    // Guarded by itself; indexedParty is set once the index is live
+    private final TransferInstructionIndex index = new TransferInstructionIndex();
+    private volatile String indexedParty;
+    // Bootstraps run one at a time on this thread, never on a request path
+    private final ScheduledExecutorService indexWorker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ti-index");
+        t.setDaemon(true);
+        return t;
+    });
+    private long retryDelayMs;
+    private volatile boolean stopped;
+    private volatile LedgerUpdateStream.Subscription indexSubscription;
+
+    public TransferInstructionAcsQueryService(
+            final LedgerApi ledgerApi,
+            final LedgerUpdateStream ledgerUpdateStream,
+            final LedgerInbox ledgerInbox,
+            final DisclosedContractCache disclosedContractCache,
+            final AuthUtils authUtils,
+            @Value("${ledger.ti-index.enabled:true}") final boolean indexEnabled,
+            @Value("${ledger.ti-index.retry-initial-ms:1000}") final long retryInitialMs,
+            @Value("${ledger.ti-index.retry-max-ms:60000}") final long retryMaxMs
+    ) {
         this.ledgerApi = ledgerApi;
+        this.ledgerUpdateStream = ledgerUpdateStream;
+        this.ledgerInbox = ledgerInbox;
+        this.disclosedContractCache = disclosedContractCache;
+        this.authUtils = authUtils;
+        this.indexEnabled = indexEnabled;
+        this.retryInitialMs = Math.max(1, retryInitialMs);
+        this.retryMaxMs = Math.max(this.retryInitialMs, retryMaxMs);
+        this.retryDelayMs = this.retryInitialMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!indexEnabled) {
+            LOG.info("TransferInstruction index disabled (ledger.ti-index.enabled=false), using ACS scans");
+            return;
+        }
+        indexWorker.execute(this::startIndex);
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        LedgerUpdateStream.Subscription subscription = indexSubscription;
+        if (subscription != null) {
+            subscription.close();
+        }
+        indexWorker.shutdownNow();
     }
 
     public record TransferInstructionDto(
@@ -55,6 +133,11 @@ public class TransferInstructionAcsQueryService {
 
     @WithSpan
     public Result<List<TransferInstructionDto>, DomainError> listForReceiver(String receiverParty) {
+        if (indexReady(receiverParty)) {
+            synchronized (index) {
+                return Result.ok(index.all().stream().map(TransferInstructionWithMemo::transferInstruction).toList());
+            }
+        }
         try {
             List<RawActiveContract> acs = ledgerApi.getActiveContractsRawForParty(receiverParty).toCompletableFuture().join();
             List<TransferInstructionDto> tis = new ArrayList<>();
@@ -83,6 +166,72 @@ public class TransferInstructionAcsQueryService {
 
     @WithSpan
     public Result<List<TransferInstructionWithMemo>, DomainError> listForReceiverWithMemo(String receiverParty) {
+        if (indexReady(receiverParty)) {
+            synchronized (index) {
+                return Result.ok(index.all());
+            }
+        }
+        return scanForReceiverWithMemo(receiverParty);
+    }
+
+    /**
+     * TIs whose memo carries {@code requestId}, straight from the index. When the index has no match
+     * (or is not running) this returns the full ACS list for the receiver, since the create may not
+     * have reached the update stream yet; callers filter by requestId either way.
+     */
+    @WithSpan
+    public Result<List<TransferInstructionWithMemo>, DomainError> listForReceiverWithMemo(String receiverParty, String requestId) {
+        if (requestId != null && indexReady(receiverParty)) {
+            List<TransferInstructionWithMemo> matches;
+            synchronized (index) {
+                matches = index.byRequestId(requestId);
+            }
+            if (!matches.isEmpty()) {
+                return Result.ok(matches);
+            }
+        }
+        return scanForReceiverWithMemo(receiverParty);
+    }
+
+    /**
+     * Index-only lookup by memo requestId, for waiters that re-check after an inbox wake-up.
+     *
+     * @return Matches (possibly empty), or empty Optional when the index is not running for the receiver
+     */
+    public Optional<List<TransferInstructionWithMemo>> findIndexedByRequestId(String receiverParty, String requestId) {
+        if (requestId == null || !indexReady(receiverParty)) {
+            return Optional.empty();
+        }
+        synchronized (index) {
+            return Optional.of(index.byRequestId(requestId));
+        }
+    }
+
+    /**
+     * Indexed TIs whose memo targets {@code poolCid} (empty when the index is not running).
+     */
+    public List<TransferInstructionWithMemo> listIndexedForPool(String receiverParty, String poolCid) {
+        if (!indexReady(receiverParty)) {
+            return List.of();
+        }
+        synchronized (index) {
+            return index.byPool(poolCid);
+        }
+    }
+
+    /**
+     * Indexed TIs for an instrument (empty when the index is not running).
+     */
+    public List<TransferInstructionWithMemo> listIndexedForInstrument(String receiverParty, String admin, String instrumentId) {
+        if (!indexReady(receiverParty)) {
+            return List.of();
+        }
+        synchronized (index) {
+            return index.byInstrument(admin, instrumentId);
+        }
+    }
+
+    private Result<List<TransferInstructionWithMemo>, DomainError> scanForReceiverWithMemo(String receiverParty) {
         try {
             List<RawActiveContract> acs = ledgerApi.getActiveContractsRawForParty(receiverParty).toCompletableFuture().join();
             List<TransferInstructionWithMemo> tis = new ArrayList<>();
@@ -141,6 +290,14 @@ public class TransferInstructionAcsQueryService {
 
     @WithSpan
     public Optional<TransferInstructionDto> findByCid(String party, String cid) {
+        if (indexReady(party)) {
+            synchronized (index) {
+                Optional<TransferInstructionWithMemo> hit = index.get(cid);
+                if (hit.isPresent()) {
+                    return hit.map(TransferInstructionWithMemo::transferInstruction);
+                }
+            }
+        }
         try {
             List<RawActiveContract> acs = ledgerApi.getActiveContractsRawForParty(party).toCompletableFuture().join();
             for (RawActiveContract rac : acs) {
@@ -162,6 +319,112 @@ public class TransferInstructionAcsQueryService {
         }
     }
 
+    private boolean indexReady(String party) {
+        return indexEnabled && party != null && party.equals(indexedParty);
+    }
+
+    /**
+     * Bootstrap the operator's index from an ACS snapshot and follow the update stream from there.
+     * Runs on {@link #indexWorker} only; a failure is retried with exponential backoff.
+     */
+    private void startIndex() {
+        if (stopped) {
+            return;
+        }
+        String party = authUtils.getAppProviderPartyId();
+        if (party == null || party.isBlank()) {
+            retryIndexStart("no app provider party configured");
+            return;
+        }
+        try {
+            RawAcsSnapshot snapshot = ledgerApi.getActiveContractsRawSnapshotForParty(party).join();
+            int size;
+            synchronized (index) {
+                index.clear();
+                for (RawActiveContract rac : snapshot.contracts()) {
+                    toRow(rac).ifPresent(index::put);
+                }
+                indexSubscription = ledgerUpdateStream.subscribe(party, snapshot.offset(), "ti-index", new LedgerUpdateStream.Listener() {
+                    @Override
+                    public void onTransaction(TransactionOuterClass.Transaction transaction) {
+                        applyToIndex(party, transaction);
+                    }
+
+                    @Override
+                    public void onStreamGap(Throwable cause) {
+                        synchronized (index) {
+                            indexedParty = null;
+                            index.clear();
+                        }
+                        ledgerInbox.setLive(party, false);
+                        LOG.warn("TransferInstruction index for {} lost its stream, rebuilding: {}", party, cause.getMessage());
+                        indexWorker.execute(TransferInstructionAcsQueryService.this::startIndex);
+                    }
+                });
+                indexedParty = party;
+                size = index.size();
+            }
+            retryDelayMs = retryInitialMs;
+            ledgerInbox.setLive(party, true);
+            LOG.info("TransferInstruction index live for {} with {} TIs at offset {}", party, size, snapshot.offset());
+        } catch (Exception e) {
+            retryIndexStart(e.getMessage());
+        }
+    }
+
+    private void retryIndexStart(String reason) {
+        if (stopped) {
+            return;
+        }
+        long delay = retryDelayMs;
+        retryDelayMs = Math.min(retryDelayMs * 2, retryMaxMs);
+        LOG.warn("TransferInstruction index bootstrap failed, using ACS scans and retrying in {} ms: {}", delay, reason);
+        indexWorker.schedule(this::startIndex, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void applyToIndex(String party, TransactionOuterClass.Transaction transaction) {
+        Set<String> requestIds = new LinkedHashSet<>();
+        Set<String> archived = new LinkedHashSet<>();
+        synchronized (index) {
+            for (EventOuterClass.Event event : transaction.getEventsList()) {
+                if (event.hasCreated() && isTransferInstruction(event.getCreated().getTemplateId())) {
+                    EventOuterClass.CreatedEvent created = event.getCreated();
+                    RawActiveContract rac = new RawActiveContract(
+                            created.getContractId(),
+                            created.getTemplateId(),
+                            created.hasCreateArguments() ? created.getCreateArguments() : null,
+                            com.google.protobuf.ByteString.EMPTY);
+                    toRow(rac).map(index::put).ifPresent(requestIds::add);
+                } else if (event.hasArchived()) {
+                    index.remove(event.getArchived().getContractId());
+                    archived.add(event.getArchived().getContractId());
+                }
+            }
+        }
+        disclosedContractCache.onArchived(archived);
+        // Signal outside the lock; woken waiters read the index straight back
+        requestIds.forEach(requestId -> ledgerInbox.signal(LedgerInbox.transferInstructionKey(requestId)));
+        if (transaction.getEventsList().stream().anyMatch(EventOuterClass.Event::hasCreated)) {
+            ledgerInbox.signal(LedgerInbox.partyKey(party));
+        }
+    }
+
+    private Optional<TransferInstructionWithMemo> toRow(RawActiveContract rac) {
+        String mod = rac.templateId().getModuleName();
+        String ent = rac.templateId().getEntityName();
+        Optional<TransferInstructionDto> parsed;
+        if (AMULET_TI_MODULE.equals(mod) && AMULET_TI_ENTITY.equals(ent)) {
+            parsed = parseAmuletTi(rac);
+        } else if (TRANSFER_OFFER_MODULE.equals(mod) && TRANSFER_OFFER_ENTITY.equals(ent)) {
+            parsed = parseTransferOfferLike(rac);
+        } else if (TI_MODULE.equals(mod) && TI_ENTITY.equals(ent)) {
+            parsed = parseStandardTi(rac);
+        } else {
+            return Optional.empty();
+        }
+        return parsed.map(ti -> new TransferInstructionWithMemo(ti, extractMemo(rac.createArguments())));
+    }
+
     public Optional<TransferInstructionDto> selectBest(List<TransferInstructionDto> candidates) {
         return candidates.stream()
                 .max(Comparator.comparing(TransferInstructionDto::executeBefore));
@@ -9,11 +9,13 @@ import com.digitalasset.quickstart.config.RegistryRoutingConfig.RegistryKind;
 import com.digitalasset.quickstart.common.Result;
 import com.digitalasset.quickstart.dto.ApiError;
 import com.digitalasset.quickstart.dto.ErrorCode;
+import com.digitalasset.quickstart.ledger.DisclosedContractCache;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import java.net.URI;
@@ -22,15 +24,29 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Resolve TransferInstruction choice-context disclosures for devnet-only workflows.
+ *
+ * Candidate registries are queried in preference order, hedged: the next registry is asked when the
+ * current one has not answered within {@code ledger.choice-context.hedge-delay-ms} (0 = all at once)
+ * or has answered without disclosures. The first usable answer wins and the other requests are
+ * cancelled. Successful results are cached per (contractId, registry) for a short TTL so accept
+ * retries and payouts for the same TI skip the round trip; callers invalidate on ledger rejection.
  */
 @Service
 @Profile("devnet")
@@ -39,15 +55,39 @@ public class TransferInstructionChoiceContextService {
     private static final Logger logger = LoggerFactory.getLogger(TransferInstructionChoiceContextService.class);
 
     private final LedgerConfig ledgerConfig;
+    private final DisclosedContractCache disclosedContractCache;
 
     @Autowired(required = false)
     private RegistryRoutingConfig registryRouting;
 
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    @Value("${ledger.choice-context.hedge-delay-ms:200}")
+    private long hedgeDelayMs;
+    @Value("${ledger.choice-context.request-timeout-ms:10000}")
+    private long requestTimeoutMs;
+    @Value("${ledger.choice-context.cache-ttl-ms:30000}")
+    private long cacheTtlMs;
+    @Value("${ledger.choice-context.cache-max-entries:2048}")
+    private int cacheMaxEntries;
+
+    // One shared HTTP/2 client: connections to each registry are pooled and multiplexed across requests
+    private final HttpClient httpClient;
     private final ObjectMapper mapper = new ObjectMapper();
 
-    public TransferInstructionChoiceContextService(final LedgerConfig ledgerConfig) {
+    private record CachedContext(ChoiceContextResult result, long expiresAtMs) { }
+    private final Map<String, CachedContext> cache = new ConcurrentHashMap<>();
+
+    public TransferInstructionChoiceContextService(
+            final LedgerConfig ledgerConfig,
+            final DisclosedContractCache disclosedContractCache,
+            @Value("${ledger.choice-context.connect-timeout-ms:3000}") final long connectTimeoutMs
+    ) {
         this.ledgerConfig = ledgerConfig;
+        this.disclosedContractCache = disclosedContractCache;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
     }
 
     public record ChoiceContextResult(
@@ -64,46 +104,203 @@ public class TransferInstructionChoiceContextService {
     }
 
     public Result<ChoiceContextResult, ApiError> resolveDisclosedContracts(String contractId, String adminHint, String requestId) {
+        try {
+            return resolveDisclosedContractsAsync(contractId, adminHint, requestId).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return Result.err(ApiError.of(ErrorCode.INTERNAL, "choice-context resolution failed: " + cause.getMessage()));
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #resolveDisclosedContracts(String, String, String)}.
+     */
+    public CompletableFuture<Result<ChoiceContextResult, ApiError>> resolveDisclosedContractsAsync(
+            String contractId, String adminHint, String requestId) {
         if (contractId == null || contractId.isBlank()) {
-            return Result.err(ApiError.of(ErrorCode.VALIDATION, "contractId is required"));
+            return CompletableFuture.completedFuture(Result.err(ApiError.of(ErrorCode.VALIDATION, "contractId is required")));
         }
 
         List<RegistryEndpoint> registriesToTry = getRegistriesToTry(adminHint);
         if (registriesToTry.isEmpty()) {
-            return Result.err(ApiError.of(
+            return CompletableFuture.completedFuture(Result.err(ApiError.of(
                     ErrorCode.PRECONDITION_FAILED,
                     "no registryBaseUri configured",
                     java.util.Map.of("adminHint", adminHint)
-            ));
+            )));
         }
 
-        List<String> attempted = new ArrayList<>();
-        ChoiceContextDto ctx = null;
-        String successfulBase = null;
-        String synchronizerId = null;
-
+        long now = System.currentTimeMillis();
         for (RegistryEndpoint ep : registriesToTry) {
-            attempted.add(ep.baseUri());
-            try {
-                RegistryFetchResult fetch = fetchChoiceContext(ep, contractId, requestId);
-                if (fetch != null) {
-                    ctx = fetch.ctx;
-                    synchronizerId = fetch.synchronizerId;
+            CachedContext cached = cache.get(cacheKey(contractId, ep.baseUri()));
+            if (cached != null && cached.expiresAtMs > now) {
+                logger.debug("[TIChoiceContext] requestId={} contractId={} base={} cache hit",
+                        requestIdOrDefault(requestId), abbreviate(contractId), abbreviate(ep.baseUri()));
+                return CompletableFuture.completedFuture(Result.ok(cached.result));
+            }
+        }
+
+        return new HedgedResolution(contractId, requestId, registriesToTry).start();
+    }
+
+    public record ChoiceContextPair(ChoiceContextResult a, ChoiceContextResult b) { }
+
+    /**
+     * Resolve the accept contexts of two TransferInstructions concurrently; their registries are
+     * independent, so the pair costs one round trip instead of two. Fails with the first failing leg
+     * (A before B), and never completes exceptionally.
+     */
+    public CompletableFuture<Result<ChoiceContextPair, ApiError>> resolvePairAsync(
+            String contractIdA, String adminHintA, String contractIdB, String adminHintB, String requestId) {
+        CompletableFuture<Result<ChoiceContextResult, ApiError>> a = resolveOrError(contractIdA, adminHintA, requestId);
+        CompletableFuture<Result<ChoiceContextResult, ApiError>> b = resolveOrError(contractIdB, adminHintB, requestId);
+        return a.thenCombine(b, (ctxA, ctxB) -> {
+            if (ctxA.isErr()) {
+                return Result.<ChoiceContextPair, ApiError>err(ctxA.getErrorUnsafe());
+            }
+            if (ctxB.isErr()) {
+                return Result.<ChoiceContextPair, ApiError>err(ctxB.getErrorUnsafe());
+            }
+            return Result.<ChoiceContextPair, ApiError>ok(new ChoiceContextPair(ctxA.getValueUnsafe(), ctxB.getValueUnsafe()));
+        });
+    }
+
+    private CompletableFuture<Result<ChoiceContextResult, ApiError>> resolveOrError(String contractId, String adminHint, String requestId) {
+        CompletableFuture<Result<ChoiceContextResult, ApiError>> future;
+        try {
+            future = resolveDisclosedContractsAsync(contractId, adminHint, requestId);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.exceptionally(ex -> {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            return Result.err(ApiError.of(ErrorCode.INTERNAL, "choice-context resolution failed: " + cause.getMessage()));
+        });
+    }
+
+    /**
+     * Drop cached contexts for a TransferInstruction, e.g. after the ledger rejected a command built from them.
+     */
+    public void invalidate(String contractId) {
+        if (contractId != null) {
+            String prefix = contractId + "|";
+            cache.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    /**
+     * One resolution across the candidate registries. Registries are launched in order, each one as
+     * soon as the previous has failed or exceeded the hedge delay; the first usable answer completes
+     * {@link #result} and cancels the requests still in flight.
+     */
+    private final class HedgedResolution {
+        private final String contractId;
+        private final String requestId;
+        private final List<RegistryEndpoint> registries;
+        private final CompletableFuture<Result<ChoiceContextResult, ApiError>> result = new CompletableFuture<>();
+        // Guarded by this
+        private final List<String> attempted = new ArrayList<>();
+        private final List<CompletableFuture<?>> inflight = new ArrayList<>();
+        private int next;
+        private int pending;
+
+        private HedgedResolution(String contractId, String requestId, List<RegistryEndpoint> registries) {
+            this.contractId = contractId;
+            this.requestId = requestId;
+            this.registries = registries;
+        }
+
+        CompletableFuture<Result<ChoiceContextResult, ApiError>> start() {
+            if (hedgeDelayMs <= 0) {
+                while (launchNext()) {
+                    // fan out to every registry at once
                 }
-                if (ctx != null && ctx.disclosedContracts != null && !ctx.disclosedContracts.isEmpty()) {
-                    successfulBase = ep.baseUri();
-                    break;
+            } else {
+                launchNext();
+            }
+            return result;
+        }
+
+        private boolean launchNext() {
+            RegistryEndpoint ep;
+            synchronized (this) {
+                if (result.isDone() || next >= registries.size()) {
+                    return false;
                 }
-            } catch (Exception e) {
-                logger.warn("[TIChoiceContext] requestId={} base={} kind={} contractId={} error={}",
-                        requestIdOrDefault(requestId),
-                        abbreviate(ep.baseUri()),
-                        ep.kind(),
-                        abbreviate(contractId),
-                        e.getMessage());
+                ep = registries.get(next++);
+                attempted.add(ep.baseUri());
+                pending++;
+            }
+            CompletableFuture<RegistryFetchResult> fetch = fetchChoiceContextAsync(ep, contractId, requestId, this::track);
+            fetch.whenComplete((fetched, error) -> onFetched(ep, error == null ? fetched : null));
+            if (hedgeDelayMs > 0) {
+                CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS).execute(() -> {
+                    if (!fetch.isDone() && launchNext()) {
+                        logger.info("[TIChoiceContext] requestId={} contractId={} base={} slower than {}ms, hedging to next registry",
+                                requestIdOrDefault(requestId), abbreviate(contractId), abbreviate(ep.baseUri()), hedgeDelayMs);
+                    }
+                });
+            }
+            return true;
+        }
+
+        private void track(CompletableFuture<?> request) {
+            boolean done;
+            synchronized (this) {
+                done = result.isDone();
+                if (!done) {
+                    inflight.add(request);
+                }
+            }
+            if (done) {
+                request.cancel(true);
+            }
+        }
+
+        private void onFetched(RegistryEndpoint ep, RegistryFetchResult fetched) {
+            if (result.isDone()) {
+                return;
+            }
+            List<String> attemptedSnapshot;
+            synchronized (this) {
+                attemptedSnapshot = List.copyOf(attempted);
+            }
+            Result<ChoiceContextResult, ApiError> built = fetched != null
+                    ? toChoiceContextResult(fetched, ep.baseUri(), attemptedSnapshot)
+                    : null;
+            if (built != null && built.isOk()) {
+                if (result.complete(built)) {
+                    cachePut(contractId, ep.baseUri(), built.getValueUnsafe());
+                    cancelInflight();
+                }
+                return;
+            }
+            boolean exhausted;
+            synchronized (this) {
+                pending--;
+                exhausted = pending == 0 && next >= registries.size();
+            }
+            if (!launchNext() && exhausted) {
+                result.complete(built != null ? built : Result.err(ApiError.of(
+                        ErrorCode.PRECONDITION_FAILED,
+                        "choice-context missing disclosures",
+                        java.util.Map.of("attempted", attemptedSnapshot)
+                )));
+            }
+        }
+
+        private void cancelInflight() {
+            List<CompletableFuture<?>> losers;
+            synchronized (this) {
+                losers = List.copyOf(inflight);
+                inflight.clear();
             }
+            losers.forEach(request -> request.cancel(true));
         }
+    }
 
+    private Result<ChoiceContextResult, ApiError> toChoiceContextResult(RegistryFetchResult fetch, String base, List<String> attempted) {
+        ChoiceContextDto ctx = fetch.ctx;
         if (ctx == null || ctx.disclosedContracts == null || ctx.disclosedContracts.isEmpty()) {
             return Result.err(ApiError.of(
                     ErrorCode.PRECONDITION_FAILED,
@@ -112,6 +309,7 @@ public class TransferInstructionChoiceContextService {
             ));
         }
 
+        String synchronizerId = fetch.synchronizerId;
         if (synchronizerId == null) {
             synchronizerId = ctx.disclosedContracts.stream()
                     .map(dc -> dc.synchronizerId)
@@ -121,7 +319,7 @@ public class TransferInstructionChoiceContextService {
         }
 
         List<CommandsOuterClass.DisclosedContract> disclosed = ctx.disclosedContracts.stream()
-                .map(TransferInstructionChoiceContextService::toDisclosedContract)
+                .map(this::toDisclosedContract)
                 .filter(Objects::nonNull)
                 .toList();
 
@@ -134,43 +332,82 @@ public class TransferInstructionChoiceContextService {
         }
 
         ValueOuterClass.Record extraArgs = buildExtraArgs(ctx);
-        int contextKeys = ctx != null && ctx.choiceContextData != null && ctx.choiceContextData.values != null
+        int contextKeys = ctx.choiceContextData != null && ctx.choiceContextData.values != null
                 ? ctx.choiceContextData.values.size()
                 : 0;
-        return Result.ok(new ChoiceContextResult(disclosed, extraArgs, contextKeys, successfulBase, attempted, synchronizerId));
+        return Result.ok(new ChoiceContextResult(disclosed, extraArgs, contextKeys, base, attempted, synchronizerId));
     }
 
-    private RegistryFetchResult fetchChoiceContext(RegistryEndpoint ep, String contractId, String requestId) {
-        try {
-            String url1 = buildUrl(ep, true, contractId);
-            RegistryFetchResult first = url1 != null ? postChoiceContext(url1, ep, contractId, requestId) : null;
-            if (first != null && first.ctx != null && first.ctx.disclosedContracts != null && !first.ctx.disclosedContracts.isEmpty()) {
-                return first;
+    private void cachePut(String contractId, String base, ChoiceContextResult value) {
+        if (cacheTtlMs <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (cache.size() >= cacheMaxEntries) {
+            cache.values().removeIf(entry -> entry.expiresAtMs <= now);
+            Iterator<String> keys = cache.keySet().iterator();
+            while (cache.size() >= cacheMaxEntries && keys.hasNext()) {
+                keys.next();
+                keys.remove();
             }
-            String url2 = buildUrl(ep, false, contractId);
-            RegistryFetchResult second = url2 != null ? postChoiceContext(url2, ep, contractId, requestId) : null;
-            return second != null ? second : first;
-        } catch (Exception e) {
-            logger.warn("[TIChoiceContext] requestId={} base={} kind={} contractId={} error={}",
-                    requestIdOrDefault(requestId),
-                    abbreviate(ep.baseUri()),
-                    ep.kind(),
-                    abbreviate(contractId),
-                    e.getMessage());
-            return null;
         }
+        cache.put(cacheKey(contractId, base), new CachedContext(value, now + cacheTtlMs));
     }
 
-    private RegistryFetchResult postChoiceContext(String url, RegistryEndpoint ep, String contractId, String requestId) {
+    private static String cacheKey(String contractId, String base) {
+        return contractId + "|" + base;
+    }
+
+    private CompletableFuture<RegistryFetchResult> fetchChoiceContextAsync(
+            RegistryEndpoint ep, String contractId, String requestId, Consumer<CompletableFuture<?>> track) {
+        String url1 = buildUrl(ep, true, contractId);
+        CompletableFuture<RegistryFetchResult> first = url1 != null
+                ? postChoiceContext(url1, ep, contractId, requestId, track)
+                : CompletableFuture.completedFuture(null);
+        return first.thenCompose(firstResult -> {
+            if (firstResult != null && firstResult.ctx != null && firstResult.ctx.disclosedContracts != null
+                    && !firstResult.ctx.disclosedContracts.isEmpty()) {
+                return CompletableFuture.completedFuture(firstResult);
+            }
+            String url2 = buildUrl(ep, false, contractId);
+            if (url2 == null) {
+                return CompletableFuture.completedFuture(firstResult);
+            }
+            return postChoiceContext(url2, ep, contractId, requestId, track)
+                    .thenApply(second -> second != null ? second : firstResult);
+        });
+    }
+
+    private CompletableFuture<RegistryFetchResult> postChoiceContext(
+            String url, RegistryEndpoint ep, String contractId, String requestId, Consumer<CompletableFuture<?>> track) {
+        CompletableFuture<HttpResponse<String>> send;
         try {
             HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
                     .header("Content-Type", "application/json")
                     .POST(HttpRequest.BodyPublishers.ofString("{\"meta\":{}}"));
             if (ledgerConfig.getRegistryAuthHeader() != null && !ledgerConfig.getRegistryAuthHeader().isBlank()
                     && ledgerConfig.getRegistryAuthToken() != null && !ledgerConfig.getRegistryAuthToken().isBlank()) {
                 b.header(ledgerConfig.getRegistryAuthHeader(), ledgerConfig.getRegistryAuthToken());
             }
-            HttpResponse<String> resp = httpClient.send(b.build(), HttpResponse.BodyHandlers.ofString());
+            send = httpClient.sendAsync(b.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            send = CompletableFuture.failedFuture(e);
+        }
+        track.accept(send);
+        return send.handle((resp, error) -> {
+            if (error instanceof CancellationException || (error != null && error.getCause() instanceof CancellationException)) {
+                // Lost the hedge race; another registry already answered
+                return null;
+            }
+            if (error != null) {
+                logger.warn("[TIChoiceContext] requestId={} url={} contractId={} error={}",
+                        requestIdOrDefault(requestId),
+                        abbreviate(url),
+                        abbreviate(contractId),
+                        error.getMessage());
+                return new RegistryFetchResult(null, url, 0, 0, 0, 0, null);
+            }
             String body = resp.body() != null ? resp.body() : "";
             ChoiceContextDto ctx = resp.statusCode() >= 200 && resp.statusCode() < 300
                     ? parseChoiceContext(body)
@@ -201,14 +438,7 @@ public class TransferInstructionChoiceContextService {
                     abbreviate(synchronizerId),
                     keys);
             return new RegistryFetchResult(ctx, url, resp.statusCode(), body.length(), disclosed, contextKeys, synchronizerId);
-        } catch (Exception e) {
-            logger.warn("[TIChoiceContext] requestId={} url={} contractId={} error={}",
-                    requestIdOrDefault(requestId),
-                    abbreviate(url),
-                    abbreviate(contractId),
-                    e.getMessage());
-            return new RegistryFetchResult(null, url, 0, 0, 0, 0, null);
-        }
+        });
     }
 
     private List<RegistryEndpoint> getRegistriesToTry(String adminHint) {
@@ -317,33 +547,8 @@ public class TransferInstructionChoiceContextService {
         }
     }
 
-    private static CommandsOuterClass.DisclosedContract toDisclosedContract(DisclosedContractDto dc) {
-        try {
-            ValueOuterClass.Identifier tid = parseTemplateIdentifier(dc.templateId);
-            byte[] blob = Base64.getDecoder().decode(dc.createdEventBlob);
-            CommandsOuterClass.DisclosedContract.Builder builder = CommandsOuterClass.DisclosedContract.newBuilder()
-                    .setTemplateId(tid)
-                    .setContractId(dc.contractId)
-                    .setCreatedEventBlob(com.google.protobuf.ByteString.copyFrom(blob));
-            if (dc.synchronizerId != null && !dc.synchronizerId.isBlank()) {
-                builder.setSynchronizerId(dc.synchronizerId);
-            }
-            return builder.build();
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private static ValueOuterClass.Identifier parseTemplateIdentifier(String templateIdStr) {
-        String[] parts = templateIdStr.split(":");
-        if (parts.length < 3) {
-            throw new IllegalArgumentException("Invalid templateId format: " + templateIdStr);
-        }
-        return ValueOuterClass.Identifier.newBuilder()
-                .setPackageId(parts[0])
-                .setModuleName(parts[1])
-                .setEntityName(parts[2])
-                .build();
+    private CommandsOuterClass.DisclosedContract toDisclosedContract(DisclosedContractDto dc) {
+        return disclosedContractCache.intern(dc.templateId, dc.contractId, dc.createdEventBlob, dc.synchronizerId);
     }
 
     private static String abbreviate(String s) {
@@ -0,0 +1,159 @@
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.service.TransferInstructionAcsQueryService.TransferInstructionDto;
+import com.digitalasset.quickstart.service.TransferInstructionAcsQueryService.TransferInstructionWithMemo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * In-memory index of active TransferInstructions, maintained from create/archive events.
+ * Entries are keyed by contract id with secondary indexes on the memo requestId, receiver,
+ * instrument and memo poolCid, so lookups do not need an ACS scan. Memos are parsed once, on insert.
+ *
+ * Not thread-safe on its own; {@link TransferInstructionAcsQueryService} guards it.
+ */
+public final class TransferInstructionIndex {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private record Entry(TransferInstructionWithMemo row, String requestId, String poolCid) { }
+
+    private final Map<String, Entry> byCid = new LinkedHashMap<>();
+    private final Map<String, Set<String>> byRequestId = new LinkedHashMap<>();
+    private final Map<String, Set<String>> byReceiver = new LinkedHashMap<>();
+    private final Map<String, Set<String>> byInstrument = new LinkedHashMap<>();
+    private final Map<String, Set<String>> byPool = new LinkedHashMap<>();
+
+    /**
+     * @return The memo requestId of the inserted row, or null when the memo has none
+     */
+    public String put(TransferInstructionWithMemo row) {
+        TransferInstructionDto ti = row.transferInstruction();
+        remove(ti.contractId());
+        JsonNode memo = parseMemo(row.memo());
+        Entry entry = new Entry(row, memoText(memo, "requestId"), memoText(memo, "poolCid"));
+        byCid.put(ti.contractId(), entry);
+        link(byRequestId, entry.requestId, ti.contractId());
+        link(byReceiver, ti.receiver(), ti.contractId());
+        link(byInstrument, instrumentKey(ti.admin(), ti.instrumentId()), ti.contractId());
+        link(byPool, entry.poolCid, ti.contractId());
+        return entry.requestId;
+    }
+
+    public void remove(String contractId) {
+        Entry entry = byCid.remove(contractId);
+        if (entry == null) {
+            return;
+        }
+        TransferInstructionDto ti = entry.row.transferInstruction();
+        unlink(byRequestId, entry.requestId, contractId);
+        unlink(byReceiver, ti.receiver(), contractId);
+        unlink(byInstrument, instrumentKey(ti.admin(), ti.instrumentId()), contractId);
+        unlink(byPool, entry.poolCid, contractId);
+    }
+
+    public void clear() {
+        byCid.clear();
+        byRequestId.clear();
+        byReceiver.clear();
+        byInstrument.clear();
+        byPool.clear();
+    }
+
+    public int size() {
+        return byCid.size();
+    }
+
+    public Optional<TransferInstructionWithMemo> get(String contractId) {
+        Entry entry = byCid.get(contractId);
+        return entry != null ? Optional.of(entry.row) : Optional.empty();
+    }
+
+    public List<TransferInstructionWithMemo> all() {
+        return byCid.values().stream().map(Entry::row).toList();
+    }
+
+    public List<TransferInstructionWithMemo> byRequestId(String requestId) {
+        return rows(byRequestId.get(requestId));
+    }
+
+    public List<TransferInstructionWithMemo> byReceiver(String receiver) {
+        return rows(byReceiver.get(receiver));
+    }
+
+    public List<TransferInstructionWithMemo> byInstrument(String admin, String instrumentId) {
+        return rows(byInstrument.get(instrumentKey(admin, instrumentId)));
+    }
+
+    public List<TransferInstructionWithMemo> byPool(String poolCid) {
+        return rows(byPool.get(poolCid));
+    }
+
+    private List<TransferInstructionWithMemo> rows(Collection<String> cids) {
+        if (cids == null || cids.isEmpty()) {
+            return List.of();
+        }
+        List<TransferInstructionWithMemo> rows = new ArrayList<>(cids.size());
+        for (String cid : cids) {
+            Entry entry = byCid.get(cid);
+            if (entry != null) {
+                rows.add(entry.row);
+            }
+        }
+        return rows;
+    }
+
+    private static void link(Map<String, Set<String>> index, String key, String cid) {
+        if (key != null && !key.isBlank()) {
+            index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(cid);
+        }
+    }
+
+    private static void unlink(Map<String, Set<String>> index, String key, String cid) {
+        if (key == null) {
+            return;
+        }
+        Set<String> cids = index.get(key);
+        if (cids != null) {
+            cids.remove(cid);
+            if (cids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static String instrumentKey(String admin, String instrumentId) {
+        if (admin == null || instrumentId == null) {
+            return null;
+        }
+        return admin + "|" + instrumentId;
+    }
+
+    private static JsonNode parseMemo(String memo) {
+        if (memo == null || !memo.trim().startsWith("{")) {
+            return null;
+        }
+        try {
+            return MAPPER.readTree(memo);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String memoText(JsonNode memo, String field) {
+        if (memo == null) {
+            return null;
+        }
+        JsonNode value = memo.get(field);
+        return value != null && value.isTextual() ? value.asText() : null;
+    }
+}
@@ -1,7 +1,10 @@
 package com.digitalasset.quickstart.util;
 
+import com.digitalasset.quickstart.constants.SwapConstants;
+
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.math.RoundingMode;
 
 /**
  * AMM math helpers shared across services.
@@ -41,6 +44,51 @@ public final class AmmMath {
         return shareA.min(shareB).max(BigDecimal.ZERO);
     }
 
+    /**
+     * Constant-product output for a single swap: the fee is taken from the input, then
+     * {@code out = in' * reserveOut / (reserveIn + in')}. Rounded down to {@link SwapConstants#SCALE}.
+     */
+    public static BigDecimal swapOutput(
+            final BigDecimal amountIn,
+            final BigDecimal reserveIn,
+            final BigDecimal reserveOut,
+            final BigDecimal feeRate
+    ) {
+        BigDecimal inputAfterFee = amountIn.multiply(BigDecimal.ONE.subtract(feeRate), MathContext.DECIMAL64)
+                .setScale(SwapConstants.SCALE, RoundingMode.DOWN);
+        BigDecimal numerator = inputAfterFee.multiply(reserveOut, MathContext.DECIMAL64);
+        BigDecimal denominator = reserveIn.add(inputAfterFee);
+        if (denominator.compareTo(BigDecimal.ZERO) <= 0) {
+            return BigDecimal.ZERO.setScale(SwapConstants.SCALE, RoundingMode.DOWN);
+        }
+        return numerator.divide(denominator, SwapConstants.SCALE, RoundingMode.DOWN);
+    }
+
+    /**
+     * Uniform clearing price (units of B per unit of A) for a batch of opposing swaps.
+     * Only the net imbalance trades against the constant-product curve; the price is the
+     * average price of that net trade, so every leg in the batch clears at the same rate.
+     * Inputs are after fees. Returns zero when the pool has no liquidity.
+     */
+    public static BigDecimal batchClearingPrice(
+            final BigDecimal netInA,
+            final BigDecimal netInB,
+            final BigDecimal reserveA,
+            final BigDecimal reserveB
+    ) {
+        if (isZero(reserveA) || isZero(reserveB)) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal safeInA = netInA != null ? netInA.max(BigDecimal.ZERO) : BigDecimal.ZERO;
+        BigDecimal safeInB = netInB != null ? netInB.max(BigDecimal.ZERO) : BigDecimal.ZERO;
+
+        // Net A taken by the pool: (inA * y - inB * x) / (y + inB); negative when B dominates
+        BigDecimal netA = safeInA.multiply(reserveB, MathContext.DECIMAL64)
+                .subtract(safeInB.multiply(reserveA, MathContext.DECIMAL64))
+                .divide(reserveB.add(safeInB), MathContext.DECIMAL64);
+        return reserveB.divide(reserveA.add(netA), MathContext.DECIMAL64);
+    }
+
     private static boolean isZero(BigDecimal value) {
         return value == null || value.compareTo(BigDecimal.ZERO) <= 0;
     }
@@ -3,6 +3,7 @@
 
 package com.digitalasset.quickstart.utility;
 
+import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.api.trace.Span;
@@ -10,6 +11,8 @@ import io.opentelemetry.api.trace.StatusCode;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Supplier;
 
 import jakarta.validation.constraints.NotNull;
@@ -43,16 +46,122 @@ import org.slf4j.Logger;
  * <p>
  * If your code does not require adding attributes to spans or correlating them with logs,
  * you can bypass this helper and use standard logging calls directly.
+ *
+ * <p>Cost on hot paths (every ledger and PQS call goes through {@link #tracingCtx}):
+ * <ul>
+ *   <li>Attribute values are kept as given and only stringified when a recording span or an
+ *       enabled log level needs them. Pass {@link Supplier}s (e.g. {@link #lazyJoin}) for values
+ *       that are expensive to build.
+ *   <li>Attribute keys are created once per name and reused.
+ *   <li>A per-operation {@link SamplingPolicy} decides up front whether a context does any attribute
+ *       work at all; failures are always logged and recorded on the span.
+ * </ul>
  */
 
 public final class TracingUtils {
-    public record TracingContext(Logger logger, String message, Map<String, Object> attrs) {
+
+    /**
+     * Message plus key/value attributes for one traced operation. Values stay unresolved until
+     * {@link #attrs()} or the trace helpers need them.
+     */
+    public static final class TracingContext {
+        private final Logger logger;
+        private final String message;
+        private final Object[] keyValues;
+        private final boolean sampled;
+
+        private TracingContext(Logger logger, String message, Object[] keyValues, boolean sampled) {
+            this.logger = logger;
+            this.message = message;
+            this.keyValues = keyValues;
+            this.sampled = sampled;
+        }
+
+        public Logger logger() {
+            return logger;
+        }
+
+        public String message() {
+            return message;
+        }
+
+        /**
+         * @return Whether the sampling policy selected this operation for attribute recording
+         */
+        public boolean sampled() {
+            return sampled;
+        }
+
+        /**
+         * @return The attributes with lazy values resolved (built on each call)
+         */
+        public Map<String, Object> attrs() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 1; i < keyValues.length; i += 2) {
+                map.put(keyOf(keyValues[i]), resolve(keyValues[i + 1]));
+            }
+            return map;
+        }
+
+        private Attributes spanAttributes() {
+            AttributesBuilder builder = Attributes.builder();
+            for (int i = 1; i < keyValues.length; i += 2) {
+                putAttribute(builder, keyOf(keyValues[i]), resolve(keyValues[i + 1]));
+            }
+            return builder.build();
+        }
+
+        private void addKeyValues(org.slf4j.spi.LoggingEventBuilder logBuilder) {
+            for (int i = 1; i < keyValues.length; i += 2) {
+                logBuilder.addKeyValue(keyOf(keyValues[i]), resolve(keyValues[i + 1]));
+            }
+        }
     }
 
+    /**
+     * Decides per operation (the tracing context message) whether to record attributes and
+     * start/success logs.
+     */
+    @FunctionalInterface
+    public interface SamplingPolicy {
+        boolean sample(String operation);
+
+        SamplingPolicy ALWAYS = operation -> true;
+
+        /**
+         * @param defaultRatio Fraction of operations sampled when no per-operation ratio is set
+         * @param perOperation Ratio by operation message (0 = never, 1 = always)
+         */
+        static SamplingPolicy ratio(double defaultRatio, Map<String, Double> perOperation) {
+            Map<String, Double> ratios = perOperation == null ? Map.of() : Map.copyOf(perOperation);
+            if (defaultRatio >= 1.0 && ratios.isEmpty()) {
+                return ALWAYS;
+            }
+            return operation -> {
+                double ratio = ratios.getOrDefault(operation, defaultRatio);
+                return ratio >= 1.0 || (ratio > 0.0 && ThreadLocalRandom.current().nextDouble() < ratio);
+            };
+        }
+    }
+
+    private static final Map<String, AttributeKey<String>> STRING_KEYS = new ConcurrentHashMap<>();
+    private static volatile SamplingPolicy samplingPolicy = SamplingPolicy.ALWAYS;
+
     private TracingUtils() {
         // Utility class: prevent instantiation
     }
 
+    public static void setSamplingPolicy(SamplingPolicy policy) {
+        samplingPolicy = policy != null ? policy : SamplingPolicy.ALWAYS;
+    }
+
+    /**
+     * A comma-joined view of {@code values}, joined only if an attribute consumer asks for it.
+     */
+    public static Supplier<String> lazyJoin(Collection<String> values) {
+        return () -> values == null ? "" : String.join(",", values);
+    }
+
     /**
      * Add attributes to the current Span from a map.
      * If attributes is null, does nothing.
@@ -61,16 +170,12 @@ public final class TracingUtils {
      * @param attributes the map of key-value attributes; may be null
      */
     public static void setSpanAttributes(Span span, Map<String, Object> attributes) {
-        if (span == null || attributes == null) {
+        if (span == null || attributes == null || !span.isRecording()) {
             return;
         }
-        attributes.forEach((key, value) -> {
-            if (value != null) {
-                span.setAttribute(key, value.toString());
-            } else {
-                span.setAttribute(key, "");
-            }
-        });
+        AttributesBuilder builder = Attributes.builder();
+        attributes.forEach((key, value) -> putAttribute(builder, key, resolve(value)));
+        span.setAllAttributes(builder.build());
     }
 
     /**
@@ -82,7 +187,7 @@ public final class TracingUtils {
      * @param attributes the map of key-value attributes to attach to the event; may be null
      */
     public static void addEventWithAttributes(Span span, String eventName, Map<String, Object> attributes) {
-        if (span == null) {
+        if (span == null || !span.isRecording()) {
             return;
         }
         if (attributes == null) {
@@ -92,8 +197,9 @@ public final class TracingUtils {
 
         AttributesBuilder attrBuilder = Attributes.builder();
         attributes.forEach((k, v) -> {
-            if (v != null) {
-                attrBuilder.put(k, v.toString());
+            Object value = resolve(v);
+            if (value != null) {
+                putAttribute(attrBuilder, k, value);
             }
         });
         span.addEvent(eventName, attrBuilder.build());
@@ -122,7 +228,7 @@ public final class TracingUtils {
      * @param attributes the map of key-value attributes; may be null
      */
     public static void logInfo(Logger logger, String message, Map<String, Object> attributes) {
-        if (logger == null) {
+        if (logger == null || !logger.isInfoEnabled()) {
             return;
         }
         if (attributes == null) {
@@ -130,7 +236,7 @@ public final class TracingUtils {
             logger.atInfo().log(message);
         } else {
             var logBuilder = logger.atInfo();
-            attributes.forEach(logBuilder::addKeyValue);
+            attributes.forEach((k, v) -> logBuilder.addKeyValue(k, resolve(v)));
             logBuilder.log(message);
         }
     }
@@ -155,14 +261,14 @@ public final class TracingUtils {
      * @param attributes the map of key-value attributes; may be null
      */
     public static void logDebug(Logger logger, String message, Map<String, Object> attributes) {
-        if (logger == null) {
+        if (logger == null || !logger.isDebugEnabled()) {
             return;
         }
         if (attributes == null) {
             logger.atDebug().log(message);
         } else {
             var logBuilder = logger.atDebug();
-            attributes.forEach(logBuilder::addKeyValue);
+            attributes.forEach((k, v) -> logBuilder.addKeyValue(k, resolve(v)));
             logBuilder.log(message);
         }
     }
@@ -193,7 +299,7 @@ public final class TracingUtils {
         }
         var logBuilder = logger.atError();
         if (attributes != null) {
-            attributes.forEach(logBuilder::addKeyValue);
+            attributes.forEach((k, v) -> logBuilder.addKeyValue(k, resolve(v)));
         }
         if (t != null) {
             logBuilder.setCause(t);
@@ -225,24 +331,20 @@ public final class TracingUtils {
     /**
      * Create a TracingContext with a message and optional key-value attribute pairs.
      * The args must contain an odd number of elements: the first is the message (String),
-     * followed by pairs of key (String) and value (Object).
+     * followed by pairs of key (String) and value (Object). Values are not converted here;
+     * a {@link Supplier} value is only evaluated if the attributes are recorded.
      *
      * @param logger the SLF4J logger; may not be null
      * @param args   the message followed by key-value pairs; must be odd in length
-     * @return a TracingContext containing the logger, message, and attributes map
+     * @return a TracingContext containing the logger, message, and attributes
      * @throws IllegalArgumentException if args is null or has an even number of elements
      */
     public static TracingContext tracingCtx(@NotNull Logger logger, Object... args) {
         if (args == null || args.length % 2 == 0) {
             throw new IllegalArgumentException("attrs requires an odd number of arguments message plus multiple key, value pairs.");
         }
-        Map<String, Object> map = new HashMap<>();
-        for (int i = 1; i < args.length; i += 2) {
-            String key = args[i] == null ? "null" : args[i].toString();
-            Object value = args[i + 1];
-            map.put(key, value);
-        }
-        return new TracingContext(logger, args[0].toString(), map);
+        String message = args[0].toString();
+        return new TracingContext(logger, message, args, samplingPolicy.sample(message));
     }
 
     public static <T> CompletableFuture<T> traceWithStartEvent(
@@ -289,19 +391,42 @@ public final class TracingUtils {
         // If we later need more control over context propagation we can always capture io.opentelemetry.context.Context
         // in TracingContext and call Context.makeCurrent() where we need.
         var span = Span.current();
-        if (startEvent) addEventWithAttributes(span, ctx.message() + " start", ctx.attrs());
-        setSpanAttributes(span, ctx.attrs());
-        logInfo(ctx.logger(), ctx.message(), ctx.attrs());
+        boolean recordSpan = ctx.sampled() && span.isRecording();
+        boolean infoOn = ctx.sampled() && ctx.logger().isInfoEnabled();
+        if (recordSpan) {
+            Attributes attributes = ctx.spanAttributes();
+            if (startEvent) span.addEvent(ctx.message() + " start", attributes);
+            span.setAllAttributes(attributes);
+        }
+        if (infoOn) {
+            var logBuilder = ctx.logger().atInfo();
+            ctx.addKeyValues(logBuilder);
+            logBuilder.log(ctx.message());
+        }
         return body.get().whenComplete((res, ex) -> {
             if (ex != null) {
                 var e = ex instanceof CompletionException ce && ce.getCause() != null ? ce.getCause() : ex;
                 ctx.logger().error(ctx.message() + " failed", e);
                 recordException(span, e);
-            } else if (res instanceof List<?> listRes) {
-                ctx.logger().info(ctx.message() + " succeeded with {} results", listRes.size());
-            } else {
-                ctx.logger().info(ctx.message() + " succeeded");
+            } else if (infoOn) {
+                if (res instanceof List<?> listRes) {
+                    ctx.logger().info("{} succeeded with {} results", ctx.message(), listRes.size());
+                } else {
+                    ctx.logger().info("{} succeeded", ctx.message());
+                }
             }
         });
     }
+
+    private static String keyOf(Object key) {
+        return key == null ? "null" : key.toString();
+    }
+
+    private static Object resolve(Object value) {
+        return value instanceof Supplier<?> supplier ? supplier.get() : value;
+    }
+
+    private static void putAttribute(AttributesBuilder builder, String key, Object value) {
+        builder.put(STRING_KEYS.computeIfAbsent(key, AttributeKey::stringKey), value == null ? "" : value.toString());
+    }
 }
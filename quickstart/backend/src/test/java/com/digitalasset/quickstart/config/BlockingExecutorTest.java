@@ -0,0 +1,124 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BlockingExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BlockingExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testPlatformPoolQueuesBeyondItsSizeAndRecordsMetrics() throws Exception {
+        executor = new BlockingExecutor("test", meterRegistry, false, 1, 16);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = executor.supply(() -> {
+            await(release);
+            return Thread.currentThread().getName();
+        });
+        CompletableFuture<String> second = executor.supply(() -> "second");
+
+        assertThat(waitFor(() -> gauge("clearportx.executor.active") == 1 && gauge("clearportx.executor.queued") == 1)).isTrue();
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).startsWith("clearportx-test-");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(waitFor(() -> gauge("clearportx.executor.active") == 0)).isTrue();
+        assertThat(meterRegistry.get("clearportx.executor.task.time").tag("executor", "test").tag("mode", "platform").timer().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("clearportx.executor.queue.time").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testFullQueueRunsOnSubmitter() throws Exception {
+        executor = new BlockingExecutor("test", meterRegistry, false, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> running = executor.supply(() -> {
+            await(release);
+            return null;
+        });
+        assertThat(waitFor(() -> gauge("clearportx.executor.active") == 1)).isTrue();
+        CompletableFuture<String> queued = executor.supply(() -> Thread.currentThread().getName());
+
+        // The one thread is busy and the one queue slot is taken: the submitter runs the task itself
+        String overflow = executor.supply(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+        assertThat(overflow).isEqualTo(Thread.currentThread().getName());
+        assertThat(meterRegistry.get("clearportx.executor.caller.runs").tag("executor", "test").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertThat(queued.get(5, TimeUnit.SECONDS)).startsWith("clearportx-test-");
+    }
+
+    @Test
+    void testSubmissionsAfterShutdownFail() {
+        executor = new BlockingExecutor("test", meterRegistry, false, 1, 1);
+        executor.shutdown();
+
+        CompletableFuture<String> rejected = executor.supply(() -> "never");
+        // A retry chained on a future that completes after shutdown fails too
+        CompletableFuture<String> wake = new CompletableFuture<>();
+        CompletableFuture<String> retry = wake.thenCompose(v -> executor.supply(() -> v));
+        wake.complete("signalled");
+
+        assertThatThrownBy(rejected::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThatThrownBy(retry::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(meterRegistry.get("clearportx.executor.caller.runs").counter().count()).isZero();
+        assertThat(gauge("clearportx.executor.queued")).isZero();
+    }
+
+    @Test
+    void testVirtualModeStartsVirtualThreads() throws Exception {
+        assumeTrue(BlockingExecutor.virtualThreadsSupported(), "needs a Java 21+ runtime");
+        executor = new BlockingExecutor("test", meterRegistry, true, 1, 16);
+
+        String name = executor.supply(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+        assertThat(executor.isVirtual()).isTrue();
+        assertThat(name).startsWith("clearportx-test-");
+        assertThat(meterRegistry.get("clearportx.executor.task.time").tag("mode", "virtual").timer().count()).isEqualTo(1);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("executor", "test").gauge().value();
+    }
+
+    private static boolean waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(5);
+        }
+        return false;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
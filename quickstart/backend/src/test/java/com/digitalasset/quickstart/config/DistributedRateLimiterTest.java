@@ -3,17 +3,21 @@
 
 package com.digitalasset.quickstart.config;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -25,71 +29,104 @@ class DistributedRateLimiterTest {
     @Mock
     private StringRedisTemplate redis;
 
-    @Mock
-    private ValueOperations<String, String> valueOps;
-
     private Clock fixedClock;
+    private SimpleMeterRegistry meterRegistry;
     private DistributedRateLimiter rateLimiter;
 
     @BeforeEach
     void setUp() {
         fixedClock = Clock.fixed(Instant.parse("2025-01-01T12:00:00Z"), ZoneId.of("UTC"));
-        when(redis.opsForValue()).thenReturn(valueOps);
-        rateLimiter = new DistributedRateLimiter(redis, fixedClock);
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new DistributedRateLimiter(redis, meterRegistry, 2, 10, 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void scriptReturns(long allowed, long retryAfterMs, long granted) {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+            .thenReturn(List.of(allowed, retryAfterMs, granted));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> capturedKeys() {
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redis).execute(any(RedisScript.class), keys.capture(), any(Object[].class));
+        return keys.getValue();
     }
 
     @Test
     void testGlobalRateLimit_allowsUnderLimit() {
-        // Simulate empty buckets (under limit)
-        when(valueOps.get(anyString())).thenReturn(null);
-        when(valueOps.increment(anyString())).thenReturn(1L);
+        scriptReturns(1, 0, 1);
 
         boolean allowed = rateLimiter.tryAcquire(null, fixedClock.instant());
 
         assertThat(allowed).isTrue();
-        verify(valueOps, atLeastOnce()).increment(startsWith("rl:global:"));
+        assertThat(capturedKeys()).containsExactly(DistributedRateLimiter.GLOBAL_KEY);
     }
 
     @Test
     void testGlobalRateLimit_deniesOverLimit() {
-        // Simulate 2 requests already in sliding window (at limit)
-        when(valueOps.get(startsWith("rl:global:"))).thenReturn("2");
+        scriptReturns(0, 2_500, 0);
 
         boolean allowed = rateLimiter.tryAcquire(null, fixedClock.instant());
 
         assertThat(allowed).isFalse();
-        verify(valueOps, never()).increment(anyString());
+        assertThat(meterRegistry.get("clearportx.ratelimit.decisions").tag("result", "denied").counter().count())
+            .isEqualTo(1.0);
     }
 
     @Test
-    void testPerPartyRateLimit_deniesOverLimit() {
-        // Global OK but party at limit
-        when(valueOps.get(startsWith("rl:global:"))).thenReturn(null);
-        when(valueOps.get(startsWith("rl:party:trader1:"))).thenReturn("10");
+    void testPerPartyRateLimit_checkedInSameRoundTrip() {
+        scriptReturns(0, 6_000, 0);
 
-        boolean allowed = rateLimiter.tryAcquire("trader1", fixedClock.instant());
+        DistributedRateLimiter.Decision decision = rateLimiter.acquire("trader1", fixedClock.instant());
 
-        assertThat(allowed).isFalse();
+        assertThat(decision.allowed()).isFalse();
+        assertThat(decision.retryAfterSeconds()).isEqualTo(6);
+        assertThat(capturedKeys())
+            .containsExactly(DistributedRateLimiter.GLOBAL_KEY, DistributedRateLimiter.PARTY_KEY_PREFIX + "trader1");
     }
 
     @Test
     void testRetryAfterSeconds_returnsCorrectValue() {
-        // At global limit
-        when(valueOps.get(startsWith("rl:global:"))).thenReturn("2");
+        scriptReturns(0, 5_000, 0);
 
         int retryAfter = rateLimiter.getRetryAfterSeconds(null, fixedClock.instant());
 
-        assertThat(retryAfter).isEqualTo(5); // Wait for 5-second window to clear
+        assertThat(retryAfter).isEqualTo(5);
     }
 
     @Test
-    void testRetryAfterSeconds_returnsMax() {
-        // Both limits hit
-        when(valueOps.get(startsWith("rl:global:"))).thenReturn("2");
-        when(valueOps.get(startsWith("rl:party:trader1:"))).thenReturn("10");
+    void testRetryAfterSeconds_roundsUpPartialSeconds() {
+        scriptReturns(0, 59_001, 0);
 
         int retryAfter = rateLimiter.getRetryAfterSeconds("trader1", fixedClock.instant());
 
-        assertThat(retryAfter).isEqualTo(60); // Max of 5s and 60s
+        assertThat(retryAfter).isEqualTo(60);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRedisFailure_failsOpen() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+            .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertThat(rateLimiter.tryAcquire("trader1", fixedClock.instant())).isTrue();
+        assertThat(meterRegistry.get("clearportx.ratelimit.decisions").tag("result", "error").counter().count())
+            .isEqualTo(1.0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPrefetchedTokensSkipRedis() {
+        DistributedRateLimiter prefetching = new DistributedRateLimiter(redis, meterRegistry, 10, 10, 3);
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+            .thenReturn(List.of(1L, 0L, 3L));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(prefetching.tryAcquire(null, fixedClock.instant())).isTrue();
+        }
+
+        verify(redis, times(1)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        assertThat(meterRegistry.get("clearportx.ratelimit.prefetched").counter().count()).isEqualTo(2.0);
     }
 }
@@ -0,0 +1,104 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalRateLimiterTest {
+
+    private static final long T0 = 1_735_732_800_000L;
+
+    private RateLimiterProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimiterProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testDefaultLimits_matchFixedInterval() {
+        LocalRateLimiter limiter = new LocalRateLimiter(properties, meterRegistry);
+
+        assertThat(limiter.acquire("/api/swap/atomic", null, T0).allowed()).isTrue();
+
+        LocalRateLimiter.Decision denied = limiter.acquire("/api/liquidity/add", null, T0 + 1_000);
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.tier()).isEqualTo("global");
+        assertThat(denied.waitMs()).isEqualTo(1_500);
+
+        assertThat(limiter.acquire("/api/swap/atomic", null, T0 + 2_500).allowed()).isTrue();
+        assertThat(limiter.isLimited("/api/pools")).isFalse();
+    }
+
+    @Test
+    void testBurstCapacity() {
+        properties.setGlobalTps(1.0);
+        properties.setGlobalBurst(3);
+        LocalRateLimiter limiter = new LocalRateLimiter(properties, meterRegistry);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.acquire("/api/swap/atomic", null, T0).allowed()).isTrue();
+        }
+        assertThat(limiter.acquire("/api/swap/atomic", null, T0).allowed()).isFalse();
+        assertThat(limiter.acquire("/api/swap/atomic", null, T0 + 1_000).allowed()).isTrue();
+    }
+
+    @Test
+    void testPartyDenialDoesNotConsumeGlobalToken() {
+        properties.setGlobalTps(100);
+        properties.setPerPartyRpm(1);
+        LocalRateLimiter limiter = new LocalRateLimiter(properties, meterRegistry);
+
+        assertThat(limiter.acquire("/api/swap/atomic", "alice", T0).allowed()).isTrue();
+        LocalRateLimiter.Decision denied = limiter.acquire("/api/swap/atomic", "alice", T0 + 100);
+        assertThat(denied.tier()).isEqualTo("party");
+        assertThat(limiter.acquire("/api/swap/atomic", "bob", T0 + 100).allowed()).isTrue();
+        assertThat(meterRegistry.get("clearportx.ratelimit.local.denied")
+            .tag("route", "swap").tag("tier", "party").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testRoutePolicy_ownPartyLimitAndRouteTier() {
+        properties.setGlobalTps(100);
+        properties.setPerPartyRpm(1);
+        RateLimiterProperties.Route swap = new RateLimiterProperties.Route("/api/swap/");
+        swap.setPartyRpm(60);
+        swap.setPartyBurst(2);
+        swap.setTps(1);
+        properties.getRoutes().put("swap", swap);
+        LocalRateLimiter limiter = new LocalRateLimiter(properties, meterRegistry);
+
+        assertThat(limiter.acquire("/api/swap/atomic", "alice", T0).allowed()).isTrue();
+        LocalRateLimiter.Decision denied = limiter.acquire("/api/swap/atomic", "alice", T0 + 10);
+        assertThat(denied.tier()).isEqualTo("route");
+        assertThat(limiter.acquire("/api/swap/atomic", "alice", T0 + 1_000).allowed()).isTrue();
+        // Only the configured route is limited
+        assertThat(limiter.isLimited("/api/liquidity/add")).isFalse();
+    }
+
+    @Test
+    void testIdlePartiesAreEvicted() {
+        properties.setGlobalTps(0);
+        properties.setStripes(1);
+        properties.setMaxPartiesPerStripe(100);
+        LocalRateLimiter limiter = new LocalRateLimiter(properties, meterRegistry);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire("/api/swap/atomic", "party-" + i, T0);
+        }
+        assertThat(limiter.trackedParties()).isEqualTo(100);
+
+        // Every earlier bucket has drained a minute later; the overflow triggers a sweep
+        limiter.acquire("/api/swap/atomic", "late-party", T0 + 60_000);
+
+        assertThat(limiter.trackedParties()).isEqualTo(1);
+        assertThat(meterRegistry.get("clearportx.ratelimit.local.parties").gauge().value()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,119 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for ConditionalReads - ETags from party versions, 304s without ledger reads, shared response cache
+ */
+class ConditionalReadsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicReference<OptionalLong> version = new AtomicReference<>(OptionalLong.of(0x2a));
+    private final AtomicInteger ledgerReads = new AtomicInteger();
+    private final ConditionalReads reads = new ConditionalReads(parties -> version.get(), registry, 0);
+
+    private CompletableFuture<List<String>> read() {
+        ledgerReads.incrementAndGet();
+        return CompletableFuture.completedFuture(List.of("CBTC", "CC"));
+    }
+
+    @Test
+    void testMatchingEtagIsAnsweredWithoutReading() {
+        ResponseEntity<List<String>> first = reads.perParty("tokens", List.of("alice"), null, this::read).join();
+        String etag = first.getHeaders().getETag();
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(etag).startsWith("\"tokens-2a-");
+        assertThat(first.getHeaders().getCacheControl()).isEqualTo("no-cache, private");
+        assertThat(first.getHeaders().getVary()).containsExactly("Authorization");
+
+        ResponseEntity<List<String>> second = reads.perParty("tokens", List.of("alice"), etag, this::read).join();
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(second.getBody()).isNull();
+        assertThat(ledgerReads).hasValue(1);
+
+        version.set(OptionalLong.of(0x2b));
+        ResponseEntity<List<String>> third = reads.perParty("tokens", List.of("alice"), etag, this::read).join();
+        assertThat(third.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(third.getHeaders().getETag()).startsWith("\"tokens-2b-");
+        assertThat(ledgerReads).hasValue(2);
+        assertThat(registry.get("clearportx.http.cache").tag("result", "not_modified").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testPartiesAtSameVersionDoNotCrossValidate() {
+        // Both wallets were tracked from the same offset; the JWT-scoped URL is the same for both
+        String aliceEtag = reads.perParty("tokens", List.of("alice"), null, this::read).join().getHeaders().getETag();
+
+        ResponseEntity<List<String>> bob = reads.perParty("tokens", List.of("bob"), aliceEtag, this::read).join();
+
+        assertThat(bob.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(bob.getHeaders().getETag()).isNotEqualTo(aliceEtag);
+        assertThat(ledgerReads).hasValue(2);
+    }
+
+    @Test
+    void testUnknownVersionReadsAndSendsNoEtag() {
+        version.set(OptionalLong.empty());
+
+        ResponseEntity<List<String>> response = reads.perParty("tokens", List.of("alice"), "*", this::read).join();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isNull();
+        assertThat(ledgerReads).hasValue(1);
+    }
+
+    @Test
+    void testSharedReadIsServedFromServerCacheUntilVersionMoves() {
+        CompletableFuture<List<String>> pending = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<List<String>>> first = reads.shared("pools", List.of("operator"), null, () -> {
+            ledgerReads.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<ResponseEntity<List<String>>> second = reads.shared("pools", List.of("operator"), null, this::read);
+
+        pending.complete(List.of("cc-cbtc-showcase"));
+        assertThat(first.join().getBody()).containsExactly("cc-cbtc-showcase");
+        assertThat(second.join().getBody()).containsExactly("cc-cbtc-showcase");
+        assertThat(second.join().getHeaders().getETag()).isEqualTo(first.join().getHeaders().getETag());
+        assertThat(ledgerReads).hasValue(1);
+
+        version.set(OptionalLong.of(0x30));
+        assertThat(reads.shared("pools", List.of("operator"), null, this::read).join().getBody()).containsExactly("CBTC", "CC");
+        assertThat(ledgerReads).hasValue(2);
+        assertThat(registry.get("clearportx.http.cache").tag("endpoint", "pools").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testFailedSharedReadIsNotCached() {
+        reads.shared("pools", List.of("operator"), null, () -> CompletableFuture.<List<String>>failedFuture(new IllegalStateException("UNAVAILABLE")))
+                .exceptionally(ex -> null)
+                .join();
+
+        assertThat(reads.shared("pools", List.of("operator"), null, this::read).join().getBody()).containsExactly("CBTC", "CC");
+        assertThat(ledgerReads).hasValue(1);
+    }
+
+    @Test
+    void testIfNoneMatchParsing() {
+        assertThat(ConditionalReads.matches("\"a-1\", \"tokens-2a\"", "\"tokens-2a\"")).isTrue();
+        assertThat(ConditionalReads.matches("W/\"tokens-2a\"", "\"tokens-2a\"")).isTrue();
+        assertThat(ConditionalReads.matches("*", "\"tokens-2a\"")).isTrue();
+        assertThat(ConditionalReads.matches("\"tokens-2b\"", "\"tokens-2a\"")).isFalse();
+        assertThat(ConditionalReads.matches(null, "\"tokens-2a\"")).isFalse();
+    }
+}
@@ -0,0 +1,98 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.CommandsOuterClass.DisclosedContract;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for DisclosedContractCache - decode once, shared merged lists, archive and TTL eviction
+ */
+class DisclosedContractCacheTest {
+
+    private static final String TEMPLATE = "pkg:Splice.AmuletRules:AmuletRules";
+    private static final String BLOB = Base64.getEncoder().encodeToString(new byte[] {1, 2, 3});
+    private static final String SYNC = "global-domain::1220";
+
+    private SimpleMeterRegistry meterRegistry;
+    private DisclosedContractCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new DisclosedContractCache(meterRegistry, 60_000, 16);
+    }
+
+    @Test
+    void testInternDecodesOnce() {
+        DisclosedContract first = cache.intern(TEMPLATE, "rules-1", BLOB, SYNC);
+        DisclosedContract second = cache.intern(TEMPLATE, "rules-1", BLOB, SYNC);
+
+        assertThat(first).isNotNull();
+        assertThat(second).isSameAs(first);
+        assertThat(first.getTemplateId().getEntityName()).isEqualTo("AmuletRules");
+        assertThat(first.getSynchronizerId()).isEqualTo(SYNC);
+        assertThat(meterRegistry.get("clearportx.ledger.disclosed.cache.hits").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("clearportx.ledger.disclosed.cache.misses").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testMalformedEntriesAreNotCached() {
+        assertThat(cache.intern("no-colons", "rules-1", BLOB, SYNC)).isNull();
+        assertThat(cache.intern(TEMPLATE, "rules-1", "not base64!", SYNC)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void testMergeDeduplicatesAndSharesList() {
+        DisclosedContract rules = cache.intern(TEMPLATE, "rules-1", BLOB, SYNC);
+        DisclosedContract featured = cache.intern(TEMPLATE, "featured-1", BLOB, SYNC);
+        DisclosedContract factory = cache.intern(TEMPLATE, "factory-1", BLOB, SYNC);
+
+        List<DisclosedContract> merged = cache.merge(List.of(rules, featured), List.of(featured, factory));
+        List<DisclosedContract> again = cache.merge(List.of(rules), List.of(featured, factory));
+
+        assertThat(merged).extracting(DisclosedContract::getContractId)
+            .containsExactly("rules-1", "featured-1", "factory-1");
+        assertThat(again).isSameAs(merged);
+        assertThat(cache.merge(null, List.of())).isEmpty();
+
+        // The same set listed in another order shares the memoized list
+        assertThat(cache.merge(List.of(factory, rules, featured))).isSameAs(merged);
+    }
+
+    @Test
+    void testSweepDropsExpiredEntries() throws InterruptedException {
+        DisclosedContractCache shortLived = new DisclosedContractCache(meterRegistry, 1, 16);
+        DisclosedContract rules = shortLived.intern(TEMPLATE, "rules-1", BLOB, SYNC);
+        List<DisclosedContract> merged = shortLived.merge(List.of(rules));
+        Thread.sleep(5);
+
+        shortLived.sweepExpired();
+
+        assertThat(shortLived.size()).isZero();
+        assertThat(shortLived.merge(List.of(rules))).isNotSameAs(merged);
+    }
+
+    @Test
+    void testArchiveInvalidatesContractAndMergedLists() {
+        DisclosedContract rules = cache.intern(TEMPLATE, "rules-1", BLOB, SYNC);
+        DisclosedContract featured = cache.intern(TEMPLATE, "featured-1", BLOB, SYNC);
+        List<DisclosedContract> merged = cache.merge(List.of(rules, featured));
+
+        cache.onArchived(Set.of("rules-1", "unrelated"));
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.intern(TEMPLATE, "rules-1", BLOB, SYNC)).isNotSameAs(rules);
+        assertThat(cache.merge(List.of(rules, featured))).isNotSameAs(merged);
+    }
+}
@@ -0,0 +1,101 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.ValueOuterClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end throughput run against FakeLedgerServer - swaps, liquidity and ACS reads through LedgerApi
+ *
+ * Excluded from the default test task; run with {@code ./gradlew :backend:loadTest}. Shape the run
+ * with -Pload.rate, -Pload.seconds, -Pload.pools, -Pload.latency-ms, -Pload.jitter-ms,
+ * -Pload.conflict-rate and -Pload.sequencer (true/false).
+ */
+@Tag("load")
+class FakeLedgerLoadTest {
+
+    static final String OPERATOR = FakeLedgerServerTest.OPERATOR;
+    static final String TRADER = FakeLedgerServerTest.TRADER;
+    static final ValueOuterClass.Identifier LP_TOKEN = ValueOuterClass.Identifier.newBuilder()
+            .setPackageId("#clearportx-amm-drain-credit")
+            .setModuleName("LPToken.LPToken")
+            .setEntityName("LPToken")
+            .build();
+
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "200"));
+    private final long seconds = Long.getLong("load.seconds", 10);
+    private final int poolCount = Integer.getInteger("load.pools", 4);
+    private final long latencyMs = Long.getLong("load.latency-ms", 20);
+    private final long jitterMs = Long.getLong("load.jitter-ms", 10);
+    private final double conflictRate = Double.parseDouble(System.getProperty("load.conflict-rate", "0.0"));
+    private final boolean sequencerEnabled = Boolean.parseBoolean(System.getProperty("load.sequencer", "true"));
+
+    private final FakeLedgerServer ledger = new FakeLedgerServer()
+            .commandLatency(Duration.ofMillis(latencyMs), Duration.ofMillis(jitterMs))
+            .readLatency(Duration.ofMillis(latencyMs / 4))
+            // AddLiquidity rolls the pool and mints an LP token for the provider
+            .onChoice("AddLiquidity", (pool, command) -> new FakeLedgerServer.Outcome(true, List.of(
+                    new FakeLedgerServer.Create(pool.templateId(), pool.arguments()),
+                    new FakeLedgerServer.Create(LP_TOKEN, ValueOuterClass.Record.newBuilder()
+                            .addFields(FakeLedgerServerTest.field("owner", ValueOuterClass.Value.newBuilder().setParty(TRADER).build()))
+                            .build())), null));
+    private final LedgerApi api = ledger.ledgerApi(OPERATOR);
+    private final PoolCommandSequencer sequencer = new PoolCommandSequencer(new SimpleMeterRegistry(), sequencerEnabled);
+
+    @AfterEach
+    void tearDown() {
+        ledger.close();
+    }
+
+    @Test
+    void testMixedWorkloadThroughput() throws Exception {
+        List<String> pools = new ArrayList<>();
+        for (int i = 0; i < poolCount; i++) {
+            var created = api.createRaw(FakeLedgerServerTest.POOL, FakeLedgerServerTest.poolArgs(OPERATOR, "TOKEN" + i, "USDC"),
+                    List.of(OPERATOR), List.of()).get(5, TimeUnit.SECONDS);
+            pools.add(FakeLedgerServerTest.createdCid(created));
+        }
+        ledger.conflictRate(conflictRate);
+
+        LoadDriver.Report report = new LoadDriver(rate, Duration.ofSeconds(seconds), 1_000).run(List.of(
+                new LoadDriver.Flow("swap", 8, n -> onPool(pools.get((int) (n % pools.size())), "AtomicSwap")),
+                new LoadDriver.Flow("liquidity", 1, n -> onPool(pools.get((int) (n % pools.size())), "AddLiquidity")),
+                new LoadDriver.Flow("acs-read", 1, n -> api.getActiveContractsRawSnapshotForParty(OPERATOR))
+        ));
+        System.out.printf("pools=%d latency=%dms jitter=%dms conflict-rate=%.2f sequencer=%s ledger-end=%d%n%s",
+                poolCount, latencyMs, jitterMs, conflictRate, sequencerEnabled, ledger.ledgerEnd(), report);
+
+        assertThat(report.flow("swap").succeeded()).isPositive();
+        assertThat(report.flow("liquidity").succeeded()).isPositive();
+        assertThat(report.flow("acs-read").failed()).isZero();
+        assertThat(ledger.activeContracts()).filteredOn(c -> c.templateId().equals(FakeLedgerServerTest.POOL)).hasSize(poolCount);
+        if (sequencerEnabled) {
+            // Serialized per pool, the only rejections left are the injected ones
+            for (String flow : List.of("swap", "liquidity")) {
+                assertThat(report.flow(flow).failures().keySet()).allMatch(kind -> kind.startsWith("ABORTED"));
+            }
+        }
+    }
+
+    private CompletableFuture<?> onPool(String poolCid, String choice) {
+        return sequencer.submit(poolCid, choice, cid -> api.exerciseRaw(FakeLedgerServerTest.POOL, cid, choice,
+                        ValueOuterClass.Record.getDefaultInstance(), List.of(TRADER), List.of(OPERATOR), null)
+                .thenApply(response -> {
+                    sequencer.observe(response.getTransaction());
+                    return response;
+                }));
+    }
+}
@@ -0,0 +1,734 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.CommandServiceGrpc;
+import com.daml.ledger.api.v2.CommandServiceOuterClass;
+import com.daml.ledger.api.v2.CommandSubmissionServiceGrpc;
+import com.daml.ledger.api.v2.CommandSubmissionServiceOuterClass;
+import com.daml.ledger.api.v2.CommandsOuterClass;
+import com.daml.ledger.api.v2.EventOuterClass;
+import com.daml.ledger.api.v2.PackageServiceGrpc;
+import com.daml.ledger.api.v2.PackageServiceOuterClass;
+import com.daml.ledger.api.v2.StateServiceGrpc;
+import com.daml.ledger.api.v2.StateServiceOuterClass;
+import com.daml.ledger.api.v2.TransactionFilterOuterClass;
+import com.daml.ledger.api.v2.TransactionOuterClass;
+import com.daml.ledger.api.v2.UpdateServiceGrpc;
+import com.daml.ledger.api.v2.UpdateServiceOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * FakeLedgerServer - In-process Ledger API v2 for load and concurrency tests without a Canton node
+ *
+ * Implements the parts of StateService, CommandService, CommandSubmissionService, UpdateService and
+ * PackageService that {@link LedgerApi} uses, over gRPC's in-process transport, backed by an
+ * in-memory ACS and transaction log:
+ * - creates get fresh contract ids; a submission commits all its commands or none
+ * - exercising an archived or unknown contract fails like Canton (NOT_FOUND, CONTRACT_NOT_FOUND),
+ *   so concurrent swaps racing for the same pool contract conflict as they would on a participant
+ * - choices are not interpreted: by default a choice is consuming and creates a successor with the
+ *   same arguments (a pool after a swap), {@link #onChoice} plugs in other behaviour
+ * - visibility: a contract's stakeholders are the actAs parties of the creating submission (the
+ *   target's stakeholders for contracts a choice creates); submitters also see their own transaction
+ * - commands are committed after {@link #commandLatency} plus jitter, reads answered after
+ *   {@link #readLatency}; {@link #conflictRate} rejects a share of submissions with ABORTED
+ *   (LOCAL_VERDICT_LOCKED_CONTRACTS) to exercise retry paths
+ *
+ * Interface filters are treated as wildcards and no interface views are computed.
+ */
+public class FakeLedgerServer implements AutoCloseable {
+
+    static final String SYNCHRONIZER_ID = "fake-synchronizer::1220";
+
+    /**
+     * What exercising a choice does to the ledger.
+     *
+     * @param consuming Whether the target contract is archived
+     * @param creates Contracts created by the choice
+     * @param result Choice result; null returns the contract id of the first create (or Unit)
+     */
+    public record Outcome(boolean consuming, List<Create> creates, ValueOuterClass.Value result) {
+        /**
+         * Archive the target and create a successor with the same arguments, returning its id.
+         */
+        public static Outcome roll(ActiveContract target) {
+            return new Outcome(true, List.of(new Create(target.templateId(), target.arguments())), null);
+        }
+
+        public static Outcome archive() {
+            return new Outcome(true, List.of(), unit());
+        }
+
+        public static Outcome nonConsuming(ValueOuterClass.Value result) {
+            return new Outcome(false, List.of(), result);
+        }
+    }
+
+    public record Create(ValueOuterClass.Identifier templateId, ValueOuterClass.Record arguments) { }
+
+    public record ActiveContract(
+            String contractId,
+            ValueOuterClass.Identifier templateId,
+            ValueOuterClass.Record arguments,
+            Set<String> stakeholders,
+            long offset
+    ) { }
+
+    @FunctionalInterface
+    public interface ChoiceHandler {
+        Outcome exercise(ActiveContract target, CommandsOuterClass.ExerciseCommand command);
+    }
+
+    private sealed interface Node permits CreatedNode, ExercisedNode { }
+
+    private record CreatedNode(ActiveContract contract) implements Node { }
+
+    private record ExercisedNode(
+            ActiveContract target,
+            String choice,
+            ValueOuterClass.Value argument,
+            boolean consuming,
+            List<String> actingParties,
+            ValueOuterClass.Value result,
+            int lastDescendant
+    ) implements Node { }
+
+    private record Archived(ActiveContract contract, long archivedAt) { }
+
+    private record Committed(
+            long offset,
+            String updateId,
+            String commandId,
+            String workflowId,
+            Instant at,
+            List<String> submitters,
+            List<Node> nodes
+    ) { }
+
+    private record Subscriber(
+            Map<String, TransactionFilterOuterClass.Filters> filters,
+            Long endInclusive,
+            ServerCallStreamObserver<UpdateServiceOuterClass.GetUpdatesResponse> observer
+    ) { }
+
+    private final Object lock = new Object();
+    private final Map<String, ActiveContract> acs = new LinkedHashMap<>();
+    // Archived contracts, so the ACS can be served at an offset behind ledger end
+    private final Map<String, Archived> archivedHistory = new LinkedHashMap<>();
+    private final List<Committed> log = new ArrayList<>();
+    private final Set<String> seenCommandIds = new HashSet<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Map<String, ChoiceHandler> handlers = new ConcurrentHashMap<>();
+    private final Map<String, ByteString> packages = new ConcurrentHashMap<>();
+    private long ledgerEnd;
+    private long nextContract;
+
+    private final Random random;
+    private volatile Duration commandLatency = Duration.ZERO;
+    private volatile Duration commandJitter = Duration.ZERO;
+    private volatile Duration readLatency = Duration.ZERO;
+    private volatile double conflictRate;
+
+    private final String name = InProcessServerBuilder.generateName();
+    private final ScheduledExecutorService scheduler;
+    private final Server server;
+    private final ManagedChannel channel;
+
+    public FakeLedgerServer() {
+        this(42L);
+    }
+
+    /**
+     * @param seed Seed for jitter and conflict injection, so runs are repeatable
+     */
+    public FakeLedgerServer(long seed) {
+        this.random = new Random(seed);
+        this.scheduler = Executors.newScheduledThreadPool(4, r -> {
+            Thread t = new Thread(r, "fake-ledger");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            this.server = InProcessServerBuilder.forName(name)
+                    .directExecutor()
+                    .addService(new State())
+                    .addService(new Commands())
+                    .addService(new Submission())
+                    .addService(new Updates())
+                    .addService(new Packages())
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to start in-process ledger", e);
+        }
+        this.channel = InProcessChannelBuilder.forName(name).build();
+    }
+
+    /**
+     * LedgerApi client connected to this ledger.
+     */
+    public LedgerApi ledgerApi(String appProviderParty) {
+        return new LedgerApi(channel, "fake-ledger-app", appProviderParty);
+    }
+
+    public ManagedChannel channel() {
+        return channel;
+    }
+
+    public FakeLedgerServer commandLatency(Duration latency, Duration jitter) {
+        this.commandLatency = latency;
+        this.commandJitter = jitter;
+        return this;
+    }
+
+    public FakeLedgerServer readLatency(Duration latency) {
+        this.readLatency = latency;
+        return this;
+    }
+
+    /**
+     * @param rate Share of submissions (0..1) rejected with ABORTED before they are applied
+     */
+    public FakeLedgerServer conflictRate(double rate) {
+        this.conflictRate = rate;
+        return this;
+    }
+
+    public FakeLedgerServer onChoice(String choice, ChoiceHandler handler) {
+        handlers.put(choice, handler);
+        return this;
+    }
+
+    public FakeLedgerServer addPackage(String packageId, byte[] archivePayload) {
+        packages.put(packageId, ByteString.copyFrom(archivePayload));
+        return this;
+    }
+
+    public long ledgerEnd() {
+        synchronized (lock) {
+            return ledgerEnd;
+        }
+    }
+
+    public List<ActiveContract> activeContracts() {
+        synchronized (lock) {
+            return List.copyOf(acs.values());
+        }
+    }
+
+    public int transactionCount() {
+        synchronized (lock) {
+            return log.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        channel.shutdownNow();
+        server.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    // ------------------------------------------------------------------ command processing
+
+    private Committed submit(CommandsOuterClass.Commands commands) {
+        synchronized (lock) {
+            if (!commands.getCommandId().isEmpty() && !seenCommandIds.add(commands.getCommandId())) {
+                throw Status.ALREADY_EXISTS
+                        .withDescription("DUPLICATE_COMMAND(10,fake): A command with the given command id has already been successfully processed")
+                        .asRuntimeException();
+            }
+            if (conflictRate > 0 && random.nextDouble() < conflictRate) {
+                throw Status.ABORTED
+                        .withDescription("LOCAL_VERDICT_LOCKED_CONTRACTS(11,fake): Rejected transaction is referring to locked contracts")
+                        .asRuntimeException();
+            }
+
+            long offset = ledgerEnd + 1;
+            Set<String> stakeholders = new LinkedHashSet<>(commands.getActAsList());
+            Map<String, ActiveContract> created = new LinkedHashMap<>();
+            Set<String> archived = new HashSet<>();
+            List<Node> nodes = new ArrayList<>();
+            for (CommandsOuterClass.Command command : commands.getCommandsList()) {
+                switch (command.getCommandCase()) {
+                    case CREATE -> {
+                        var create = command.getCreate();
+                        ActiveContract contract = newContract(create.getTemplateId(), create.getCreateArguments(), stakeholders, offset);
+                        created.put(contract.contractId(), contract);
+                        nodes.add(new CreatedNode(contract));
+                    }
+                    case EXERCISE -> exercise(command.getExercise(), commands.getActAsList(), offset, created, archived, nodes);
+                    case CREATE_AND_EXERCISE -> {
+                        var createAndExercise = command.getCreateAndExercise();
+                        ActiveContract contract = newContract(createAndExercise.getTemplateId(), createAndExercise.getCreateArguments(), stakeholders, offset);
+                        created.put(contract.contractId(), contract);
+                        nodes.add(new CreatedNode(contract));
+                        exercise(CommandsOuterClass.ExerciseCommand.newBuilder()
+                                        .setTemplateId(createAndExercise.getTemplateId())
+                                        .setContractId(contract.contractId())
+                                        .setChoice(createAndExercise.getChoice())
+                                        .setChoiceArgument(createAndExercise.getChoiceArgument())
+                                        .build(),
+                                commands.getActAsList(), offset, created, archived, nodes);
+                    }
+                    default -> throw Status.UNIMPLEMENTED
+                            .withDescription("Fake ledger does not support " + command.getCommandCase())
+                            .asRuntimeException();
+                }
+            }
+
+            for (String cid : archived) {
+                ActiveContract contract = acs.remove(cid);
+                if (contract != null) {
+                    archivedHistory.put(cid, new Archived(contract, offset));
+                }
+            }
+            created.forEach((cid, contract) -> {
+                if (!archived.contains(cid)) {
+                    acs.put(cid, contract);
+                }
+            });
+            ledgerEnd = offset;
+            Committed committed = new Committed(offset, "fake-update-" + offset, commands.getCommandId(),
+                    commands.getWorkflowId(), Instant.now(), List.copyOf(commands.getActAsList()), List.copyOf(nodes));
+            log.add(committed);
+            publish(committed);
+            return committed;
+        }
+    }
+
+    private void exercise(
+            CommandsOuterClass.ExerciseCommand command,
+            List<String> actAs,
+            long offset,
+            Map<String, ActiveContract> created,
+            Set<String> archived,
+            List<Node> nodes
+    ) {
+        String cid = command.getContractId();
+        ActiveContract target = created.containsKey(cid) ? created.get(cid) : acs.get(cid);
+        if (target == null || archived.contains(cid)) {
+            throw Status.NOT_FOUND
+                    .withDescription("CONTRACT_NOT_FOUND(11,fake): Contract could not be found with id " + cid)
+                    .asRuntimeException();
+        }
+        ChoiceHandler handler = handlers.getOrDefault(command.getChoice(), (contract, cmd) -> Outcome.roll(contract));
+        Outcome outcome = handler.exercise(target, command);
+
+        int exercisedIndex = nodes.size();
+        nodes.add(null);
+        if (outcome.consuming()) {
+            archived.add(cid);
+        }
+        ValueOuterClass.Value result = outcome.result();
+        for (Create create : outcome.creates()) {
+            ActiveContract successor = newContract(create.templateId(), create.arguments(), target.stakeholders(), offset);
+            created.put(successor.contractId(), successor);
+            nodes.add(new CreatedNode(successor));
+            if (result == null) {
+                result = ValueOuterClass.Value.newBuilder().setContractId(successor.contractId()).build();
+            }
+        }
+        nodes.set(exercisedIndex, new ExercisedNode(target, command.getChoice(), command.getChoiceArgument(),
+                outcome.consuming(), actAs, result != null ? result : unit(), nodes.size() - 1));
+    }
+
+    private ActiveContract newContract(
+            ValueOuterClass.Identifier templateId,
+            ValueOuterClass.Record arguments,
+            Set<String> stakeholders,
+            long offset
+    ) {
+        String cid = String.format("00%062x", ++nextContract);
+        return new ActiveContract(cid, templateId, arguments, Set.copyOf(stakeholders), offset);
+    }
+
+    private static ValueOuterClass.Value unit() {
+        return ValueOuterClass.Value.newBuilder().setUnit(com.google.protobuf.Empty.getDefaultInstance()).build();
+    }
+
+    // ------------------------------------------------------------------ rendering
+
+    private static boolean matches(ValueOuterClass.Identifier templateId, String party, Map<String, TransactionFilterOuterClass.Filters> filters) {
+        TransactionFilterOuterClass.Filters partyFilters = filters.get(party);
+        if (partyFilters == null || partyFilters.getCumulativeCount() == 0) {
+            return true;
+        }
+        for (TransactionFilterOuterClass.CumulativeFilter filter : partyFilters.getCumulativeList()) {
+            if (!filter.hasTemplateFilter()) {
+                return true;
+            }
+            ValueOuterClass.Identifier wanted = filter.getTemplateFilter().getTemplateId();
+            if (wanted.getModuleName().equals(templateId.getModuleName()) && wanted.getEntityName().equals(templateId.getEntityName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> witnesses(ActiveContract contract, Map<String, TransactionFilterOuterClass.Filters> filters) {
+        return witnesses(contract, filters, List.of());
+    }
+
+    /**
+     * @param submitters Parties that see the event without being stakeholders (submitters witness
+     *                   their whole transaction in the ledger-effects shape)
+     */
+    private static List<String> witnesses(
+            ActiveContract contract,
+            Map<String, TransactionFilterOuterClass.Filters> filters,
+            List<String> submitters
+    ) {
+        List<String> witnesses = new ArrayList<>();
+        for (String party : filters.isEmpty() ? contract.stakeholders() : filters.keySet()) {
+            boolean informee = contract.stakeholders().contains(party) || submitters.contains(party);
+            if (informee && matches(contract.templateId(), party, filters)) {
+                witnesses.add(party);
+            }
+        }
+        return witnesses;
+    }
+
+    private static EventOuterClass.CreatedEvent createdEvent(ActiveContract contract, int nodeId, List<String> witnesses, Instant at) {
+        return EventOuterClass.CreatedEvent.newBuilder()
+                .setOffset(contract.offset())
+                .setNodeId(nodeId)
+                .setContractId(contract.contractId())
+                .setTemplateId(contract.templateId())
+                .setCreateArguments(contract.arguments())
+                .addAllWitnessParties(witnesses)
+                .addAllSignatories(contract.stakeholders())
+                .setCreatedAt(timestamp(at))
+                .build();
+    }
+
+    /**
+     * @return The transaction as seen through {@code filters}, or null when none of it is visible
+     */
+    private static TransactionOuterClass.Transaction render(
+            Committed committed,
+            Map<String, TransactionFilterOuterClass.Filters> filters,
+            TransactionFilterOuterClass.TransactionShape shape
+    ) {
+        boolean ledgerEffects = shape == TransactionFilterOuterClass.TransactionShape.TRANSACTION_SHAPE_LEDGER_EFFECTS;
+        List<String> submitters = ledgerEffects ? committed.submitters() : List.of();
+        List<EventOuterClass.Event> events = new ArrayList<>();
+        Set<String> createdHere = new HashSet<>();
+        for (int nodeId = 0; nodeId < committed.nodes().size(); nodeId++) {
+            Node node = committed.nodes().get(nodeId);
+            if (node instanceof CreatedNode created) {
+                createdHere.add(created.contract().contractId());
+                List<String> witnesses = witnesses(created.contract(), filters, submitters);
+                if (!witnesses.isEmpty()) {
+                    events.add(EventOuterClass.Event.newBuilder()
+                            .setCreated(createdEvent(created.contract(), nodeId, witnesses, committed.at()))
+                            .build());
+                }
+            } else if (node instanceof ExercisedNode exercised) {
+                List<String> witnesses = witnesses(exercised.target(), filters, submitters);
+                if (witnesses.isEmpty()) {
+                    continue;
+                }
+                if (ledgerEffects) {
+                    events.add(EventOuterClass.Event.newBuilder().setExercised(EventOuterClass.ExercisedEvent.newBuilder()
+                            .setOffset(committed.offset())
+                            .setNodeId(nodeId)
+                            .setContractId(exercised.target().contractId())
+                            .setTemplateId(exercised.target().templateId())
+                            .setChoice(exercised.choice())
+                            .setChoiceArgument(exercised.argument())
+                            .addAllActingParties(exercised.actingParties())
+                            .setConsuming(exercised.consuming())
+                            .addAllWitnessParties(witnesses)
+                            .setLastDescendantNodeId(exercised.lastDescendant())
+                            .setExerciseResult(exercised.result())
+                            .build()).build());
+                } else if (exercised.consuming() && !createdHere.contains(exercised.target().contractId())) {
+                    // ACS delta: contracts created and archived in the same transaction do not appear
+                    events.add(EventOuterClass.Event.newBuilder().setArchived(EventOuterClass.ArchivedEvent.newBuilder()
+                            .setOffset(committed.offset())
+                            .setNodeId(nodeId)
+                            .setContractId(exercised.target().contractId())
+                            .setTemplateId(exercised.target().templateId())
+                            .addAllWitnessParties(witnesses)
+                            .build()).build());
+                }
+            }
+        }
+        if (!ledgerEffects) {
+            Set<String> archivedHere = new HashSet<>();
+            for (Node node : committed.nodes()) {
+                if (node instanceof ExercisedNode exercised && exercised.consuming()) {
+                    archivedHere.add(exercised.target().contractId());
+                }
+            }
+            events.removeIf(event -> event.hasCreated() && archivedHere.contains(event.getCreated().getContractId()));
+        }
+        if (events.isEmpty()) {
+            return null;
+        }
+        return TransactionOuterClass.Transaction.newBuilder()
+                .setUpdateId(committed.updateId())
+                .setCommandId(committed.commandId())
+                .setWorkflowId(committed.workflowId())
+                .setEffectiveAt(timestamp(committed.at()))
+                .addAllEvents(events)
+                .setOffset(committed.offset())
+                .setSynchronizerId(SYNCHRONIZER_ID)
+                .setRecordTime(timestamp(committed.at()))
+                .build();
+    }
+
+    private static Timestamp timestamp(Instant at) {
+        return Timestamp.newBuilder().setSeconds(at.getEpochSecond()).setNanos(at.getNano()).build();
+    }
+
+    // ------------------------------------------------------------------ updates
+
+    private void publish(Committed committed) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.observer().isCancelled()) {
+                subscribers.remove(subscriber);
+                continue;
+            }
+            deliver(subscriber, committed);
+            if (subscriber.endInclusive() != null && committed.offset() >= subscriber.endInclusive()) {
+                subscribers.remove(subscriber);
+                subscriber.observer().onCompleted();
+            }
+        }
+    }
+
+    private static void deliver(Subscriber subscriber, Committed committed) {
+        TransactionOuterClass.Transaction tx = render(committed, subscriber.filters(),
+                TransactionFilterOuterClass.TransactionShape.TRANSACTION_SHAPE_ACS_DELTA);
+        if (tx != null) {
+            subscriber.observer().onNext(UpdateServiceOuterClass.GetUpdatesResponse.newBuilder().setTransaction(tx).build());
+        }
+    }
+
+    // ------------------------------------------------------------------ latency
+
+    private Duration commandDelay() {
+        long jitter = commandJitter.toNanos();
+        if (jitter <= 0) {
+            return commandLatency;
+        }
+        return commandLatency.plusNanos((long) (random.nextDouble() * jitter));
+    }
+
+    private <T> void respondLater(Duration delay, StreamObserver<T> observer, Supplier<T> work) {
+        Runnable respond = () -> {
+            try {
+                T response = work.get();
+                observer.onNext(response);
+                observer.onCompleted();
+            } catch (RuntimeException e) {
+                observer.onError(e instanceof StatusRuntimeException ? e : Status.INTERNAL.withCause(e).withDescription(e.getMessage()).asRuntimeException());
+            }
+        };
+        if (delay.isZero() || delay.isNegative()) {
+            scheduler.execute(respond);
+        } else {
+            scheduler.schedule(respond, delay.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // ------------------------------------------------------------------ services
+
+    private final class State extends StateServiceGrpc.StateServiceImplBase {
+        @Override
+        public void getLedgerEnd(
+                StateServiceOuterClass.GetLedgerEndRequest request,
+                StreamObserver<StateServiceOuterClass.GetLedgerEndResponse> observer
+        ) {
+            respondLater(readLatency, observer, () -> StateServiceOuterClass.GetLedgerEndResponse.newBuilder().setOffset(ledgerEnd()).build());
+        }
+
+        @Override
+        public void getActiveContracts(
+                StateServiceOuterClass.GetActiveContractsRequest request,
+                StreamObserver<StateServiceOuterClass.GetActiveContractsResponse> observer
+        ) {
+            Map<String, TransactionFilterOuterClass.Filters> filters = request.getEventFormat().getFiltersByPartyMap();
+            Runnable stream = () -> {
+                List<StateServiceOuterClass.GetActiveContractsResponse> responses = new ArrayList<>();
+                synchronized (lock) {
+                    long at = request.getActiveAtOffset() > 0 ? Math.min(request.getActiveAtOffset(), ledgerEnd) : ledgerEnd;
+                    List<ActiveContract> active = new ArrayList<>();
+                    for (ActiveContract contract : acs.values()) {
+                        if (contract.offset() <= at) {
+                            active.add(contract);
+                        }
+                    }
+                    for (Archived archived : archivedHistory.values()) {
+                        if (archived.contract().offset() <= at && archived.archivedAt() > at) {
+                            active.add(archived.contract());
+                        }
+                    }
+                    for (ActiveContract contract : active) {
+                        List<String> witnesses = witnesses(contract, filters);
+                        if (!witnesses.isEmpty()) {
+                            responses.add(StateServiceOuterClass.GetActiveContractsResponse.newBuilder()
+                                    .setActiveContract(StateServiceOuterClass.ActiveContract.newBuilder()
+                                            .setCreatedEvent(createdEvent(contract, 0, witnesses, Instant.EPOCH))
+                                            .setSynchronizerId(SYNCHRONIZER_ID))
+                                    .build());
+                        }
+                    }
+                }
+                responses.forEach(observer::onNext);
+                observer.onCompleted();
+            };
+            scheduler.schedule(stream, readLatency.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private final class Commands extends CommandServiceGrpc.CommandServiceImplBase {
+        @Override
+        public void submitAndWaitForTransaction(
+                CommandServiceOuterClass.SubmitAndWaitForTransactionRequest request,
+                StreamObserver<CommandServiceOuterClass.SubmitAndWaitForTransactionResponse> observer
+        ) {
+            respondLater(commandDelay(), observer, () -> {
+                Committed committed = submit(request.getCommands());
+                var format = request.getTransactionFormat();
+                TransactionOuterClass.Transaction tx = render(committed, format.getEventFormat().getFiltersByPartyMap(),
+                        format.getTransactionShape());
+                return CommandServiceOuterClass.SubmitAndWaitForTransactionResponse.newBuilder()
+                        .setTransaction(tx != null ? tx : TransactionOuterClass.Transaction.newBuilder()
+                                .setUpdateId(committed.updateId())
+                                .setCommandId(committed.commandId())
+                                .setOffset(committed.offset())
+                                .setSynchronizerId(SYNCHRONIZER_ID)
+                                .build())
+                        .build();
+            });
+        }
+
+        @Override
+        public void submitAndWait(
+                CommandServiceOuterClass.SubmitAndWaitRequest request,
+                StreamObserver<CommandServiceOuterClass.SubmitAndWaitResponse> observer
+        ) {
+            respondLater(commandDelay(), observer, () -> {
+                Committed committed = submit(request.getCommands());
+                return CommandServiceOuterClass.SubmitAndWaitResponse.newBuilder()
+                        .setUpdateId(committed.updateId())
+                        .setCompletionOffset(committed.offset())
+                        .build();
+            });
+        }
+    }
+
+    private final class Submission extends CommandSubmissionServiceGrpc.CommandSubmissionServiceImplBase {
+        @Override
+        public void submit(
+                CommandSubmissionServiceOuterClass.SubmitRequest request,
+                StreamObserver<CommandSubmissionServiceOuterClass.SubmitResponse> observer
+        ) {
+            // Asynchronous submission: accepted now, committed (or dropped on conflict) after the latency
+            CommandsOuterClass.Commands commands = request.getCommands();
+            scheduler.schedule(() -> {
+                try {
+                    FakeLedgerServer.this.submit(commands);
+                } catch (RuntimeException ignored) {
+                    // Rejections surface on the completion stream on a real participant; not modelled here
+                }
+            }, commandDelay().toNanos(), TimeUnit.NANOSECONDS);
+            observer.onNext(CommandSubmissionServiceOuterClass.SubmitResponse.getDefaultInstance());
+            observer.onCompleted();
+        }
+    }
+
+    private final class Updates extends UpdateServiceGrpc.UpdateServiceImplBase {
+        @Override
+        public void getUpdates(
+                UpdateServiceOuterClass.GetUpdatesRequest request,
+                StreamObserver<UpdateServiceOuterClass.GetUpdatesResponse> observer
+        ) {
+            var serverObserver = (ServerCallStreamObserver<UpdateServiceOuterClass.GetUpdatesResponse>) observer;
+            Map<String, TransactionFilterOuterClass.Filters> filters =
+                    request.getUpdateFormat().getIncludeTransactions().getEventFormat().getFiltersByPartyMap();
+            Long endInclusive = request.hasEndInclusive() ? request.getEndInclusive() : null;
+            Subscriber subscriber = new Subscriber(filters, endInclusive, serverObserver);
+            serverObserver.setOnCancelHandler(() -> subscribers.remove(subscriber));
+
+            synchronized (lock) {
+                // Replay and registration under the commit lock: no transaction is missed or sent twice
+                for (Committed committed : log) {
+                    if (committed.offset() <= request.getBeginExclusive()) {
+                        continue;
+                    }
+                    if (endInclusive != null && committed.offset() > endInclusive) {
+                        break;
+                    }
+                    deliver(subscriber, committed);
+                }
+                if (endInclusive != null && endInclusive <= ledgerEnd) {
+                    serverObserver.onCompleted();
+                    return;
+                }
+                subscribers.add(subscriber);
+            }
+        }
+    }
+
+    private final class Packages extends PackageServiceGrpc.PackageServiceImplBase {
+        @Override
+        public void listPackages(
+                PackageServiceOuterClass.ListPackagesRequest request,
+                StreamObserver<PackageServiceOuterClass.ListPackagesResponse> observer
+        ) {
+            observer.onNext(PackageServiceOuterClass.ListPackagesResponse.newBuilder().addAllPackageIds(packages.keySet()).build());
+            observer.onCompleted();
+        }
+
+        @Override
+        public void getPackage(
+                PackageServiceOuterClass.GetPackageRequest request,
+                StreamObserver<PackageServiceOuterClass.GetPackageResponse> observer
+        ) {
+            ByteString payload = packages.get(request.getPackageId());
+            if (payload == null) {
+                observer.onError(Status.NOT_FOUND.withDescription("Package " + request.getPackageId() + " not found").asRuntimeException());
+                return;
+            }
+            observer.onNext(PackageServiceOuterClass.GetPackageResponse.newBuilder()
+                    .setArchivePayload(payload)
+                    .setHash(request.getPackageId())
+                    .build());
+            observer.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.CommandServiceOuterClass;
+import com.daml.ledger.api.v2.EventOuterClass;
+import com.daml.ledger.api.v2.TransactionOuterClass;
+import com.daml.ledger.api.v2.UpdateServiceOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for FakeLedgerServer - ACS, choice rolling, conflicts and the update stream through LedgerApi
+ */
+class FakeLedgerServerTest {
+
+    static final String OPERATOR = "PoolOperator::1220aa";
+    static final String TRADER = "Trader::1220bb";
+    static final ValueOuterClass.Identifier POOL = ValueOuterClass.Identifier.newBuilder()
+            .setPackageId("#clearportx-amm-drain-credit")
+            .setModuleName("AMM.HoldingPool")
+            .setEntityName("HoldingPool")
+            .build();
+
+    private final FakeLedgerServer ledger = new FakeLedgerServer();
+    private final LedgerApi api = ledger.ledgerApi(OPERATOR);
+
+    @AfterEach
+    void tearDown() {
+        ledger.close();
+    }
+
+    static ValueOuterClass.Record poolArgs(String operator, String symbolA, String symbolB) {
+        return ValueOuterClass.Record.newBuilder()
+                .addFields(field("poolOperator", ValueOuterClass.Value.newBuilder().setParty(operator).build()))
+                .addFields(field("symbolA", ValueOuterClass.Value.newBuilder().setText(symbolA).build()))
+                .addFields(field("symbolB", ValueOuterClass.Value.newBuilder().setText(symbolB).build()))
+                .build();
+    }
+
+    static ValueOuterClass.RecordField field(String label, ValueOuterClass.Value value) {
+        return ValueOuterClass.RecordField.newBuilder().setLabel(label).setValue(value).build();
+    }
+
+    static String createdCid(CommandServiceOuterClass.SubmitAndWaitForTransactionResponse response) {
+        return response.getTransaction().getEventsList().stream()
+                .filter(EventOuterClass.Event::hasCreated)
+                .map(e -> e.getCreated().getContractId())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private String createPool() throws Exception {
+        return createdCid(api.createRaw(POOL, poolArgs(OPERATOR, "ETH", "USDC"), List.of(OPERATOR), List.of()).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCreatedContractIsInStakeholderAcsOnly() throws Exception {
+        String cid = createPool();
+
+        LedgerApi.RawAcsSnapshot operatorView = api.getActiveContractsRawSnapshotForParty(OPERATOR).get(5, TimeUnit.SECONDS);
+        LedgerApi.RawAcsSnapshot traderView = api.getActiveContractsRawSnapshotForParty(TRADER).get(5, TimeUnit.SECONDS);
+
+        assertThat(operatorView.offset()).isEqualTo(1);
+        assertThat(operatorView.contracts()).extracting(LedgerApi.RawActiveContract::contractId).containsExactly(cid);
+        assertThat(traderView.contracts()).isEmpty();
+    }
+
+    @Test
+    void testConsumingChoiceRollsPoolAndStaleCidConflicts() throws Exception {
+        String cid = createPool();
+
+        var response = api.exerciseRaw(POOL, cid, "AtomicSwap", ValueOuterClass.Record.getDefaultInstance(),
+                List.of(TRADER), List.of(), null).get(5, TimeUnit.SECONDS);
+
+        EventOuterClass.ExercisedEvent exercised = response.getTransaction().getEvents(0).getExercised();
+        String successor = createdCid(response);
+        assertThat(exercised.getConsuming()).isTrue();
+        assertThat(exercised.getExerciseResult().getContractId()).isEqualTo(successor);
+        assertThat(ledger.activeContracts()).extracting(FakeLedgerServer.ActiveContract::contractId).containsExactly(successor);
+
+        assertThatThrownBy(() -> api.exerciseRaw(POOL, cid, "AtomicSwap", ValueOuterClass.Record.getDefaultInstance(),
+                List.of(TRADER), List.of(), null).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("CONTRACT_NOT_FOUND");
+    }
+
+    @Test
+    void testUpdateStreamReplaysThenFollowsAsAcsDelta() throws Exception {
+        String cid = createPool();
+        List<TransactionOuterClass.Transaction> received = new CopyOnWriteArrayList<>();
+        CountDownLatch twoUpdates = new CountDownLatch(2);
+        var subscription = api.subscribeUpdatesForParty(OPERATOR, 0, new StreamObserver<>() {
+            @Override
+            public void onNext(UpdateServiceOuterClass.GetUpdatesResponse response) {
+                received.add(response.getTransaction());
+                twoUpdates.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) { }
+
+            @Override
+            public void onCompleted() { }
+        });
+
+        api.exerciseRaw(POOL, cid, "AtomicSwap", ValueOuterClass.Record.getDefaultInstance(),
+                List.of(TRADER), List.of(), null).get(5, TimeUnit.SECONDS);
+
+        assertThat(twoUpdates.await(5, TimeUnit.SECONDS)).isTrue();
+        subscription.cancel(null);
+        assertThat(received.get(0).getOffset()).isEqualTo(1);
+        TransactionOuterClass.Transaction swap = received.get(1);
+        assertThat(swap.getEvents(0).getArchived().getContractId()).isEqualTo(cid);
+        assertThat(swap.getEvents(1).hasCreated()).isTrue();
+        assertThat(swap.getEventsList()).noneMatch(EventOuterClass.Event::hasExercised);
+    }
+
+    @Test
+    void testInjectedConflictsAreRejectedWithoutEffect() throws Exception {
+        ledger.conflictRate(1.0);
+
+        assertThatThrownBy(this::createPool)
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("ABORTED")
+                .hasMessageContaining("LOCAL_VERDICT_LOCKED_CONTRACTS");
+        assertThat(ledger.ledgerEnd()).isZero();
+        assertThat(ledger.activeContracts()).isEmpty();
+    }
+}
@@ -0,0 +1,81 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for LedgerInbox - fan-out wake-ups, timeouts and cleanup
+ */
+class LedgerInboxTest {
+
+    private static final String KEY = LedgerInbox.transferInstructionKey("req-1");
+
+    private SimpleMeterRegistry meterRegistry;
+    private LedgerInbox inbox;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        inbox = new LedgerInbox(meterRegistry);
+    }
+
+    @Test
+    void testSignalWakesAllWaitersOnKey() throws Exception {
+        List<CompletableFuture<Boolean>> waiters = IntStream.range(0, 50)
+            .mapToObj(i -> inbox.arm(KEY, 60_000))
+            .toList();
+        CompletableFuture<Boolean> other = inbox.arm(LedgerInbox.transferInstructionKey("req-2"), 60_000);
+
+        assertThat(inbox.signal(KEY)).isEqualTo(50);
+
+        for (CompletableFuture<Boolean> waiter : waiters) {
+            assertThat(waiter.get(5, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(other).isNotDone();
+        assertThat(meterRegistry.get("clearportx.ledger.inbox.waiters").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testTimeoutCompletesWithFalse() throws Exception {
+        CompletableFuture<Boolean> waiter = inbox.arm(KEY, 20);
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(inbox.signal(KEY)).isZero();
+        assertThat(meterRegistry.get("clearportx.ledger.inbox.timeouts").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testSignalWithoutWaitersIsNotRemembered() {
+        assertThat(inbox.signal(KEY)).isZero();
+
+        CompletableFuture<Boolean> waiter = inbox.arm(KEY, 60_000);
+
+        assertThat(waiter).isNotDone();
+        inbox.disarm(KEY, waiter);
+        assertThat(waiter).isCancelled();
+        assertThat(inbox.signal(KEY)).isZero();
+    }
+
+    @Test
+    void testLiveParties() {
+        assertThat(inbox.isLive("operator::1220")).isFalse();
+
+        inbox.setLive("operator::1220", true);
+        assertThat(inbox.isLive("operator::1220")).isTrue();
+        assertThat(inbox.isLive(null)).isFalse();
+
+        inbox.setLive("operator::1220", false);
+        assertThat(inbox.isLive("operator::1220")).isFalse();
+    }
+}
@@ -0,0 +1,195 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * LoadDriver - Open-loop load generator with throughput and latency percentiles
+ *
+ * Starts operations at a fixed target rate, spread over weighted flows, regardless of how fast
+ * earlier ones complete. Latency is measured from the scheduled start, not the actual one, so a
+ * stalled system shows up in the percentiles instead of silently lowering the offered load
+ * (coordinated omission). Operations beyond {@code maxInFlight} are counted as dropped.
+ */
+public final class LoadDriver {
+
+    /**
+     * @param name Flow name in the report
+     * @param weight Relative share of the target rate
+     * @param operation Starts one operation; the argument is the sequence number within the flow
+     */
+    public record Flow(String name, int weight, LongFunction<CompletableFuture<?>> operation) { }
+
+    public record FlowReport(
+            String name,
+            long started,
+            long succeeded,
+            long failed,
+            long dropped,
+            double throughputPerSecond,
+            Duration p50,
+            Duration p90,
+            Duration p99,
+            Duration max,
+            Map<String, Long> failures
+    ) {
+        @Override
+        public String toString() {
+            return String.format("%-12s started=%d ok=%d failed=%d dropped=%d throughput=%.1f/s p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms%s",
+                    name, started, succeeded, failed, dropped, throughputPerSecond,
+                    millis(p50), millis(p90), millis(p99), millis(max),
+                    failures.isEmpty() ? "" : " failures=" + failures);
+        }
+
+        private static double millis(Duration d) {
+            return d.toNanos() / 1_000_000.0;
+        }
+    }
+
+    public record Report(Duration elapsed, List<FlowReport> flows) {
+        public FlowReport flow(String name) {
+            return flows.stream().filter(f -> f.name().equals(name)).findFirst().orElseThrow();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder("Load run over ").append(elapsed.toMillis()).append(" ms\n");
+            flows.forEach(f -> out.append("  ").append(f).append('\n'));
+            return out.toString();
+        }
+    }
+
+    private static final class Recorder {
+        private final Flow flow;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long started;
+        private long failed;
+        private long dropped;
+        private final Map<String, Long> failures = new TreeMap<>();
+
+        Recorder(Flow flow) {
+            this.flow = flow;
+        }
+
+        synchronized void success(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        synchronized void failure(Throwable t) {
+            failed++;
+            Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            String message = String.valueOf(cause.getMessage());
+            // Canton error ids ("NOT_FOUND: CONTRACT_NOT_FOUND(11,...)") group well; keep the code part
+            int paren = message.indexOf('(');
+            String kind = paren > 0 ? message.substring(0, paren) : cause.getClass().getSimpleName();
+            failures.merge(kind, 1L, Long::sum);
+        }
+
+        synchronized FlowReport report(Duration elapsed) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            double seconds = Math.max(elapsed.toNanos(), 1) / 1e9;
+            return new FlowReport(flow.name(), started, count, failed, dropped, count / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 1.0), Map.copyOf(failures));
+        }
+
+        private static Duration percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return Duration.ZERO;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return Duration.ofNanos(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+        }
+    }
+
+    private final double ratePerSecond;
+    private final Duration duration;
+    private final int maxInFlight;
+
+    /**
+     * @param ratePerSecond Operations started per second, over all flows
+     * @param duration How long to offer load; completion of in-flight operations is awaited after
+     * @param maxInFlight Operations allowed in flight before new ones are dropped
+     */
+    public LoadDriver(double ratePerSecond, Duration duration, int maxInFlight) {
+        this.ratePerSecond = ratePerSecond;
+        this.duration = duration;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public Report run(List<Flow> flows) throws InterruptedException {
+        // Deterministic weighted round robin: flow i gets weight[i] slots per cycle
+        List<Recorder> schedule = new ArrayList<>();
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        for (Flow flow : flows) {
+            Recorder recorder = new Recorder(flow);
+            recorders.put(flow.name(), recorder);
+            for (int i = 0; i < flow.weight(); i++) {
+                schedule.add(recorder);
+            }
+        }
+
+        long intervalNanos = (long) (1e9 / ratePerSecond);
+        long total = duration.toNanos() / intervalNanos;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long start = System.nanoTime();
+        for (long n = 0; n < total; n++) {
+            long due = start + n * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            Recorder recorder = schedule.get((int) (n % schedule.size()));
+            long sequence;
+            synchronized (recorder) {
+                sequence = recorder.started++;
+            }
+            if (!inFlight.tryAcquire()) {
+                synchronized (recorder) {
+                    recorder.dropped++;
+                }
+                continue;
+            }
+            CompletableFuture<?> future;
+            try {
+                future = recorder.flow.operation().apply(sequence);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((result, error) -> {
+                if (error == null) {
+                    recorder.success(System.nanoTime() - due);
+                } else {
+                    recorder.failure(error);
+                }
+                inFlight.release();
+            });
+        }
+        // Let in-flight operations finish
+        if (!inFlight.tryAcquire(maxInFlight, 30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException((maxInFlight - inFlight.availablePermits()) + " operations still in flight after 30s");
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        List<FlowReport> reports = new ArrayList<>();
+        recorders.values().forEach(r -> reports.add(r.report(elapsed)));
+        return new Report(elapsed, reports);
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import com.daml.ledger.api.v2.EventOuterClass;
+import com.daml.ledger.api.v2.TransactionOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for ReadVersionTracker - one shared stream, per-witness versions, widening without losing versions
+ */
+class ReadVersionTrackerTest {
+
+    private LedgerApi ledgerApi;
+    private LedgerUpdateStream updateStream;
+    private LedgerUpdateStream.Subscription subscription;
+    private ReadVersionTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        ledgerApi = mock(LedgerApi.class);
+        when(ledgerApi.getLedgerEndOffset()).thenReturn(CompletableFuture.completedFuture(100L));
+        updateStream = mock(LedgerUpdateStream.class);
+        subscription = mock(LedgerUpdateStream.Subscription.class);
+        when(subscription.isConnected()).thenReturn(true);
+        when(subscription.offset()).thenReturn(120L);
+        when(updateStream.subscribe(anyCollection(), anyLong(), eq("read-versions"), any())).thenReturn(subscription);
+        tracker = new ReadVersionTracker(ledgerApi, updateStream, true, 256, 600_000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private LedgerUpdateStream.Listener subscribed(int times, long begin, Collection<String> parties) {
+        ArgumentCaptor<LedgerUpdateStream.Listener> listener = ArgumentCaptor.forClass(LedgerUpdateStream.Listener.class);
+        ArgumentCaptor<Collection<String>> subscribedParties = ArgumentCaptor.forClass(Collection.class);
+        verify(updateStream, times(times)).subscribe(subscribedParties.capture(), anyLong(), eq("read-versions"), listener.capture());
+        verify(updateStream).subscribe(anyCollection(), eq(begin), eq("read-versions"), any());
+        assertThat(subscribedParties.getValue()).containsExactlyInAnyOrderElementsOf(parties);
+        return listener.getValue();
+    }
+
+    @Test
+    void testVersionsFollowWitnessesOnOneStream() {
+        assertThat(tracker.version("alice")).isEqualTo(OptionalLong.of(100));
+        LedgerUpdateStream.Listener listener = subscribed(1, 100, List.of("alice"));
+
+        listener.onTransaction(tx(130, created("Token", "alice")));
+        assertThat(tracker.version("alice")).isEqualTo(OptionalLong.of(130));
+
+        // A second party widens the stream from where it stopped; alice keeps its version
+        assertThat(tracker.version("bob")).isEqualTo(OptionalLong.of(120));
+        verify(subscription).close();
+        LedgerUpdateStream.Listener widened = subscribed(2, 120, List.of("alice", "bob"));
+        assertThat(tracker.version("alice")).isEqualTo(OptionalLong.of(130));
+
+        widened.onTransaction(tx(140, created("Token", "bob")));
+        assertThat(tracker.version("bob")).isEqualTo(OptionalLong.of(140));
+        assertThat(tracker.version("alice")).isEqualTo(OptionalLong.of(130));
+    }
+
+    @Test
+    void testUnknownWhileStreamIsNotConnectedOrAfterGap() {
+        when(subscription.isConnected()).thenReturn(false);
+        assertThat(tracker.version("alice")).isEmpty();
+
+        when(subscription.isConnected()).thenReturn(true);
+        LedgerUpdateStream.Listener listener = subscribed(1, 100, List.of("alice"));
+        assertThat(tracker.version("alice")).isEqualTo(OptionalLong.of(100));
+
+        // After a gap the party is forgotten and starts over from a fresh ledger end
+        listener.onStreamGap(new IllegalStateException("pruned"));
+        verify(subscription).close();
+        when(ledgerApi.getLedgerEndOffset()).thenReturn(new CompletableFuture<>());
+        assertThat(tracker.version("alice")).isEmpty();
+        verify(ledgerApi, times(2)).getLedgerEndOffset();
+    }
+
+    private static TransactionOuterClass.Transaction tx(long offset, EventOuterClass.Event... events) {
+        TransactionOuterClass.Transaction.Builder tx = TransactionOuterClass.Transaction.newBuilder().setOffset(offset);
+        for (EventOuterClass.Event event : events) {
+            tx.addEvents(event);
+        }
+        return tx.build();
+    }
+
+    private static EventOuterClass.Event created(String entity, String witness) {
+        return EventOuterClass.Event.newBuilder()
+            .setCreated(EventOuterClass.CreatedEvent.newBuilder()
+                .setContractId(entity + "-" + witness)
+                .setTemplateId(ValueOuterClass.Identifier.newBuilder()
+                    .setModuleName(entity + "." + entity).setEntityName(entity).build())
+                .addWitnessParties(witness)
+                .build())
+            .build();
+    }
+}
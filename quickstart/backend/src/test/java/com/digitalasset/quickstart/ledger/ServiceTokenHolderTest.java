@@ -0,0 +1,115 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for ServiceTokenHolder - cached token, exp parsing and failed refreshes
+ */
+class ServiceTokenHolderTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+    private ServiceTokenHolder holder;
+
+    @AfterEach
+    void tearDown() {
+        if (holder != null) {
+            holder.shutdown();
+        }
+    }
+
+    private static String jwt(Instant exp) {
+        Base64.Encoder enc = Base64.getUrlEncoder().withoutPadding();
+        return enc.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+            + enc.encodeToString(("{\"sub\":\"backend\",\"exp\":" + exp.getEpochSecond() + "}").getBytes(StandardCharsets.UTF_8))
+            + ".sig";
+    }
+
+    @Test
+    void testTokenIsFetchedOnceWhileValid() {
+        AtomicInteger calls = new AtomicInteger();
+        String token = jwt(NOW.plus(Duration.ofHours(1)));
+        holder = new ServiceTokenHolder(() -> {
+            calls.incrementAndGet();
+            return token;
+        }, Duration.ofSeconds(60), 0.1, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(holder.getToken()).isEqualTo(token);
+        }
+
+        assertThat(calls).hasValue(1);
+        assertThat(holder.headers().get(ServiceTokenHolder.AUTHORIZATION_HEADER)).isEqualTo("Bearer " + token);
+    }
+
+    @Test
+    void testFailedBackgroundRefreshKeepsServingCurrentToken() {
+        AtomicInteger calls = new AtomicInteger();
+        String token = jwt(NOW.plus(Duration.ofMinutes(10)));
+        holder = new ServiceTokenHolder(() -> {
+            if (calls.incrementAndGet() > 1) {
+                throw new IllegalStateException("token endpoint unavailable");
+            }
+            return token;
+        }, Duration.ofSeconds(60), 0.1, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertThat(holder.getToken()).isEqualTo(token);
+        holder.refreshInBackground();
+
+        assertThat(holder.getToken()).isEqualTo(token);
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void testExpiryParsing() {
+        Instant exp = NOW.plus(Duration.ofMinutes(5));
+        assertThat(ServiceTokenHolder.expiry(jwt(exp))).isEqualTo(exp);
+        assertThat(ServiceTokenHolder.expiry("")).isNull();
+        assertThat(ServiceTokenHolder.expiry("shared-secret")).isNull();
+        assertThat(ServiceTokenHolder.expiry("a.not-base64!.c")).isNull();
+    }
+
+    @Test
+    void testTokenWithoutExpiryIsServedAsIs() {
+        AtomicInteger calls = new AtomicInteger();
+        holder = new ServiceTokenHolder(() -> {
+            calls.incrementAndGet();
+            return "";
+        }, Duration.ofSeconds(60), 0.1, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertThat(holder.getToken()).isEmpty();
+        assertThat(holder.getToken()).isEmpty();
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void testExpiredTokenIsRetriedInsteadOfServedForever() {
+        AtomicInteger calls = new AtomicInteger();
+        String expired = jwt(NOW.minus(Duration.ofMinutes(1)));
+        String fresh = jwt(NOW.plus(Duration.ofHours(1)));
+        holder = new ServiceTokenHolder(() -> calls.incrementAndGet() == 1 ? expired : fresh,
+            Duration.ofSeconds(60), 0.1, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        // Served until the backed-off retry, without a token endpoint call per ledger call
+        assertThat(holder.getToken()).isEqualTo(expired);
+        assertThat(holder.getToken()).isEqualTo(expired);
+        assertThat(calls).hasValue(1);
+
+        holder.refreshInBackground();
+        assertThat(holder.getToken()).isEqualTo(fresh);
+        assertThat(calls).hasValue(2);
+    }
+}
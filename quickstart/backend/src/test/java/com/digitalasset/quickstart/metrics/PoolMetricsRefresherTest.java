@@ -0,0 +1,129 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.metrics;
+
+import com.daml.ledger.api.v2.EventOuterClass;
+import com.daml.ledger.api.v2.TransactionOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.ledger.LedgerApi.RawAcsSnapshot;
+import com.digitalasset.quickstart.ledger.LedgerApi.RawActiveContract;
+import com.digitalasset.quickstart.ledger.LedgerUpdateStream;
+import com.digitalasset.quickstart.security.AuthUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for PoolMetricsRefresher - snapshot bootstrap and event-driven gauge updates
+ */
+class PoolMetricsRefresherTest {
+
+    private SimpleMeterRegistry registry;
+    private LedgerUpdateStream updateStream;
+    private PoolMetricsRefresher refresher;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        updateStream = mock(LedgerUpdateStream.class);
+        refresher = new PoolMetricsRefresher(mock(LedgerApi.class), updateStream, mock(AuthUtils.class),
+            new SwapMetrics(registry), true);
+    }
+
+    private double gauge(String name, String... tags) {
+        return registry.get(name).tags(tags).gauge().value();
+    }
+
+    @Test
+    void testSnapshotThenEventsUpdateGauges() {
+        refresher.resync("operator", new RawAcsSnapshot(42, List.of(
+            new RawActiveContract("pool-1", poolId(), pool("CBTC", "CC", "10", "1000", "100"), null),
+            new RawActiveContract("pool-empty", poolId(), pool("ETH", "CC", "0", "0", "0"), null))));
+
+        verify(updateStream).subscribe(eq("operator"), eq(42L), eq("pool-metrics"), any());
+        assertThat(gauge("clearportx.pool.active.count")).isEqualTo(1);
+        assertThat(gauge("clearportx.pool.reserve.amount", "pair", "CBTC-CC", "token", "CC")).isEqualTo(1000);
+
+        // A swap archives the pool and re-creates it with new reserves in one transaction
+        refresher.apply(1, tx(archived("pool-1"), created("pool-2", pool("CBTC", "CC", "11", "910", "100"))));
+
+        assertThat(gauge("clearportx.pool.reserve.amount", "pair", "CBTC-CC", "token", "CBTC")).isEqualTo(11);
+        assertThat(gauge("clearportx.pool.reserve.amount", "pair", "CBTC-CC", "token", "CC")).isEqualTo(910);
+        assertThat(gauge("clearportx.pool.k_invariant", "pair", "CBTC-CC")).isEqualTo(10010);
+        assertThat(gauge("clearportx.pool.lp_supply", "pair", "CBTC-CC")).isEqualTo(100);
+
+        refresher.apply(1, tx(created("pool-3", pool("ETH", "USDC", "5", "10000", "200"))));
+        assertThat(gauge("clearportx.pool.active.count")).isEqualTo(2);
+    }
+
+    @Test
+    void testEventsFromReplacedSubscriptionAreIgnored() {
+        refresher.resync("operator", new RawAcsSnapshot(1, List.of(
+            new RawActiveContract("pool-1", poolId(), pool("CBTC", "CC", "10", "1000", "100"), null))));
+        refresher.resync("operator", new RawAcsSnapshot(2, List.of(
+            new RawActiveContract("pool-1", poolId(), pool("CBTC", "CC", "10", "1000", "100"), null))));
+
+        refresher.apply(1, tx(archived("pool-1")));
+
+        assertThat(gauge("clearportx.pool.active.count")).isEqualTo(1);
+        verify(updateStream).subscribe(eq("operator"), eq(2L), eq("pool-metrics"), any());
+        verify(updateStream, times(2)).subscribe(eq("operator"), anyLong(), eq("pool-metrics"), any());
+    }
+
+    private static TransactionOuterClass.Transaction tx(EventOuterClass.Event... events) {
+        return TransactionOuterClass.Transaction.newBuilder().addAllEvents(List.of(events)).build();
+    }
+
+    private static EventOuterClass.Event created(String cid, ValueOuterClass.Record args) {
+        return EventOuterClass.Event.newBuilder()
+            .setCreated(EventOuterClass.CreatedEvent.newBuilder()
+                .setContractId(cid)
+                .setTemplateId(poolId())
+                .setCreateArguments(args))
+            .build();
+    }
+
+    private static EventOuterClass.Event archived(String cid) {
+        return EventOuterClass.Event.newBuilder()
+            .setArchived(EventOuterClass.ArchivedEvent.newBuilder()
+                .setContractId(cid)
+                .setTemplateId(poolId()))
+            .build();
+    }
+
+    private static ValueOuterClass.Identifier poolId() {
+        return ValueOuterClass.Identifier.newBuilder().setPackageId("pkg").setModuleName("AMM.Pool").setEntityName("Pool").build();
+    }
+
+    private static ValueOuterClass.Record pool(String symbolA, String symbolB, String reserveA, String reserveB, String totalLp) {
+        return ValueOuterClass.Record.newBuilder()
+            .addFields(text("symbolA", symbolA))
+            .addFields(text("symbolB", symbolB))
+            .addFields(numeric("totalLPSupply", totalLp))
+            .addFields(numeric("reserveA", reserveA))
+            .addFields(numeric("reserveB", reserveB))
+            .build();
+    }
+
+    private static ValueOuterClass.RecordField text(String label, String text) {
+        return ValueOuterClass.RecordField.newBuilder().setLabel(label)
+            .setValue(ValueOuterClass.Value.newBuilder().setText(text)).build();
+    }
+
+    private static ValueOuterClass.RecordField numeric(String label, String numeric) {
+        return ValueOuterClass.RecordField.newBuilder().setLabel(label)
+            .setValue(ValueOuterClass.Value.newBuilder().setNumeric(numeric)).build();
+    }
+}
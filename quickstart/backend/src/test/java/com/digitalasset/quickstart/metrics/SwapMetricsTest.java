@@ -0,0 +1,80 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.metrics;
+
+import com.digitalasset.quickstart.common.Result;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for SwapMetrics - per-stage timers and bounded pair tags
+ */
+class SwapMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private SwapMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new SwapMetrics(registry);
+    }
+
+    private Timer stageTimer(String stage, String pair, String outcome) {
+        return registry.find("clearportx.swap.stage.duration")
+            .tags("stage", stage, "pair", pair, "outcome", outcome)
+            .timer();
+    }
+
+    @Test
+    void testStageOutcomes() {
+        String pair = metrics.poolPairTag("CC", "CBTC");
+
+        metrics.timeStage(SwapMetrics.Stage.POOL_LOOKUP, pair, () -> CompletableFuture.completedFuture("pools")).join();
+        metrics.timeStage(SwapMetrics.Stage.PAYOUT, pair,
+            () -> CompletableFuture.completedFuture(Result.err("no synchronizer"))).join();
+        metrics.timeStage(SwapMetrics.Stage.EXERCISE, pair,
+            () -> CompletableFuture.failedFuture(new IllegalStateException("stale"))).exceptionally(t -> null).join();
+
+        assertThat(stageTimer("pool_lookup", pair, "success").count()).isEqualTo(1);
+        assertThat(stageTimer("payout", pair, "failure").count()).isEqualTo(1);
+        assertThat(stageTimer("exercise", pair, "failure").count()).isEqualTo(1);
+        assertThat(stageTimer("exercise", pair, "success")).isNull();
+    }
+
+    @Test
+    void testPairTagIsOrderIndependentAndBounded() {
+        assertThat(metrics.poolPairTag("CBTC", "CC")).isEqualTo(metrics.poolPairTag("CC", "CBTC"));
+
+        for (int i = 0; i < 40; i++) {
+            metrics.poolPairTag("T" + i, "CC");
+        }
+
+        assertThat(metrics.poolPairTag("NEW", "CC")).isEqualTo("other");
+        assertThat(metrics.poolPairTag("CBTC", "CC")).isNotEqualTo("other");
+    }
+
+    @Test
+    void testUnresolvedPairsAndTokensDoNotTakeSlots() {
+        // Client-supplied symbols never register a pair, however many arrive
+        for (int i = 0; i < 40; i++) {
+            assertThat(metrics.pairTag("JUNK" + i, "CC")).isEqualTo("other");
+            assertThat(metrics.tokenTag("JUNK" + i)).isEqualTo("other");
+        }
+        assertThat(metrics.tokenTag("CBTC")).isEqualTo("other");
+
+        // A resolved pool (from the ledger or the pool refresher) makes its pair and tokens known
+        metrics.recordPoolLiquidity("CC", "CBTC", BigDecimal.TEN, BigDecimal.ONE);
+        assertThat(metrics.pairTag("CBTC", "CC")).isEqualTo("CBTC-CC");
+        assertThat(metrics.tokenTag("CBTC")).isEqualTo("CBTC");
+        assertThat(metrics.poolPairTag("ETH", "CC")).isEqualTo("CC-ETH");
+    }
+}
@@ -0,0 +1,88 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for JwtAuthService - signature checks and the verified-token cache
+ */
+class JwtAuthServiceTest {
+
+    private static final String SECRET = "test-secret";
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+
+    private final JwtAuthService service = new JwtAuthService(SECRET, "clearportx-backend", new ObjectMapper(), 4, 300);
+
+    private static String token(String secret, String sub, long exp) throws Exception {
+        String header = B64.encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = B64.encodeToString(("{\"sub\":\"" + sub + "\",\"iss\":\"clearportx-backend\",\"wallet\":\"loop\",\"exp\":" + exp + "}")
+            .getBytes(StandardCharsets.UTF_8));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String signature = B64.encodeToString(mac.doFinal((header + "." + payload).getBytes(StandardCharsets.UTF_8)));
+        return header + "." + payload + "." + signature;
+    }
+
+    private static long inOneHour() {
+        return Instant.now().plusSeconds(3600).getEpochSecond();
+    }
+
+    @Test
+    void testValidTokenIsVerifiedOnceAndCached() throws Exception {
+        String bearer = "Bearer " + token(SECRET, "alice::1220", inOneHour());
+
+        var first = service.authenticate(bearer);
+        var second = service.authenticate(bearer);
+
+        assertThat(first.isOk()).isTrue();
+        assertThat(second.getValueUnsafe()).isEqualTo(first.getValueUnsafe());
+        assertThat(second.getValueUnsafe().partyId()).isEqualTo("alice::1220");
+        assertThat(service.cachedTokens()).isEqualTo(1);
+    }
+
+    @Test
+    void testTamperedTokenIsRejectedAfterValidOneWasCached() throws Exception {
+        String valid = token(SECRET, "alice::1220", inOneHour());
+        assertThat(service.authenticate("Bearer " + valid).isOk()).isTrue();
+
+        String[] parts = valid.split("\\.");
+        String forgedPayload = B64.encodeToString(("{\"sub\":\"bob::1220\",\"exp\":" + inOneHour() + "}").getBytes(StandardCharsets.UTF_8));
+
+        assertThat(service.authenticate("Bearer " + parts[0] + "." + forgedPayload + "." + parts[2]).isErr()).isTrue();
+        assertThat(service.authenticate("Bearer " + token("other-secret", "alice::1220", inOneHour())).isErr()).isTrue();
+        assertThat(service.authenticate("Bearer " + valid + ".extra").isErr()).isTrue();
+        assertThat(service.authenticate("Bearer a.b").isErr()).isTrue();
+        assertThat(service.cachedTokens()).isEqualTo(1);
+    }
+
+    @Test
+    void testCacheIsBoundedAndSkipsExpiredTokens() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            assertThat(service.authenticate("Bearer " + token(SECRET, "party-" + i, inOneHour())).isOk()).isTrue();
+        }
+        assertThat(service.cachedTokens()).isLessThanOrEqualTo(4);
+
+        JwtAuthService fresh = new JwtAuthService(SECRET, "clearportx-backend", new ObjectMapper(), 4, 300);
+        long past = Instant.now().minusSeconds(60).getEpochSecond();
+        assertThat(fresh.authenticate("Bearer " + token(SECRET, "alice::1220", past)).isOk()).isTrue();
+        assertThat(fresh.cachedTokens()).isZero();
+    }
+
+    @Test
+    void testEmptySecretRejectsEverything() throws Exception {
+        JwtAuthService unconfigured = new JwtAuthService("", "clearportx-backend", new ObjectMapper(), 4, 300);
+
+        assertThat(unconfigured.authenticate("Bearer " + token("x", "alice::1220", inOneHour())).isErr()).isTrue();
+    }
+}
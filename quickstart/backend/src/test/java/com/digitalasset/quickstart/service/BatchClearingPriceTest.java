@@ -0,0 +1,94 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.util.AmmMath;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for batch swap netting (uniform clearing price).
+ *
+ * A batch of opposing swaps clears at one price: only the net imbalance trades
+ * against the constant-product curve, so the pool's k is preserved (before fees)
+ * and no leg gets a worse rate than the net trade itself.
+ */
+@DisplayName("Batch Clearing Price Tests")
+class BatchClearingPriceTest {
+
+    private static final BigDecimal TOLERANCE = new BigDecimal("0.000001");
+
+    @Test
+    @DisplayName("Empty batch clears at the spot price")
+    void testEmptyBatchIsSpotPrice() {
+        BigDecimal price = AmmMath.batchClearingPrice(BigDecimal.ZERO, BigDecimal.ZERO,
+            new BigDecimal("100"), new BigDecimal("200000"));
+
+        assertClose(new BigDecimal("2000"), price);
+    }
+
+    @Test
+    @DisplayName("One-sided batch matches a single swap of the total")
+    void testOneSidedBatchMatchesSingleSwap() {
+        BigDecimal reserveA = new BigDecimal("100");
+        BigDecimal reserveB = new BigDecimal("200000");
+        BigDecimal inA = new BigDecimal("5");
+
+        BigDecimal price = AmmMath.batchClearingPrice(inA, BigDecimal.ZERO, reserveA, reserveB);
+
+        BigDecimal singleSwapOut = inA.multiply(reserveB).divide(reserveA.add(inA), MathContext.DECIMAL64);
+        assertClose(singleSwapOut, inA.multiply(price));
+    }
+
+    @Test
+    @DisplayName("Perfectly offsetting flows clear at the spot price")
+    void testOffsettingFlowsClearAtSpot() {
+        BigDecimal reserveA = new BigDecimal("100");
+        BigDecimal reserveB = new BigDecimal("200000");
+
+        // 1 A against 2000 B is exactly the spot ratio, so nothing trades against the curve
+        BigDecimal price = AmmMath.batchClearingPrice(new BigDecimal("1"), new BigDecimal("2000"), reserveA, reserveB);
+
+        assertClose(new BigDecimal("2000"), price);
+    }
+
+    @Test
+    @DisplayName("Net trade preserves k and beats sequential execution for the minority side")
+    void testNettingPreservesK() {
+        BigDecimal reserveA = new BigDecimal("100");
+        BigDecimal reserveB = new BigDecimal("200000");
+        BigDecimal inA = new BigDecimal("3");
+        BigDecimal inB = new BigDecimal("1000");
+
+        BigDecimal price = AmmMath.batchClearingPrice(inA, inB, reserveA, reserveB);
+
+        BigDecimal outB = inA.multiply(price);
+        BigDecimal outA = inB.divide(price, MathContext.DECIMAL64);
+        BigDecimal newReserveA = reserveA.add(inA).subtract(outA);
+        BigDecimal newReserveB = reserveB.add(inB).subtract(outB);
+        assertClose(reserveA.multiply(reserveB), newReserveA.multiply(newReserveB));
+
+        // Net flow is A into the pool, so A gets cheaper: B sellers receive more A than at spot
+        assertTrue(price.compareTo(new BigDecimal("2000")) < 0, "price should drop below spot: " + price);
+        assertTrue(outA.compareTo(new BigDecimal("0.5")) > 0, "B sellers should beat spot: " + outA);
+    }
+
+    @Test
+    @DisplayName("Empty pool has no clearing price")
+    void testEmptyPool() {
+        assertEquals(0, AmmMath.batchClearingPrice(BigDecimal.ONE, BigDecimal.ONE,
+            BigDecimal.ZERO, new BigDecimal("10")).signum());
+    }
+
+    private static void assertClose(BigDecimal expected, BigDecimal actual) {
+        BigDecimal relative = expected.subtract(actual).abs()
+            .divide(expected.abs().max(BigDecimal.ONE), MathContext.DECIMAL64);
+        assertTrue(relative.compareTo(TOLERANCE) < 0, "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,91 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for CbtcTransferOfferService.mapBounded - concurrency bound, input order, deep synchronous runs and failures
+ */
+class CbtcTransferOfferServiceTest {
+
+    private static List<Integer> range(int n) {
+        return IntStream.range(0, n).boxed().toList();
+    }
+
+    @Test
+    void testAtMostParallelismInFlight() throws Exception {
+        List<CompletableFuture<Integer>> pending = new ArrayList<>();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        CompletableFuture<List<Integer>> mapped = CbtcTransferOfferService.mapBounded(range(10), 3, i -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CompletableFuture<Integer> f = new CompletableFuture<>();
+            synchronized (pending) {
+                pending.add(f);
+            }
+            return f.whenComplete((v, ex) -> inFlight.decrementAndGet());
+        });
+
+        // Complete the most recently started item each time; every completion starts exactly one more
+        for (int completed = 0; completed < 10; completed++) {
+            assertThat(pending).hasSize(Math.min(10, completed + 3));
+            CompletableFuture<Integer> toComplete = pending.stream().filter(f -> !f.isDone()).reduce((a, b) -> b).orElseThrow();
+            toComplete.complete(pending.indexOf(toComplete) * 10);
+        }
+
+        assertThat(maxInFlight.get()).isEqualTo(3);
+        assertThat(mapped.get(1, TimeUnit.SECONDS)).isEqualTo(range(10).stream().map(i -> i * 10).toList());
+    }
+
+    @Test
+    void testLongSynchronousRunDoesNotGrowStack() {
+        List<Integer> items = range(200_000);
+
+        List<Integer> doubled = CbtcTransferOfferService.mapBounded(items, 4, i -> CompletableFuture.completedFuture(i * 2)).join();
+
+        assertThat(doubled).hasSize(items.size());
+        assertThat(doubled.get(199_999)).isEqualTo(399_998);
+    }
+
+    @Test
+    void testFailureStopsNewItemsAndWaitsForInFlight() {
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<Integer> slow = new CompletableFuture<>();
+
+        CompletableFuture<List<Integer>> mapped = CbtcTransferOfferService.mapBounded(range(10), 2, i -> {
+            started.incrementAndGet();
+            if (i == 0) {
+                return slow;
+            }
+            if (i == 2) {
+                return CompletableFuture.failedFuture(new IllegalStateException("registry down"));
+            }
+            return CompletableFuture.completedFuture(i);
+        });
+
+        // Item 0 is still running, so the failure is not reported yet, and nothing past item 2 started
+        assertThat(started.get()).isEqualTo(3);
+        assertThat(mapped).isNotDone();
+
+        slow.complete(0);
+        assertThatThrownBy(mapped::join)
+            .isInstanceOf(CompletionException.class)
+            .hasRootCauseInstanceOf(IllegalStateException.class)
+            .hasRootCauseMessage("registry down");
+        assertThat(started.get()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.common.DomainError;
+import com.digitalasset.quickstart.common.Result;
+import com.digitalasset.quickstart.config.BlockingExecutor;
+import com.digitalasset.quickstart.dto.HoldingSelectRequest;
+import com.digitalasset.quickstart.dto.HoldingSelectResponse;
+import com.digitalasset.quickstart.dto.HoldingUtxoDto;
+import com.digitalasset.quickstart.ledger.LedgerInbox;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for HoldingSelectorService - live waits return on the owner's create, retries stay off the common pool
+ */
+class HoldingSelectorServiceTest {
+
+    private static final String OWNER = "alice::1220";
+
+    private HoldingsService holdingsService;
+    private LedgerInbox inbox;
+    private BlockingExecutor executor;
+    private HoldingSelectorService service;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        holdingsService = mock(HoldingsService.class);
+        inbox = new LedgerInbox(registry);
+        executor = new BlockingExecutor(registry, false, 2, 16);
+        service = new HoldingSelectorService(holdingsService, inbox, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private static CompletableFuture<Result<List<HoldingUtxoDto>, DomainError>> holdings(HoldingUtxoDto... found) {
+        return CompletableFuture.completedFuture(Result.ok(List.of(found)));
+    }
+
+    @Test
+    void testLiveOwnerReturnsOnCreateSignal() throws Exception {
+        inbox.setLive(OWNER, true);
+        AtomicInteger queries = new AtomicInteger();
+        AtomicReference<String> retryThread = new AtomicReference<>();
+        HoldingUtxoDto holding = new HoldingUtxoDto("holding-1", "cbtc-admin", "CBTC", BigDecimal.TEN, 10, OWNER, List.of());
+        when(holdingsService.getHoldingUtxos(OWNER)).thenAnswer(inv -> {
+            if (queries.incrementAndGet() == 1) {
+                return holdings();
+            }
+            retryThread.set(Thread.currentThread().getName());
+            return holdings(holding);
+        });
+
+        long start = System.nanoTime();
+        CompletableFuture<HoldingSelectResponse> selection = service.selectHolding(
+            new HoldingSelectRequest(OWNER, "cbtc-admin", "CBTC", BigDecimal.ONE, 30, 2000));
+        inbox.signal(LedgerInbox.partyKey(OWNER));
+        HoldingSelectResponse response = selection.get(5, TimeUnit.SECONDS);
+
+        assertThat(response.found()).isTrue();
+        assertThat(response.holdingCid()).isEqualTo("holding-1");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(HoldingSelectorService.LIVE_RECHECK_MS);
+        assertThat(retryThread.get()).doesNotContain("ForkJoinPool");
+    }
+
+    @Test
+    void testLiveOwnerRechecksWithoutSignal() throws Exception {
+        inbox.setLive(OWNER, true);
+        AtomicInteger queries = new AtomicInteger();
+        HoldingUtxoDto holding = new HoldingUtxoDto("holding-1", "cbtc-admin", "CBTC", BigDecimal.TEN, 10, OWNER, List.of());
+        when(holdingsService.getHoldingUtxos(OWNER)).thenAnswer(inv -> queries.incrementAndGet() == 1 ? holdings() : holdings(holding));
+
+        // The create was signalled before the first query could see it; the capped wait still finds it
+        HoldingSelectResponse response = service.selectHolding(
+            new HoldingSelectRequest(OWNER, "cbtc-admin", "CBTC", BigDecimal.ONE, 60, 100))
+            .get(HoldingSelectorService.LIVE_RECHECK_MS + 5_000, TimeUnit.MILLISECONDS);
+
+        assertThat(response.found()).isTrue();
+        assertThat(queries.get()).isEqualTo(2);
+    }
+}
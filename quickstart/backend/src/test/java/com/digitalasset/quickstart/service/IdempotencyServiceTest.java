@@ -5,8 +5,12 @@ package com.digitalasset.quickstart.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class IdempotencyServiceTest {
 
@@ -70,4 +74,58 @@ class IdempotencyServiceTest {
         // Should still have entries (not expired yet in test)
         assertThat(service.getCacheSize()).isGreaterThanOrEqualTo(0);
     }
+
+    @Test
+    void testBodyHash_sameHashReturnsCachedResponse_differentHashRejected() {
+        service.registerSuccessWithBodyHash("swap-xyz", "hash-a", "cmd-1", "tx-1", "response", 200);
+
+        assertThat(service.checkIdempotencyWithBodyHash("swap-xyz", "hash-a")).isEqualTo("response");
+        assertThatThrownBy(() -> service.checkIdempotencyWithBodyHash("swap-xyz", "hash-b"))
+            .isInstanceOf(ResponseStatusException.class)
+            .hasMessageContaining("IDEMPOTENCY_KEY_BODY_MISMATCH");
+        assertThat(service.checkIdempotencyWithBodyHash("other-key", "hash-a")).isNull();
+    }
+
+    @Test
+    void testBodyHash_comparesDecimalsByValueAndKeepsFieldOrder() {
+        assertThat(IdempotencyKey.bodyHash("alice", new java.math.BigDecimal("1.0"), null))
+            .isEqualTo(IdempotencyKey.bodyHash("alice", new java.math.BigDecimal("1.00"), null));
+        assertThat(IdempotencyKey.bodyHash("alice", "bob")).isNotEqualTo(IdempotencyKey.bodyHash("bob", "alice"));
+        assertThat(IdempotencyKey.bodyHash("a", "b")).isNotEqualTo(IdempotencyKey.bodyHash("ab"));
+    }
+
+    @Test
+    void testEntriesExpireAfterTtl() {
+        AtomicLong now = new AtomicLong(1_000L);
+        IdempotencyService timed = new IdempotencyService(16, null, now::get);
+        timed.registerSuccess("key1", "cmd-1", "tx-1", "resp1");
+
+        now.addAndGet(86_400_000L);
+
+        assertThat(timed.checkIdempotency("key1")).isNull();
+        timed.cleanupExpired();
+        assertThat(timed.getCacheSize()).isZero();
+    }
+
+    @Test
+    void testStoreIsBounded_evictsOldestFirst() {
+        IdempotencyService bounded = new IdempotencyService(2, null, System::currentTimeMillis);
+        bounded.registerSuccess("key1", "cmd-1", "tx-1", "resp1");
+        bounded.registerSuccess("key2", "cmd-2", "tx-2", "resp2");
+        bounded.registerSuccess("key1", "cmd-1", "tx-1", "resp1-again");
+        bounded.registerSuccess("key3", "cmd-3", "tx-3", "resp3");
+
+        assertThat(bounded.getCacheSize()).isEqualTo(2);
+        assertThat(bounded.checkIdempotency("key2")).isNull();
+        assertThat(bounded.checkIdempotency("key1")).isEqualTo("resp1-again");
+        assertThat(bounded.checkIdempotency("key3")).isEqualTo("resp3");
+    }
+
+    @Test
+    void testValidateIdempotencyKey_rejectsInvalidCharacters() {
+        service.validateIdempotencyKey("swap_abc-123");
+
+        assertThatThrownBy(() -> service.validateIdempotencyKey("swap:abc"))
+            .isInstanceOf(ResponseStatusException.class);
+    }
 }
@@ -0,0 +1,112 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for InitGraph - dependency ordering, concurrency, resume and failure isolation
+ */
+class InitGraphTest {
+
+    @Test
+    void testIndependentStepsStartTogetherAndDependentsWait() throws Exception {
+        CompletableFuture<String> pool = new CompletableFuture<>();
+        CompletableFuture<String> token = new CompletableFuture<>();
+        List<String> started = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<InitGraph.Outcome> run = new InitGraph()
+                .step("pool", List.of(), r -> {
+                    started.add("pool");
+                    return pool;
+                })
+                .step("token", List.of(), r -> {
+                    started.add("token");
+                    return token;
+                })
+                .step("liquidity", List.of("pool", "token"), r -> {
+                    started.add("liquidity");
+                    return CompletableFuture.completedFuture(r.get("pool") + "+" + r.get("token"));
+                })
+                .run();
+
+        assertThat(started).containsExactly("pool", "token");
+        pool.complete("p1");
+        assertThat(started).containsExactly("pool", "token");
+        token.complete("t1");
+
+        InitGraph.Outcome outcome = run.get(5, TimeUnit.SECONDS);
+        assertThat(outcome.succeeded()).isTrue();
+        assertThat(started).containsExactly("pool", "token", "liquidity");
+        assertThat(outcome.results().<String>get("liquidity")).isEqualTo("p1+t1");
+        assertThat(outcome.timings()).extracting(InitGraph.StepTiming::step).containsExactly("pool", "token", "liquidity");
+    }
+
+    @Test
+    void testResumedStepsAreNotRunButFeedDependents() throws Exception {
+        AtomicInteger poolCreates = new AtomicInteger();
+
+        InitGraph.Outcome outcome = new InitGraph()
+                .resumed("pool", "existing-pool")
+                .step("liquidity", List.of("pool"), r -> CompletableFuture.completedFuture("added to " + r.get("pool")))
+                .step("other", List.of(), r -> {
+                    poolCreates.incrementAndGet();
+                    return CompletableFuture.completedFuture(null);
+                })
+                .run()
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(outcome.succeeded()).isTrue();
+        assertThat(poolCreates).hasValue(1);
+        assertThat(outcome.results().<String>get("liquidity")).isEqualTo("added to existing-pool");
+        assertThat(outcome.timings().get(0).status()).isEqualTo(InitGraph.Status.RESUMED);
+        assertThat(outcome.count(InitGraph.Status.DONE)).isEqualTo(2);
+    }
+
+    @Test
+    void testFailureSkipsOnlyDependents() throws Exception {
+        InitGraph.Outcome outcome = new InitGraph()
+                .step("pool:A", List.of(), r -> CompletableFuture.failedFuture(new IllegalStateException("CONTRACT_NOT_FOUND")))
+                .step("pool:B", List.of(), r -> CompletableFuture.completedFuture("B"))
+                .step("liquidity:A", List.of("pool:A"), r -> CompletableFuture.completedFuture("never"))
+                .step("report:A", List.of("liquidity:A"), r -> CompletableFuture.completedFuture("never"))
+                .step("liquidity:B", List.of("pool:B"), r -> {
+                    throw new IllegalArgumentException("bad amount");
+                })
+                .run()
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(outcome.succeeded()).isFalse();
+        assertThat(outcome.timings()).extracting(InitGraph.StepTiming::status).containsExactly(
+                InitGraph.Status.FAILED,
+                InitGraph.Status.DONE,
+                InitGraph.Status.SKIPPED,
+                InitGraph.Status.SKIPPED,
+                InitGraph.Status.FAILED);
+        assertThat(outcome.failures()).extracting(InitGraph.StepTiming::error)
+                .containsExactly("CONTRACT_NOT_FOUND", "bad amount");
+        assertThat(outcome.results().<String>get("pool:B")).isEqualTo("B");
+    }
+
+    @Test
+    void testDependenciesMustBeDeclaredFirst() {
+        InitGraph graph = new InitGraph().step("pool", List.of(), r -> CompletableFuture.completedFuture(null));
+
+        assertThatThrownBy(() -> graph.step("liquidity", List.of("pool", "token"), r -> null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("token");
+        assertThatThrownBy(() -> graph.resumed("pool", null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Duplicate");
+    }
+}
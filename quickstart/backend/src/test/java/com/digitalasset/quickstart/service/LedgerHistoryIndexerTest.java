@@ -0,0 +1,301 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.daml.ledger.api.v2.EventOuterClass;
+import com.daml.ledger.api.v2.TransactionOuterClass;
+import com.daml.ledger.api.v2.UpdateServiceOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.ledger.LedgerUpdateStream;
+import com.digitalasset.quickstart.security.AuthUtils;
+import com.digitalasset.quickstart.service.TransactionHistoryService.TransactionHistoryEntry;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for LedgerHistoryIndexer - mapping AMM transactions to history entries, dedupe by update id, pruned backfills
+ */
+class LedgerHistoryIndexerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TransactionHistoryService history;
+    private SimpleMeterRegistry meterRegistry;
+    private LedgerHistoryIndexer indexer;
+
+    @BeforeEach
+    void setUp() {
+        history = new TransactionHistoryService(tempDir.resolve("history").toString(),
+            tempDir.resolve("legacy.json").toString(), 1 << 20, 0, 0, 1000);
+        history.init();
+        meterRegistry = new SimpleMeterRegistry();
+        indexer = new LedgerHistoryIndexer(mock(LedgerApi.class), mock(LedgerUpdateStream.class), history,
+            mock(AuthUtils.class), meterRegistry, true, 4, 100);
+    }
+
+    @Test
+    void testPoolLifecycleMapsToFeed() {
+        indexer.apply(tx("upd-1", created("pool-1", "AMM.Pool", "Pool", pool("100", "10", "1000"))));
+        indexer.apply(tx("upd-2", archived("pool-1", "AMM.Pool", "Pool"),
+            created("pool-2", "AMM.Pool", "Pool", pool("150", "15", "1500")),
+            created("lp-1", "LPToken.LPToken", "LPToken", lpToken("alice", "50"))));
+        indexer.apply(tx("upd-3", archived("pool-2", "AMM.Pool", "Pool"),
+            created("pool-3", "AMM.Pool", "Pool", pool("150", "16", "1400")),
+            created("rcpt-1", "AMM.Receipt", "Receipt", receipt("bob", "CBTC", "CC", "1", "100"))));
+
+        assertThat(history.getRecent(10)).extracting(e -> e.id).containsExactly("upd-3", "upd-2", "upd-1");
+
+        TransactionHistoryEntry creation = history.findById("upd-1");
+        assertThat(creation.type).isEqualTo("POOL_CREATION");
+        assertThat(creation.actorParty).isEqualTo("operator");
+        assertThat(creation.createdAt).isEqualTo("2025-01-01T12:00:00Z");
+
+        TransactionHistoryEntry add = history.findById("upd-2");
+        assertThat(add.type).isEqualTo("ADD_LIQUIDITY");
+        assertThat(add.actorParty).isEqualTo("alice");
+        assertThat(add.amountADesired).isEqualTo("5");
+        assertThat(add.amountBDesired).isEqualTo("500");
+        assertThat(add.lpMintedAmount).isEqualTo("50");
+
+        TransactionHistoryEntry swap = history.findById("upd-3");
+        assertThat(swap.type).isEqualTo("SWAP");
+        assertThat(swap.poolId).isEqualTo("cbtc-cc");
+        assertThat(swap.contractId).isEqualTo("pool-3");
+        assertThat(history.getPage("bob", "cbtc-cc", null, 10).entries()).hasSize(1);
+    }
+
+    @Test
+    void testRemoveLiquidityIsNotRecordedAsAdd() {
+        indexer.apply(tx("upd-1", created("pool-1", "AMM.Pool", "Pool", pool("100", "10", "1000"))));
+        // Partial removal: supply shrinks, remaining LP tokens re-created for the provider
+        indexer.apply(tx("upd-2", archived("pool-1", "AMM.Pool", "Pool"),
+            created("pool-2", "AMM.Pool", "Pool", pool("60", "6", "600")),
+            created("lp-2", "LPToken.LPToken", "LPToken", lpToken("alice", "10"))));
+
+        assertThat(history.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testReplacementOfUnseenPoolIsSkipped() {
+        // After a restart the first update for a pool has no earlier state to diff against
+        indexer.apply(tx("upd-1", archived("pool-1", "AMM.Pool", "Pool"),
+            created("pool-2", "AMM.Pool", "Pool", pool("60", "6", "600")),
+            created("lp-2", "LPToken.LPToken", "LPToken", lpToken("alice", "10"))));
+
+        assertThat(history.size()).isZero();
+
+        indexer.apply(tx("upd-2", archived("pool-2", "AMM.Pool", "Pool"),
+            created("pool-3", "AMM.Pool", "Pool", pool("80", "8", "800")),
+            created("lp-3", "LPToken.LPToken", "LPToken", lpToken("alice", "20"))));
+
+        assertThat(history.findById("upd-2").amountADesired).isEqualTo("2");
+    }
+
+    @Test
+    void testHoldingPoolFlowsMapToFeed() {
+        indexer.seed(List.of(new LedgerApi.RawActiveContract("hp-1", id("AMM.HoldingPool", "HoldingPool"),
+            holdingPool("1000", "10", "100000"), ByteString.EMPTY)));
+
+        indexer.apply(tx("upd-1", archived("hp-1", "AMM.HoldingPool", "HoldingPool"),
+            archived("ti-a", "Splice.Amulet.TransferInstruction", "AmuletTransferInstruction"),
+            archived("ti-b", "Utility.Registry.TransferInstruction", "TransferInstruction"),
+            created("hp-2", "AMM.HoldingPool", "HoldingPool", holdingPool("1100", "11", "110000")),
+            created("lp-1", "LPToken.LPToken", "LPToken", lpToken("alice", "100"))));
+        indexer.apply(tx("upd-2", archived("hp-2", "AMM.HoldingPool", "HoldingPool"),
+            archived("ti-c", "Utility.Registry.TransferInstruction", "TransferInstruction"),
+            created("hp-3", "AMM.HoldingPool", "HoldingPool", holdingPool("1100", "12", "100850")),
+            created("h-1", "Splice.Amulet", "Amulet", ValueOuterClass.Record.newBuilder()
+                .addFields(party("dso", "dso"))
+                .addFields(party("owner", "bob"))
+                .build())));
+
+        TransactionHistoryEntry add = history.findById("upd-1");
+        assertThat(add.type).isEqualTo("ADD_LIQUIDITY");
+        assertThat(add.poolId).isEqualTo("cbtc-cc");
+        assertThat(add.amountADesired).isEqualTo("1");
+        assertThat(add.amountBDesired).isEqualTo("10000");
+        assertThat(add.lpMintedAmount).isEqualTo("100");
+
+        TransactionHistoryEntry swap = history.findById("upd-2");
+        assertThat(swap.type).isEqualTo("SWAP");
+        assertThat(swap.tokenA).isEqualTo("CBTC");
+        assertThat(swap.tokenB).isEqualTo("CC");
+        assertThat(swap.amountADesired).isEqualTo("1");
+        assertThat(swap.amountBDesired).isEqualTo("9150");
+        assertThat(swap.actorParty).isEqualTo("bob");
+    }
+
+    @Test
+    void testHoldingPoolBatchIsLeftToTheBatchFlow() {
+        indexer.seed(List.of(new LedgerApi.RawActiveContract("hp-1", id("AMM.HoldingPool", "HoldingPool"),
+            holdingPool("1000", "10", "100000"), ByteString.EMPTY)));
+
+        indexer.apply(tx("upd-1", archived("hp-1", "AMM.HoldingPool", "HoldingPool"),
+            archived("ti-a", "Utility.Registry.TransferInstruction", "TransferInstruction"),
+            archived("ti-b", "Splice.Amulet.TransferInstruction", "AmuletTransferInstruction"),
+            created("hp-2", "AMM.HoldingPool", "HoldingPool", holdingPool("1000", "11", "91000"))));
+
+        assertThat(history.size()).isZero();
+    }
+
+    @Test
+    void testReplayedAndLocallyRecordedUpdatesAreStoredOnce() {
+        history.recordSwap("upd-7", "cbtc-cc", "pool-1", "CBTC", "CC", BigDecimal.ONE, BigDecimal.TEN, "bob");
+        TransactionOuterClass.Transaction swap = tx("upd-7",
+            created("rcpt-7", "AMM.Receipt", "Receipt", receipt("bob", "CBTC", "CC", "1", "10")));
+
+        indexer.apply(swap);
+        indexer.apply(swap);
+
+        assertThat(history.size()).isEqualTo(1);
+        assertThat(meterRegistry.get("clearportx.history.indexer.entries").counter().count()).isZero();
+    }
+
+    @Test
+    void testPrunedBackfillResumesAtSnapshotOffset() {
+        LedgerApi ledgerApi = mock(LedgerApi.class);
+        LedgerUpdateStream updateStream = mock(LedgerUpdateStream.class);
+        AuthUtils authUtils = mock(AuthUtils.class);
+        when(authUtils.getAppProviderPartyId()).thenReturn("operator");
+        when(ledgerApi.getActiveContractsRawSnapshotForParty("operator"))
+            .thenReturn(CompletableFuture.completedFuture(new LedgerApi.RawAcsSnapshot(500, List.of())));
+        // The saved offset (0 here) is older than the participant's pruning boundary
+        when(ledgerApi.subscribeUpdatesForParty(eq("operator"), anyLong(), any(), any())).thenAnswer(inv -> {
+            StreamObserver<UpdateServiceOuterClass.GetUpdatesResponse> observer = inv.getArgument(3);
+            observer.onError(Status.FAILED_PRECONDITION.withDescription("PARTICIPANT_PRUNED_DATA_ACCESSED").asRuntimeException());
+            return null;
+        });
+        LedgerHistoryIndexer pruned = new LedgerHistoryIndexer(ledgerApi, updateStream, history, authUtils, meterRegistry, true, 4, 100);
+
+        pruned.start();
+
+        verify(updateStream, timeout(2000)).subscribe(eq("operator"), eq(500L), eq("history-index"), any());
+        assertThat(pruned.indexedOffset()).isEqualTo(500);
+        pruned.stop();
+    }
+
+    private static TransactionOuterClass.Transaction tx(String updateId, EventOuterClass.Event... events) {
+        TransactionOuterClass.Transaction.Builder builder = TransactionOuterClass.Transaction.newBuilder()
+            .setUpdateId(updateId)
+            .setEffectiveAt(Timestamp.newBuilder().setSeconds(1_735_732_800L));
+        for (EventOuterClass.Event event : events) {
+            builder.addEvents(event);
+        }
+        return builder.build();
+    }
+
+    private static EventOuterClass.Event created(String cid, String module, String entity, ValueOuterClass.Record args) {
+        return EventOuterClass.Event.newBuilder()
+            .setCreated(EventOuterClass.CreatedEvent.newBuilder()
+                .setContractId(cid)
+                .setTemplateId(id(module, entity))
+                .setCreateArguments(args))
+            .build();
+    }
+
+    private static EventOuterClass.Event archived(String cid, String module, String entity) {
+        return EventOuterClass.Event.newBuilder()
+            .setArchived(EventOuterClass.ArchivedEvent.newBuilder()
+                .setContractId(cid)
+                .setTemplateId(id(module, entity)))
+            .build();
+    }
+
+    private static ValueOuterClass.Identifier id(String module, String entity) {
+        return ValueOuterClass.Identifier.newBuilder().setPackageId("pkg").setModuleName(module).setEntityName(entity).build();
+    }
+
+    private static ValueOuterClass.Record pool(String totalLp, String reserveA, String reserveB) {
+        return ValueOuterClass.Record.newBuilder()
+            .addFields(party("poolOperator", "operator"))
+            .addFields(party("poolParty", "pool-party"))
+            .addFields(text("symbolA", "CBTC"))
+            .addFields(text("symbolB", "CC"))
+            .addFields(text("poolId", "cbtc-cc"))
+            .addFields(numeric("totalLPSupply", totalLp))
+            .addFields(numeric("reserveA", reserveA))
+            .addFields(numeric("reserveB", reserveB))
+            .build();
+    }
+
+    private static ValueOuterClass.Record holdingPool(String lpSupply, String reserveA, String reserveB) {
+        return ValueOuterClass.Record.newBuilder()
+            .addFields(party("operator", "operator"))
+            .addFields(field("instrumentA", instrument("cbtc-admin", "CBTC")))
+            .addFields(field("instrumentB", instrument("dso", "Amulet")))
+            .addFields(numeric("reserveAmountA", reserveA))
+            .addFields(numeric("reserveAmountB", reserveB))
+            .addFields(numeric("lpSupply", lpSupply))
+            .addFields(field("poolId", ValueOuterClass.Value.newBuilder()
+                .setOptional(ValueOuterClass.Optional.newBuilder()
+                    .setValue(ValueOuterClass.Value.newBuilder().setText("cbtc-cc")))
+                .build()))
+            .build();
+    }
+
+    private static ValueOuterClass.Value instrument(String admin, String id) {
+        return ValueOuterClass.Value.newBuilder().setRecord(ValueOuterClass.Record.newBuilder()
+                .addFields(party("admin", admin))
+                .addFields(text("id", id)))
+            .build();
+    }
+
+    private static ValueOuterClass.Record lpToken(String owner, String amount) {
+        return ValueOuterClass.Record.newBuilder()
+            .addFields(party("issuer", "lp-issuer"))
+            .addFields(party("owner", owner))
+            .addFields(text("poolId", "cbtc-cc"))
+            .addFields(numeric("amount", amount))
+            .build();
+    }
+
+    private static ValueOuterClass.Record receipt(String trader, String in, String out, String amountIn, String amountOut) {
+        return ValueOuterClass.Record.newBuilder()
+            .addFields(party("trader", trader))
+            .addFields(party("poolParty", "pool-party"))
+            .addFields(text("inputSymbol", in))
+            .addFields(text("outputSymbol", out))
+            .addFields(numeric("amountIn", amountIn))
+            .addFields(numeric("amountOut", amountOut))
+            .build();
+    }
+
+    private static ValueOuterClass.RecordField party(String label, String party) {
+        return field(label, ValueOuterClass.Value.newBuilder().setParty(party).build());
+    }
+
+    private static ValueOuterClass.RecordField text(String label, String text) {
+        return field(label, ValueOuterClass.Value.newBuilder().setText(text).build());
+    }
+
+    private static ValueOuterClass.RecordField numeric(String label, String numeric) {
+        return field(label, ValueOuterClass.Value.newBuilder().setNumeric(numeric).build());
+    }
+
+    private static ValueOuterClass.RecordField field(String label, ValueOuterClass.Value value) {
+        return ValueOuterClass.RecordField.newBuilder().setLabel(label).setValue(value).build();
+    }
+}
@@ -0,0 +1,63 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for PackageCacheStore - round trip, corruption and unsafe ids
+ */
+class PackageCacheStoreTest {
+
+    private static final String PACKAGE_ID = "55ba4deb0ad4662c4168b39859738a0e91388d252286480c7331b3f71a517281";
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] out = new byte[buffer.remaining()];
+        buffer.duplicate().get(out);
+        return out;
+    }
+
+    @Test
+    void testRoundTripAcrossInstances() {
+        byte[] payload = "package-payload".getBytes(StandardCharsets.UTF_8);
+        new PackageCacheStore(tempDir).write(PACKAGE_ID, 2, payload);
+
+        PackageCacheStore.CachedPackage cached = new PackageCacheStore(tempDir).read(PACKAGE_ID).orElseThrow();
+
+        assertThat(cached.lfMajor()).isEqualTo(2);
+        assertThat(bytes(cached.payload())).isEqualTo(payload);
+    }
+
+    @Test
+    void testCorruptEntryIsDiscarded() throws Exception {
+        PackageCacheStore store = new PackageCacheStore(tempDir);
+        store.write(PACKAGE_ID, 1, "package-payload".getBytes(StandardCharsets.UTF_8));
+        Files.writeString(tempDir.resolve(PACKAGE_ID + ".lf"), "x", StandardOpenOption.APPEND);
+
+        assertThat(store.read(PACKAGE_ID)).isEmpty();
+        assertThat(tempDir.resolve(PACKAGE_ID + ".lf")).doesNotExist();
+    }
+
+    @Test
+    void testUnsafeIdsAreNotCached() {
+        PackageCacheStore store = new PackageCacheStore(tempDir);
+        store.write("../escape", 2, new byte[]{1});
+        store.write("#splice-api-token-transfer-instruction-v1", 2, new byte[]{1});
+
+        assertThat(store.read("../escape")).isEmpty();
+        assertThat(tempDir.getParent().resolve("escape.lf")).doesNotExist();
+    }
+}
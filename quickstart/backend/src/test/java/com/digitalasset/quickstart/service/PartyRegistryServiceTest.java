@@ -0,0 +1,48 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.service.PartyRegistryService.PartySnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for PartyRegistryService - snapshot name, hint and prefix resolution
+ */
+class PartyRegistryServiceTest {
+
+    private static final String ALICE = "Alice-9cefe94d::1220aa";
+    private static final String ALICE_2 = "Alice-9c01ab22::1220bb";
+    private static final String BOB = "Bob-77aa0011::1220cc";
+
+    private final PartySnapshot snapshot = PartySnapshot.build(List.of(ALICE, ALICE_2, BOB));
+
+    @Test
+    void testResolveByIdHintAndName() {
+        assertThat(snapshot.resolve(BOB)).contains(BOB);
+        assertThat(snapshot.resolve("alice-9cefe94d")).contains(ALICE);
+        assertThat(snapshot.resolve(" BOB ")).contains(BOB);
+        assertThat(snapshot.resolve("Carol")).isEmpty();
+    }
+
+    @Test
+    void testUniqueHintPrefixResolves() {
+        assertThat(snapshot.resolve("Alice-9cef")).contains(ALICE);
+        assertThat(snapshot.resolve("Bob-77")).contains(BOB);
+        // Shared by both Alice parties
+        assertThat(snapshot.resolve("alice-9c")).isEmpty();
+        // A bare name prefix never matches
+        assertThat(snapshot.resolve("Bo")).isEmpty();
+    }
+
+    @Test
+    void testChangeDetection() {
+        assertThat(snapshot.hasSameParties(List.of(BOB, ALICE_2, ALICE))).isTrue();
+        assertThat(snapshot.hasSameParties(List.of(BOB, ALICE))).isFalse();
+        assertThat(PartySnapshot.EMPTY.resolve("alice")).isEmpty();
+    }
+}
@@ -0,0 +1,162 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.daml.daml_lf_dev.DamlLf2;
+import com.daml.ledger.api.v2.CommandServiceOuterClass;
+import com.daml.ledger.api.v2.CommandsOuterClass;
+import com.daml.ledger.api.v2.ValueOuterClass;
+import com.digitalasset.quickstart.common.Result;
+import com.digitalasset.quickstart.config.LedgerConfig;
+import com.digitalasset.quickstart.config.TemplateSchemaDebugConfig;
+import com.digitalasset.quickstart.dto.ApiError;
+import com.digitalasset.quickstart.dto.BulkPayoutRequest;
+import com.digitalasset.quickstart.dto.BulkPayoutResponse;
+import com.digitalasset.quickstart.dto.ErrorCode;
+import com.digitalasset.quickstart.dto.HoldingUtxoDto;
+import com.digitalasset.quickstart.ledger.DisclosedContractCache;
+import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.security.AuthUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for PayoutService.createBulkPayout - per-receiver factory contexts within one bulk submission
+ */
+class PayoutServiceBulkTest {
+
+    private LedgerApi ledgerApi;
+    private HoldingSelectorService holdingSelector;
+    private PayoutService service;
+
+    @BeforeEach
+    void setUp() {
+        ledgerApi = mock(LedgerApi.class);
+        holdingSelector = mock(HoldingSelectorService.class);
+        TemplateSchemaService schemaService = mock(TemplateSchemaService.class);
+        when(schemaService.getDataTypeAst(anyString(), anyString(), anyString()))
+            .thenReturn(new TemplateSchemaService.DataTypeAst(null, DamlLf2.Package.getDefaultInstance(), null, List.of()));
+        AuthUtils authUtils = mock(AuthUtils.class);
+        when(authUtils.getAppProviderPartyId()).thenReturn("operator");
+        TemplateSchemaDebugConfig schemaConfig = mock(TemplateSchemaDebugConfig.class);
+        when(schemaConfig.isEnabled()).thenReturn(true);
+
+        service = spy(new PayoutService(ledgerApi, schemaService, holdingSelector, authUtils, schemaConfig,
+            mock(LedgerConfig.class), new DisclosedContractCache(new SimpleMeterRegistry(), 300_000, 4096), ""));
+        ReflectionTestUtils.setField(service, "bulkMaxItems", 200);
+        ReflectionTestUtils.setField(service, "bulkMaxCommands", 20);
+
+        when(ledgerApi.exerciseRawBatchWithLabel(eq("BulkPayout"), anyList(), anyList(), anyList(), anyList(), any()))
+            .thenReturn(CompletableFuture.completedFuture(CommandServiceOuterClass.SubmitAndWaitForTransactionResponse.getDefaultInstance()));
+    }
+
+    private void holdings(int count) {
+        List<Optional<HoldingUtxoDto>> selected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            selected.add(Optional.of(new HoldingUtxoDto("holding-" + i, "cbtc-admin", "CBTC", BigDecimal.TEN, 10, "operator", List.of())));
+        }
+        when(holdingSelector.selectDistinctHoldings(eq("operator"), anyString(), anyString(), anyList()))
+            .thenReturn(CompletableFuture.completedFuture(Result.ok(selected)));
+    }
+
+    private void plan(String receiver, BigDecimal total, Result<PayoutService.TransferFactoryPlan, ApiError> plan) {
+        doReturn(CompletableFuture.completedFuture(plan)).when(service).prepareTransferFactory(
+            anyString(), anyString(), anyString(), eq(receiver), eq(total), any(), any(), anyString());
+    }
+
+    private static PayoutService.TransferFactoryPlan factoryPlan(String receiver) {
+        return new PayoutService.TransferFactoryPlan("factory-" + receiver, ValueOuterClass.Record.getDefaultInstance(),
+            List.of(CommandsOuterClass.DisclosedContract.newBuilder().setContractId(receiver + "-context").build()), "sync::1");
+    }
+
+    private static BulkPayoutRequest request(String... receiversAndAmounts) {
+        BulkPayoutRequest request = new BulkPayoutRequest();
+        request.payouts = new ArrayList<>();
+        for (int i = 0; i < receiversAndAmounts.length; i += 2) {
+            BulkPayoutRequest.Item item = new BulkPayoutRequest.Item();
+            item.instrumentId = "CBTC";
+            item.receiverParty = receiversAndAmounts[i];
+            item.amount = receiversAndAmounts[i + 1];
+            request.payouts.add(item);
+        }
+        return request;
+    }
+
+    @Test
+    void testContextIsFetchedPerReceiverAndSubmittedTogether() {
+        holdings(3);
+        plan("alice", new BigDecimal("3"), Result.ok(factoryPlan("alice")));
+        plan("bob", new BigDecimal("2"), Result.ok(factoryPlan("bob")));
+
+        BulkPayoutResponse response = service.createBulkPayout(request("alice", "1", "bob", "2", "alice", "2"), "req-1")
+            .join().getValueUnsafe();
+
+        // One registry call per receiver for its total, one ledger submission for the group
+        verify(service).prepareTransferFactory(anyString(), anyString(), anyString(), eq("alice"), eq(new BigDecimal("3")), any(), any(), anyString());
+        verify(service).prepareTransferFactory(anyString(), anyString(), anyString(), eq("bob"), eq(new BigDecimal("2")), any(), any(), anyString());
+        ArgumentCaptor<List<CommandsOuterClass.Command>> commands = commandsCaptor();
+        ArgumentCaptor<List<CommandsOuterClass.DisclosedContract>> disclosed = disclosedCaptor();
+        verify(ledgerApi).exerciseRawBatchWithLabel(eq("BulkPayout"), commands.capture(), anyList(), anyList(), disclosed.capture(), eq("sync::1"));
+
+        // Each command exercises its own receiver's factory
+        assertThat(commands.getValue()).extracting(c -> c.getExercise().getContractId())
+            .containsExactlyInAnyOrder("factory-alice", "factory-alice", "factory-bob");
+        assertThat(disclosed.getValue()).extracting(CommandsOuterClass.DisclosedContract::getContractId)
+            .containsExactlyInAnyOrder("alice-context", "bob-context");
+        assertThat(response.ledgerSubmissions()).isEqualTo(1);
+        assertThat(response.results()).allSatisfy(item -> {
+            assertThat(item.error()).isNull();
+            assertThat(item.payout().factoryId()).isEqualTo("factory-" + item.payout().receiver());
+        });
+    }
+
+    @Test
+    void testReceiverWithoutContextIsPaidIndividually() {
+        holdings(2);
+        plan("alice", BigDecimal.ONE, Result.ok(factoryPlan("alice")));
+        plan("bob", BigDecimal.ONE, Result.err(ApiError.of(ErrorCode.PRECONDITION_FAILED, "no preapproval")));
+
+        BulkPayoutResponse response = service.createBulkPayout(request("alice", "1", "bob", "1"), "req-2")
+            .join().getValueUnsafe();
+
+        ArgumentCaptor<List<CommandsOuterClass.Command>> commands = commandsCaptor();
+        verify(ledgerApi).exerciseRawBatchWithLabel(eq("BulkPayout"), commands.capture(), anyList(), anyList(), anyList(), any());
+        assertThat(commands.getValue()).extracting(c -> c.getExercise().getContractId()).containsExactly("factory-alice");
+
+        // Bob went through the single-payout path, which has no registry configured here
+        assertThat(response.ledgerSubmissions()).isEqualTo(2);
+        assertThat(response.results().get(0).error()).isNull();
+        assertThat(response.results().get(1).error().message).isEqualTo("Transfer factory registry URL not configured");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<CommandsOuterClass.Command>> commandsCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<CommandsOuterClass.DisclosedContract>> disclosedCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
@@ -0,0 +1,69 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.dto.SwapConsumeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for RedisIdempotencyStore - responses round-trip by allowlisted type only
+ */
+class RedisIdempotencyStoreTest {
+
+    private ValueOperations<String, String> values;
+    private RedisIdempotencyStore store;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        store = new RedisIdempotencyStore(redis, new ObjectMapper());
+    }
+
+    @Test
+    void testKnownResponseTypeRoundTrips() {
+        SwapConsumeResponse response = new SwapConsumeResponse();
+        response.requestId = "req-1";
+        response.amountOut = "9.5";
+        store.put("req-1", new IdempotencyService.Registration("hash", "cmd", "tx", response), Duration.ofMinutes(1));
+
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(values).set(eq("idem:req-1"), json.capture(), eq(Duration.ofMinutes(1)));
+        assertThat(json.getValue()).contains("\"type\":\"SwapConsumeResponse\"");
+
+        when(values.get("idem:req-1")).thenReturn(json.getValue());
+        IdempotencyService.Registration read = store.get("req-1").orElseThrow();
+        assertThat(read.bodyHash()).isEqualTo("hash");
+        assertThat(read.response()).isInstanceOfSatisfying(SwapConsumeResponse.class,
+            r -> assertThat(r.amountOut).isEqualTo("9.5"));
+    }
+
+    @Test
+    void testUnknownTypeIsNeitherWrittenNorInstantiated() {
+        store.put("req-2", new IdempotencyService.Registration("hash", "cmd", "tx", "plain string"), Duration.ofMinutes(1));
+        verify(values, never()).set(anyString(), anyString(), any(Duration.class));
+
+        when(values.get("idem:req-3")).thenReturn(
+            "{\"bodyHash\":\"hash\",\"type\":\"java.io.File\",\"response\":\"/etc/passwd\"}");
+        assertThat(store.get("req-3")).isEmpty();
+    }
+}
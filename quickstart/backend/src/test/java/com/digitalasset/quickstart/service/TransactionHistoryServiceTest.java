@@ -0,0 +1,148 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.service.TransactionHistoryService.HistoryPage;
+import com.digitalasset.quickstart.service.TransactionHistoryService.TransactionHistoryEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for TransactionHistoryService - segmented log, indexes, paging, restart and retention
+ */
+class TransactionHistoryServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path historyDir;
+
+    @BeforeEach
+    void setUp() {
+        historyDir = tempDir.resolve("history");
+    }
+
+    private TransactionHistoryService open(long segmentBytes, long retentionBytes, int checkpointEvery) {
+        TransactionHistoryService service = new TransactionHistoryService(historyDir.toString(),
+            tempDir.resolve("legacy.json").toString(), segmentBytes, retentionBytes, 0, checkpointEvery);
+        service.init();
+        return service;
+    }
+
+    private static void swap(TransactionHistoryService service, String eventId, String pool, String party) {
+        service.recordSwap(eventId, pool, pool + "-cid", "CC", "CBTC", BigDecimal.ONE, BigDecimal.TEN, party);
+    }
+
+    @Test
+    void testPagingAndSecondaryIndexes() {
+        TransactionHistoryService service = open(1 << 20, 0, 1000);
+        for (int i = 0; i < 10; i++) {
+            swap(service, "ev-" + i, i % 2 == 0 ? "pool-a" : "pool-b", i < 5 ? "alice" : "bob");
+        }
+
+        HistoryPage first = service.getPage(null, null, null, 4);
+        assertThat(first.entries()).extracting(e -> e.id).containsExactly("ev-9", "ev-8", "ev-7", "ev-6");
+        HistoryPage second = service.getPage(null, null, first.nextCursor(), 4);
+        assertThat(second.entries()).extracting(e -> e.id).containsExactly("ev-5", "ev-4", "ev-3", "ev-2");
+
+        assertThat(service.getPage("alice", null, null, 10).entries()).extracting(e -> e.id)
+            .containsExactly("ev-4", "ev-3", "ev-2", "ev-1", "ev-0");
+        assertThat(service.getPage(null, "pool-b", null, 10).entries()).hasSize(5);
+        assertThat(service.getPage("bob", "pool-a", null, 10).entries()).extracting(e -> e.id)
+            .containsExactly("ev-8", "ev-6");
+        assertThat(service.getPage(null, null, null, 100).nextCursor()).isNull();
+    }
+
+    @Test
+    void testDuplicateEventIdIsRecordedOnce() {
+        TransactionHistoryService service = open(1 << 20, 0, 1000);
+        swap(service, "ev-1", "pool-a", "alice");
+        swap(service, "ev-1", "pool-a", "alice");
+
+        assertThat(service.size()).isEqualTo(1);
+        assertThat(service.findById("ev-1").actorParty).isEqualTo("alice");
+    }
+
+    @Test
+    void testRestartRecoversFromCheckpointAndTail() throws Exception {
+        TransactionHistoryService service = open(4096, 0, 3);
+        for (int i = 0; i < 50; i++) {
+            swap(service, "ev-" + i, "pool-a", "alice");
+        }
+        // Simulate a crash mid-append: a torn line after the last complete record
+        try (var files = Files.list(historyDir)) {
+            Path last = files.filter(p -> p.getFileName().toString().startsWith("segment-")).sorted()
+                .reduce((a, b) -> b).orElseThrow();
+            Files.writeString(last, "{\"s\":50,\"e\":{\"id\":", StandardOpenOption.APPEND);
+        }
+
+        TransactionHistoryService reopened = open(4096, 0, 3);
+
+        assertThat(reopened.size()).isEqualTo(50);
+        assertThat(reopened.getRecent(1)).extracting(e -> e.id).containsExactly("ev-49");
+        assertThat(reopened.findById("ev-0")).isNotNull();
+        swap(reopened, "ev-50", "pool-a", "alice");
+        assertThat(reopened.getRecent(2)).extracting(e -> e.id).containsExactly("ev-50", "ev-49");
+    }
+
+    @Test
+    void testCheckpointAppendsOnlyNewRecordsToSegmentIndex() throws Exception {
+        TransactionHistoryService service = open(1 << 20, 0, 5);
+        Path index = historyDir.resolve("segment-0000000001.idx");
+        for (int i = 0; i < 10; i++) {
+            swap(service, "ev-" + i, "pool-a", "alice");
+        }
+        List<String> before = Files.readAllLines(index);
+        for (int i = 10; i < 15; i++) {
+            swap(service, "ev-" + i, "pool-b", "bob");
+        }
+        List<String> after = Files.readAllLines(index);
+
+        assertThat(before).hasSize(10);
+        assertThat(after).hasSize(15).startsWith(before.toArray(String[]::new));
+
+        // A torn index line is dropped and the records it covered are recovered from the segment
+        Files.writeString(index, "[15,\"ev-", StandardOpenOption.APPEND);
+        swap(service, "ev-15", "pool-b", "bob");
+        TransactionHistoryService reopened = open(1 << 20, 0, 5);
+
+        assertThat(reopened.size()).isEqualTo(16);
+        assertThat(reopened.getPage("bob", null, null, 10).entries()).hasSize(6);
+        assertThat(Files.readAllLines(index)).hasSize(16);
+    }
+
+    @Test
+    void testRetentionDropsOldestSegments() {
+        TransactionHistoryService service = open(4096, 16384, 1000);
+        for (int i = 0; i < 200; i++) {
+            swap(service, "ev-" + i, "pool-a", "alice");
+        }
+
+        List<TransactionHistoryEntry> all = service.getRecent(1000);
+        assertThat(all.size()).isLessThan(200).isEqualTo(service.size());
+        assertThat(all.get(0).id).isEqualTo("ev-199");
+        assertThat(service.findById("ev-0")).isNull();
+        assertThat(service.getPage("alice", null, null, 1000).entries()).hasSize(all.size());
+    }
+
+    @Test
+    void testLegacyHistoryIsImportedOnce() throws Exception {
+        Files.writeString(tempDir.resolve("legacy.json"),
+            "[{\"id\":\"new\",\"type\":\"SWAP\",\"poolId\":\"pool-a\"},{\"id\":\"old\",\"type\":\"SWAP\",\"poolId\":\"pool-a\"}]");
+
+        TransactionHistoryService service = open(1 << 20, 0, 1000);
+
+        assertThat(service.getRecent(10)).extracting(e -> e.id).containsExactly("new", "old");
+        assertThat(Files.exists(tempDir.resolve("legacy.json"))).isFalse();
+    }
+}
@@ -0,0 +1,85 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.ledger.DisclosedContractCache;
+import com.digitalasset.quickstart.ledger.LedgerApi;
+import com.digitalasset.quickstart.ledger.LedgerInbox;
+import com.digitalasset.quickstart.ledger.LedgerUpdateStream;
+import com.digitalasset.quickstart.security.AuthUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for TransferInstructionAcsQueryService - index bootstrap off the request path, with retries
+ */
+class TransferInstructionAcsQueryServiceTest {
+
+    private static final String OPERATOR = "operator::1220";
+
+    private LedgerApi ledgerApi;
+    private LedgerUpdateStream updateStream;
+    private LedgerInbox inbox;
+    private TransferInstructionAcsQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        ledgerApi = mock(LedgerApi.class);
+        updateStream = mock(LedgerUpdateStream.class);
+        inbox = mock(LedgerInbox.class);
+        AuthUtils authUtils = mock(AuthUtils.class);
+        when(authUtils.getAppProviderPartyId()).thenReturn(OPERATOR);
+        when(ledgerApi.getActiveContractsRawForParty(OPERATOR)).thenReturn(CompletableFuture.completedFuture(List.of()));
+        service = new TransferInstructionAcsQueryService(ledgerApi, updateStream, inbox,
+            mock(DisclosedContractCache.class), authUtils, true, 10, 40);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void testReadsDoNotWaitForBootstrap() {
+        when(ledgerApi.getActiveContractsRawSnapshotForParty(OPERATOR)).thenReturn(new CompletableFuture<>());
+        service.start();
+
+        // The snapshot never arrives; operator reads fall back to a scan instead of waiting on it
+        assertThat(service.listForReceiverWithMemo(OPERATOR).isOk()).isTrue();
+        assertThat(service.findIndexedByRequestId(OPERATOR, "req-1")).isEmpty();
+        verify(ledgerApi, timeout(1000)).getActiveContractsRawSnapshotForParty(OPERATOR);
+        verify(ledgerApi).getActiveContractsRawForParty(OPERATOR);
+    }
+
+    @Test
+    void testFailedBootstrapIsRetriedInBackground() {
+        when(ledgerApi.getActiveContractsRawSnapshotForParty(OPERATOR))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("unavailable")))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("unavailable")))
+            .thenReturn(CompletableFuture.completedFuture(new LedgerApi.RawAcsSnapshot(42, List.of())));
+        service.start();
+
+        verify(inbox, timeout(2000)).setLive(OPERATOR, true);
+        verify(ledgerApi, times(3)).getActiveContractsRawSnapshotForParty(OPERATOR);
+        verify(updateStream).subscribe(eq(OPERATOR), eq(42L), eq("ti-index"), any());
+        assertThat(service.findIndexedByRequestId(OPERATOR, "req-1")).contains(List.of());
+
+        // Once live, reads come from the index with no further ACS reads
+        assertThat(service.listForReceiverWithMemo(OPERATOR).isOk()).isTrue();
+        verify(ledgerApi, times(0)).getActiveContractsRawForParty(OPERATOR);
+    }
+}
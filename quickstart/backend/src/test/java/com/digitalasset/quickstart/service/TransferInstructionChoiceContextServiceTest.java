@@ -0,0 +1,96 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.common.Result;
+import com.digitalasset.quickstart.dto.ApiError;
+import com.digitalasset.quickstart.dto.ErrorCode;
+import com.digitalasset.quickstart.service.TransferInstructionChoiceContextService.ChoiceContextPair;
+import com.digitalasset.quickstart.service.TransferInstructionChoiceContextService.ChoiceContextResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for TransferInstructionChoiceContextService.resolvePairAsync - concurrent legs and error propagation
+ */
+class TransferInstructionChoiceContextServiceTest {
+
+    private TransferInstructionChoiceContextService service;
+    private CompletableFuture<Result<ChoiceContextResult, ApiError>> legA;
+    private CompletableFuture<Result<ChoiceContextResult, ApiError>> legB;
+
+    @BeforeEach
+    void setUp() {
+        service = mock(TransferInstructionChoiceContextService.class, CALLS_REAL_METHODS);
+        legA = new CompletableFuture<>();
+        legB = new CompletableFuture<>();
+        doReturn(legA).when(service).resolveDisclosedContractsAsync(eq("ti-a"), any(), any());
+        doReturn(legB).when(service).resolveDisclosedContractsAsync(eq("ti-b"), any(), any());
+    }
+
+    private CompletableFuture<Result<ChoiceContextPair, ApiError>> resolvePair() {
+        return service.resolvePairAsync("ti-a", "admin-a", "ti-b", "admin-b", "req-1");
+    }
+
+    private static ChoiceContextResult context(String registry) {
+        return new ChoiceContextResult(List.of(), null, 1, registry, List.of(registry), "sync::1");
+    }
+
+    @Test
+    void testBothLegsAreRequestedBeforeEitherAnswers() {
+        CompletableFuture<Result<ChoiceContextPair, ApiError>> pair = resolvePair();
+
+        verify(service).resolveDisclosedContractsAsync("ti-a", "admin-a", "req-1");
+        verify(service).resolveDisclosedContractsAsync("ti-b", "admin-b", "req-1");
+        assertThat(pair).isNotDone();
+
+        legB.complete(Result.ok(context("registry-b")));
+        assertThat(pair).isNotDone();
+        legA.complete(Result.ok(context("registry-a")));
+
+        Result<ChoiceContextPair, ApiError> result = pair.join();
+        assertThat(result.isOk()).isTrue();
+        assertThat(result.getValueUnsafe().a().registryUsed()).isEqualTo("registry-a");
+        assertThat(result.getValueUnsafe().b().registryUsed()).isEqualTo("registry-b");
+    }
+
+    @Test
+    void testFirstFailingLegIsReported() {
+        CompletableFuture<Result<ChoiceContextPair, ApiError>> pair = resolvePair();
+        legA.complete(Result.ok(context("registry-a")));
+        legB.complete(Result.err(ApiError.of(ErrorCode.PRECONDITION_FAILED, "no registryBaseUri configured")));
+
+        assertThat(pair.join().getErrorUnsafe().message).isEqualTo("no registryBaseUri configured");
+
+        setUp();
+        pair = resolvePair();
+        legA.complete(Result.err(ApiError.of(ErrorCode.VALIDATION, "leg A rejected")));
+        legB.complete(Result.err(ApiError.of(ErrorCode.VALIDATION, "leg B rejected")));
+
+        assertThat(pair.join().getErrorUnsafe().message).isEqualTo("leg A rejected");
+    }
+
+    @Test
+    void testExceptionalLegBecomesErrorResult() {
+        CompletableFuture<Result<ChoiceContextPair, ApiError>> pair = resolvePair();
+        legA.completeExceptionally(new IllegalStateException("registry timeout"));
+        legB.complete(Result.ok(context("registry-b")));
+
+        Result<ChoiceContextPair, ApiError> result = pair.join();
+        assertThat(result.isErr()).isTrue();
+        assertThat(result.getErrorUnsafe().code).isEqualTo(ErrorCode.INTERNAL);
+        assertThat(result.getErrorUnsafe().message).contains("registry timeout");
+    }
+}
@@ -0,0 +1,81 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.service;
+
+import com.digitalasset.quickstart.service.TransferInstructionAcsQueryService.TransferInstructionDto;
+import com.digitalasset.quickstart.service.TransferInstructionAcsQueryService.TransferInstructionWithMemo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for TransferInstructionIndex - secondary keys follow creates and archives
+ */
+class TransferInstructionIndexTest {
+
+    private static final String OPERATOR = "operator::1220";
+
+    private TransferInstructionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TransferInstructionIndex();
+    }
+
+    @Test
+    void testLookupByMemoKeys() {
+        index.put(row("ti-1", "Amulet", "{\"requestId\":\"req-1\",\"poolCid\":\"pool-1\"}"));
+        index.put(row("ti-2", "CBTC", "{\"requestId\":\"req-1\",\"poolCid\":\"pool-1\"}"));
+        index.put(row("ti-3", "Amulet", "{\"requestId\":\"req-2\",\"poolCid\":\"pool-2\"}"));
+
+        assertThat(index.byRequestId("req-1")).extracting(r -> r.transferInstruction().contractId())
+            .containsExactly("ti-1", "ti-2");
+        assertThat(index.byPool("pool-2")).hasSize(1);
+        assertThat(index.byInstrument("DSO::1220", "Amulet")).hasSize(2);
+        assertThat(index.byReceiver(OPERATOR)).hasSize(3);
+        assertThat(index.byRequestId("missing")).isEmpty();
+    }
+
+    @Test
+    void testArchiveRemovesAllKeys() {
+        index.put(row("ti-1", "Amulet", "{\"requestId\":\"req-1\",\"poolCid\":\"pool-1\"}"));
+
+        index.remove("ti-1");
+
+        assertThat(index.size()).isZero();
+        assertThat(index.get("ti-1")).isEmpty();
+        assertThat(index.byRequestId("req-1")).isEmpty();
+        assertThat(index.byPool("pool-1")).isEmpty();
+        assertThat(index.byReceiver(OPERATOR)).isEmpty();
+    }
+
+    @Test
+    void testNonJsonMemoIsIndexedWithoutMemoKeys() {
+        index.put(row("ti-1", "Amulet", "plain text reason"));
+        index.put(row("ti-2", "Amulet", null));
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.all()).hasSize(2);
+        assertThat(index.byInstrument("DSO::1220", "Amulet")).hasSize(2);
+    }
+
+    @Test
+    void testReinsertReplacesEntry() {
+        index.put(row("ti-1", "Amulet", "{\"requestId\":\"req-1\"}"));
+        index.put(row("ti-1", "Amulet", "{\"requestId\":\"req-2\"}"));
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.byRequestId("req-1")).isEmpty();
+        assertThat(index.byRequestId("req-2")).hasSize(1);
+    }
+
+    private static TransferInstructionWithMemo row(String cid, String instrumentId, String memo) {
+        TransferInstructionDto ti = new TransferInstructionDto(
+            cid, "alice::1220", OPERATOR, "DSO::1220", instrumentId, "10.0", Instant.now().plusSeconds(3600));
+        return new TransferInstructionWithMemo(ti, memo);
+    }
+}
@@ -0,0 +1,86 @@
+// Copyright (c) 2025, Digital Asset (Switzerland) GmbH and/or its affiliates. All rights reserved.
+// SPDX-License-Identifier: 0BSD
+
+package com.digitalasset.quickstart.utility;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for TracingUtils - lazy attribute values and per-operation sampling
+ */
+class TracingUtilsTest {
+
+    @AfterEach
+    void tearDown() {
+        TracingUtils.setSamplingPolicy(null);
+    }
+
+    @Test
+    void testLazyValuesSkippedWhenNothingRecords() {
+        Logger logger = mock(Logger.class);
+        when(logger.isInfoEnabled()).thenReturn(false);
+        AtomicInteger evaluations = new AtomicInteger();
+        Supplier<String> expensive = () -> {
+            evaluations.incrementAndGet();
+            return "a,b";
+        };
+
+        // No active span (not recording) and INFO off: attribute values are never built
+        var ctx = TracingUtils.tracingCtx(logger, "Submitting commands", "actAs", expensive);
+        String result = TracingUtils.trace(ctx, () -> CompletableFuture.completedFuture("ok")).join();
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(evaluations).hasValue(0);
+        verify(logger, never()).atInfo();
+    }
+
+    @Test
+    void testAttrsResolveLazyValuesInOrder() {
+        var ctx = TracingUtils.tracingCtx(mock(Logger.class), "Exercising raw choice",
+            "actAs", TracingUtils.lazyJoin(List.of("alice", "bob")),
+            "commands.count", 2,
+            "templateId", "pkg:AMM.Pool:Pool");
+
+        assertThat(ctx.attrs().keySet()).containsExactly("actAs", "commands.count", "templateId");
+        assertThat(ctx.attrs()).containsEntry("actAs", "alice,bob").containsEntry("commands.count", 2);
+    }
+
+    @Test
+    void testPerOperationSampling() {
+        TracingUtils.setSamplingPolicy(TracingUtils.SamplingPolicy.ratio(1.0, Map.of("query", 0.0)));
+        Logger logger = mock(Logger.class);
+
+        assertThat(TracingUtils.tracingCtx(logger, "query", "sql", "select 1").sampled()).isFalse();
+        assertThat(TracingUtils.tracingCtx(logger, "Getting active contracts").sampled()).isTrue();
+
+        TracingUtils.setSamplingPolicy(TracingUtils.SamplingPolicy.ratio(0.0, Map.of()));
+        assertThat(TracingUtils.tracingCtx(logger, "Getting active contracts").sampled()).isFalse();
+    }
+
+    @Test
+    void testUnsampledFailureIsStillLogged() {
+        TracingUtils.setSamplingPolicy(operation -> false);
+        Logger logger = mock(Logger.class);
+        RuntimeException failure = new IllegalStateException("boom");
+
+        var ctx = TracingUtils.tracingCtx(logger, "Creating contract");
+        TracingUtils.trace(ctx, () -> CompletableFuture.failedFuture(failure)).exceptionally(t -> null).join();
+
+        verify(logger).error("Creating contract failed", failure);
+        verify(logger, never()).isInfoEnabled();
+    }
+}
@@ -16,4 +16,4 @@ plugins {
 }
 
 rootProject.name = "quickstart"
-include("backend", "daml")
+include("backend", "backend-jmh", "daml")